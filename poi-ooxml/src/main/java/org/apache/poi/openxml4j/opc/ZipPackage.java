@@ -608,6 +608,21 @@ public final class ZipPackage extends OPCPackage {
         return zipArchive;
     }
 
+    /**
+     * Can the input streams of different parts be opened and read concurrently?
+     * <p>
+     * The parts have to be looked up by a single thread, e.g. via {@link #getPart(PackagePartName)},
+     * as the relationships and parts of the package are loaded lazily. Afterwards their
+     * {@link PackagePart#getInputStream() input streams} can be read in parallel, if this returns true.
+     * </p>
+     *
+     * @return true, if the underlying zip source supports concurrent reads of its entries
+     * @since POI 5.2.4
+     */
+    public boolean supportsConcurrentReads() {
+        return zipArchive != null && !zipArchive.isClosed() && zipArchive.supportsConcurrentReads();
+    }
+
     @Override
     public boolean isClosed() {
         // if zipArchive == null, it might be created on the fly
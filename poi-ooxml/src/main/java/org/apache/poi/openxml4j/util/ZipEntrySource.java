@@ -62,4 +62,14 @@ public interface ZipEntrySource extends Closeable {
      * Has close been called already?
      */
     boolean isClosed();
+
+    /**
+     * Can the streams of different entries be opened and read concurrently by
+     *  multiple threads? Implementations, which don't know better, return false.
+     *
+     * @since POI 5.2.4
+     */
+    default boolean supportsConcurrentReads() {
+        return false;
+    }
 }
@@ -47,6 +47,15 @@ public class ZipFileZipEntrySource implements ZipEntrySource {
        return (zipArchive == null);
    }
 
+   /**
+    * The ZipFile resolves the entry offsets when it's opened and the entry
+    * streams read the archive independently from each other
+    */
+   @Override
+   public boolean supportsConcurrentReads() {
+      return true;
+   }
+
    @Override
    public Enumeration<? extends ZipArchiveEntry> getEntries() {
       if (zipArchive == null)
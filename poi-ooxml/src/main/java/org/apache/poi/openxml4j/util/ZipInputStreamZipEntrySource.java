@@ -129,6 +129,14 @@ public class ZipInputStreamZipEntrySource implements ZipEntrySource {
         return zipEntries.isEmpty();
     }
 
+    /**
+     * The entries are buffered, so each stream reads its own copy of the data
+     */
+    @Override
+    public boolean supportsConcurrentReads() {
+        return true;
+    }
+
     @Override
     public ZipArchiveEntry getEntry(final String path) {
         final String normalizedPath = path.replace('\\', '/');
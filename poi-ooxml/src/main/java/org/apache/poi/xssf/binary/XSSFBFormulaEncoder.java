@@ -0,0 +1,158 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.binary;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.ss.formula.ptg.AbstractFunctionPtg;
+import org.apache.poi.ss.formula.ptg.AreaErrPtg;
+import org.apache.poi.ss.formula.ptg.AreaPtg;
+import org.apache.poi.ss.formula.ptg.AttrPtg;
+import org.apache.poi.ss.formula.ptg.IntersectionPtg;
+import org.apache.poi.ss.formula.ptg.ParenthesisPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.RangePtg;
+import org.apache.poi.ss.formula.ptg.RefErrorPtg;
+import org.apache.poi.ss.formula.ptg.RefPtg;
+import org.apache.poi.ss.formula.ptg.ScalarConstantPtg;
+import org.apache.poi.ss.formula.ptg.StringPtg;
+import org.apache.poi.ss.formula.ptg.UnionPtg;
+import org.apache.poi.ss.formula.ptg.ValueOperatorPtg;
+import org.apache.poi.util.Internal;
+import org.apache.poi.util.LittleEndianOutputStream;
+
+/**
+ * Encodes parsed formulas as the formula tokens (rgce) of the xlsb format.
+ * <p>
+ * Most tokens are encoded like in BIFF8, but cell references use 4 byte rows and strings
+ * are always stored as UTF-16LE with a 2 byte length. The jump distances of the IF optimization
+ * tokens are adjusted to the changed token sizes.
+ * </p>
+ * <p>
+ * Only formulas with references to the own sheet are supported, references to other sheets,
+ * defined names, array constants and the like need tables in the workbook part, which aren't written.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+public final class XSSFBFormulaEncoder {
+    private static final int COL_MASK = 0x3FFF;
+    private static final int COL_RELATIVE = 0x4000;
+    private static final int ROW_RELATIVE = 0x8000;
+
+    private XSSFBFormulaEncoder() {
+    }
+
+    /**
+     * @param ptgs the tokens of a cell formula
+     * @return the encoded tokens or {@code null}, if the formula contains unsupported tokens
+     */
+    public static byte[] encode(Ptg[] ptgs) {
+        // token offsets in BIFF8, which are the base of the jump distances, and in xlsb
+        int[] biffOffsets = new int[ptgs.length + 1];
+        int[] xlsbOffsets = new int[ptgs.length + 1];
+        for (int i = 0; i < ptgs.length; i++) {
+            int size = getEncodedSize(ptgs[i]);
+            if (size < 0) {
+                return null;
+            }
+            biffOffsets[i + 1] = biffOffsets[i] + ptgs[i].getSize();
+            xlsbOffsets[i + 1] = xlsbOffsets[i] + size;
+        }
+
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream(xlsbOffsets[ptgs.length]);
+        LittleEndianOutputStream out = new LittleEndianOutputStream(bos);
+        for (int i = 0; i < ptgs.length; i++) {
+            Ptg ptg = ptgs[i];
+            if (ptg instanceof RefPtg) {
+                RefPtg ref = (RefPtg) ptg;
+                out.writeByte(ref.getSid() + ref.getPtgClass());
+                out.writeInt(ref.getRow());
+                out.writeShort(encodeColumn(ref.getColumn(), ref.isColRelative(), ref.isRowRelative()));
+            } else if (ptg instanceof AreaPtg) {
+                AreaPtg area = (AreaPtg) ptg;
+                out.writeByte(area.getSid() + area.getPtgClass());
+                out.writeInt(area.getFirstRow());
+                out.writeInt(area.getLastRow());
+                out.writeShort(encodeColumn(area.getFirstColumn(), area.isFirstColRelative(), area.isFirstRowRelative()));
+                out.writeShort(encodeColumn(area.getLastColumn(), area.isLastColRelative(), area.isLastRowRelative()));
+            } else if (ptg instanceof RefErrorPtg) {
+                out.writeByte(RefErrorPtg.sid + ptg.getPtgClass());
+                out.writeInt(0);
+                out.writeShort(0);
+            } else if (ptg instanceof AreaErrPtg) {
+                out.writeByte(AreaErrPtg.sid + ptg.getPtgClass());
+                out.writeInt(0);
+                out.writeInt(0);
+                out.writeInt(0);
+            } else if (ptg instanceof StringPtg) {
+                String value = ((StringPtg) ptg).getValue();
+                out.writeByte(StringPtg.sid);
+                out.writeShort(value.length());
+                for (int j = 0; j < value.length(); j++) {
+                    out.writeShort(value.charAt(j));
+                }
+            } else if (ptg instanceof AttrPtg && ((AttrPtg) ptg).isOptimizedIf()) {
+                AttrPtg.createIf(mapDistance(biffOffsets, xlsbOffsets, i, ((AttrPtg) ptg).getData())).write(out);
+            } else if (ptg instanceof AttrPtg && ((AttrPtg) ptg).isSkip()) {
+                AttrPtg.createSkip(mapDistance(biffOffsets, xlsbOffsets, i, ((AttrPtg) ptg).getData())).write(out);
+            } else {
+                // the remaining supported tokens are encoded like in BIFF8
+                ptg.write(out);
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * @return the size of the encoded token or -1, if it isn't supported
+     */
+    private static int getEncodedSize(Ptg ptg) {
+        if (ptg instanceof RefPtg || ptg instanceof RefErrorPtg) {
+            return 7;
+        } else if (ptg instanceof AreaPtg || ptg instanceof AreaErrPtg) {
+            return 13;
+        } else if (ptg instanceof StringPtg) {
+            return 3 + 2 * ((StringPtg) ptg).getValue().length();
+        } else if (ptg instanceof AttrPtg) {
+            return ((AttrPtg) ptg).isOptimizedChoose() ? -1 : ptg.getSize();
+        } else if (ptg instanceof ScalarConstantPtg || ptg instanceof ValueOperatorPtg
+                || ptg instanceof AbstractFunctionPtg || ptg instanceof ParenthesisPtg
+                || ptg instanceof UnionPtg || ptg instanceof IntersectionPtg || ptg instanceof RangePtg) {
+            return ptg.getSize();
+        }
+        return -1;
+    }
+
+    private static int encodeColumn(int column, boolean colRelative, boolean rowRelative) {
+        return (column & COL_MASK) | (colRelative ? COL_RELATIVE : 0) | (rowRelative ? ROW_RELATIVE : 0);
+    }
+
+    /**
+     * Maps a jump distance, which is counted from the end of the jumping token, to the xlsb token sizes.
+     * The target may be one byte before a token, like for the skip after the IF parameters.
+     */
+    private static int mapDistance(int[] biffOffsets, int[] xlsbOffsets, int ptgIndex, int distance) {
+        int target = biffOffsets[ptgIndex + 1] + distance;
+        int k = ptgIndex + 1;
+        while (k < biffOffsets.length - 1 && biffOffsets[k] < target) {
+            k++;
+        }
+        return xlsbOffsets[k] - (biffOffsets[k] - target) - xlsbOffsets[ptgIndex + 1];
+    }
+}
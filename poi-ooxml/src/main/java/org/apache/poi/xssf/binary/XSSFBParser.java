@@ -19,16 +19,22 @@ package org.apache.poi.xssf.binary;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
 import com.zaxxer.sparsebits.SparseBitSet;
 import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.Internal;
-import org.apache.poi.util.LittleEndianInputStream;
 
 /**
  * Experimental parser for Microsoft's ooxml xlsb format.
  * Not thread safe, obviously.  Need to create a new one
  * for each thread.
+ * <p>
+ * The input is read in chunks and each record is copied into a single record buffer,
+ * which grows with the largest record and is reused for the following records.
+ * Subclasses, which only look at the record while it's handled, can override
+ * {@link #handleRecord(int, byte[], int)} to get this buffer without a copy.
+ * </p>
  *
  * @since 3.16-beta3
  */
@@ -39,8 +45,16 @@ public abstract class XSSFBParser {
     private static final int DEFAULT_MAX_RECORD_LENGTH = 1_000_000;
     private static int MAX_RECORD_LENGTH = DEFAULT_MAX_RECORD_LENGTH;
 
-    private final LittleEndianInputStream is;
+    private static final int INPUT_BUFFER_SIZE = 8192;
+    private static final int INITIAL_RECORD_BUFFER_SIZE = 256;
+
+    private final InputStream is;
     private final SparseBitSet records;
+    private final byte[] input = new byte[INPUT_BUFFER_SIZE];
+    private int inputPos;
+    private int inputLimit;
+    private byte[] recordBuffer = new byte[INITIAL_RECORD_BUFFER_SIZE];
+    private boolean stopped;
 
     /**
      * @param length the max record length allowed for XSSFBParser
@@ -57,7 +71,7 @@ public abstract class XSSFBParser {
     }
 
     public XSSFBParser(InputStream is) {
-        this.is = new LittleEndianInputStream(is);
+        this.is = is;
         records = null;
     }
 
@@ -67,14 +81,14 @@ public abstract class XSSFBParser {
      * @param bitSet call {@link #handleRecord(int, byte[])} only on those records in this bitSet
      */
     protected XSSFBParser(InputStream is, SparseBitSet bitSet) {
-        this.is = new LittleEndianInputStream(is);
+        this.is = is;
         records = bitSet;
     }
 
     public void parse() throws IOException {
 
-        while (true) {
-            int bInt = is.read();
+        while (!stopped) {
+            int bInt = read();
             if (bInt == -1) {
                 return;
             }
@@ -87,7 +101,7 @@ public abstract class XSSFBParser {
 
         //if highest bit == 1
         if ((b1 >> 7 & 1) == 1) {
-            byte b2 = is.readByte();
+            byte b2 = readByte();
             b1 &= ~(1<<7); //unset highest bit
             b2 &= ~(1<<7); //unset highest bit (if it exists?)
             recordId = ((int)b2 << 7)+(int)b1;
@@ -99,7 +113,7 @@ public abstract class XSSFBParser {
         int i = 0;
         boolean halt = false;
         while (i < 4 && ! halt) {
-            byte b = is.readByte();
+            byte b = readByte();
             halt = (b >> 7 & 1) == 0; //if highest bit !=1 then continue
             b &= ~(1<<7);
             recordLength += (long) (int)b << (i*7); //multiply by 128^i
@@ -107,11 +121,16 @@ public abstract class XSSFBParser {
 
         }
         if (records == null || records.get(recordId)) {
-            byte[] buff = IOUtils.safelyAllocate(recordLength, MAX_RECORD_LENGTH);
-            is.readFully(buff);
-            handleRecord(recordId, buff);
+            if (recordLength > recordBuffer.length) {
+                IOUtils.safelyAllocateCheck(recordLength, MAX_RECORD_LENGTH);
+                // grow geometrically, so slowly growing records don't cause an allocation each
+                long newLength = Math.min(Math.max(recordLength, recordBuffer.length * 2L), MAX_RECORD_LENGTH);
+                recordBuffer = IOUtils.safelyAllocate(newLength, MAX_RECORD_LENGTH);
+            }
+            readFully(recordBuffer, (int) recordLength);
+            handleRecord(recordId, recordBuffer, (int) recordLength);
         } else {
-            long length = IOUtils.skipFully(is, recordLength);
+            long length = skip(recordLength);
             if (length != recordLength) {
                 throw new XSSFBParseException("End of file reached before expected.\t"+
                 "Tried to skip "+recordLength + ", but only skipped "+length);
@@ -119,12 +138,90 @@ public abstract class XSSFBParser {
         }
     }
 
-    //It hurts, hurts, hurts to create a new byte array for every record.
-    //However, on a large Excel spreadsheet, this parser was 1/3 faster than
-    //the ooxml sax parser (5 seconds for xssfb and 7.5 seconds for xssf.
-    //The code is far cleaner to have the parser read all
-    //of the data rather than having every component promise that it will read
-    //the correct amount.
+    private boolean fill() throws IOException {
+        inputPos = 0;
+        int count;
+        do {
+            count = is.read(input, 0, input.length);
+        } while (count == 0);
+        inputLimit = Math.max(count, 0);
+        return count > 0;
+    }
+
+    private int read() throws IOException {
+        if (inputPos == inputLimit && !fill()) {
+            return -1;
+        }
+        return input[inputPos++] & 0xFF;
+    }
+
+    private byte readByte() throws IOException {
+        int b = read();
+        if (b == -1) {
+            throw new XSSFBParseException("End of file reached before expected");
+        }
+        return (byte) b;
+    }
+
+    private void readFully(byte[] buffer, int length) throws IOException {
+        int pos = 0;
+        while (pos < length) {
+            if (inputPos == inputLimit && !fill()) {
+                throw new XSSFBParseException("End of file reached before expected.\t"+
+                    "Tried to read "+length + ", but only read "+pos);
+            }
+            int count = Math.min(length - pos, inputLimit - inputPos);
+            System.arraycopy(input, inputPos, buffer, pos, count);
+            inputPos += count;
+            pos += count;
+        }
+    }
+
+    private long skip(long length) throws IOException {
+        long buffered = Math.min(length, inputLimit - inputPos);
+        inputPos += (int) buffered;
+        if (buffered == length) {
+            return length;
+        }
+        // skipFully returns -1, if nothing could be skipped
+        return buffered + Math.max(IOUtils.skipFully(is, length - buffered), 0);
+    }
+
+    /**
+     * Stops the parsing after the current record, e.g. when the remaining records aren't needed
+     *
+     * @since POI 5.2.4
+     */
+    protected void stopParsing() {
+        stopped = true;
+    }
+
+    /**
+     * Handles a record, which is only valid during this call: the buffer is reused for the
+     * next record and may be larger than the record.
+     * <p>
+     * The default implementation copies the record into an array of its length and calls
+     * {@link #handleRecord(int, byte[])}. Subclasses, which don't keep the data, can override
+     * this method to avoid the copy.
+     * </p>
+     *
+     * @param recordType the record id
+     * @param buffer the record buffer, which holds the record data at the offsets {@code 0} to {@code length - 1}
+     * @param length the length of the record
+     * @throws XSSFBParseException if the record can't be parsed
+     * @since POI 5.2.4
+     */
+    protected void handleRecord(int recordType, byte[] buffer, int length) throws XSSFBParseException {
+        handleRecord(recordType, Arrays.copyOf(buffer, length));
+    }
+
+    /**
+     * Handles a record
+     *
+     * @param recordType the record id
+     * @param data the record data, which can be kept by the implementation
+     * @throws XSSFBParseException if the record can't be parsed
+     */
     abstract public void handleRecord(int recordType, byte[] data) throws XSSFBParseException;
 
 }
@@ -17,9 +17,6 @@
 
 package org.apache.poi.xssf.binary;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.apache.poi.util.Internal;
 
 /**
@@ -42,11 +39,22 @@ public enum XSSFBRecordType {
     BrtRowHdr(0),
     BrtCellRString(62),
     BrtBeginSheet(129),
+    BrtEndSheet(130),
     BrtWsProp(147),
     BrtWsDim(148),
     BrtColInfo(60),
     BrtBeginSheetData(145),
     BrtEndSheetData(146),
+    BrtBeginColInfos(390),
+    BrtEndColInfos(391),
+    BrtWsFmtInfo(485),
+    BrtBeginWsViews(133),
+    BrtEndWsViews(134),
+    BrtBeginWsView(137),
+    BrtEndWsView(138),
+    BrtBeginMergeCells(177),
+    BrtEndMergeCells(178),
+    BrtMergeCell(176),
     BrtHLink(494),
     BrtBeginHeaderFooter(479),
 
@@ -58,6 +66,24 @@ public enum XSSFBRecordType {
     BrtCommentText(637),
     BrtEndComment(636),
     //styles table
+    BrtBeginStyleSheet(278),
+    BrtEndStyleSheet(279),
+    BrtFont(43),
+    BrtBeginFonts(611),
+    BrtEndFonts(612),
+    BrtFill(45),
+    BrtBeginFills(603),
+    BrtEndFills(604),
+    BrtBorder(46),
+    BrtBeginBorders(613),
+    BrtEndBorders(614),
+    BrtStyle(48),
+    BrtBeginStyles(619),
+    BrtEndStyles(620),
+    BrtBeginDXFs(505),
+    BrtEndDXFs(506),
+    BrtBeginTableStyles(508),
+    BrtEndTableStyles(509),
     BrtXf(47),
     BrtFmt(44),
     BrtBeginFmts(615),
@@ -72,21 +98,32 @@ public enum XSSFBRecordType {
     BrtBeginSst(159), //stored strings begin sst
     BrtEndSst(160),   //stored strings end sst
 
+    //workbook part
+    BrtBeginBook(131),
+    BrtEndBook(132),
+    BrtWbProp(153), //Workbook prop contains 1904/1900-date based bit
+    BrtBeginBookViews(135),
+    BrtEndBookViews(136),
+    BrtBookView(158),
+    BrtBeginBundleShs(143),
+    BrtEndBundleShs(144),
     BrtBundleSh(156), //defines worksheet in wb part
+    BrtCalcProp(157),
 
     BrtAbsPath15(2071), //Excel 2013 path where the file was stored in wbpart
 
     //TODO -- implement these as needed
     //BrtFileVersion(128), //file version
-    //BrtWbProp(153), //Workbook prop contains 1904/1900-date based bit
     Unimplemented(-1);
 
-    private static final Map<Integer, XSSFBRecordType> TYPE_MAP =
-            new HashMap<>();
+    /** the record ids have at most 14 bits, so the types are looked up in an array */
+    private static final XSSFBRecordType[] TYPES = new XSSFBRecordType[1 << 14];
 
     static {
         for (XSSFBRecordType type : XSSFBRecordType.values()) {
-            TYPE_MAP.put(type.getId(), type);
+            if (type.getId() >= 0) {
+                TYPES[type.getId()] = type;
+            }
         }
     }
 
@@ -101,7 +138,7 @@ public enum XSSFBRecordType {
     }
 
     public static XSSFBRecordType lookup(int id) {
-        XSSFBRecordType type = TYPE_MAP.get(id);
+        XSSFBRecordType type = (id >= 0 && id < TYPES.length) ? TYPES[id] : null;
         if (type == null) {
             return Unimplemented;
         }
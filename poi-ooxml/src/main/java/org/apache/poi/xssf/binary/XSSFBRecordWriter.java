@@ -0,0 +1,178 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.binary;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.poi.util.Internal;
+import org.apache.poi.util.LittleEndian;
+
+/**
+ * Writes records of Microsoft's ooxml xlsb format, the counterpart of {@link XSSFBParser}.
+ * <p>
+ * A record is started with {@link #beginRecord(XSSFBRecordType)}, its fields are appended
+ * to a reusable buffer and {@link #endRecord()} writes the record header with the final length
+ * followed by the fields.
+ * Not thread safe.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+public class XSSFBRecordWriter implements Closeable {
+    /** a record length is encoded in at most 4 bytes of 7 bits */
+    private static final int MAX_RECORD_LENGTH = (1 << 28) - 1;
+
+    private final OutputStream out;
+    private final byte[] header = new byte[6];
+    private byte[] buffer = new byte[256];
+    private int length;
+    private int recordType = -1;
+
+    public XSSFBRecordWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a record without data, e.g. the begin and end records of a collection
+     */
+    public void writeRecord(XSSFBRecordType type) throws IOException {
+        beginRecord(type);
+        endRecord();
+    }
+
+    public XSSFBRecordWriter beginRecord(XSSFBRecordType type) {
+        if (recordType != -1) {
+            throw new IllegalStateException("Record " + XSSFBRecordType.lookup(recordType) + " was not ended");
+        }
+        recordType = type.getId();
+        length = 0;
+        return this;
+    }
+
+    public void endRecord() throws IOException {
+        if (recordType == -1) {
+            throw new IllegalStateException("No record was started");
+        }
+        if (length > MAX_RECORD_LENGTH) {
+            throw new XSSFBParseException("Record too long: " + length);
+        }
+        int pos = 0;
+        if (recordType < 0x80) {
+            header[pos++] = (byte) recordType;
+        } else {
+            header[pos++] = (byte) ((recordType & 0x7F) | 0x80);
+            header[pos++] = (byte) (recordType >> 7);
+        }
+        int len = length;
+        do {
+            int b = len & 0x7F;
+            len >>>= 7;
+            header[pos++] = (byte) (len == 0 ? b : (b | 0x80));
+        } while (len != 0);
+        out.write(header, 0, pos);
+        out.write(buffer, 0, length);
+        recordType = -1;
+    }
+
+    public XSSFBRecordWriter writeByte(int value) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) value;
+        return this;
+    }
+
+    public XSSFBRecordWriter writeShort(int value) {
+        ensureCapacity(2);
+        LittleEndian.putShort(buffer, length, (short) value);
+        length += 2;
+        return this;
+    }
+
+    /**
+     * Writes the lower 3 bytes of the value, e.g. a style reference
+     */
+    public XSSFBRecordWriter write24BitInt(int value) {
+        ensureCapacity(3);
+        buffer[length++] = (byte) value;
+        buffer[length++] = (byte) (value >> 8);
+        buffer[length++] = (byte) (value >> 16);
+        return this;
+    }
+
+    public XSSFBRecordWriter writeInt(int value) {
+        ensureCapacity(4);
+        LittleEndian.putInt(buffer, length, value);
+        length += 4;
+        return this;
+    }
+
+    public XSSFBRecordWriter writeDouble(double value) {
+        ensureCapacity(8);
+        LittleEndian.putDouble(buffer, length, value);
+        length += 8;
+        return this;
+    }
+
+    public XSSFBRecordWriter writeBytes(byte[] data) {
+        ensureCapacity(data.length);
+        System.arraycopy(data, 0, buffer, length, data.length);
+        length += data.length;
+        return this;
+    }
+
+    /**
+     * Writes an XLWideString, i.e. the number of characters followed by the UTF-16LE characters
+     */
+    public XSSFBRecordWriter writeXLWideString(String value) {
+        int numChars = value.length();
+        ensureCapacity(4 + 2 * numChars);
+        LittleEndian.putInt(buffer, length, numChars);
+        length += 4;
+        for (int i = 0; i < numChars; i++) {
+            char c = value.charAt(i);
+            buffer[length++] = (byte) c;
+            buffer[length++] = (byte) (c >> 8);
+        }
+        return this;
+    }
+
+    /**
+     * Writes an XLNullableWideString, where {@code null} is encoded as 0xFFFFFFFF characters
+     */
+    public XSSFBRecordWriter writeXLNullableWideString(String value) {
+        return (value == null) ? writeInt(0xFFFFFFFF) : writeXLWideString(value);
+    }
+
+    private void ensureCapacity(int len) {
+        if (length + len > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + len));
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -36,7 +36,7 @@ import org.apache.poi.xssf.usermodel.XSSFRelation;
 public class XSSFBRelation extends POIXMLRelation {
     private static final Logger LOGGER = LogManager.getLogger(XSSFBRelation.class);
 
-    static final XSSFBRelation SHARED_STRINGS_BINARY = new XSSFBRelation(
+    public static final XSSFBRelation SHARED_STRINGS_BINARY = new XSSFBRelation(
             "application/vnd.ms-excel.sharedStrings",
             "http://schemas.openxmlformats.org/officeDocument/2006/relationships/sharedStrings",
             "/xl/sharedStrings.bin"
@@ -48,6 +48,15 @@ public class XSSFBRelation extends POIXMLRelation {
             "/xl/styles.bin"
     );
 
+    /**
+     * @since POI 5.2.4
+     */
+    public static final XSSFBRelation WORKSHEET_BINARY = new XSSFBRelation(
+            "application/vnd.ms-excel.worksheet",
+            "http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet",
+            "/xl/worksheets/sheet#.bin"
+    );
+
     private XSSFBRelation(String type, String rel, String defaultName) {
         super(type, rel, defaultName);
     }
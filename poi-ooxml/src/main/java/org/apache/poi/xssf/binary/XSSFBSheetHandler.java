@@ -19,15 +19,18 @@ package org.apache.poi.xssf.binary;
 
 
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Queue;
 
 import org.apache.poi.ss.usermodel.BuiltinFormats;
 import org.apache.poi.ss.usermodel.DataFormatter;
-import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.ss.usermodel.FormulaError;
 import org.apache.poi.ss.util.CellAddress;
 import org.apache.poi.util.Internal;
 import org.apache.poi.util.LittleEndian;
 import org.apache.poi.util.StringUtil;
+import org.apache.poi.xssf.eventusermodel.SheetReadFilter;
+import org.apache.poi.xssf.eventusermodel.TypedSheetContentsHandler;
 import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
 import org.apache.poi.xssf.model.SharedStrings;
 import org.apache.poi.xssf.usermodel.XSSFComment;
@@ -42,6 +45,7 @@ public class XSSFBSheetHandler extends XSSFBParser {
 
     private final SharedStrings stringsTable;
     private final XSSFSheetXMLHandler.SheetContentsHandler handler;
+    private final TypedSheetContentsHandler typedHandler;
     private final XSSFBStylesTable styles;
     private final XSSFBCommentsTable comments;
     private final DataFormatter dataFormatter;
@@ -50,9 +54,12 @@ public class XSSFBSheetHandler extends XSSFBParser {
     private int lastEndedRow = -1;
     private int lastStartedRow = -1;
     private int currentRow;
+    private SheetReadFilter readFilter;
+    private boolean skipRow;
     private byte[] rkBuffer = new byte[8];
     private XSSFBCellRange hyperlinkCellRange;
-    private StringBuilder xlWideStringBuffer = new StringBuilder();
+    private final XSSFBWideStringView stringView = new XSSFBWideStringView();
+    private int recordLength;
 
     private final XSSFBCellHeader cellBuffer = new XSSFBCellHeader();
     public XSSFBSheetHandler(InputStream is,
@@ -67,20 +74,87 @@ public class XSSFBSheetHandler extends XSSFBParser {
         this.comments = comments;
         this.stringsTable = strings;
         this.handler = sheetContentsHandler;
+        this.typedHandler = null;
         this.dataFormatter = dataFormatter;
         this.formulasNotResults = formulasNotResults;
     }
 
+    /**
+     * Reports the raw typed cell values to the handler, without formatting them.
+     * The formulas aren't decoded, so {@link TypedSheetContentsHandler#formulaCell} gets no formula text.
+     *
+     * @since POI 5.2.4
+     */
+    public XSSFBSheetHandler(InputStream is,
+                             SharedStrings strings,
+                             TypedSheetContentsHandler typedContentsHandler) {
+        super(is);
+        this.styles = null;
+        this.comments = null;
+        this.stringsTable = strings;
+        this.handler = typedContentsHandler;
+        this.typedHandler = typedContentsHandler;
+        this.dataFormatter = null;
+        this.formulasNotResults = false;
+    }
+
+    /**
+     * Restricts the rows and columns, which are reported to the handler.
+     * The cells outside the filter are skipped before their values are decoded and the
+     * parsing is stopped after the last row of the filter has been read.
+     *
+     * @param readFilter the filter or {@code null} to report all cells
+     * @since POI 5.2.4
+     */
+    public void setReadFilter(SheetReadFilter readFilter) {
+        this.readFilter = readFilter;
+    }
+
+    /**
+     * @return the filter of the reported rows and columns or {@code null} if all cells are reported
+     * @since POI 5.2.4
+     */
+    public SheetReadFilter getReadFilter() {
+        return readFilter;
+    }
+
     @Override
     public void handleRecord(int id, byte[] data) throws XSSFBParseException {
+        handleRecord(id, data, data.length);
+    }
+
+    /**
+     * Handles the records directly in the reused record buffer of the parser, as no record data is kept
+     *
+     * @since POI 5.2.4
+     */
+    @Override
+    protected void handleRecord(int id, byte[] data, int length) throws XSSFBParseException {
         XSSFBRecordType type = XSSFBRecordType.lookup(id);
+        recordLength = length;
+        if (readFilter != null && isFilteredCell(type, data)) {
+            return;
+        }
 
         switch(type) {
             case BrtRowHdr:
+                checkLength(4);
                 int rw = XSSFBUtils.castToInt(LittleEndian.getUInt(data, 0));
                 if (rw > 0x00100000) {//could make sure this is larger than currentRow, according to spec?
                     throw new XSSFBParseException("Row number beyond allowable range: "+rw);
                 }
+                if (readFilter != null) {
+                    if (readFilter.isAfterLastRow(rw)) {
+                        checkMissedComments(CHECK_ALL_ROWS);
+                        endRow(lastStartedRow);
+                        stopParsing();
+                        break;
+                    }
+                    skipRow = !readFilter.acceptsRow(rw);
+                    if (skipRow) {
+                        break;
+                    }
+                }
                 currentRow = rw;
                 checkMissedComments(currentRow);
                 startRow(currentRow);
@@ -121,13 +195,50 @@ public class XSSFBSheetHandler extends XSSFBParser {
                 endRow(lastStartedRow);
                 break;
             case BrtBeginHeaderFooter:
-                handleHeaderFooter(data);
+                handleHeaderFooter(Arrays.copyOf(data, length));
                 break;
         }
     }
 
 
+    /**
+     * @return true, if the record is a cell, which is outside the read filter
+     */
+    private boolean isFilteredCell(XSSFBRecordType type, byte[] data) {
+        switch (type) {
+            case BrtCellIsst:
+            case BrtCellSt:
+            case BrtCellRk:
+            case BrtCellReal:
+            case BrtCellBool:
+            case BrtCellError:
+            case BrtCellBlank:
+            case BrtFmlaString:
+            case BrtFmlaNum:
+            case BrtFmlaError:
+                // the column is the first field of the cell header
+                checkLength(XSSFBCellHeader.length);
+                return skipRow || !readFilter.acceptsColumn(XSSFBUtils.castToInt(LittleEndian.getUInt(data, 0)));
+            default:
+                return false;
+        }
+    }
+
+    private boolean isFilteredComment(CellAddress cellAddress) {
+        return readFilter != null && !readFilter.accepts(cellAddress.getRow(), cellAddress.getColumn());
+    }
+
+    /**
+     * The record buffer is reused and may contain the data of a previous record behind the current one
+     */
+    private void checkLength(int minLength) {
+        if (recordLength < minLength) {
+            throw new XSSFBParseException("The record has " + recordLength + " bytes, but needs at least " + minLength);
+        }
+    }
+
     private void beforeCellValue(byte[] data) {
+        checkLength(XSSFBCellHeader.length);
         XSSFBCellHeader.parse(data, 0, currentRow, cellBuffer);
         checkMissedComments(currentRow, cellBuffer.getColNum());
     }
@@ -141,56 +252,94 @@ public class XSSFBSheetHandler extends XSSFBParser {
         handler.cell(cellAddress.formatAsString(), formattedValue, comment);
     }
 
-    private void handleFmlaNum(byte[] data) {
+    private void handleNumericValue(double val) {
+        if (typedHandler != null) {
+            typedHandler.numericCell(currentRow, cellBuffer.getColNum(), val, cellBuffer.getStyleIdx());
+        } else {
+            handleCellValue(formatVal(val, cellBuffer.getStyleIdx()));
+        }
+    }
+
+    private void handleStringValue(CharSequence val) {
+        if (typedHandler != null) {
+            typedHandler.stringCell(currentRow, cellBuffer.getColNum(), val, cellBuffer.getStyleIdx());
+        } else {
+            handleCellValue(val.toString());
+        }
+    }
+
+    private void handleErrorValue(byte[] data) {
+        checkLength(XSSFBCellHeader.length + 1);
+        int code = data[XSSFBCellHeader.length];
+        String error = FormulaError.isValidCode(code) ? FormulaError.forInt(code).getString() : "ERROR";
+        if (typedHandler != null) {
+            typedHandler.errorCell(currentRow, cellBuffer.getColNum(), error, cellBuffer.getStyleIdx());
+        } else {
+            handleCellValue(error);
+        }
+    }
+
+    private void beforeFormulaValue(byte[] data) {
         beforeCellValue(data);
+        if (typedHandler != null) {
+            typedHandler.formulaCell(currentRow, cellBuffer.getColNum(), null, cellBuffer.getStyleIdx());
+        }
+    }
+
+    private void handleFmlaNum(byte[] data) {
+        beforeFormulaValue(data);
         //xNum
+        checkLength(XSSFBCellHeader.length + 8);
         double val = LittleEndian.getDouble(data, XSSFBCellHeader.length);
-        handleCellValue(formatVal(val, cellBuffer.getStyleIdx()));
+        handleNumericValue(val);
     }
 
     private void handleCellSt(byte[] data) {
         beforeCellValue(data);
-        xlWideStringBuffer.setLength(0);
-        XSSFBUtils.readXLWideString(data, XSSFBCellHeader.length, xlWideStringBuffer);
-        handleCellValue(xlWideStringBuffer.toString());
+        stringView.reset(data, XSSFBCellHeader.length, recordLength);
+        handleStringValue(stringView);
     }
 
     private void handleFmlaString(byte[] data) {
-        beforeCellValue(data);
-        xlWideStringBuffer.setLength(0);
-        XSSFBUtils.readXLWideString(data, XSSFBCellHeader.length, xlWideStringBuffer);
-        handleCellValue(xlWideStringBuffer.toString());
+        beforeFormulaValue(data);
+        stringView.reset(data, XSSFBCellHeader.length, recordLength);
+        handleStringValue(stringView);
     }
 
     private void handleCellError(byte[] data) {
         beforeCellValue(data);
-        //TODO, read byte to figure out the type of error
-        handleCellValue("ERROR");
+        handleErrorValue(data);
     }
 
     private void handleFmlaError(byte[] data) {
-        beforeCellValue(data);
-        //TODO, read byte to figure out the type of error
-        handleCellValue("ERROR");
+        beforeFormulaValue(data);
+        handleErrorValue(data);
     }
 
     private void handleBoolean(byte[] data) {
         beforeCellValue(data);
-        String formattedVal = (data[XSSFBCellHeader.length] == 1) ? "TRUE" : "FALSE";
-        handleCellValue(formattedVal);
+        checkLength(XSSFBCellHeader.length + 1);
+        boolean val = data[XSSFBCellHeader.length] == 1;
+        if (typedHandler != null) {
+            typedHandler.booleanCell(currentRow, cellBuffer.getColNum(), val, cellBuffer.getStyleIdx());
+        } else {
+            handleCellValue(val ? "TRUE" : "FALSE");
+        }
     }
 
     private void handleCellReal(byte[] data) {
         beforeCellValue(data);
         //xNum
+        checkLength(XSSFBCellHeader.length + 8);
         double val = LittleEndian.getDouble(data, XSSFBCellHeader.length);
-        handleCellValue(formatVal(val, cellBuffer.getStyleIdx()));
+        handleNumericValue(val);
     }
 
     private void handleCellRk(byte[] data) {
         beforeCellValue(data);
+        checkLength(XSSFBCellHeader.length + 4);
         double val = rkNumber(data, XSSFBCellHeader.length);
-        handleCellValue(formatVal(val, cellBuffer.getStyleIdx()));
+        handleNumericValue(val);
     }
 
     private String formatVal(double val, int styleIdx) {
@@ -209,9 +358,17 @@ public class XSSFBSheetHandler extends XSSFBParser {
 
     private void handleBrtCellIsst(byte[] data) {
         beforeCellValue(data);
+        checkLength(XSSFBCellHeader.length + 4);
         int idx = XSSFBUtils.castToInt(LittleEndian.getUInt(data, XSSFBCellHeader.length));
-        RichTextString rtss = stringsTable.getItemAt(idx);
-        handleCellValue(rtss.getString());
+        if (typedHandler != null) {
+            int col = cellBuffer.getColNum();
+            int styleIdx = cellBuffer.getStyleIdx();
+            if (!typedHandler.sharedStringCell(currentRow, col, idx, styleIdx)) {
+                typedHandler.stringCell(currentRow, col, stringsTable.getItemAt(idx).getString(), styleIdx);
+            }
+        } else {
+            handleCellValue(stringsTable.getItemAt(idx).getString());
+        }
     }
 
 
@@ -243,7 +400,9 @@ public class XSSFBSheetHandler extends XSSFBParser {
             CellAddress cellAddress = queue.peek();
             if (cellAddress.getRow() == currentRow && cellAddress.getColumn() < colNum) {
                 cellAddress = queue.remove();
-                dumpEmptyCellComment(cellAddress, comments.get(cellAddress));
+                if (!isFilteredComment(cellAddress)) {
+                    dumpEmptyCellComment(cellAddress, comments.get(cellAddress));
+                }
             } else if (cellAddress.getRow() == currentRow && cellAddress.getColumn() == colNum) {
                 queue.remove();
                 return;
@@ -266,6 +425,9 @@ public class XSSFBSheetHandler extends XSSFBParser {
             CellAddress cellAddress = queue.peek();
             if (currentRow == CHECK_ALL_ROWS || cellAddress.getRow() < currentRow) {
                 cellAddress = queue.remove();
+                if (isFilteredComment(cellAddress)) {
+                    continue;
+                }
                 if (cellAddress.getRow() != lastInterpolatedRow) {
                     startRow(cellAddress.getRow());
                 }
@@ -47,7 +47,12 @@ public class XSSFBStylesTable extends XSSFBParser {
         parse();
     }
 
-    String getNumberFormatString(int idx) {
+    /**
+     * @param idx the index of the cell style
+     * @return the number format of the cell style
+     * @since POI 5.2.4
+     */
+    public String getNumberFormatString(int idx) {
         short numberFormatIdx = getNumberFormatIndex(idx);
         if (numberFormats.containsKey(numberFormatIdx)) {
             return numberFormats.get(numberFormatIdx);
@@ -56,10 +61,23 @@ public class XSSFBStylesTable extends XSSFBParser {
         return BuiltinFormats.getBuiltinFormat(numberFormatIdx);
     }
 
-    short getNumberFormatIndex(int idx) {
+    /**
+     * @param idx the index of the cell style
+     * @return the number format index of the cell style
+     * @since POI 5.2.4
+     */
+    public short getNumberFormatIndex(int idx) {
         return styleIds.get(idx);
     }
 
+    /**
+     * @return the number of cell styles
+     * @since POI 5.2.4
+     */
+    public int getStyleCount() {
+        return styleIds.size();
+    }
+
     @Override
     public void handleRecord(int recordType, byte[] data) throws XSSFBParseException {
         XSSFBRecordType type = XSSFBRecordType.lookup(recordType);
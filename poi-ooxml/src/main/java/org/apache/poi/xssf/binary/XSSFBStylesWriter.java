@@ -0,0 +1,274 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.binary;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.FontScheme;
+import org.apache.poi.util.Internal;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.xssf.usermodel.extensions.XSSFCellBorder;
+import org.apache.poi.xssf.usermodel.extensions.XSSFCellBorder.BorderSide;
+import org.apache.poi.xssf.usermodel.extensions.XSSFCellFill;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCellAlignment;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCellProtection;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTColor;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTXf;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STPatternType;
+
+/**
+ * Writes the styles of a {@link StylesTable} as xlsb styles part, the counterpart of {@link XSSFBStylesTable}.
+ * <p>
+ * Number formats, fonts, pattern fills, borders and the cell formats are written.
+ * Gradient fills are written as empty fills, differential formats and table styles are not written.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+public final class XSSFBStylesWriter {
+    private static final BorderSide[] BORDER_SIDES = {
+        BorderSide.TOP, BorderSide.BOTTOM, BorderSide.LEFT, BorderSide.RIGHT, BorderSide.DIAGONAL
+    };
+
+    private static final int COLOR_TYPE_AUTO = 0;
+    private static final int COLOR_TYPE_INDEXED = 1;
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_THEME = 3;
+
+    private XSSFBStylesWriter() {
+    }
+
+    public static void write(StylesTable styles, XSSFBRecordWriter writer) throws IOException {
+        writer.writeRecord(XSSFBRecordType.BrtBeginStyleSheet);
+
+        Map<Short, String> formats = styles.getNumberFormats();
+        writer.beginRecord(XSSFBRecordType.BrtBeginFmts).writeInt(formats.size()).endRecord();
+        for (Map.Entry<Short, String> format : formats.entrySet()) {
+            writer.beginRecord(XSSFBRecordType.BrtFmt)
+                .writeShort(format.getKey())
+                .writeXLWideString(format.getValue())
+                .endRecord();
+        }
+        writer.writeRecord(XSSFBRecordType.BrtEndFmts);
+
+        List<XSSFFont> fonts = styles.getFonts();
+        writer.beginRecord(XSSFBRecordType.BrtBeginFonts).writeInt(fonts.size()).endRecord();
+        for (XSSFFont font : fonts) {
+            writeFont(font, writer);
+        }
+        writer.writeRecord(XSSFBRecordType.BrtEndFonts);
+
+        List<XSSFCellFill> fills = styles.getFills();
+        writer.beginRecord(XSSFBRecordType.BrtBeginFills).writeInt(fills.size()).endRecord();
+        for (XSSFCellFill fill : fills) {
+            writeFill(fill, writer);
+        }
+        writer.writeRecord(XSSFBRecordType.BrtEndFills);
+
+        List<XSSFCellBorder> borders = styles.getBorders();
+        writer.beginRecord(XSSFBRecordType.BrtBeginBorders).writeInt(borders.size()).endRecord();
+        for (XSSFCellBorder border : borders) {
+            writeBorder(border, writer);
+        }
+        writer.writeRecord(XSSFBRecordType.BrtEndBorders);
+
+        int styleXfs = styles._getStyleXfsSize();
+        writer.beginRecord(XSSFBRecordType.BrtBeginCellStyleXFS).writeInt(styleXfs).endRecord();
+        for (int i = 0; i < styleXfs; i++) {
+            writeXf(styles.getCellStyleXfAt(i), true, writer);
+        }
+        writer.writeRecord(XSSFBRecordType.BrtEndCellStyleXFS);
+
+        int cellXfs = styles.getNumCellStyles();
+        writer.beginRecord(XSSFBRecordType.BrtBeginCellXFs).writeInt(cellXfs).endRecord();
+        for (int i = 0; i < cellXfs; i++) {
+            writeXf(styles.getCellXfAt(i), false, writer);
+        }
+        writer.writeRecord(XSSFBRecordType.BrtEndCellXFs);
+
+        // only the built-in "Normal" style, which refers to the first style format
+        int cellStyles = Math.min(styleXfs, 1);
+        writer.beginRecord(XSSFBRecordType.BrtBeginStyles).writeInt(cellStyles).endRecord();
+        if (cellStyles > 0) {
+            writer.beginRecord(XSSFBRecordType.BrtStyle)
+                .writeInt(0)
+                .writeShort(1)
+                .writeByte(0)
+                .writeByte(0xFF)
+                .writeXLNullableWideString("Normal")
+                .endRecord();
+        }
+        writer.writeRecord(XSSFBRecordType.BrtEndStyles);
+
+        writer.beginRecord(XSSFBRecordType.BrtBeginDXFs).writeInt(0).endRecord();
+        writer.writeRecord(XSSFBRecordType.BrtEndDXFs);
+
+        writer.beginRecord(XSSFBRecordType.BrtBeginTableStyles)
+            .writeInt(0)
+            .writeXLNullableWideString("TableStyleMedium2")
+            .writeXLNullableWideString("PivotStyleLight16")
+            .endRecord();
+        writer.writeRecord(XSSFBRecordType.BrtEndTableStyles);
+
+        writer.writeRecord(XSSFBRecordType.BrtEndStyleSheet);
+    }
+
+    private static void writeFont(XSSFFont font, XSSFBRecordWriter writer) throws IOException {
+        int grbit = (font.getItalic() ? 0x02 : 0) | (font.getStrikeout() ? 0x08 : 0);
+        if (font.getCTFont().sizeOfOutlineArray() > 0 && font.getCTFont().getOutlineArray(0).getVal()) {
+            grbit |= 0x10;
+        }
+        if (font.getCTFont().sizeOfShadowArray() > 0 && font.getCTFont().getShadowArray(0).getVal()) {
+            grbit |= 0x20;
+        }
+        FontScheme scheme = font.getScheme();
+        XSSFColor color = font.getXSSFColor();
+        writer.beginRecord(XSSFBRecordType.BrtFont)
+            .writeShort(font.getFontHeight())
+            .writeShort(grbit)
+            .writeShort(font.getBold() ? 700 : 400)
+            .writeShort(font.getTypeOffset())
+            .writeByte(font.getUnderline())
+            .writeByte(font.getFamily())
+            .writeByte(font.getCharSet())
+            .writeByte(0);
+        writeColor(color == null ? null : color.getCTColor(), writer);
+        writer.writeByte(scheme == null ? 0 : scheme.getValue() - 1)
+            .writeXLWideString(font.getFontName() == null ? "" : font.getFontName())
+            .endRecord();
+    }
+
+    private static void writeFill(XSSFCellFill fill, XSSFBRecordWriter writer) throws IOException {
+        STPatternType.Enum pattern = fill.getPatternType();
+        XSSFColor fgColor = fill.getFillForegroundColor();
+        XSSFColor bgColor = fill.getFillBackgroundColor();
+        writer.beginRecord(XSSFBRecordType.BrtFill).writeInt(pattern == null ? 0 : pattern.intValue() - 1);
+        writeColor(fgColor == null ? null : fgColor.getCTColor(), writer);
+        writeColor(bgColor == null ? null : bgColor.getCTColor(), writer);
+        // no gradient: type, angle, left, right, top, bottom and the number of stops
+        writer.writeInt(0);
+        for (int i = 0; i < 5; i++) {
+            writer.writeDouble(0);
+        }
+        writer.writeInt(0).endRecord();
+    }
+
+    private static void writeBorder(XSSFCellBorder border, XSSFBRecordWriter writer) throws IOException {
+        int flags = (border.getCTBorder().getDiagonalDown() ? 0x01 : 0) | (border.getCTBorder().getDiagonalUp() ? 0x02 : 0);
+        writer.beginRecord(XSSFBRecordType.BrtBorder).writeByte(flags);
+        for (BorderSide side : BORDER_SIDES) {
+            BorderStyle style = border.getBorderStyle(side);
+            XSSFColor color = border.getBorderColor(side);
+            writer.writeByte(style == null ? 0 : style.getCode()).writeByte(0);
+            writeColor(color == null ? null : color.getCTColor(), writer);
+        }
+        writer.endRecord();
+    }
+
+    private static void writeXf(CTXf xf, boolean styleXf, XSSFBRecordWriter writer) throws IOException {
+        int horizontal = 0;
+        int vertical = 2;
+        int rotation = 0;
+        int indent = 0;
+        int flags = 0;
+        if (xf.isSetAlignment()) {
+            CTCellAlignment alignment = xf.getAlignment();
+            if (alignment.isSetHorizontal()) {
+                horizontal = alignment.getHorizontal().intValue() - 1;
+            }
+            if (alignment.isSetVertical()) {
+                vertical = alignment.getVertical().intValue() - 1;
+            }
+            if (alignment.isSetTextRotation()) {
+                rotation = alignment.getTextRotation().intValue();
+            }
+            if (alignment.isSetIndent()) {
+                indent = (int) alignment.getIndent();
+            }
+            flags |= (alignment.getWrapText() ? 0x40 : 0)
+                | (alignment.getJustifyLastLine() ? 0x80 : 0)
+                | (alignment.getShrinkToFit() ? 0x100 : 0)
+                | (((int) alignment.getReadingOrder() & 0x03) << 10);
+        }
+        boolean locked = true;
+        boolean hidden = false;
+        if (xf.isSetProtection()) {
+            CTCellProtection protection = xf.getProtection();
+            locked = !protection.isSetLocked() || protection.getLocked();
+            hidden = protection.isSetHidden() && protection.getHidden();
+        }
+        flags |= horizontal | (vertical << 3) | (locked ? 0x1000 : 0) | (hidden ? 0x2000 : 0);
+        if (!styleXf) {
+            flags |= (xf.getApplyNumberFormat() ? 0x010000 : 0)
+                | (xf.getApplyFont() ? 0x020000 : 0)
+                | (xf.getApplyAlignment() ? 0x040000 : 0)
+                | (xf.getApplyBorder() ? 0x080000 : 0)
+                | (xf.getApplyFill() ? 0x100000 : 0)
+                | (xf.getApplyProtection() ? 0x200000 : 0);
+        }
+
+        writer.beginRecord(XSSFBRecordType.BrtXf)
+            .writeShort(styleXf ? 0xFFFF : (int) xf.getXfId())
+            .writeShort((int) xf.getNumFmtId())
+            .writeShort((int) xf.getFontId())
+            .writeShort((int) xf.getFillId())
+            .writeShort((int) xf.getBorderId())
+            .writeByte(rotation)
+            .writeByte(indent)
+            .writeInt(flags)
+            .endRecord();
+    }
+
+    /**
+     * Writes a BrtColor structure, a missing color is written as automatic color
+     */
+    private static void writeColor(CTColor color, XSSFBRecordWriter writer) {
+        int type = COLOR_TYPE_AUTO;
+        int index = 0;
+        byte[] argb = null;
+        if (color != null) {
+            if (color.isSetIndexed()) {
+                type = COLOR_TYPE_INDEXED;
+                index = (int) color.getIndexed();
+            } else if (color.isSetRgb()) {
+                type = COLOR_TYPE_RGB;
+                argb = color.getRgb();
+            } else if (color.isSetTheme()) {
+                type = COLOR_TYPE_THEME;
+                index = (int) color.getTheme();
+            }
+        }
+        int tint = (color != null && color.isSetTint()) ? (int) Math.round(color.getTint() * 32767) : 0;
+        writer.writeByte((argb != null ? 1 : 0) | (type << 1))
+            .writeByte(index)
+            .writeShort(tint);
+        if (argb != null && argb.length == 4) {
+            writer.writeByte(argb[1]).writeByte(argb[2]).writeByte(argb[3]).writeByte(argb[0]);
+        } else if (argb != null && argb.length == 3) {
+            writer.writeByte(argb[0]).writeByte(argb[1]).writeByte(argb[2]).writeByte(0xFF);
+        } else {
+            writer.writeInt(0);
+        }
+    }
+}
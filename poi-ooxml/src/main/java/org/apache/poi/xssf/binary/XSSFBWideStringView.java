@@ -0,0 +1,84 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.binary;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.poi.util.Internal;
+import org.apache.poi.util.LittleEndian;
+
+/**
+ * A {@link CharSequence} view of an XLWideString in a record buffer.
+ * The UTF-16LE characters are decoded on demand, so no string is created unless
+ * {@link #toString()} is called. The view is reset for each record and is only
+ * valid while the record is handled.
+ */
+@Internal
+final class XSSFBWideStringView implements CharSequence {
+    private byte[] data;
+    private int offset;
+    private int length;
+
+    /**
+     * Points the view to the XLWideString at the offset
+     *
+     * @param data the record buffer
+     * @param offset the offset of the character count of the XLWideString
+     * @param limit the end of the record in the buffer
+     * @return the number of bytes of the XLWideString
+     * @throws XSSFBParseException if the string exceeds the record
+     */
+    int reset(byte[] data, int offset, int limit) throws XSSFBParseException {
+        if (offset + 4 > limit) {
+            throw new XSSFBParseException("trying to read beyond data length");
+        }
+        long numChars = LittleEndian.getUInt(data, offset);
+        if (offset + 4 + 2 * numChars > limit) {
+            throw new XSSFBParseException("trying to read beyond data length: " +
+                "offset=" + offset + ", numChars=" + numChars + ", limit=" + limit);
+        }
+        this.data = data;
+        this.offset = offset + 4;
+        this.length = (int) numChars;
+        return 4 + 2 * length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + " is outside of the length " + length);
+        }
+        int pos = offset + 2 * index;
+        return (char) ((data[pos] & 0xFF) | ((data[pos + 1] & 0xFF) << 8));
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(data, offset, 2 * length, StandardCharsets.UTF_16LE);
+    }
+}
@@ -0,0 +1,233 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.format.DateTimeFormatter;
+import java.util.function.IntPredicate;
+
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.xssf.eventusermodel.SpreadsheetCSVConverter.QuoteMode;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+
+/**
+ * Writes the rows of one sheet as UTF-8 encoded CSV lines into a channel.
+ * <p>
+ * The writer receives either the formatted values ({@link #cell(String, String, XSSFComment)})
+ * or the typed raw values of the sheet handlers. Missing cells become empty fields and missing
+ * rows become empty lines, so the fields keep the positions of the sheet. The text is encoded
+ * into a reused buffer, which is written to the channel when it's full, so the memory use
+ * doesn't depend on the size of the sheet.
+ * </p>
+ */
+final class CSVSheetWriter implements TypedSheetContentsHandler {
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final char delimiter;
+    private final char quote;
+    private final QuoteMode quoteMode;
+    private final String lineSeparator;
+    /** the styles with a date format or {@code null}, if the dates are written as serial numbers */
+    private final IntPredicate dateStyles;
+    private final DateTimeFormatter dateFormatter;
+    private final boolean date1904;
+
+    private int lastRow = -1;
+    private int lastColumn = -1;
+    private long rows;
+    private long bytes;
+
+    CSVSheetWriter(WritableByteChannel channel, SpreadsheetCSVConverter options,
+                   IntPredicate dateStyles, boolean date1904) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(options.getBufferSize());
+        this.delimiter = options.getDelimiter();
+        this.quote = options.getQuoteChar();
+        this.quoteMode = options.getQuoteMode();
+        this.lineSeparator = options.getLineSeparator();
+        this.dateFormatter = options.getDateFormatter();
+        this.dateStyles = (dateFormatter == null) ? null : dateStyles;
+        this.date1904 = date1904;
+    }
+
+    /**
+     * @return the number of lines, which have been written
+     */
+    long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of bytes, which have been written to the channel
+     */
+    long getBytes() {
+        return bytes + buffer.position();
+    }
+
+    @Override
+    public void startRow(int rowNum) {
+        // the missing rows are written as empty lines
+        for (int row = lastRow + 1; row < rowNum; row++) {
+            writeText(lineSeparator);
+            rows++;
+        }
+        lastRow = Math.max(lastRow, rowNum);
+        lastColumn = -1;
+    }
+
+    @Override
+    public void endRow(int rowNum) {
+        writeText(lineSeparator);
+        rows++;
+    }
+
+    @Override
+    public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+        int column = (cellReference == null) ? lastColumn + 1 : CellValueParser.parseColumn(cellReference);
+        field(column, formattedValue);
+    }
+
+    @Override
+    public void numericCell(int rowNum, int column, double value, int styleIndex) {
+        if (dateStyles != null && dateStyles.test(styleIndex) && DateUtil.isValidExcelDate(value)) {
+            field(column, dateFormatter.format(DateUtil.getLocalDateTime(value, date1904)));
+        } else {
+            field(column, NumberToTextConverter.toText(value));
+        }
+    }
+
+    @Override
+    public void stringCell(int rowNum, int column, CharSequence value, int styleIndex) {
+        field(column, value);
+    }
+
+    @Override
+    public void booleanCell(int rowNum, int column, boolean value, int styleIndex) {
+        field(column, value ? "TRUE" : "FALSE");
+    }
+
+    @Override
+    public void errorCell(int rowNum, int column, CharSequence error, int styleIndex) {
+        field(column, error);
+    }
+
+    /**
+     * Writes the buffered bytes to the channel
+     */
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytes += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void field(int column, CharSequence value) {
+        if (column < 0) {
+            column = lastColumn + 1;
+        } else if (column <= lastColumn) {
+            // the cell has already been written
+            return;
+        }
+        for (int i = (lastColumn < 0) ? 0 : lastColumn; i < column; i++) {
+            writeChar(delimiter);
+        }
+        lastColumn = column;
+
+        if (quoteMode == QuoteMode.ALL || (quoteMode == QuoteMode.MINIMAL && needsQuotes(value))) {
+            writeChar(quote);
+            writeText(value, true);
+            writeChar(quote);
+        } else {
+            writeText(value, false);
+        }
+    }
+
+    private boolean needsQuotes(CharSequence value) {
+        for (int i = 0, len = value.length(); i < len; i++) {
+            char c = value.charAt(i);
+            if (c == delimiter || c == quote || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeText(CharSequence text) {
+        writeText(text, false);
+    }
+
+    /**
+     * @param quoted if true, the quote characters are doubled
+     */
+    private void writeText(CharSequence text, boolean quoted) {
+        for (int i = 0, len = text.length(); i < len; i++) {
+            char c = text.charAt(i);
+            if (quoted && c == quote) {
+                writeChar(quote);
+                writeChar(c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(text.charAt(i + 1))) {
+                writeCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+            } else {
+                writeChar(c);
+            }
+        }
+    }
+
+    private void writeChar(char c) {
+        if (buffer.remaining() < 3) {
+            flushUnchecked();
+        }
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isSurrogate(c)) {
+            // an unpaired surrogate can't be encoded
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    private void writeCodePoint(int cp) {
+        if (buffer.remaining() < 4) {
+            flushUnchecked();
+        }
+        buffer.put((byte) (0xF0 | (cp >> 18)));
+        buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+        buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+        buffer.put((byte) (0x80 | (cp & 0x3F)));
+    }
+
+    private void flushUnchecked() {
+        try {
+            flush();
+        } catch (IOException e) {
+            // the sheet handlers can't throw checked exceptions
+            throw new UncheckedIOException(e);
+        }
+    }
+}
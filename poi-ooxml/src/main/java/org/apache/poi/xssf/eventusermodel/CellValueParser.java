@@ -0,0 +1,92 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+/**
+ * Parses the cell values of the sheet XML without creating strings where possible
+ */
+final class CellValueParser {
+    /** the powers of ten, which can be represented exactly as double */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private CellValueParser() {}
+
+    /**
+     * Parses a number like {@link Double#parseDouble(String)}.
+     * <p>
+     * Numbers with up to 15 significant digits and no exponent are parsed directly, as both
+     * the digits and the power of ten are exact doubles and their quotient is correctly rounded.
+     * Other numbers are handed over to {@link Double#parseDouble(String)}.
+     * </p>
+     *
+     * @throws NumberFormatException if the text is no number
+     */
+    static double parseDouble(CharSequence text) {
+        int len = text.length();
+        int start = (len > 0 && text.charAt(0) == '-') ? 1 : 0;
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        int i = start;
+        for (; i < len; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (mantissa != 0 || c != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                break;
+            }
+        }
+        if (i == len && digits <= 15 && i > start && fractionDigits != 0
+                && fractionDigits < POWERS_OF_TEN.length) {
+            double value = (fractionDigits > 0) ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+            return (start == 1) ? -value : value;
+        }
+        return Double.parseDouble(text.toString());
+    }
+
+    /**
+     * Parses the column of a cell reference like "AB12"
+     *
+     * @return the zero based column or -1 if the reference has no column
+     */
+    static int parseColumn(CharSequence ref) {
+        int column = 0;
+        for (int i = 0, len = ref.length(); i < len; i++) {
+            char c = ref.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                column = column * 26 + (c - 'A' + 1);
+            } else if (c >= 'a' && c <= 'z') {
+                column = column * 26 + (c - 'a' + 1);
+            } else if (c != '$') {
+                break;
+            }
+        }
+        return column - 1;
+    }
+}
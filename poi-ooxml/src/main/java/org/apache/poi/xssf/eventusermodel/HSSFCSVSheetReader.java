@@ -0,0 +1,225 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.ExtendedFormatRecord;
+import org.apache.poi.hssf.record.FilePassRecord;
+import org.apache.poi.hssf.record.FormatRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactoryInputStream;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.hssf.usermodel.HSSFDataFormatter;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.util.IOUtils;
+
+/**
+ * Reads the sheets of a .xls file for the {@link SpreadsheetCSVConverter}.
+ * <p>
+ * The workbook globals - the shared strings, formats and sheet positions - are read once.
+ * Afterwards each sheet is read through its own file system instance, which skips directly
+ * to the BOF record of the sheet, so the sheets can be read concurrently.
+ * </p>
+ */
+final class HSSFCSVSheetReader {
+    private final File file;
+    private final List<BoundSheetRecord> sheets = new ArrayList<>();
+    /** the format and extended format records, which are replayed into the format tracker of each sheet */
+    private final List<Record> formatRecords = new ArrayList<>();
+    private SSTRecord sst;
+    private boolean date1904;
+
+    HSSFCSVSheetReader(File file) throws IOException {
+        this.file = file;
+        try (POIFSFileSystem fs = new POIFSFileSystem(file, true);
+             InputStream is = openWorkbook(fs)) {
+            RecordFactoryInputStream records = new RecordFactoryInputStream(is, false);
+            // the globals end with the first EOF record
+            for (Record r = records.nextRecord(); r != null && !(r instanceof EOFRecord); r = records.nextRecord()) {
+                if (r instanceof BoundSheetRecord) {
+                    sheets.add((BoundSheetRecord) r);
+                } else if (r instanceof SSTRecord) {
+                    sst = (SSTRecord) r;
+                } else if (r instanceof FormatRecord || r instanceof ExtendedFormatRecord) {
+                    formatRecords.add(r);
+                } else if (r instanceof DateWindow1904Record) {
+                    date1904 = ((DateWindow1904Record) r).getWindowing() == 1;
+                } else if (r instanceof FilePassRecord) {
+                    throw new EncryptedDocumentException("Encrypted .xls files can't be converted sheet by sheet");
+                }
+            }
+        }
+    }
+
+    private static InputStream openWorkbook(POIFSFileSystem fs) throws IOException {
+        return fs.createDocumentInputStream(HSSFWorkbook.getWorkbookDirEntryName(fs.getRoot()));
+    }
+
+    /**
+     * @return the sheets in their tab order
+     */
+    List<BoundSheetRecord> getSheets() {
+        return Collections.unmodifiableList(sheets);
+    }
+
+    boolean isDate1904() {
+        return date1904;
+    }
+
+    /**
+     * Reads the cells of a sheet into the writer
+     *
+     * @param sheet the sheet of {@link #getSheets()}
+     * @param formatted whether the values are formatted like Excel or written raw
+     */
+    void readSheet(BoundSheetRecord sheet, CSVSheetWriter writer, boolean formatted) throws IOException {
+        FormatTrackingHSSFListener formats = new FormatTrackingHSSFListener(r -> {});
+        for (Record r : formatRecords) {
+            formats.processRecord(r);
+        }
+        HSSFDataFormatter formatter = new HSSFDataFormatter();
+
+        try (POIFSFileSystem fs = new POIFSFileSystem(file, true);
+             InputStream is = openWorkbook(fs)) {
+            // the raw bytes of the preceding sheets are skipped without decoding their records
+            if (IOUtils.skipFully(is, sheet.getPositionOfBof()) != sheet.getPositionOfBof()) {
+                throw new IOException("The BOF record of sheet '" + sheet.getSheetname() + "' is beyond the end of the workbook stream");
+            }
+            RecordFactoryInputStream records = new RecordFactoryInputStream(is, false);
+
+            int depth = 0;
+            int currentRow = -1;
+            FormulaRecord stringFormula = null;
+            for (Record r = records.nextRecord(); r != null; r = records.nextRecord()) {
+                if (r instanceof BOFRecord) {
+                    depth++;
+                    continue;
+                } else if (r instanceof EOFRecord) {
+                    if (--depth <= 0) {
+                        break;
+                    }
+                    continue;
+                } else if (depth != 1) {
+                    // charts and other embedded substreams
+                    continue;
+                }
+
+                if (r instanceof StringRecord) {
+                    if (stringFormula != null) {
+                        writer.stringCell(currentRow, stringFormula.getColumn(), ((StringRecord) r).getString(), 0);
+                        stringFormula = null;
+                    }
+                    continue;
+                }
+                if (!(r instanceof CellValueRecordInterface)) {
+                    continue;
+                }
+
+                CellValueRecordInterface cell = (CellValueRecordInterface) r;
+                if (cell.getRow() != currentRow) {
+                    if (currentRow >= 0) {
+                        writer.endRow(currentRow);
+                    }
+                    currentRow = cell.getRow();
+                    writer.startRow(currentRow);
+                }
+                stringFormula = null;
+
+                int column = cell.getColumn();
+                if (r instanceof NumberRecord) {
+                    writeNumber(writer, cell, ((NumberRecord) r).getValue(), formats, formatter, formatted);
+                } else if (r instanceof LabelSSTRecord) {
+                    writer.stringCell(currentRow, column, sst.getString(((LabelSSTRecord) r).getSSTIndex()).getString(), 0);
+                } else if (r instanceof LabelRecord) {
+                    writer.stringCell(currentRow, column, ((LabelRecord) r).getValue(), 0);
+                } else if (r instanceof BoolErrRecord) {
+                    BoolErrRecord boolErr = (BoolErrRecord) r;
+                    if (boolErr.isBoolean()) {
+                        writer.booleanCell(currentRow, column, boolErr.getBooleanValue(), 0);
+                    } else {
+                        writer.errorCell(currentRow, column, errorText(boolErr.getErrorValue()), 0);
+                    }
+                } else if (r instanceof FormulaRecord) {
+                    FormulaRecord formula = (FormulaRecord) r;
+                    switch (formula.getCachedResultTypeEnum()) {
+                        case NUMERIC:
+                            writeNumber(writer, cell, formula.getValue(), formats, formatter, formatted);
+                            break;
+                        case BOOLEAN:
+                            writer.booleanCell(currentRow, column, formula.getCachedBooleanValue(), 0);
+                            break;
+                        case ERROR:
+                            writer.errorCell(currentRow, column, errorText(formula.getCachedErrorValue()), 0);
+                            break;
+                        case STRING:
+                            if (formula.hasCachedResultString()) {
+                                stringFormula = formula;
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+            if (currentRow >= 0) {
+                writer.endRow(currentRow);
+            }
+        }
+    }
+
+    private void writeNumber(CSVSheetWriter writer, CellValueRecordInterface cell, double value,
+                             FormatTrackingHSSFListener formats, HSSFDataFormatter formatter, boolean formatted) {
+        int formatIndex = formats.getFormatIndex(cell);
+        String formatString = formats.getFormatString(cell);
+        if (formatted) {
+            String text = formatter.formatRawCellContents(value, formatIndex,
+                (formatString == null) ? "General" : formatString);
+            writer.stringCell(cell.getRow(), cell.getColumn(), text, 0);
+        } else {
+            // the writer only needs to know, whether the style of the cell has a date format
+            boolean date = formatString != null && DateUtil.isADateFormat(formatIndex, formatString);
+            writer.numericCell(cell.getRow(), cell.getColumn(), value, date ? 1 : 0);
+        }
+    }
+
+    private static String errorText(int code) {
+        return FormulaError.isValidCode(code) ? FormulaError.forInt(code).getString() : "#N/A";
+    }
+}
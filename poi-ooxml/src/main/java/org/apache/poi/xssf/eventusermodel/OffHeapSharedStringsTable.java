@@ -0,0 +1,359 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * A read-only shared strings table like {@link ReadOnlySharedStringsTable}, which keeps the
+ * strings as UTF-8 encoded bytes outside the Java heap.
+ * <p>
+ * The sharedStrings.xml part is streamed once and the text of each {@code <si>} element is
+ * appended to direct byte buffers of up to 8 megabytes. Only an int offset per string is kept on
+ * the heap, so a table with tens of millions of unique strings needs about 4 bytes of heap per
+ * string. The strings are decoded on each call of {@link #getItemAt(int)}, optionally through a
+ * small LRU cache (see {@link #setCacheSize(int)}).
+ * </p>
+ * <p>
+ * The direct buffers count against {@code -XX:MaxDirectMemorySize} and are released when the
+ * table is garbage collected. Once it has been read, the table can be used by multiple threads.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public class OffHeapSharedStringsTable extends DefaultHandler implements SharedStrings {
+    private static final int MIN_SEGMENT_SIZE = 64 * 1024;
+    private static final int MAX_SEGMENT_SIZE = 8 * 1024 * 1024;
+    /** the initial capacity of the offset index, if the table has a uniqueCount attribute */
+    private static final int MAX_INITIAL_CAPACITY = 1024 * 1024;
+
+    protected final boolean includePhoneticRuns;
+
+    /**
+     * An integer representing the total count of strings in the workbook. This count does not
+     * include any numbers, it counts only the total of text strings in the workbook.
+     */
+    protected int count;
+
+    /**
+     * An integer representing the total count of unique strings in the Shared String Table.
+     */
+    protected int uniqueCount;
+
+    /** the buffers with the encoded strings, a string never spans two buffers */
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    /** the index of the first string of each buffer */
+    private int[] segmentStarts = new int[4];
+    /** the offset of each string in its buffer */
+    private int[] offsets = new int[1024];
+    private int size;
+    private ByteBuffer current;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private Map<Integer, String> cache;
+
+    /**
+     * Reads the shared strings table of the package including the phonetic runs
+     *
+     * @param pkg The {@link OPCPackage} to use as basis for the shared-strings table.
+     * @throws IOException If reading the data from the package fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public OffHeapSharedStringsTable(OPCPackage pkg) throws IOException, SAXException {
+        this(pkg, true);
+    }
+
+    /**
+     * @param pkg The {@link OPCPackage} to use as basis for the shared-strings table.
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @throws IOException If reading the data from the package fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public OffHeapSharedStringsTable(OPCPackage pkg, boolean includePhoneticRuns)
+            throws IOException, SAXException {
+        this.includePhoneticRuns = includePhoneticRuns;
+        ArrayList<PackagePart> parts =
+                pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+
+        // Some workbooks have no shared strings table.
+        if (!parts.isEmpty()) {
+            try (InputStream stream = parts.get(0).getInputStream()) {
+                readFrom(stream);
+            }
+        }
+    }
+
+    /**
+     * @param stream the stream of the shared strings part, which isn't closed
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @throws IOException If reading the data fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public OffHeapSharedStringsTable(InputStream stream, boolean includePhoneticRuns)
+            throws IOException, SAXException {
+        this.includePhoneticRuns = includePhoneticRuns;
+        readFrom(stream);
+    }
+
+    private void readFrom(InputStream is) throws IOException, SAXException {
+        // test if the file is empty, otherwise parse it
+        PushbackInputStream pis = new PushbackInputStream(is, 1);
+        int emptyTest = pis.read();
+        if (emptyTest > -1) {
+            pis.unread(emptyTest);
+            InputSource sheetSource = new InputSource(pis);
+            try {
+                XMLReader sheetParser = XMLHelper.newXMLReader();
+                sheetParser.setContentHandler(this);
+                sheetParser.parse(sheetSource);
+            } catch(ParserConfigurationException e) {
+                throw new SAXException("SAX parser appears to be broken - " + e.getMessage());
+            }
+        }
+        characters = null;
+    }
+
+    /**
+     * Enables a cache of the most recently decoded strings
+     *
+     * @param cacheSize the maximum number of cached strings, 0 disables the cache
+     */
+    public void setCacheSize(int cacheSize) {
+        if (cacheSize <= 0) {
+            cache = null;
+            return;
+        }
+        cache = new LinkedHashMap<Integer, String>(Math.min(cacheSize, 1024), 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Return an integer representing the total count of strings in the workbook. This count does not
+     * include any numbers, it counts only the total of text strings in the workbook.
+     *
+     * @return the total count of strings in the workbook
+     */
+    @Override
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns an integer representing the total count of unique strings in the Shared String Table.
+     *
+     * @return the total count of unique strings in the workbook
+     */
+    @Override
+    public int getUniqueCount() {
+        return this.uniqueCount;
+    }
+
+    /**
+     * @return the number of strings, which were read from the table
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public RichTextString getItemAt(int idx) {
+        return new XSSFRichTextString(getString(idx));
+    }
+
+    /**
+     * @return the text of the string item, without wrapping it in a rich text string
+     */
+    public String getString(int idx) {
+        if (idx < 0 || idx >= size) {
+            throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + size);
+        }
+        Map<Integer, String> c = cache;
+        if (c == null) {
+            return decode(idx);
+        }
+        String str;
+        synchronized (c) {
+            str = c.get(idx);
+        }
+        if (str == null) {
+            str = decode(idx);
+            synchronized (c) {
+                c.put(idx, str);
+            }
+        }
+        return str;
+    }
+
+    private String decode(int idx) {
+        int segment = Arrays.binarySearch(segmentStarts, 0, segments.size(), idx);
+        if (segment < 0) {
+            // the insertion point is behind the segment of the string
+            segment = -segment - 2;
+        }
+        ByteBuffer buf = segments.get(segment);
+        int start = offsets[idx];
+        boolean lastOfSegment = idx + 1 == size
+            || (segment + 1 < segments.size() && idx + 1 == segmentStarts[segment + 1]);
+        int end = lastOfSegment ? buf.position() : offsets[idx + 1];
+
+        byte[] bytes = new byte[end - start];
+        // a duplicate has its own position, so concurrent reads don't interfere
+        ByteBuffer dup = buf.duplicate();
+        dup.position(start);
+        dup.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void addString(CharSequence text) {
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+        }
+        if (current == null || !encode(text)) {
+            // the string doesn't fit into the rest of the buffer
+            newSegment(text.length() * 3);
+            encode(text);
+        }
+        size++;
+    }
+
+    private boolean encode(CharSequence text) {
+        int start = current.position();
+        encoder.reset();
+        CoderResult result = encoder.encode(CharBuffer.wrap(text), current, true);
+        if (result.isUnderflow()) {
+            result = encoder.flush(current);
+        }
+        if (result.isOverflow()) {
+            current.position(start);
+            return false;
+        }
+        offsets[size] = start;
+        return true;
+    }
+
+    private void newSegment(int minSize) {
+        int segment = segments.size();
+        if (segment == segmentStarts.length) {
+            segmentStarts = Arrays.copyOf(segmentStarts, segment * 2);
+        }
+        segmentStarts[segment] = size;
+        // small tables don't need a large buffer, so the buffers grow up to the maximum size
+        int segmentSize = (current == null) ? MIN_SEGMENT_SIZE : Math.min(current.capacity() * 2, MAX_SEGMENT_SIZE);
+        current = ByteBuffer.allocateDirect(Math.max(segmentSize, minSize));
+        segments.add(current);
+    }
+
+    //// ContentHandler methods ////
+
+    private StringBuilder characters = new StringBuilder(64);
+    private boolean tIsOpen;
+    private boolean inRPh;
+
+    @Override
+    public void startElement(String uri, String localName, String name,
+                             Attributes attributes) throws SAXException {
+        if (uri != null && ! uri.equals(NS_SPREADSHEETML)) {
+            return;
+        }
+
+        if ("sst".equals(localName)) {
+            String count = attributes.getValue("count");
+            if(count != null) this.count = Integer.parseInt(count);
+            String uniqueCount = attributes.getValue("uniqueCount");
+            if(uniqueCount != null) this.uniqueCount = Integer.parseInt(uniqueCount);
+            if (this.uniqueCount > offsets.length) {
+                offsets = new int[Math.min(this.uniqueCount, MAX_INITIAL_CAPACITY)];
+            }
+        } else if ("si".equals(localName)) {
+            characters.setLength(0);
+        } else if ("t".equals(localName)) {
+            tIsOpen = true;
+        } else if ("rPh".equals(localName)) {
+            inRPh = true;
+            //append space...this assumes that rPh always comes after regular <t>
+            if (includePhoneticRuns && characters.length() > 0) {
+                characters.append(" ");
+            }
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String name) throws SAXException {
+        if (uri != null && ! uri.equals(NS_SPREADSHEETML)) {
+            return;
+        }
+
+        if ("si".equals(localName)) {
+            addString(characters);
+        } else if ("t".equals(localName)) {
+            tIsOpen = false;
+        } else if ("rPh".equals(localName)) {
+            inRPh = false;
+        }
+    }
+
+    /**
+     * Captures characters only if a t(ext) element is open.
+     */
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        if (tIsOpen && (!inRPh || includePhoneticRuns)) {
+            characters.append(ch, start, length);
+        }
+    }
+}
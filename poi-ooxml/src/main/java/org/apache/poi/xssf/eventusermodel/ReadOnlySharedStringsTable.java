@@ -78,6 +78,8 @@ import org.xml.sax.helpers.DefaultHandler;
  *     </sst>
  *  }</pre>
  *
+ * The table isn't modified after it has been read, so it can be shared by threads,
+ *  which parse different sheets concurrently.
  */
 public class ReadOnlySharedStringsTable extends DefaultHandler implements SharedStrings {
 
@@ -227,6 +229,13 @@ public class ReadOnlySharedStringsTable extends DefaultHandler implements Shared
         return new XSSFRichTextString(strings.get(idx));
     }
 
+    /**
+     * @return the text of the string item, without wrapping it in a rich text string
+     */
+    String getString(int idx) {
+        return strings.get(idx);
+    }
+
     //// ContentHandler methods ////
 
     private StringBuilder characters;
@@ -0,0 +1,171 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import java.util.BitSet;
+
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.Beta;
+
+/**
+ * Restricts the cells, which are reported by the streaming sheet handlers, to a range of rows
+ * and a set of columns.
+ * <p>
+ * The handlers check the filter before the value of a cell is decoded, so the shared strings,
+ * styles and comments of the skipped cells aren't looked up. Rows outside the range aren't
+ * reported at all and the parsing stops after the last row of the range.
+ * </p>
+ * <p>
+ * Instances are immutable and can be shared by the handlers of several sheets.
+ * </p>
+ *
+ * @see XSSFSheetXMLHandler#setReadFilter(SheetReadFilter)
+ * @see org.apache.poi.xssf.binary.XSSFBSheetHandler#setReadFilter(SheetReadFilter)
+ * @since POI 5.2.4
+ */
+@Beta
+public final class SheetReadFilter {
+    /** The filter, which accepts all cells */
+    public static final SheetReadFilter ALL = new SheetReadFilter(0, Integer.MAX_VALUE, null);
+
+    private final int firstRow;
+    private final int lastRow;
+    /** the accepted columns or {@code null} for all columns */
+    private final BitSet columns;
+
+    private SheetReadFilter(int firstRow, int lastRow, BitSet columns) {
+        if (firstRow < 0 || lastRow < firstRow) {
+            throw new IllegalArgumentException("Invalid row range " + firstRow + " to " + lastRow);
+        }
+        this.firstRow = firstRow;
+        this.lastRow = lastRow;
+        this.columns = columns;
+    }
+
+    /**
+     * @param firstRow the zero based first row to read
+     * @param lastRow the zero based last row to read (inclusive)
+     * @return a filter, which accepts all columns of the given rows
+     */
+    public static SheetReadFilter rows(int firstRow, int lastRow) {
+        return ALL.withRows(firstRow, lastRow);
+    }
+
+    /**
+     * @param columns the zero based columns to read
+     * @return a filter, which accepts the given columns of all rows
+     */
+    public static SheetReadFilter columns(int... columns) {
+        return ALL.withColumns(columns);
+    }
+
+    /**
+     * @param columns the column names to read, e.g. "A" or "AB"
+     * @return a filter, which accepts the given columns of all rows
+     */
+    public static SheetReadFilter columns(String... columns) {
+        return ALL.withColumns(columns);
+    }
+
+    /**
+     * @return a copy of this filter with the given (zero based and inclusive) row range
+     */
+    public SheetReadFilter withRows(int firstRow, int lastRow) {
+        return new SheetReadFilter(firstRow, lastRow, columns);
+    }
+
+    /**
+     * @return a copy of this filter, which only accepts the given (zero based) columns
+     */
+    public SheetReadFilter withColumns(int... columns) {
+        BitSet set = new BitSet();
+        for (int column : columns) {
+            if (column < 0) {
+                throw new IllegalArgumentException("Invalid column " + column);
+            }
+            set.set(column);
+        }
+        return new SheetReadFilter(firstRow, lastRow, set);
+    }
+
+    /**
+     * @return a copy of this filter, which only accepts the given columns, e.g. "A" or "AB"
+     */
+    public SheetReadFilter withColumns(String... columns) {
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            indexes[i] = CellReference.convertColStringToIndex(columns[i]);
+        }
+        return withColumns(indexes);
+    }
+
+    /**
+     * @return the zero based first row to read
+     */
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * @return the zero based last row to read
+     */
+    public int getLastRow() {
+        return lastRow;
+    }
+
+    /**
+     * @return true, if all columns are read
+     */
+    public boolean isAllColumns() {
+        return columns == null;
+    }
+
+    /**
+     * @return true, if the (zero based) row is within the row range
+     */
+    public boolean acceptsRow(int rowNum) {
+        return rowNum >= firstRow && rowNum <= lastRow;
+    }
+
+    /**
+     * @return true, if the (zero based) column is read
+     */
+    public boolean acceptsColumn(int column) {
+        return columns == null || (column >= 0 && columns.get(column));
+    }
+
+    /**
+     * @return true, if the (zero based) row and column are read
+     */
+    public boolean accepts(int rowNum, int column) {
+        return acceptsRow(rowNum) && acceptsColumn(column);
+    }
+
+    /**
+     * @return true, if the row is behind the row range, i.e. the rows, which follow it, don't need to be read
+     */
+    public boolean isAfterLastRow(int rowNum) {
+        return rowNum > lastRow;
+    }
+
+    @Override
+    public String toString() {
+        return "SheetReadFilter[rows " + firstRow + " to " + lastRow + ", columns "
+            + (columns == null ? "all" : columns.toString()) + "]";
+    }
+}
@@ -0,0 +1,559 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntPredicate;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.ZipPackage;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.binary.XSSFBSharedStringsTable;
+import org.apache.poi.xssf.binary.XSSFBSheetHandler;
+import org.apache.poi.xssf.binary.XSSFBStylesTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader.XSSFSheetRef;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Converts the sheets of a .xls, .xlsx or .xlsb file to CSV (or TSV) files, one task per sheet.
+ * <p>
+ * The sheets are streamed with the event APIs - {@link XSSFSheetXMLHandler} for .xlsx,
+ * {@link XSSFBSheetHandler} for .xlsb and the HSSF records for .xls - and their rows are encoded
+ * as UTF-8 into a reused buffer, which is written to the channel of the sheet. Neither rows nor
+ * cells are kept, so the memory use of a task doesn't depend on the size of its sheet. The shared
+ * strings of .xlsx files are kept off-heap (see {@link OffHeapSharedStringsTable}).
+ * </p>
+ * <p>
+ * Missing cells are written as empty fields and missing rows as empty lines, so the lines and fields
+ * keep the positions of the rows and columns. The values are either formatted like Excel shows them
+ * or written raw - numbers in their shortest round-trip form, dates with a {@link DateTimeFormatter}.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public class SpreadsheetCSVConverter {
+    /**
+     * When the fields are enclosed in quote characters
+     */
+    public enum QuoteMode {
+        /** only fields, which contain the delimiter, the quote character or a line break */
+        MINIMAL,
+        /** all fields, which aren't empty */
+        ALL,
+        /** no fields - the values are written as they are */
+        NONE
+    }
+
+    /**
+     * Creates the output channels of the sheets
+     */
+    @FunctionalInterface
+    public interface SheetOutputFactory {
+        /**
+         * @param sheetIndex the zero based index of the sheet
+         * @param sheetName the name of the sheet
+         * @return the channel for the CSV data of the sheet, which is closed after the sheet has been written,
+         *  or {@code null} to skip the sheet
+         * @throws IOException if the channel can't be opened
+         */
+        WritableByteChannel openSheet(int sheetIndex, String sheetName) throws IOException;
+    }
+
+    /**
+     * The throughput of the conversion of one sheet
+     */
+    public static final class SheetStatistics {
+        private final int sheetIndex;
+        private final String sheetName;
+        private final long rows;
+        private final long bytes;
+        private final long nanos;
+
+        SheetStatistics(int sheetIndex, String sheetName, long rows, long bytes, long nanos) {
+            this.sheetIndex = sheetIndex;
+            this.sheetName = sheetName;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return the zero based index of the sheet
+         */
+        public int getSheetIndex() {
+            return sheetIndex;
+        }
+
+        /**
+         * @return the name of the sheet
+         */
+        public String getSheetName() {
+            return sheetName;
+        }
+
+        /**
+         * @return the number of lines, including the empty lines of missing rows
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * @return the number of bytes, which have been written
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return the time in nanoseconds, which the sheet task took
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return the rows per second of the sheet task
+         */
+        public double getRowsPerSecond() {
+            return perSecond(rows);
+        }
+
+        /**
+         * @return the bytes per second of the sheet task
+         */
+        public double getBytesPerSecond() {
+            return perSecond(bytes);
+        }
+
+        private double perSecond(long count) {
+            return (nanos == 0) ? 0 : count * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: %d rows, %d bytes in %.1f ms (%.0f rows/s, %.1f MB/s)",
+                sheetName, rows, bytes, nanos / 1e6, getRowsPerSecond(), getBytesPerSecond() / 1e6);
+        }
+    }
+
+    private char delimiter = ',';
+    private char quoteChar = '"';
+    private QuoteMode quoteMode = QuoteMode.MINIMAL;
+    private String lineSeparator = "\n";
+    private boolean formattedValues = true;
+    private DateTimeFormatter dateFormatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private int bufferSize = 64 * 1024;
+    private boolean useSheetXMLScanner;
+
+    /**
+     * @param delimiter the field delimiter, e.g. {@code '\t'} for TSV files
+     */
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * @param quoteChar the character, which encloses quoted fields and is doubled within them
+     */
+    public void setQuoteChar(char quoteChar) {
+        this.quoteChar = quoteChar;
+    }
+
+    public char getQuoteChar() {
+        return quoteChar;
+    }
+
+    public void setQuoteMode(QuoteMode quoteMode) {
+        this.quoteMode = quoteMode;
+    }
+
+    public QuoteMode getQuoteMode() {
+        return quoteMode;
+    }
+
+    /**
+     * @param lineSeparator the separator of the lines, by default {@code "\n"}
+     */
+    public void setLineSeparator(String lineSeparator) {
+        this.lineSeparator = lineSeparator;
+    }
+
+    public String getLineSeparator() {
+        return lineSeparator;
+    }
+
+    /**
+     * @param formattedValues if true (the default), the values are formatted with the number formats of their
+     *  cells like the {@link DataFormatter}, otherwise the raw values are written
+     */
+    public void setFormattedValues(boolean formattedValues) {
+        this.formattedValues = formattedValues;
+    }
+
+    public boolean isFormattedValues() {
+        return formattedValues;
+    }
+
+    /**
+     * @param dateFormatter the formatter for the raw values of cells with a date format, or {@code null} to
+     *  write their serial numbers - it's not used for formatted values
+     */
+    public void setDateFormatter(DateTimeFormatter dateFormatter) {
+        this.dateFormatter = dateFormatter;
+    }
+
+    public DateTimeFormatter getDateFormatter() {
+        return dateFormatter;
+    }
+
+    /**
+     * @param bufferSize the size of the output buffer of each sheet task in bytes
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize < 16) {
+            throw new IllegalArgumentException("The buffer size must be at least 16 bytes, but was " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @param useSheetXMLScanner if true, the sheets of .xlsx files are parsed by the {@link XSSFSheetXMLScanner}
+     *  instead of the SAX parser
+     */
+    public void setUseSheetXMLScanner(boolean useSheetXMLScanner) {
+        this.useSheetXMLScanner = useSheetXMLScanner;
+    }
+
+    /**
+     * Converts all sheets of the workbook into files of the directory, which are named after the sheets
+     * and have the extension ".tsv" for tab delimited files and ".csv" otherwise.
+     * Characters, which aren't allowed in file names, are replaced by '_' and a numeric suffix
+     * is appended, if the name of another sheet already resulted in the same file name.
+     *
+     * @param file the .xls, .xlsx or .xlsb file
+     * @param directory the existing output directory
+     * @param executor the executor of the sheet tasks
+     * @return the statistics of the sheets
+     * @throws IOException if the workbook can't be read or a file can't be written
+     */
+    public List<SheetStatistics> convert(File file, File directory, Executor executor) throws IOException {
+        String extension = (delimiter == '\t') ? ".tsv" : ".csv";
+        Set<String> usedNames = new HashSet<>();
+        return convert(file, executor, (sheetIndex, sheetName) -> FileChannel.open(
+            new File(directory, toFileName(sheetName, usedNames) + extension).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    /**
+     * Converts the sheets of the workbook concurrently and waits until all of them are written.
+     * <p>
+     * If a sheet fails, the sheets which haven't been started yet are skipped and the
+     * first failure is rethrown after the running tasks have finished.
+     * </p>
+     *
+     * @param file the .xls, .xlsx or .xlsb file
+     * @param executor the executor of the sheet tasks
+     * @param outputs opens the channel of each sheet, it's called by the current thread before any sheet is read
+     * @return the statistics of the converted sheets
+     * @throws IOException if the workbook can't be read or a channel can't be written
+     */
+    public List<SheetStatistics> convert(File file, Executor executor, SheetOutputFactory outputs) throws IOException {
+        FileMagic fm = FileMagic.valueOf(file);
+        if (fm == FileMagic.OLE2) {
+            return convertXLS(file, executor, outputs);
+        } else if (fm != FileMagic.OOXML) {
+            throw new IOException("The file " + file + " isn't a .xls, .xlsx or .xlsb file, but " + fm);
+        }
+
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            boolean binary = !pkg.getPartsByContentType(XSSFRelation.XLSB_BINARY_WORKBOOK.getContentType()).isEmpty();
+            return binary ? convertXLSB(pkg, executor, outputs) : convertXLSX(pkg, executor, outputs);
+        } catch (OpenXML4JException | SAXException e) {
+            throw new IOException("Failed to read " + file, e);
+        }
+    }
+
+    private List<SheetStatistics> convertXLSX(OPCPackage pkg, Executor executor, SheetOutputFactory outputs)
+            throws IOException, OpenXML4JException, SAXException {
+        XSSFReader reader = new XSSFReader(pkg);
+        SharedStrings sst = new OffHeapSharedStringsTable(pkg);
+        StyleFormats styleFormats = StyleFormats.of(reader.getStylesTable());
+        boolean date1904 = XSSFColumnarReader.readDate1904(reader);
+        IntPredicate dateStyles = style -> {
+            short formatIndex = styleFormats.getFormatIndex(style);
+            return formatIndex >= 0 && DateUtil.isADateFormat(formatIndex, styleFormats.getFormatString(style));
+        };
+
+        return convertParts(reader, pkg, executor, outputs, (part, channel) -> {
+            CSVSheetWriter writer = new CSVSheetWriter(channel, this, cached(dateStyles), date1904);
+            XSSFSheetXMLHandler handler = formattedValues
+                ? new XSSFSheetXMLHandler(styleFormats, sst, writer, new DataFormatter(), false)
+                : new XSSFSheetXMLHandler(sst, writer);
+            try (InputStream stream = part.getInputStream()) {
+                if (useSheetXMLScanner) {
+                    new XSSFSheetXMLScanner(handler).parse(stream);
+                } else {
+                    XMLReader xmlReader = XMLHelper.newXMLReader();
+                    xmlReader.setContentHandler(handler);
+                    xmlReader.parse(new InputSource(stream));
+                }
+            } catch (ParserConfigurationException e) {
+                throw new POIXMLException(e);
+            }
+            return writer;
+        });
+    }
+
+    private List<SheetStatistics> convertXLSB(OPCPackage pkg, Executor executor, SheetOutputFactory outputs)
+            throws IOException, OpenXML4JException, SAXException {
+        XSSFBReader reader = new XSSFBReader(pkg);
+        SharedStrings sst = new XSSFBSharedStringsTable(pkg);
+        XSSFBStylesTable styles = reader.getXSSFBStylesTable();
+        boolean date1904 = XSSFColumnarReader.readDate1904(reader);
+        IntPredicate dateStyles = style -> {
+            if (style >= styles.getStyleCount()) {
+                return false;
+            }
+            short formatIndex = styles.getNumberFormatIndex(style);
+            return formatIndex >= 0 && DateUtil.isADateFormat(formatIndex, styles.getNumberFormatString(style));
+        };
+
+        return convertParts(reader, pkg, executor, outputs, (part, channel) -> {
+            CSVSheetWriter writer = new CSVSheetWriter(channel, this, cached(dateStyles), date1904);
+            try (InputStream stream = part.getInputStream()) {
+                XSSFBSheetHandler handler = formattedValues
+                    ? new XSSFBSheetHandler(stream, styles, null, sst, writer, new DataFormatter(), false)
+                    : new XSSFBSheetHandler(stream, sst, writer);
+                handler.parse();
+            }
+            return writer;
+        });
+    }
+
+    private interface PartConverter {
+        CSVSheetWriter convert(PackagePart part, WritableByteChannel channel)
+            throws IOException, SAXException;
+    }
+
+    private List<SheetStatistics> convertParts(XSSFReader reader, OPCPackage pkg, Executor executor,
+            SheetOutputFactory outputs, PartConverter converter) throws IOException, OpenXML4JException {
+        List<SheetTask> tasks = new ArrayList<>();
+        XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) reader.getSheetsData();
+        for (int i = 0; iter.sheetIterator.hasNext(); i++) {
+            XSSFSheetRef ref = iter.sheetIterator.next();
+            PackagePart part = iter.sheetMap.get(ref.getId());
+            if (part == null) {
+                throw new POIXMLException("Failed to find sheet package for sheetId=" + ref.getId());
+            }
+            tasks.add(new SheetTask(i, ref.getName(), channel -> converter.convert(part, channel)));
+        }
+        boolean concurrentReads = (pkg instanceof ZipPackage) && ((ZipPackage) pkg).supportsConcurrentReads();
+        return run(tasks, executor, outputs, concurrentReads);
+    }
+
+    private List<SheetStatistics> convertXLS(File file, Executor executor, SheetOutputFactory outputs) throws IOException {
+        HSSFCSVSheetReader reader = new HSSFCSVSheetReader(file);
+        IntPredicate dateStyles = flag -> flag == 1;
+        List<SheetTask> tasks = new ArrayList<>();
+        List<BoundSheetRecord> sheets = reader.getSheets();
+        for (int i = 0; i < sheets.size(); i++) {
+            BoundSheetRecord sheet = sheets.get(i);
+            tasks.add(new SheetTask(i, sheet.getSheetname(), channel -> {
+                CSVSheetWriter writer = new CSVSheetWriter(channel, this, dateStyles, reader.isDate1904());
+                reader.readSheet(sheet, writer, formattedValues);
+                return writer;
+            }));
+        }
+        // each task reads through its own file system instance
+        return run(tasks, executor, outputs, true);
+    }
+
+    private interface SheetConversion {
+        CSVSheetWriter convert(WritableByteChannel channel) throws IOException, SAXException;
+    }
+
+    private static final class SheetTask {
+        final int sheetIndex;
+        final String sheetName;
+        final SheetConversion conversion;
+        WritableByteChannel channel;
+
+        SheetTask(int sheetIndex, String sheetName, SheetConversion conversion) {
+            this.sheetIndex = sheetIndex;
+            this.sheetName = sheetName;
+            this.conversion = conversion;
+        }
+
+        SheetStatistics execute() throws IOException, SAXException {
+            long start = System.nanoTime();
+            try (WritableByteChannel out = channel) {
+                CSVSheetWriter writer = conversion.convert(out);
+                writer.flush();
+                return new SheetStatistics(sheetIndex, sheetName, writer.getRows(), writer.getBytes(),
+                    System.nanoTime() - start);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private List<SheetStatistics> run(List<SheetTask> tasks, Executor executor, SheetOutputFactory outputs,
+            boolean concurrentReads) throws IOException {
+        List<SheetTask> selected = new ArrayList<>();
+        try {
+            for (SheetTask task : tasks) {
+                task.channel = outputs.openSheet(task.sheetIndex, task.sheetName);
+                if (task.channel != null) {
+                    selected.add(task);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (SheetTask task : selected) {
+                task.channel.close();
+            }
+            throw e;
+        }
+
+        Object readLock = new Object();
+        AtomicBoolean failed = new AtomicBoolean();
+        List<CompletableFuture<SheetStatistics>> futures = new ArrayList<>();
+        for (SheetTask task : selected) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    if (failed.get()) {
+                        task.channel.close();
+                        return null;
+                    }
+                    if (concurrentReads) {
+                        return task.execute();
+                    }
+                    synchronized (readLock) {
+                        return task.execute();
+                    }
+                } catch (IOException | SAXException | RuntimeException e) {
+                    failed.set(true);
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SAXException) {
+                throw new IOException("Failed to parse a sheet", cause);
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new POIXMLException(cause);
+        }
+
+        List<SheetStatistics> result = new ArrayList<>();
+        for (CompletableFuture<SheetStatistics> future : futures) {
+            result.add(future.join());
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Caches the date check of the styles for one sheet task
+     */
+    private static IntPredicate cached(IntPredicate dateStyles) {
+        return new IntPredicate() {
+            /** 0 = unknown, 1 = date, 2 = no date */
+            private byte[] states = new byte[64];
+
+            @Override
+            public boolean test(int style) {
+                if (style < 0) {
+                    return false;
+                }
+                if (style >= states.length) {
+                    states = Arrays.copyOf(states, Math.max(style + 1, states.length * 2));
+                }
+                if (states[style] == 0) {
+                    states[style] = dateStyles.test(style) ? (byte) 1 : (byte) 2;
+                }
+                return states[style] == 1;
+            }
+        };
+    }
+
+    private static String toFileName(String sheetName, Set<String> usedNames) {
+        StringBuilder sb = new StringBuilder(sheetName.length());
+        for (int i = 0; i < sheetName.length(); i++) {
+            char c = sheetName.charAt(i);
+            sb.append((c < 0x20 || "\\/:*?\"<>|".indexOf(c) >= 0) ? '_' : c);
+        }
+        String baseName = sb.toString();
+        String fileName = baseName;
+        // e.g. "a/b" and "a_b" - the case is ignored, like by some file systems
+        for (int suffix = 2; !usedNames.add(fileName.toLowerCase(Locale.ROOT)); suffix++) {
+            fileName = baseName + "_" + suffix;
+        }
+        return fileName;
+    }
+}
@@ -0,0 +1,65 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.xssf.model.Styles;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+
+/**
+ * Immutable lookup of the number formats of the cell styles, which is resolved once
+ * and can then be shared by the handlers of concurrently parsed sheets without
+ * touching the underlying XmlBeans objects.
+ */
+final class StyleFormats {
+    private final short[] formatIndexes;
+    private final String[] formatStrings;
+
+    private StyleFormats(short[] formatIndexes, String[] formatStrings) {
+        this.formatIndexes = formatIndexes;
+        this.formatStrings = formatStrings;
+    }
+
+    static StyleFormats of(Styles styles) {
+        int count = (styles == null) ? 0 : styles.getNumCellStyles();
+        short[] formatIndexes = new short[count];
+        String[] formatStrings = new String[count];
+        for (int i = 0; i < count; i++) {
+            XSSFCellStyle style = styles.getStyleAt(i);
+            if (style == null) {
+                formatIndexes[i] = -1;
+                continue;
+            }
+            formatIndexes[i] = style.getDataFormat();
+            String formatString = style.getDataFormatString();
+            formatStrings[i] = (formatString == null) ? BuiltinFormats.getBuiltinFormat(formatIndexes[i]) : formatString;
+        }
+        return new StyleFormats(formatIndexes, formatStrings);
+    }
+
+    /**
+     * @return the format index of the style or -1, if the style doesn't exist
+     */
+    short getFormatIndex(int styleIndex) {
+        return (styleIndex >= 0 && styleIndex < formatIndexes.length) ? formatIndexes[styleIndex] : -1;
+    }
+
+    String getFormatString(int styleIndex) {
+        return (styleIndex >= 0 && styleIndex < formatStrings.length) ? formatStrings[styleIndex] : null;
+    }
+}
@@ -0,0 +1,105 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import org.apache.poi.util.Beta;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+
+/**
+ * Receives the raw, typed cell values of a sheet from {@link XSSFSheetXMLHandler} or
+ * {@link org.apache.poi.xssf.binary.XSSFBSheetHandler}, instead of the formatted text.
+ * <p>
+ * The values aren't formatted, so numeric cells are reported as doubles without creating
+ * strings. The style index can be used to look up the number format, if it's needed.
+ * Text values are passed as {@link CharSequence}s, which may be reused buffers of the handler
+ * and are only valid during the callback - call {@code toString()} to keep them.
+ * </p>
+ * <p>
+ * Cells with a formula first report the formula via {@link #formulaCell(int, int, CharSequence, int)}
+ * and then their cached result via the callback of its type.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public interface TypedSheetContentsHandler extends XSSFSheetXMLHandler.SheetContentsHandler {
+    /** A row with the (zero based) row number has started */
+    @Override
+    default void startRow(int rowNum) {}
+
+    /** A row with the (zero based) row number has ended */
+    @Override
+    default void endRow(int rowNum) {}
+
+    /**
+     * The formatted cell values aren't reported to typed handlers
+     */
+    @Override
+    default void cell(String cellReference, String formattedValue, XSSFComment comment) {}
+
+    /**
+     * A numeric cell or the numeric result of a formula cell
+     *
+     * @param rowNum the zero based row number
+     * @param column the zero based column
+     * @param value the raw value, dates are reported as their serial number
+     * @param styleIndex the index of the cell style
+     */
+    void numericCell(int rowNum, int column, double value, int styleIndex);
+
+    /**
+     * A string cell or the string result of a formula cell
+     *
+     * @param value the text, which is only valid during the callback
+     */
+    void stringCell(int rowNum, int column, CharSequence value, int styleIndex);
+
+    /**
+     * A string cell, which refers to the shared strings table, is about to be reported.
+     * Handlers, which work with the indexes instead of the texts, can consume the cell here,
+     * so the shared string isn't looked up.
+     *
+     * @param index the index of the shared string
+     * @return true, if the cell has been handled, false to receive it via
+     *  {@link #stringCell(int, int, CharSequence, int)}
+     */
+    default boolean sharedStringCell(int rowNum, int column, int index, int styleIndex) {
+        return false;
+    }
+
+    /**
+     * A boolean cell or the boolean result of a formula cell
+     */
+    void booleanCell(int rowNum, int column, boolean value, int styleIndex);
+
+    /**
+     * An error cell or the error result of a formula cell
+     *
+     * @param error the error text, e.g. {@code #DIV/0!}
+     */
+    default void errorCell(int rowNum, int column, CharSequence error, int styleIndex) {}
+
+    /**
+     * A cell with a formula, which is followed by the callback for the cached result
+     *
+     * @param formula the formula, which is only valid during the callback, or {@code null}
+     *  if it's not available, i.e. for cells referring to a shared formula and for .xlsb files,
+     *  which store the formulas in a binary form
+     */
+    default void formulaCell(int rowNum, int column, CharSequence formula, int styleIndex) {}
+}
@@ -0,0 +1,620 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.Styles;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Parses a single sheet part in parallel, by splitting its rows into chunks, which are
+ * decoded concurrently by {@link XSSFSheetXMLHandler}s.
+ * <p>
+ * The sheet stream is inflated only once by the calling thread, which cuts it behind
+ * {@code </row>} end tags with a byte-level scan. Each chunk is parsed as a document of its
+ * own, which consists of the original sheet header up to the {@code <sheetData>} start tag,
+ * the rows of the chunk and the closing tags. At most {@link #setMaxPendingChunks(int)} chunks
+ * are in memory at the same time.
+ * </p>
+ * <p>
+ * The rows can be either delivered in their order to a single handler, which is then called
+ * by the calling thread, or to a separate handler per chunk, which is called by the parsing
+ * thread of the chunk. In both cases {@link SheetContentsHandler#endSheet()} and the header and
+ * footer callbacks are only called once, by the handler of the last chunk.
+ * </p>
+ * <p>
+ * Limitations: cell comments aren't reported and sheets, which aren't UTF-8 encoded, are parsed
+ * sequentially. Rows without {@code r} attribute are numbered by their position, which a chunk
+ * doesn't know, so such sheets are parsed sequentially too, if the first chunk contains them.
+ * If only a later chunk contains them, a {@link POIXMLException} is thrown.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public class XSSFChunkedSheetParser {
+    private static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int DEFAULT_MAX_PENDING_CHUNKS = 8;
+    private static final byte[] SHEET_DATA = "sheetData".getBytes(StandardCharsets.US_ASCII);
+
+    private final SharedStrings sharedStrings;
+    private final StyleFormats styleFormats;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int maxPendingChunks = DEFAULT_MAX_PENDING_CHUNKS;
+    private boolean formulasNotResults;
+    private boolean useSheetXMLScanner;
+    private Supplier<DataFormatter> dataFormatterFactory = DataFormatter::new;
+
+    /**
+     * @param strings the shared strings table, which is accessed concurrently, e.g. a {@link ReadOnlySharedStringsTable}
+     * @param styles the styles, whose number formats are resolved once by this constructor
+     */
+    public XSSFChunkedSheetParser(SharedStrings strings, Styles styles) {
+        this.sharedStrings = strings;
+        this.styleFormats = StyleFormats.of(styles);
+    }
+
+    /**
+     * @param chunkSize the minimum size of the chunks in bytes, defaults to 4 MiB
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param maxPendingChunks the maximum number of chunks, which are parsed or
+     *  waiting to be delivered at the same time, defaults to 8
+     */
+    public void setMaxPendingChunks(int maxPendingChunks) {
+        if (maxPendingChunks <= 0) {
+            throw new IllegalArgumentException("maxPendingChunks must be positive");
+        }
+        this.maxPendingChunks = maxPendingChunks;
+    }
+
+    /**
+     * @param formulasNotResults if true, the formulas instead of their cached results are reported
+     */
+    public void setFormulasNotResults(boolean formulasNotResults) {
+        this.formulasNotResults = formulasNotResults;
+    }
+
+    /**
+     * @param useSheetXMLScanner if true, the chunks are parsed by the {@link XSSFSheetXMLScanner}
+     *  instead of the SAX parser
+     */
+    public void setUseSheetXMLScanner(boolean useSheetXMLScanner) {
+        this.useSheetXMLScanner = useSheetXMLScanner;
+    }
+
+    /**
+     * Sets the factory for the formatters of the numeric values.
+     * A {@link DataFormatter} isn't thread-safe, so a new one is created for each chunk.
+     */
+    public void setDataFormatterFactory(Supplier<DataFormatter> dataFormatterFactory) {
+        this.dataFormatterFactory = dataFormatterFactory;
+    }
+
+    /**
+     * Parses the sheet and delivers the rows in their order to the handler,
+     * which is only called by the current thread.
+     *
+     * @param sheet the stream of the sheet part, which isn't closed
+     * @param executor the executor for parsing the chunks
+     * @param handler the handler for the rows of the whole sheet
+     * @throws IOException if the sheet can't be read
+     * @throws SAXException if the sheet can't be parsed
+     */
+    public void parse(InputStream sheet, Executor executor, SheetContentsHandler handler)
+            throws IOException, SAXException {
+        process(sheet, executor, null, handler);
+    }
+
+    /**
+     * Parses the sheet and delivers the rows of each chunk to a separate handler, which is
+     * called by the thread parsing the chunk. The handlers are created by the current thread
+     * in the order of the chunks, but the chunks are processed in an arbitrary order.
+     *
+     * @param sheet the stream of the sheet part, which isn't closed
+     * @param executor the executor for parsing the chunks
+     * @param handlerFactory creates the handler for the next chunk
+     * @throws IOException if the sheet can't be read
+     * @throws SAXException if the sheet can't be parsed
+     */
+    public void parseUnordered(InputStream sheet, Executor executor, Supplier<SheetContentsHandler> handlerFactory)
+            throws IOException, SAXException {
+        process(sheet, executor, handlerFactory, null);
+    }
+
+    private void process(InputStream sheet, Executor executor, Supplier<SheetContentsHandler> handlerFactory,
+            SheetContentsHandler orderedHandler) throws IOException, SAXException {
+        ChunkReader reader = new ChunkReader(sheet);
+        if (!reader.readHeader()) {
+            // no rows or an unsupported encoding, so there's nothing to split
+            SheetContentsHandler handler = (orderedHandler != null) ? orderedHandler : handlerFactory.get();
+            parseChunk(new SequenceInputStream(new UnsynchronizedByteArrayInputStream(reader.buf, 0, reader.len), sheet),
+                handler, dataFormatterFactory.get());
+            return;
+        }
+
+        AtomicBoolean failed = new AtomicBoolean();
+        Deque<CompletableFuture<RecordingHandler>> pending = new ArrayDeque<>();
+        try {
+            boolean first = true;
+            boolean last;
+            do {
+                last = reader.nextChunk();
+                if (!reader.hasRowNumbers()) {
+                    if (!first) {
+                        throw new POIXMLException("Rows without row number can't be parsed in chunks, "
+                            + "if the first chunk has row numbers");
+                    }
+                    // the first chunk is parsed with the rest of the sheet
+                    SheetContentsHandler handler = (orderedHandler != null) ? orderedHandler : handlerFactory.get();
+                    parseChunk(reader.remainingStream(), handler, dataFormatterFactory.get());
+                    return;
+                }
+                first = false;
+                InputStream chunk = reader.chunkStream(last);
+                SheetContentsHandler target = (orderedHandler != null) ? new RecordingHandler() : handlerFactory.get();
+                SheetContentsHandler handler = last ? target : new EndSheetFilter(target);
+                DataFormatter formatter = dataFormatterFactory.get();
+                pending.add(CompletableFuture.supplyAsync(() -> {
+                    if (failed.get()) {
+                        return null;
+                    }
+                    try {
+                        parseChunk(chunk, handler, formatter);
+                    } catch (IOException | SAXException | RuntimeException e) {
+                        failed.set(true);
+                        throw new CompletionException(e);
+                    }
+                    return (target instanceof RecordingHandler) ? (RecordingHandler) target : null;
+                }, executor));
+
+                while (pending.size() >= maxPendingChunks || (last && !pending.isEmpty())) {
+                    RecordingHandler recorded = pending.remove().join();
+                    if (recorded != null) {
+                        recorded.replay(orderedHandler);
+                    }
+                }
+            } while (!last);
+        } catch (CompletionException e) {
+            failed.set(true);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new POIXMLException(cause);
+        } finally {
+            if (!pending.isEmpty()) {
+                failed.set(true);
+            }
+        }
+    }
+
+    private void parseChunk(InputStream chunk, SheetContentsHandler handler, DataFormatter formatter)
+            throws IOException, SAXException {
+        XSSFSheetXMLHandler sheetHandler = new XSSFSheetXMLHandler(
+            styleFormats, sharedStrings, handler, formatter, formulasNotResults);
+        if (useSheetXMLScanner) {
+            new XSSFSheetXMLScanner(sheetHandler).parse(chunk);
+            return;
+        }
+        XMLReader xmlReader;
+        try {
+            xmlReader = XMLHelper.newXMLReader();
+        } catch (ParserConfigurationException e) {
+            throw new POIXMLException(e);
+        }
+        xmlReader.setContentHandler(sheetHandler);
+        xmlReader.parse(new InputSource(chunk));
+    }
+
+    /**
+     * Splits the inflated sheet stream into the header and the row chunks
+     */
+    private final class ChunkReader {
+        private final InputStream is;
+        private byte[] buf;
+        private int len;
+        private boolean eof;
+        private byte[] header;
+        private byte[] rowStartTag;
+        private byte[] rowEndTag;
+        private byte[] suffix;
+        private int chunkLen;
+
+        ChunkReader(InputStream is) {
+            this.is = is;
+            this.buf = new byte[Math.min(chunkSize, 64 * 1024)];
+        }
+
+        /**
+         * Reads up to the sheetData start tag
+         *
+         * @return false, if the sheet can't be split
+         */
+        boolean readHeader() throws IOException {
+            fill(4);
+            // UTF-16 and UTF-32 documents start with a byte order mark or a zero byte
+            if (len >= 2 && (buf[0] == 0 || buf[1] == 0 || (buf[0] & 0xFF) == 0xFE || (buf[0] & 0xFF) == 0xFF)) {
+                return false;
+            }
+            int searchFrom = 0;
+            while (true) {
+                int match = indexOf(SHEET_DATA, searchFrom);
+                if (match >= 0) {
+                    int tagStart = match - 1;
+                    while (tagStart >= 0 && buf[tagStart] != '<' && isNameByte(buf[tagStart])) {
+                        tagStart--;
+                    }
+                    int nameEnd = match + SHEET_DATA.length;
+                    if (nameEnd < len && tagStart >= 0 && buf[tagStart] == '<'
+                        && (tagStart == match - 1 || buf[match - 1] == ':') && !isNameByte(buf[nameEnd])) {
+                        int tagEnd = nameEnd;
+                        while (tagEnd < len && buf[tagEnd] != '>') {
+                            tagEnd++;
+                        }
+                        if (tagEnd < len) {
+                            if (buf[tagEnd - 1] == '/') {
+                                // an empty sheetData element
+                                return false;
+                            }
+                            String prefix = new String(buf, tagStart + 1, match - tagStart - 1, StandardCharsets.UTF_8);
+                            init(prefix, tagEnd + 1);
+                            return true;
+                        }
+                    } else {
+                        searchFrom = match + 1;
+                        continue;
+                    }
+                } else {
+                    searchFrom = Math.max(0, len - SHEET_DATA.length);
+                }
+                if (eof) {
+                    return false;
+                }
+                fill(len + buf.length);
+            }
+        }
+
+        private void init(String prefix, int headerEnd) {
+            header = Arrays.copyOf(buf, headerEnd);
+            rowStartTag = ("<" + prefix + "row").getBytes(StandardCharsets.UTF_8);
+            rowEndTag = ("</" + prefix + "row>").getBytes(StandardCharsets.UTF_8);
+            suffix = ("</" + prefix + "sheetData></" + rootName() + ">").getBytes(StandardCharsets.UTF_8);
+            len -= headerEnd;
+            System.arraycopy(buf, headerEnd, buf, 0, len);
+        }
+
+        private String rootName() {
+            for (int i = 0; i < header.length - 1; i++) {
+                if (header[i] == '<' && header[i + 1] != '?' && header[i + 1] != '!') {
+                    int end = i + 1;
+                    while (end < header.length && isNameByte(header[end])) {
+                        end++;
+                    }
+                    return new String(header, i + 1, end - i - 1, StandardCharsets.UTF_8);
+                }
+            }
+            throw new POIXMLException("Invalid sheet, no root element found");
+        }
+
+        /**
+         * Reads the next chunk into the buffer
+         *
+         * @return true, if it's the last chunk, which contains the rest of the document
+         */
+        boolean nextChunk() throws IOException {
+            int searchFrom = 0;
+            while (true) {
+                fill(Math.max(chunkSize, len + 1));
+                int cut = lastIndexOf(rowEndTag, searchFrom);
+                if (eof) {
+                    chunkLen = len;
+                    return true;
+                }
+                if (cut >= 0) {
+                    chunkLen = cut + rowEndTag.length;
+                    return false;
+                }
+                // a single row is bigger than the chunk size
+                searchFrom = Math.max(0, len - rowEndTag.length);
+                fill(len * 2);
+            }
+        }
+
+        /**
+         * Checks that all rows of the current chunk have an {@code r} attribute
+         *
+         * @return false, if a row start tag without row number was found
+         */
+        boolean hasRowNumbers() {
+            int pos = 0;
+            while ((pos = indexOf(rowStartTag, pos, chunkLen)) >= 0) {
+                pos += rowStartTag.length;
+                // skip other elements with the same name start
+                if (pos < chunkLen && !isNameByte(buf[pos]) && !hasRowNumber(pos)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param pos the position behind the element name of a row start tag
+         */
+        private boolean hasRowNumber(int pos) {
+            while (pos < chunkLen && buf[pos] != '>' && buf[pos] != '/') {
+                if (!isNameByte(buf[pos])) {
+                    pos++;
+                    continue;
+                }
+                int nameStart = pos;
+                while (pos < chunkLen && isNameByte(buf[pos])) {
+                    pos++;
+                }
+                if (pos - nameStart == 1 && buf[nameStart] == 'r') {
+                    return true;
+                }
+                // skip the quoted value, which may contain any character besides the quote
+                while (pos < chunkLen && buf[pos] != '"' && buf[pos] != '\'') {
+                    pos++;
+                }
+                if (pos < chunkLen) {
+                    byte quote = buf[pos++];
+                    while (pos < chunkLen && buf[pos] != quote) {
+                        pos++;
+                    }
+                    pos++;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return the stream of the header and of the rest of the sheet, starting with the current chunk
+         */
+        InputStream remainingStream() {
+            return new SequenceInputStream(new SequenceInputStream(new UnsynchronizedByteArrayInputStream(header),
+                new UnsynchronizedByteArrayInputStream(buf, 0, len)), is);
+        }
+
+        /**
+         * @return the stream of the current chunk, the buffer is handed over to the chunk
+         */
+        InputStream chunkStream(boolean last) {
+            byte[] data = buf;
+            int dataLen = chunkLen;
+            int rest = len - chunkLen;
+            buf = new byte[Math.max(chunkSize, rest)];
+            System.arraycopy(data, chunkLen, buf, 0, rest);
+            len = rest;
+
+            InputStream headerStream = new UnsynchronizedByteArrayInputStream(header);
+            InputStream rowStream = new UnsynchronizedByteArrayInputStream(data, 0, dataLen);
+            return last
+                ? new SequenceInputStream(headerStream, rowStream)
+                : new SequenceInputStream(new SequenceInputStream(headerStream, rowStream),
+                    new UnsynchronizedByteArrayInputStream(suffix));
+        }
+
+        /**
+         * Reads until the buffer contains the given number of bytes or the stream has ended
+         */
+        private void fill(int size) throws IOException {
+            if (size > buf.length) {
+                buf = Arrays.copyOf(buf, size);
+            }
+            while (!eof && len < size) {
+                int read = IOUtils.readFully(is, buf, len, size - len);
+                if (read < size - len) {
+                    eof = true;
+                }
+                if (read > 0) {
+                    len += read;
+                }
+            }
+        }
+
+        private int indexOf(byte[] pattern, int from) {
+            return indexOf(pattern, from, len);
+        }
+
+        private int indexOf(byte[] pattern, int from, int to) {
+            outer:
+            for (int i = from, end = to - pattern.length; i <= end; i++) {
+                for (int j = 0; j < pattern.length; j++) {
+                    if (buf[i + j] != pattern[j]) {
+                        continue outer;
+                    }
+                }
+                return i;
+            }
+            return -1;
+        }
+
+        private int lastIndexOf(byte[] pattern, int from) {
+            byte last = pattern[pattern.length - 1];
+            outer:
+            for (int i = len - 1; i >= from + pattern.length - 1; i--) {
+                if (buf[i] != last) {
+                    continue;
+                }
+                int start = i - pattern.length + 1;
+                for (int j = 0; j < pattern.length - 1; j++) {
+                    if (buf[start + j] != pattern[j]) {
+                        continue outer;
+                    }
+                }
+                return start;
+            }
+            return -1;
+        }
+    }
+
+    private static boolean isNameByte(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+            || b == '_' || b == '-' || b == '.' || b == ':' || b < 0;
+    }
+
+    /**
+     * Drops the end of sheet event of the closing tags, which were appended to a chunk
+     */
+    private static final class EndSheetFilter implements SheetContentsHandler {
+        private final SheetContentsHandler delegate;
+
+        EndSheetFilter(SheetContentsHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            delegate.startRow(rowNum);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            delegate.endRow(rowNum);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            delegate.cell(cellReference, formattedValue, comment);
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+            delegate.headerFooter(text, isHeader, tagName);
+        }
+    }
+
+    /**
+     * Records the events of a chunk, until they can be delivered in order
+     */
+    private static final class RecordingHandler implements SheetContentsHandler {
+        private static final byte START_ROW = 0;
+        private static final byte END_ROW = 1;
+        private static final byte CELL = 2;
+        private static final byte HEADER_FOOTER = 3;
+        private static final byte END_SHEET = 4;
+
+        private byte[] kinds = new byte[1024];
+        private int[] rowNums = new int[1024];
+        private String[] firsts = new String[1024];
+        private String[] seconds = new String[1024];
+        private int size;
+
+        private void add(byte kind, int rowNum, String first, String second) {
+            if (size == kinds.length) {
+                int newSize = size * 2;
+                kinds = Arrays.copyOf(kinds, newSize);
+                rowNums = Arrays.copyOf(rowNums, newSize);
+                firsts = Arrays.copyOf(firsts, newSize);
+                seconds = Arrays.copyOf(seconds, newSize);
+            }
+            kinds[size] = kind;
+            rowNums[size] = rowNum;
+            firsts[size] = first;
+            seconds[size] = second;
+            size++;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            add(START_ROW, rowNum, null, null);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            add(END_ROW, rowNum, null, null);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            add(CELL, 0, cellReference, formattedValue);
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+            add(HEADER_FOOTER, isHeader ? 1 : 0, text, tagName);
+        }
+
+        @Override
+        public void endSheet() {
+            add(END_SHEET, 0, null, null);
+        }
+
+        void replay(SheetContentsHandler handler) {
+            for (int i = 0; i < size; i++) {
+                switch (kinds[i]) {
+                    case START_ROW:
+                        handler.startRow(rowNums[i]);
+                        break;
+                    case END_ROW:
+                        handler.endRow(rowNums[i]);
+                        break;
+                    case CELL:
+                        handler.cell(firsts[i], seconds[i], null);
+                        break;
+                    case HEADER_FOOTER:
+                        handler.headerFooter(firsts[i], rowNums[i] == 1, seconds[i]);
+                        break;
+                    default:
+                        handler.endSheet();
+                        break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.extractor.ColumnarBatch;
+import org.apache.poi.ss.extractor.ColumnarBatchBuilder;
+import org.apache.poi.ss.extractor.ColumnarBatchHandler;
+import org.apache.poi.ss.extractor.ColumnarSchema;
+import org.apache.poi.ss.extractor.StringDictionary;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.binary.XSSFBParseException;
+import org.apache.poi.xssf.binary.XSSFBParser;
+import org.apache.poi.xssf.binary.XSSFBRecordType;
+import org.apache.poi.xssf.binary.XSSFBSharedStringsTable;
+import org.apache.poi.xssf.binary.XSSFBSheetHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFReader.XSSFSheetRef;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Reads the cells of a sheet of a .xlsx or .xlsb file into {@link ColumnarBatch}es, without creating
+ * the rows and cells of the usermodel.
+ * <p>
+ * The sheets of an {@link XSSFReader} are parsed with the {@link XSSFSheetXMLHandler} and the sheets of an
+ * {@link XSSFBReader} with the {@link XSSFBSheetHandler}. Both handlers report the typed cell values and
+ * only the columns and rows of the {@link ColumnarSchema}, so the other cells aren't decoded. The text cells
+ * are encoded with the indexes of the shared strings table, so the shared strings aren't looked up.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public class XSSFColumnarReader {
+    private final boolean binary;
+    private final SharedStrings sharedStrings;
+    private final boolean date1904;
+    private final List<XSSFSheetRef> sheetRefs = new ArrayList<>();
+    private final List<PackagePart> sheetParts = new ArrayList<>();
+    private boolean useSheetXMLScanner;
+
+    /**
+     * Reads the shared strings, the date system and the sheet references of the workbook
+     *
+     * @param reader the reader of a .xlsx file or a {@link XSSFBReader} of a .xlsb file, whose package must
+     *  stay open while the sheets are read
+     * @throws IOException if there is an I/O issue reading the data
+     * @throws InvalidFormatException if the package format is invalid
+     */
+    public XSSFColumnarReader(XSSFReader reader) throws IOException, InvalidFormatException {
+        binary = reader instanceof XSSFBReader;
+        if (binary) {
+            try {
+                sharedStrings = new XSSFBSharedStringsTable(reader.pkg);
+            } catch (SAXException e) {
+                throw new InvalidFormatException("Failed to parse the shared strings table", e);
+            }
+        } else {
+            sharedStrings = reader.getSharedStringsTable();
+        }
+        date1904 = readDate1904(reader);
+
+        XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) reader.getSheetsData();
+        while (iter.sheetIterator.hasNext()) {
+            XSSFSheetRef ref = iter.sheetIterator.next();
+            PackagePart part = iter.sheetMap.get(ref.getId());
+            if (part == null) {
+                throw new POIXMLException("Failed to find sheet package for sheetId=" + ref.getId());
+            }
+            sheetRefs.add(ref);
+            sheetParts.add(part);
+        }
+    }
+
+    /**
+     * @return the sheets of the workbook in their logical order
+     */
+    public List<XSSFSheetRef> getSheetRefs() {
+        return Collections.unmodifiableList(sheetRefs);
+    }
+
+    /**
+     * @return true, if the workbook uses the 1904 date system
+     */
+    public boolean isDate1904() {
+        return date1904;
+    }
+
+    /**
+     * @param useSheetXMLScanner if true, the sheets of .xlsx files are parsed by the {@link XSSFSheetXMLScanner}
+     *  instead of the SAX parser
+     */
+    public void setUseSheetXMLScanner(boolean useSheetXMLScanner) {
+        this.useSheetXMLScanner = useSheetXMLScanner;
+    }
+
+    /**
+     * Reads a sheet into batches
+     *
+     * @param sheetIndex the zero based index of the sheet
+     * @param schema the columns to read
+     * @param handler receives the batches
+     * @throws IOException if the sheet can't be read
+     * @throws SAXException if the sheet can't be parsed
+     * @throws IllegalArgumentException if there's no sheet with the index
+     */
+    public void read(int sheetIndex, ColumnarSchema schema, ColumnarBatchHandler handler)
+            throws IOException, SAXException {
+        if (sheetIndex < 0 || sheetIndex >= sheetParts.size()) {
+            throw new IllegalArgumentException("Sheet index (" + sheetIndex
+                + ") is out of range (0.." + (sheetParts.size() - 1) + ")");
+        }
+        readSheet(sheetParts.get(sheetIndex), schema, handler);
+    }
+
+    /**
+     * Reads a sheet into batches
+     *
+     * @param sheetName the name of the sheet, which is matched case-insensitive
+     * @param schema the columns to read
+     * @param handler receives the batches
+     * @throws IOException if the sheet can't be read
+     * @throws SAXException if the sheet can't be parsed
+     * @throws IllegalArgumentException if there's no sheet with the name
+     */
+    public void read(String sheetName, ColumnarSchema schema, ColumnarBatchHandler handler)
+            throws IOException, SAXException {
+        for (int i = 0; i < sheetRefs.size(); i++) {
+            if (sheetRefs.get(i).getName().equalsIgnoreCase(sheetName)) {
+                readSheet(sheetParts.get(i), schema, handler);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Sheet '" + sheetName + "' not found");
+    }
+
+    private void readSheet(PackagePart part, ColumnarSchema schema, ColumnarBatchHandler handler)
+            throws IOException, SAXException {
+        ColumnarBatchBuilder builder = new ColumnarBatchBuilder(schema, newDictionary(), date1904, handler);
+        BatchContentsHandler contents = new BatchContentsHandler(builder);
+        SheetReadFilter filter = SheetReadFilter.rows(schema.getFirstRow(), schema.getLastRow())
+            .withColumns(schema.getColumns());
+
+        try (InputStream stream = part.getInputStream()) {
+            if (binary) {
+                XSSFBSheetHandler sheetHandler = new XSSFBSheetHandler(stream, sharedStrings, contents);
+                sheetHandler.setReadFilter(filter);
+                sheetHandler.parse();
+            } else {
+                XSSFSheetXMLHandler sheetHandler = new XSSFSheetXMLHandler(sharedStrings, contents);
+                sheetHandler.setReadFilter(filter);
+                parse(stream, sheetHandler);
+            }
+        }
+        builder.finish();
+    }
+
+    private void parse(InputStream stream, XSSFSheetXMLHandler sheetHandler) throws IOException, SAXException {
+        try {
+            if (useSheetXMLScanner) {
+                new XSSFSheetXMLScanner(sheetHandler).parse(stream);
+            } else {
+                XMLReader xmlReader;
+                try {
+                    xmlReader = XMLHelper.newXMLReader();
+                } catch (ParserConfigurationException e) {
+                    throw new POIXMLException(e);
+                }
+                xmlReader.setContentHandler(sheetHandler);
+                xmlReader.parse(new InputSource(stream));
+            }
+        } catch (XSSFSheetXMLHandler.StopParsingException e) {
+            // the remaining rows are outside the schema
+        }
+    }
+
+    private StringDictionary newDictionary() {
+        SharedStrings sst = sharedStrings;
+        if (sst == null) {
+            return new StringDictionary(i -> null, 0);
+        } else if (sst instanceof ReadOnlySharedStringsTable) {
+            ReadOnlySharedStringsTable table = (ReadOnlySharedStringsTable) sst;
+            return new StringDictionary(table::getString, table.getUniqueCount());
+        } else {
+            return new StringDictionary(i -> sst.getItemAt(i).getString(), sst.getUniqueCount());
+        }
+    }
+
+    /**
+     * Reads the date system from the workbook part of a .xlsx file or, for a {@link XSSFBReader}, a .xlsb file
+     */
+    static boolean readDate1904(XSSFReader reader) throws IOException, InvalidFormatException {
+        try (InputStream stream = reader.getWorkbookData()) {
+            return (reader instanceof XSSFBReader) ? readBinaryDate1904(stream) : readDate1904(stream);
+        }
+    }
+
+    private static boolean readDate1904(InputStream stream) throws IOException {
+        try {
+            XMLStreamReader xml = XMLHelper.newXMLInputFactory().createXMLStreamReader(stream);
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() != START_ELEMENT) {
+                        continue;
+                    }
+                    String name = xml.getLocalName();
+                    if ("workbookPr".equals(name)) {
+                        String date1904 = xml.getAttributeValue(null, "date1904");
+                        return "1".equals(date1904) || "true".equals(date1904);
+                    } else if ("sheets".equals(name)) {
+                        // the workbook properties precede the sheets
+                        return false;
+                    }
+                }
+                return false;
+            } finally {
+                xml.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse the workbook", e);
+        }
+    }
+
+    private static boolean readBinaryDate1904(InputStream stream) throws IOException {
+        Date1904Reader reader = new Date1904Reader(stream);
+        reader.parse();
+        return reader.date1904;
+    }
+
+    /**
+     * Reads the date system flag of the BrtWbProp record
+     */
+    private static final class Date1904Reader extends XSSFBParser {
+        private boolean date1904;
+
+        Date1904Reader(InputStream is) {
+            super(is);
+        }
+
+        @Override
+        public void handleRecord(int recordType, byte[] data) throws XSSFBParseException {
+            if (recordType == XSSFBRecordType.BrtWbProp.getId()) {
+                // fDate1904 is the first bit of the flags
+                date1904 = data.length > 0 && (data[0] & 1) != 0;
+                stopParsing();
+            } else if (recordType == XSSFBRecordType.BrtBeginBundleShs.getId()) {
+                stopParsing();
+            }
+        }
+    }
+
+    /**
+     * Passes the typed cell values of the sheet handlers to the batch builder
+     */
+    private static final class BatchContentsHandler implements TypedSheetContentsHandler {
+        private final ColumnarBatchBuilder builder;
+
+        BatchContentsHandler(ColumnarBatchBuilder builder) {
+            this.builder = builder;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            builder.startRow(rowNum);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            builder.endRow();
+        }
+
+        @Override
+        public void numericCell(int rowNum, int column, double value, int styleIndex) {
+            builder.numericValue(column, value);
+        }
+
+        @Override
+        public boolean sharedStringCell(int rowNum, int column, int index, int styleIndex) {
+            builder.sharedStringValue(column, index);
+            return true;
+        }
+
+        @Override
+        public void stringCell(int rowNum, int column, CharSequence value, int styleIndex) {
+            builder.stringValue(column, value);
+        }
+
+        @Override
+        public void booleanCell(int rowNum, int column, boolean value, int styleIndex) {
+            builder.booleanValue(column, value);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.ZipPackage;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.binary.XSSFBSharedStringsTable;
+import org.apache.poi.xssf.binary.XSSFBSheetHandler;
+import org.apache.poi.xssf.binary.XSSFBStylesTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader.XSSFSheetRef;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Parses all sheets of a .xlsx or .xlsb file concurrently with the {@link XSSFSheetXMLHandler event API}
+ * or the {@link XSSFBSheetHandler} respectively.
+ * <p>
+ * The shared strings and the number formats of the styles are read once by the constructor
+ * and are afterwards shared read-only by the parsing tasks. Each sheet is parsed by a single
+ * task of the given executor, which reports the rows and cells to the {@link SheetContentsHandler}
+ * of that sheet, so a handler is never called concurrently. Handlers of different sheets can be
+ * called concurrently though.
+ * </p>
+ * <p>
+ * The sheet parts are looked up in the constructor, so the package is only accessed by reading
+ * the part streams afterwards. If the package can't read the streams of its parts concurrently
+ * (see {@link ZipPackage#supportsConcurrentReads()}), the sheets are parsed one after another,
+ * but still on the executor.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public class XSSFParallelSheetReader {
+    private final List<XSSFSheetRef> sheetRefs = new ArrayList<>();
+    private final List<PackagePart> sheetParts = new ArrayList<>();
+    private final SharedStrings sharedStrings;
+    /** the number formats of a .xlsx file */
+    private final StyleFormats styleFormats;
+    /** the styles of a .xlsb file */
+    private final XSSFBStylesTable binaryStyles;
+    private final boolean concurrentReads;
+    private final Object readLock = new Object();
+    private boolean formulasNotResults;
+    private SheetReadFilter readFilter;
+    private boolean useSheetXMLScanner;
+    private Supplier<DataFormatter> dataFormatterFactory = DataFormatter::new;
+
+    /**
+     * Reads the shared strings, styles and sheet references of the package
+     *
+     * @param pkg the package of the workbook, which must stay open while the sheets are processed
+     * @throws OpenXML4JException if the package format is invalid
+     * @throws IOException if there is an I/O issue reading the data
+     */
+    public XSSFParallelSheetReader(OPCPackage pkg) throws IOException, OpenXML4JException {
+        XSSFReader reader;
+        if (pkg.getPartsByContentType(XSSFRelation.XLSB_BINARY_WORKBOOK.getContentType()).isEmpty()) {
+            reader = new XSSFReader(pkg);
+            reader.setUseReadOnlySharedStringsTable(true);
+            sharedStrings = reader.getSharedStringsTable();
+            styleFormats = StyleFormats.of(reader.getStylesTable());
+            binaryStyles = null;
+        } else {
+            XSSFBReader binaryReader = new XSSFBReader(pkg);
+            reader = binaryReader;
+            try {
+                sharedStrings = new XSSFBSharedStringsTable(pkg);
+            } catch (SAXException e) {
+                throw new InvalidFormatException("Failed to parse the shared strings table", e);
+            }
+            styleFormats = null;
+            binaryStyles = binaryReader.getXSSFBStylesTable();
+        }
+
+        XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) reader.getSheetsData();
+        while (iter.sheetIterator.hasNext()) {
+            XSSFSheetRef ref = iter.sheetIterator.next();
+            PackagePart part = iter.sheetMap.get(ref.getId());
+            if (part == null) {
+                throw new POIXMLException("Failed to find sheet package for sheetId=" + ref.getId());
+            }
+            sheetRefs.add(ref);
+            sheetParts.add(part);
+        }
+        concurrentReads = (pkg instanceof ZipPackage) && ((ZipPackage) pkg).supportsConcurrentReads();
+    }
+
+    /**
+     * @return the sheets of the workbook in their logical order
+     */
+    public List<XSSFSheetRef> getSheetRefs() {
+        return Collections.unmodifiableList(sheetRefs);
+    }
+
+    /**
+     * @return the shared strings table, which is shared by all sheets, or {@code null} if the workbook has none
+     */
+    public SharedStrings getSharedStrings() {
+        return sharedStrings;
+    }
+
+    /**
+     * @param formulasNotResults if true, the formulas instead of their cached results are reported
+     */
+    public void setFormulasNotResults(boolean formulasNotResults) {
+        this.formulasNotResults = formulasNotResults;
+    }
+
+    /**
+     * @param readFilter restricts the rows and columns, which are reported for each sheet,
+     *  or {@code null} to report all cells
+     * @see XSSFSheetXMLHandler#setReadFilter(SheetReadFilter)
+     */
+    public void setReadFilter(SheetReadFilter readFilter) {
+        this.readFilter = readFilter;
+    }
+
+    /**
+     * @param useSheetXMLScanner if true, the sheets of a .xlsx file are parsed by the {@link XSSFSheetXMLScanner}
+     *  instead of the SAX parser
+     */
+    public void setUseSheetXMLScanner(boolean useSheetXMLScanner) {
+        this.useSheetXMLScanner = useSheetXMLScanner;
+    }
+
+    /**
+     * Sets the factory for the formatters of the numeric values.
+     * A {@link DataFormatter} isn't thread-safe, so a new one is created for each sheet.
+     *
+     * @param dataFormatterFactory the factory, which is called once per sheet
+     */
+    public void setDataFormatterFactory(Supplier<DataFormatter> dataFormatterFactory) {
+        this.dataFormatterFactory = dataFormatterFactory;
+    }
+
+    /**
+     * Parses all sheets on the executor and waits until all of them are processed.
+     * <p>
+     * If a sheet fails, the sheets which haven't been started yet are skipped and the
+     * first failure is rethrown after the running tasks have finished.
+     * </p>
+     *
+     * @param executor the executor for the parsing tasks
+     * @param handlerFactory returns the handler for a sheet or {@code null} to skip the sheet,
+     *  it's called by the current thread before any sheet is parsed
+     * @throws IOException if a sheet can't be read
+     * @throws SAXException if a sheet can't be parsed
+     */
+    public void process(Executor executor, Function<XSSFSheetRef, SheetContentsHandler> handlerFactory)
+            throws IOException, SAXException {
+        AtomicBoolean failed = new AtomicBoolean();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < sheetRefs.size(); i++) {
+            SheetContentsHandler handler = handlerFactory.apply(sheetRefs.get(i));
+            if (handler == null) {
+                continue;
+            }
+            PackagePart part = sheetParts.get(i);
+            DataFormatter formatter = dataFormatterFactory.get();
+            tasks.add(CompletableFuture.runAsync(() -> {
+                if (failed.get()) {
+                    return;
+                }
+                try {
+                    if (concurrentReads) {
+                        processSheet(part, handler, formatter);
+                    } else {
+                        synchronized (readLock) {
+                            processSheet(part, handler, formatter);
+                        }
+                    }
+                } catch (IOException | SAXException | RuntimeException e) {
+                    failed.set(true);
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new POIXMLException(cause);
+        }
+    }
+
+    private void processSheet(PackagePart part, SheetContentsHandler handler, DataFormatter formatter)
+            throws IOException, SAXException {
+        if (binaryStyles != null) {
+            try (InputStream stream = part.getInputStream()) {
+                XSSFBSheetHandler sheetHandler = new XSSFBSheetHandler(
+                    stream, binaryStyles, null, sharedStrings, handler, formatter, formulasNotResults);
+                sheetHandler.setReadFilter(readFilter);
+                sheetHandler.parse();
+            }
+            return;
+        }
+
+        XSSFSheetXMLHandler sheetHandler = new XSSFSheetXMLHandler(
+            styleFormats, sharedStrings, handler, formatter, formulasNotResults);
+        sheetHandler.setReadFilter(readFilter);
+        try (InputStream stream = part.getInputStream()) {
+            if (useSheetXMLScanner) {
+                new XSSFSheetXMLScanner(sheetHandler).parse(stream);
+            } else {
+                XMLReader xmlReader;
+                try {
+                    xmlReader = XMLHelper.newXMLReader();
+                } catch (ParserConfigurationException e) {
+                    throw new POIXMLException(e);
+                }
+                xmlReader.setContentHandler(sheetHandler);
+                xmlReader.parse(new InputSource(stream));
+            }
+        } catch (XSSFSheetXMLHandler.StopParsingException e) {
+            // the remaining rows are outside the read filter
+        }
+    }
+}
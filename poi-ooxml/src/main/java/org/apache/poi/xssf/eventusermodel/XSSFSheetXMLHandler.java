@@ -69,6 +69,11 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
     */
    private final Styles stylesTable;
 
+   /**
+    * Pre-resolved number formats, which replace the lookups in the styles table
+    */
+   private final StyleFormats styleFormats;
+
    /**
     * Table with cell comments
     */
@@ -85,6 +90,11 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
     */
    private final SheetContentsHandler output;
 
+   /**
+    * Receives the raw values instead of the formatted text, if set
+    */
+   private final TypedSheetContentsHandler typedOutput;
+
    // Set when V start element is seen
    private boolean vIsOpen;
    // Set when F start element is seen
@@ -107,6 +117,17 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
    private String cellRef;
    private final boolean formulasNotResults;
 
+   // Restricts the reported rows and cells, if set
+   private SheetReadFilter readFilter;
+   private boolean skipRow;
+   private boolean skipCell;
+
+   // The cell details, which are only tracked for typed output or a read filter
+   private int cellColumn;
+   private int cellStyleIndex;
+   private boolean cellHasFormula;
+   private boolean cellStringResult;
+
    // Gathers characters as they are seen.
    private final StringBuilder value = new StringBuilder(64);
    private final StringBuilder formula = new StringBuilder(64);
@@ -128,9 +149,11 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
            DataFormatter dataFormatter,
            boolean formulasNotResults) {
        this.stylesTable = styles;
+       this.styleFormats = null;
        this.comments = comments;
        this.sharedStringsTable = strings;
        this.output = sheetContentsHandler;
+       this.typedOutput = null;
        this.formulasNotResults = formulasNotResults;
        this.nextDataType = xssfDataType.NUMBER;
        this.formatter = dataFormatter;
@@ -166,6 +189,75 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
        this(styles, strings, sheetContentsHandler, new DataFormatter(), formulasNotResults);
    }
 
+   /**
+    * Accepts objects needed while parsing, the number formats are looked up
+    *  in the given immutable table, so it can be shared with other threads.
+    */
+   XSSFSheetXMLHandler(
+           StyleFormats styleFormats,
+           SharedStrings strings,
+           SheetContentsHandler sheetContentsHandler,
+           DataFormatter dataFormatter,
+           boolean formulasNotResults) {
+       this.stylesTable = null;
+       this.styleFormats = styleFormats;
+       this.comments = null;
+       this.sharedStringsTable = strings;
+       this.output = sheetContentsHandler;
+       this.typedOutput = null;
+       this.formulasNotResults = formulasNotResults;
+       this.nextDataType = xssfDataType.NUMBER;
+       this.formatter = dataFormatter;
+       init(null);
+   }
+
+   /**
+    * Accepts objects needed while parsing, the cells are reported with
+    *  their raw typed values and without formatting them.
+    *
+    * @param strings Table of shared strings
+    * @param typedContentsHandler the handler for the typed values
+    * @since POI 5.2.4
+    */
+   public XSSFSheetXMLHandler(
+           SharedStrings strings,
+           TypedSheetContentsHandler typedContentsHandler) {
+       this.stylesTable = null;
+       this.styleFormats = null;
+       this.comments = null;
+       this.sharedStringsTable = strings;
+       this.output = typedContentsHandler;
+       this.typedOutput = typedContentsHandler;
+       this.formulasNotResults = false;
+       this.nextDataType = xssfDataType.NUMBER;
+       this.formatter = null;
+       init(null);
+   }
+
+   /**
+    * Restricts the rows and columns, which are reported to the handler.
+    * <p>
+    * The cells outside the filter are skipped before their values are decoded and the
+    * parsing is stopped with a {@link StopParsingException}, after the last row of the
+    * filter has been read and {@link SheetContentsHandler#endSheet()} has been called.
+    * The header and footer aren't reported in that case.
+    * </p>
+    *
+    * @param readFilter the filter or {@code null} to report all cells
+    * @since POI 5.2.4
+    */
+   public void setReadFilter(SheetReadFilter readFilter) {
+       this.readFilter = readFilter;
+   }
+
+   /**
+    * @return the filter of the reported rows and columns or {@code null} if all cells are reported
+    * @since POI 5.2.4
+    */
+   public SheetReadFilter getReadFilter() {
+       return readFilter;
+   }
+
    private void init(Comments commentsTable) {
        if (commentsTable != null) {
            commentCellRefs = new LinkedList<>();
@@ -201,6 +293,11 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
            return;
        }
 
+       // the value, formula and inline string of a filtered cell are skipped
+       if (skipCell) {
+           return;
+       }
+
        if (isTextTag(localName)) {
            vIsOpen = true;
            // Clear contents cache
@@ -213,6 +310,7 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
        } else if ("f".equals(localName)) {
           // Clear contents cache
           formula.setLength(0);
+          cellHasFormula = true;
 
           // Mark us as being a formula if not already
           if(nextDataType == xssfDataType.NUMBER) {
@@ -259,6 +357,16 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
            } else {
                rowNum = nextRowNum;
            }
+           cellColumn = -1;
+           if (readFilter != null) {
+               if (readFilter.isAfterLastRow(rowNum)) {
+                   stopParsing();
+               }
+               skipRow = !readFilter.acceptsRow(rowNum);
+               if (skipRow) {
+                   return;
+               }
+           }
            output.startRow(rowNum);
        }
        // c => cell
@@ -269,7 +377,19 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
            this.formatString = null;
            cellRef = attributes.getValue("r");
            String cellType = attributes.getValue("t");
+           if (typedOutput != null || readFilter != null) {
+               cellColumn = (cellRef != null) ? CellValueParser.parseColumn(cellRef) : cellColumn + 1;
+               if (readFilter != null && (skipRow || !readFilter.acceptsColumn(cellColumn))) {
+                   skipCell = true;
+                   return;
+               }
+           }
            String cellStyleStr = attributes.getValue("s");
+           if (typedOutput != null) {
+               cellStyleIndex = (cellStyleStr != null) ? Integer.parseInt(cellStyleStr) : 0;
+               cellHasFormula = false;
+               cellStringResult = "str".equals(cellType);
+           }
            if ("b".equals(cellType))
                nextDataType = xssfDataType.BOOLEAN;
            else if ("e".equals(cellType))
@@ -280,22 +400,28 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
                nextDataType = xssfDataType.SST_STRING;
            else if ("str".equals(cellType))
                nextDataType = xssfDataType.FORMULA;
-           else {
+           else if (typedOutput == null) {
                // Number, but almost certainly with a special style or format
-               XSSFCellStyle style = null;
-               if (stylesTable != null) {
-                   if (cellStyleStr != null) {
-                       int styleIndex = Integer.parseInt(cellStyleStr);
-                       style = stylesTable.getStyleAt(styleIndex);
-                   } else if (stylesTable.getNumCellStyles() > 0) {
-                       style = stylesTable.getStyleAt(0);
+               if (styleFormats != null) {
+                   int styleIndex = (cellStyleStr != null) ? Integer.parseInt(cellStyleStr) : 0;
+                   this.formatIndex = styleFormats.getFormatIndex(styleIndex);
+                   this.formatString = styleFormats.getFormatString(styleIndex);
+               } else {
+                   XSSFCellStyle style = null;
+                   if (stylesTable != null) {
+                       if (cellStyleStr != null) {
+                           int styleIndex = Integer.parseInt(cellStyleStr);
+                           style = stylesTable.getStyleAt(styleIndex);
+                       } else if (stylesTable.getNumCellStyles() > 0) {
+                           style = stylesTable.getStyleAt(0);
+                       }
+                   }
+                   if (style != null) {
+                       this.formatIndex = style.getDataFormat();
+                       this.formatString = style.getDataFormatString();
+                       if (this.formatString == null)
+                           this.formatString = BuiltinFormats.getBuiltinFormat(this.formatIndex);
                    }
-               }
-               if (style != null) {
-                   this.formatIndex = style.getDataFormat();
-                   this.formatString = style.getDataFormatString();
-                   if (this.formatString == null)
-                       this.formatString = BuiltinFormats.getBuiltinFormat(this.formatIndex);
                }
            }
        }
@@ -309,6 +435,13 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
            return;
        }
 
+       if (skipCell) {
+           if ("c".equals(localName)) {
+               skipCell = false;
+           }
+           return;
+       }
+
        // v => contents of a cell
        if (isTextTag(localName)) {
            vIsOpen = false;
@@ -324,6 +457,15 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
            outputCell();
            value.setLength(0);
        } else if ("row".equals(localName)) {
+          if (skipRow) {
+              // drop the comments of the skipped row
+              while (commentCellRefs != null && !commentCellRefs.isEmpty() && commentCellRefs.peek().getRow() <= rowNum) {
+                  commentCellRefs.remove();
+              }
+              nextRowNum = rowNum + 1;
+              return;
+          }
+
           // Handle any "missing" cells which had comments attached
           checkForEmptyCellComments(EmptyCellCommentsCheckType.END_OF_ROW);
 
@@ -370,6 +512,10 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
    }
 
    private void outputCell() {
+       if (typedOutput != null) {
+           outputTypedCell();
+           return;
+       }
        String thisStr = null;
 
        // Process the value contents as required, now we have it all
@@ -445,6 +591,84 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
        output.cell(cellRef, thisStr, comment);
    }
 
+   private void outputTypedCell() {
+       if (cellHasFormula) {
+           typedOutput.formulaCell(rowNum, cellColumn, (formula.length() > 0) ? formula : null, cellStyleIndex);
+       }
+
+       switch (nextDataType) {
+           case BOOLEAN:
+               boolean bool = value.length() > 0 && value.charAt(0) != '0';
+               typedOutput.booleanCell(rowNum, cellColumn, bool, cellStyleIndex);
+               break;
+
+           case ERROR:
+               typedOutput.errorCell(rowNum, cellColumn, value, cellStyleIndex);
+               break;
+
+           case INLINE_STRING:
+               typedOutput.stringCell(rowNum, cellColumn, value, cellStyleIndex);
+               break;
+
+           case SST_STRING:
+               if (value.length() > 0) {
+                   int idx = parseSharedStringIndex();
+                   if (!typedOutput.sharedStringCell(rowNum, cellColumn, idx, cellStyleIndex)) {
+                       typedOutput.stringCell(rowNum, cellColumn, getSharedString(idx), cellStyleIndex);
+                   }
+               }
+               break;
+
+           case FORMULA:
+               if (cellStringResult) {
+                   typedOutput.stringCell(rowNum, cellColumn, value, cellStyleIndex);
+                   break;
+               }
+               // the cached result of a formula without a type is a number
+           default:
+               if (value.length() > 0) {
+                   double number;
+                   try {
+                       number = CellValueParser.parseDouble(value);
+                   } catch (NumberFormatException e) {
+                       typedOutput.stringCell(rowNum, cellColumn, value, cellStyleIndex);
+                       break;
+                   }
+                   typedOutput.numericCell(rowNum, cellColumn, number, cellStyleIndex);
+               }
+               break;
+       }
+   }
+
+   private int parseSharedStringIndex() {
+       int idx = 0;
+       for (int i = 0, len = value.length(); i < len; i++) {
+           char c = value.charAt(i);
+           if (c < '0' || c > '9') {
+               idx = Integer.parseInt(value.toString().trim());
+               break;
+           }
+           idx = idx * 10 + (c - '0');
+       }
+       return idx;
+   }
+
+   private String getSharedString(int idx) {
+       // avoid wrapping the string into a rich text string, if possible
+       return (sharedStringsTable instanceof ReadOnlySharedStringsTable)
+           ? ((ReadOnlySharedStringsTable) sharedStringsTable).getString(idx)
+           : sharedStringsTable.getItemAt(idx).getString();
+   }
+
+   /**
+    * Finishes the sheet, after the last row of the read filter has been read
+    */
+   private void stopParsing() throws StopParsingException {
+       checkForEmptyCellComments(EmptyCellCommentsCheckType.END_OF_SHEET_DATA);
+       output.endSheet();
+       throw new StopParsingException();
+   }
+
    /**
     * Do a check for, and output, comments in otherwise empty cells.
     */
@@ -505,6 +729,9 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
     * Output an empty-cell comment.
     */
    private void outputEmptyCellComment(CellAddress cellRef) {
+       if (readFilter != null && !readFilter.accepts(cellRef.getRow(), cellRef.getColumn())) {
+           return;
+       }
        XSSFComment comment = comments.findCellComment(cellRef);
        output.cell(cellRef.formatAsString(), null, comment);
    }
@@ -515,6 +742,21 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
        END_OF_SHEET_DATA
    }
 
+   /**
+    * Thrown to stop the XML parser, after the last row of the {@link SheetReadFilter} has been read.
+    * The sheet contents handler has been notified with {@link SheetContentsHandler#endSheet()} at
+    * that point, so callers can catch and ignore the exception.
+    *
+    * @since POI 5.2.4
+    */
+   public static final class StopParsingException extends SAXException {
+       private static final long serialVersionUID = 1L;
+
+       public StopParsingException() {
+           super("The last row of the read filter has been read");
+       }
+   }
+
    /**
     * This interface allows to provide callbacks when reading
     * a sheet in streaming mode.
@@ -0,0 +1,1122 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.XMLHelper;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+
+/**
+ * A namespace aware XML scanner for worksheet parts, which works on the raw UTF-8 bytes and
+ * reports SAX events to a {@link ContentHandler}, e.g. a {@link XSSFSheetXMLHandler}.
+ * <p>
+ * Compared to a generic SAX parser, the scanner only supports the subset of XML, which is written
+ * for worksheets: UTF-8 documents without a document type declaration. The element and attribute
+ * names are kept in a symbol table, so they aren't decoded for every element, and the attribute
+ * values are only decoded when they are requested by the handler.
+ * </p>
+ * <p>
+ * Documents with another encoding, a document type declaration or a processing instruction in
+ * the prolog are handed over to the SAX parser of {@link XMLHelper#newXMLReader()}, so they are
+ * processed with the same security settings as before. As the scanner doesn't support a DTD,
+ * there is no entity expansion and only the predefined entities and character references are
+ * resolved. The length of names and the number of attributes of an element are limited like
+ * in the JDK parser.
+ * </p>
+ * <p>
+ * The scanner isn't thread-safe, but can be reused for several documents.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class XSSFSheetXMLScanner {
+    /** the maximum length of a name, like the default of {@code jdk.xml.maxXMLNameLimit} */
+    private static final int MAX_NAME_LENGTH = 1000;
+    /** the maximum number of attributes of an element, like the default of {@code jdk.xml.elementAttributeLimit} */
+    private static final int MAX_ATTRIBUTES = 10000;
+    /** the maximum number of cached symbols, names beyond that are decoded each time */
+    private static final int MAX_SYMBOLS = 2048;
+    /** the maximum length of an entity reference, i.e. {@code &#x10FFFF;} */
+    private static final int MAX_ENTITY_LENGTH = 10;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] XML_DECL = "<?xml".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PI_END = "?>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] COMMENT_START = "<!--".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] COMMENT_END = "-->".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CDATA_START = "<![CDATA[".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CDATA_END = "]]>".getBytes(StandardCharsets.US_ASCII);
+
+    private static final String XMLNS = "xmlns";
+
+    private final ContentHandler handler;
+
+    private InputStream in;
+    private byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private boolean eof;
+    /** the end of the last decoded character or entity */
+    private int scanEnd;
+
+    private char[] text = new char[8192];
+    private int textLength;
+    private char[] valueChars = new char[256];
+
+    private Symbol[] symbols = new Symbol[256];
+    private int symbolCount;
+
+    private final ScannedAttributes attributes = new ScannedAttributes();
+
+    private Symbol[] elements = new Symbol[16];
+    private String[] elementUris = new String[16];
+    private int[] elementNsMarks = new int[16];
+    private int depth;
+
+    private String[] nsPrefixes = new String[8];
+    private String[] nsUris = new String[8];
+    private int nsCount;
+
+    /**
+     * @param handler the handler for the events of the parsed documents
+     */
+    public XSSFSheetXMLScanner(ContentHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Parses the worksheet XML. The stream isn't closed.
+     *
+     * @param is the stream of the worksheet part
+     * @throws IOException if the stream can't be read
+     * @throws SAXException if the document isn't well-formed or the handler fails
+     */
+    public void parse(InputStream is) throws IOException, SAXException {
+        in = is;
+        pos = 0;
+        limit = 0;
+        eof = false;
+        depth = 0;
+        nsCount = 0;
+        textLength = 0;
+        try {
+            if (!scanProlog()) {
+                fallback();
+                return;
+            }
+            handler.startDocument();
+            scanContent();
+            handler.endDocument();
+        } finally {
+            in = null;
+            attributes.clear();
+        }
+    }
+
+    /**
+     * Parses the document with the SAX parser, including the bytes, which were already read
+     */
+    private void fallback() throws IOException, SAXException {
+        XMLReader xmlReader;
+        try {
+            xmlReader = XMLHelper.newXMLReader();
+        } catch (ParserConfigurationException e) {
+            throw new POIXMLException(e);
+        }
+        xmlReader.setContentHandler(handler);
+        InputStream replay = new UnsynchronizedByteArrayInputStream(buf, pos, limit - pos);
+        xmlReader.parse(new InputSource(new SequenceInputStream(replay, in)));
+    }
+
+    /**
+     * Checks the XML declaration and skips the prolog up to the root element
+     *
+     * @return false, if the document can't be handled by the scanner
+     */
+    private boolean scanProlog() throws IOException, SAXException {
+        // the bytes of the prolog are kept in the buffer for the fallback
+        if (!ensure(4)) {
+            return false;
+        }
+        int p = 0;
+        if (buf[0] == (byte) 0xEF && buf[1] == (byte) 0xBB && buf[2] == (byte) 0xBF) {
+            p = 3;
+        }
+        if (startsWith(XML_DECL, p) && ensure(p + 6) && isWhitespace(buf[p + 5])) {
+            int end = indexOf(PI_END, p);
+            if (end < 0 || !isSupportedDeclaration(p + 5, end)) {
+                return false;
+            }
+            p = end + 2;
+        }
+        while (true) {
+            p = skipWhitespace(p);
+            if (!ensure(p + 4)) {
+                return false;
+            }
+            if (startsWith(COMMENT_START, p)) {
+                int end = indexOf(COMMENT_END, p + 4);
+                if (end < 0) {
+                    return false;
+                }
+                p = end + 3;
+            } else if (buf[p] == '<' && isNameStart(buf[p + 1])) {
+                pos = p;
+                return true;
+            } else {
+                // document type declarations, processing instructions or garbage
+                return false;
+            }
+        }
+    }
+
+    private boolean isSupportedDeclaration(int start, int end) {
+        String version = getPseudoAttribute("version", start, end);
+        String encoding = getPseudoAttribute("encoding", start, end);
+        if (!"1.0".equals(version)) {
+            return false;
+        }
+        if (encoding == null) {
+            return true;
+        }
+        switch (encoding.toUpperCase(Locale.ROOT)) {
+            case "UTF-8":
+            case "UTF8":
+            case "US-ASCII":
+            case "ASCII":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private String getPseudoAttribute(String name, int start, int end) {
+        byte[] pattern = name.getBytes(StandardCharsets.US_ASCII);
+        for (int i = start; i + pattern.length < end; i++) {
+            if (!matches(pattern, i)) {
+                continue;
+            }
+            int p = i + pattern.length;
+            while (p < end && isWhitespace(buf[p])) {
+                p++;
+            }
+            if (p >= end || buf[p] != '=') {
+                continue;
+            }
+            p++;
+            while (p < end && isWhitespace(buf[p])) {
+                p++;
+            }
+            if (p >= end || (buf[p] != '"' && buf[p] != '\'')) {
+                return null;
+            }
+            byte quote = buf[p];
+            for (int q = p + 1; q < end; q++) {
+                if (buf[q] == quote) {
+                    return new String(buf, p + 1, q - p - 1, StandardCharsets.ISO_8859_1);
+                }
+            }
+            return null;
+        }
+        return null;
+    }
+
+    private void scanContent() throws IOException, SAXException {
+        scanStartTag();
+        while (depth > 0) {
+            if (pos == limit && !fill()) {
+                throw error("XML document structures must start and end within the same entity.");
+            }
+            if (buf[pos] != '<') {
+                scanText();
+            } else if (!ensure(2)) {
+                throw error("XML document structures must start and end within the same entity.");
+            } else {
+                byte next = buf[pos + 1];
+                if (next == '/') {
+                    scanEndTag();
+                } else if (next == '!') {
+                    scanCommentOrCData();
+                } else if (next == '?') {
+                    scanProcessingInstruction();
+                } else {
+                    scanStartTag();
+                }
+            }
+        }
+
+        // only comments, processing instructions and whitespace may follow the root element
+        while (true) {
+            int p = skipWhitespace(pos);
+            pos = p;
+            if (!ensure(1)) {
+                return;
+            }
+            if (ensure(4) && startsWith(COMMENT_START, pos)) {
+                scanCommentOrCData();
+            } else if (ensure(2) && buf[pos] == '<' && buf[pos + 1] == '?') {
+                scanProcessingInstruction();
+            } else {
+                throw error("Content is not allowed in trailing section.");
+            }
+        }
+    }
+
+    private void scanStartTag() throws IOException, SAXException {
+        int end = findTagEnd();
+        int p = pos + 1;
+        int nameEnd = scanName(p, end);
+        Symbol element = symbol(p, nameEnd);
+        p = nameEnd;
+
+        attributes.clear();
+        int nsMark = nsCount;
+        boolean empty;
+        while (true) {
+            int next = skipWhitespace(p, end);
+            boolean separated = next > p;
+            p = next;
+            byte b = buf[p];
+            if (b == '>') {
+                empty = false;
+                break;
+            } else if (b == '/') {
+                if (buf[p + 1] != '>') {
+                    throw error("Element type \"" + element.qName + "\" must be followed by either attribute specifications, \">\" or \"/>\".");
+                }
+                empty = true;
+                break;
+            } else if (!separated) {
+                throw error("Element type \"" + element.qName + "\" must be followed by either attribute specifications, \">\" or \"/>\".");
+            }
+
+            int attrEnd = scanName(p, end);
+            Symbol name = symbol(p, attrEnd);
+            p = skipWhitespace(attrEnd, end);
+            if (buf[p] != '=') {
+                throw error("Attribute name \"" + name.qName + "\" associated with an element type \"" + element.qName + "\" must be followed by the ' = ' character.");
+            }
+            p = skipWhitespace(p + 1, end);
+            byte quote = buf[p];
+            if (quote != '"' && quote != '\'') {
+                throw error("Open quote is expected for attribute \"" + name.qName + "\" associated with an element type \"" + element.qName + "\".");
+            }
+            int valueStart = p + 1;
+            boolean plain = true;
+            for (p = valueStart; buf[p] != quote; p++) {
+                if (p == end) {
+                    throw error("Attribute \"" + name.qName + "\" associated with an element type \"" + element.qName + "\" must end with the matching quote.");
+                }
+                byte c = buf[p];
+                if (c == '<') {
+                    throw error("The value of attribute \"" + name.qName + "\" associated with an element type \"" + element.qName + "\" must not contain the '<' character.");
+                }
+                if (c < 0x20 || c == '&') {
+                    plain = false;
+                }
+            }
+            int valueEnd = p++;
+
+            if (XMLNS.equals(name.qName)) {
+                declarePrefix("", decodeValue(valueStart, valueEnd, plain));
+            } else if (XMLNS.equals(name.prefix)) {
+                declarePrefix(name.localName, decodeValue(valueStart, valueEnd, plain));
+            } else {
+                if (attributes.length == MAX_ATTRIBUTES) {
+                    throw error("Element \"" + element.qName + "\" has more than " + MAX_ATTRIBUTES + " attributes.");
+                }
+                // values with entities or non-ASCII characters are decoded eagerly to report errors
+                attributes.add(name, valueStart, valueEnd, plain ? null : decodeValue(valueStart, valueEnd, false));
+            }
+        }
+
+        String uri = resolve(element, true);
+        for (int i = 0; i < attributes.length; i++) {
+            attributes.uris[i] = resolve(attributes.names[i], false);
+        }
+        for (int i = nsMark; i < nsCount; i++) {
+            handler.startPrefixMapping(nsPrefixes[i], nsUris[i]);
+        }
+        handler.startElement(uri, element.localName, element.qName, attributes);
+        attributes.clear();
+        pos = end + 1;
+
+        if (empty) {
+            handler.endElement(uri, element.localName, element.qName);
+            endPrefixMappings(nsMark);
+        } else {
+            if (depth == elements.length) {
+                int size = depth * 2;
+                elements = Arrays.copyOf(elements, size);
+                elementUris = Arrays.copyOf(elementUris, size);
+                elementNsMarks = Arrays.copyOf(elementNsMarks, size);
+            }
+            elements[depth] = element;
+            elementUris[depth] = uri;
+            elementNsMarks[depth] = nsMark;
+            depth++;
+        }
+    }
+
+    private void scanEndTag() throws IOException, SAXException {
+        int endOff = indexOf((byte) '>', 2);
+        if (endOff < 0) {
+            throw error("XML document structures must start and end within the same entity.");
+        }
+        int end = pos + endOff;
+        int p = pos + 2;
+        int nameEnd = scanName(p, end);
+        Symbol element = symbol(p, nameEnd);
+        if (skipWhitespace(nameEnd, end) != end) {
+            throw error("The end-tag for element type \"" + element.qName + "\" must end with a '>' delimiter.");
+        }
+        depth--;
+        Symbol open = elements[depth];
+        if (element != open && !element.qName.equals(open.qName)) {
+            throw error("The element type \"" + open.qName + "\" must be terminated by the matching end-tag \"</" + open.qName + ">\".");
+        }
+        pos = end + 1;
+        handler.endElement(elementUris[depth], open.localName, open.qName);
+        endPrefixMappings(elementNsMarks[depth]);
+        elements[depth] = null;
+    }
+
+    private void scanCommentOrCData() throws IOException, SAXException {
+        if (ensure(4) && startsWith(COMMENT_START, pos)) {
+            int end = indexOf(COMMENT_END, 4);
+            if (end < 0) {
+                throw error("XML document structures must start and end within the same entity.");
+            }
+            pos += end + 3;
+        } else if (depth > 0 && ensure(CDATA_START.length) && startsWith(CDATA_START, pos)) {
+            int end = indexOf(CDATA_END, CDATA_START.length);
+            if (end < 0) {
+                throw error("The CDATA section must end with \"]]>\".");
+            }
+            int start = pos + CDATA_START.length;
+            appendCharacters(start, pos + end);
+            flushText();
+            pos += end + 3;
+        } else {
+            throw error("The markup in the document following the root element must be well-formed.");
+        }
+    }
+
+    private void scanProcessingInstruction() throws IOException, SAXException {
+        int end = indexOf(PI_END, 2);
+        if (end < 0) {
+            throw error("XML document structures must start and end within the same entity.");
+        }
+        end += pos;
+        int p = pos + 2;
+        int nameEnd = scanName(p, end);
+        String target = new String(buf, p, nameEnd - p, StandardCharsets.UTF_8);
+        if ("xml".equalsIgnoreCase(target)) {
+            throw error("The processing instruction target matching \"[xX][mM][lL]\" is not allowed.");
+        }
+        int dataStart = skipWhitespace(nameEnd, end);
+        String data = new String(buf, dataStart, end - dataStart, StandardCharsets.UTF_8);
+        pos = end + 2;
+        handler.processingInstruction(target, data);
+    }
+
+    /**
+     * Reports the character data up to the next markup
+     */
+    private void scanText() throws IOException, SAXException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                break;
+            }
+            // copy the plain ASCII characters
+            byte[] b = buf;
+            char[] t = text;
+            int p = pos;
+            int l = limit;
+            int tl = textLength;
+            int max = t.length - 2;
+            while (p < l && tl < max) {
+                byte c = b[p];
+                if (c < 0 || c == '<' || c == '&' || c == '\r') {
+                    break;
+                }
+                t[tl++] = (char) c;
+                p++;
+            }
+            pos = p;
+            textLength = tl;
+            if (tl >= max) {
+                flushText();
+                continue;
+            }
+            if (p == l) {
+                continue;
+            }
+
+            byte c = b[p];
+            if (c == '<') {
+                break;
+            } else if (c == '\r') {
+                if (limit - pos < 2) {
+                    fill();
+                }
+                appendChar('\n');
+                pos += (pos + 1 < limit && buf[pos + 1] == '\n') ? 2 : 1;
+            } else if (c == '&') {
+                int cp = parseEntity(pos, limit);
+                if (cp < 0) {
+                    if (limit - pos > MAX_ENTITY_LENGTH || !fill()) {
+                        throw error("The entity name must immediately follow the '&' in the entity reference.");
+                    }
+                    continue;
+                }
+                appendCodePoint(cp);
+                pos = scanEnd;
+            } else {
+                int cp = decodeUtf8(pos, limit);
+                if (cp < 0) {
+                    if (!fill()) {
+                        throw error("Invalid byte 1 of 1-byte UTF-8 sequence.");
+                    }
+                    continue;
+                }
+                appendCodePoint(cp);
+                pos = scanEnd;
+            }
+        }
+        flushText();
+    }
+
+    /**
+     * Appends the raw character data between start and end, e.g. of a CDATA section
+     */
+    private void appendCharacters(int start, int end) throws SAXException {
+        for (int p = start; p < end; ) {
+            byte c = buf[p];
+            if (c == '\r') {
+                appendChar('\n');
+                p += (p + 1 < end && buf[p + 1] == '\n') ? 2 : 1;
+            } else if (c >= 0) {
+                appendChar((char) c);
+                p++;
+            } else {
+                int cp = decodeUtf8(p, end);
+                if (cp < 0) {
+                    throw error("Invalid byte 1 of 1-byte UTF-8 sequence.");
+                }
+                appendCodePoint(cp);
+                p = scanEnd;
+            }
+        }
+    }
+
+    private void appendChar(char c) throws SAXException {
+        if (textLength >= text.length - 2) {
+            flushText();
+        }
+        text[textLength++] = c;
+    }
+
+    private void appendCodePoint(int cp) throws SAXException {
+        if (textLength >= text.length - 2) {
+            flushText();
+        }
+        if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            text[textLength++] = (char) cp;
+        } else {
+            text[textLength++] = Character.highSurrogate(cp);
+            text[textLength++] = Character.lowSurrogate(cp);
+        }
+    }
+
+    private void flushText() throws SAXException {
+        if (textLength > 0) {
+            handler.characters(text, 0, textLength);
+            textLength = 0;
+        }
+    }
+
+    /**
+     * Decodes an attribute value and normalizes its whitespace
+     *
+     * @param plain true, if the value only consists of ASCII characters without entities and whitespace
+     */
+    private String decodeValue(int start, int end, boolean plain) throws SAXException {
+        if (plain) {
+            return new String(buf, start, end - start, StandardCharsets.ISO_8859_1);
+        }
+        // every byte results in one char at most
+        if (valueChars.length < end - start) {
+            valueChars = new char[Math.max(end - start, valueChars.length * 2)];
+        }
+        char[] chars = valueChars;
+        int n = 0;
+        for (int p = start; p < end; ) {
+            byte c = buf[p];
+            if (c == '&') {
+                int cp = parseEntity(p, end);
+                if (cp < 0) {
+                    throw error("The reference to entity must end with the ';' delimiter.");
+                }
+                n += Character.toChars(cp, chars, n);
+                p = scanEnd;
+            } else if (c == '\r') {
+                chars[n++] = ' ';
+                p += (p + 1 < end && buf[p + 1] == '\n') ? 2 : 1;
+            } else if (c == '\n' || c == '\t') {
+                chars[n++] = ' ';
+                p++;
+            } else if (c >= 0) {
+                chars[n++] = (char) c;
+                p++;
+            } else {
+                int cp = decodeUtf8(p, end);
+                if (cp < 0) {
+                    throw error("Invalid byte 1 of 1-byte UTF-8 sequence.");
+                }
+                n += Character.toChars(cp, chars, n);
+                p = scanEnd;
+            }
+        }
+        return new String(chars, 0, n);
+    }
+
+    /**
+     * Parses the entity reference at the given position
+     *
+     * @return the referenced code point or -1, if the reference isn't complete before end
+     */
+    private int parseEntity(int p, int end) throws SAXException {
+        int semicolon = -1;
+        for (int i = p + 1, max = Math.min(end, p + MAX_ENTITY_LENGTH + 1); i < max; i++) {
+            if (buf[i] == ';') {
+                semicolon = i;
+                break;
+            }
+        }
+        if (semicolon < 0) {
+            if (end - p > MAX_ENTITY_LENGTH) {
+                throw error("The entity reference must end with the ';' delimiter.");
+            }
+            return -1;
+        }
+        scanEnd = semicolon + 1;
+        int len = semicolon - p - 1;
+        if (len > 0 && buf[p + 1] == '#') {
+            int radix = 10;
+            int i = p + 2;
+            if (i < semicolon && buf[i] == 'x') {
+                radix = 16;
+                i++;
+            }
+            if (i == semicolon) {
+                throw error("A decimal or hexadecimal representation must immediately follow the \"&#\" in a character reference.");
+            }
+            int cp = 0;
+            for (; i < semicolon; i++) {
+                int digit = Character.digit((char) buf[i], radix);
+                if (digit < 0 || buf[i] < 0) {
+                    throw error("A decimal or hexadecimal representation must immediately follow the \"&#\" in a character reference.");
+                }
+                cp = cp * radix + digit;
+            }
+            if (!isXmlChar(cp)) {
+                throw error("Character reference \"&#" + Integer.toString(cp, radix) + "\" is an invalid XML character.");
+            }
+            return cp;
+        }
+        String name = new String(buf, p + 1, len, StandardCharsets.UTF_8);
+        switch (name) {
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "amp":
+                return '&';
+            case "apos":
+                return '\'';
+            case "quot":
+                return '"';
+            default:
+                throw error("The entity \"" + name + "\" was referenced, but not declared.");
+        }
+    }
+
+    /**
+     * Decodes the UTF-8 sequence at the given position
+     *
+     * @return the code point or -1, if the sequence isn't complete before end
+     */
+    private int decodeUtf8(int p, int end) throws SAXException {
+        int b0 = buf[p] & 0xFF;
+        int length;
+        int cp;
+        if (b0 < 0xC2) {
+            throw error("Invalid byte 1 of 1-byte UTF-8 sequence.");
+        } else if (b0 < 0xE0) {
+            length = 2;
+            cp = b0 & 0x1F;
+        } else if (b0 < 0xF0) {
+            length = 3;
+            cp = b0 & 0x0F;
+        } else if (b0 < 0xF5) {
+            length = 4;
+            cp = b0 & 0x07;
+        } else {
+            throw error("Invalid byte 1 of 4-byte UTF-8 sequence.");
+        }
+        if (p + length > end) {
+            return -1;
+        }
+        for (int i = 1; i < length; i++) {
+            int b = buf[p + i] & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                throw error("Invalid byte " + (i + 1) + " of " + length + "-byte UTF-8 sequence.");
+            }
+            cp = (cp << 6) | (b & 0x3F);
+        }
+        if ((length == 3 && (cp < 0x800 || (cp >= 0xD800 && cp <= 0xDFFF)))
+                || (length == 4 && (cp < 0x10000 || cp > 0x10FFFF))) {
+            throw error("Invalid " + length + "-byte UTF-8 sequence.");
+        }
+        scanEnd = p + length;
+        return cp;
+    }
+
+    /**
+     * @return the index of the end of the name, which starts at p
+     */
+    private int scanName(int p, int end) throws SAXException {
+        if (p >= end || !isNameStart(buf[p])) {
+            throw error("The markup in the document must be well-formed.");
+        }
+        int i = p + 1;
+        while (i < end && isNameChar(buf[i])) {
+            i++;
+        }
+        if (i - p > MAX_NAME_LENGTH) {
+            throw error("The name \"" + new String(buf, p, 20, StandardCharsets.UTF_8)
+                + "...\" exceeds the limit of " + MAX_NAME_LENGTH + " characters.");
+        }
+        return i;
+    }
+
+    /**
+     * Returns the index of the '&gt;', which ends the tag at the current position.
+     * The buffer is filled until the complete tag is available.
+     */
+    private int findTagEnd() throws IOException, SAXException {
+        int off = 1;
+        byte quote = 0;
+        while (true) {
+            for (int i = pos + off; i < limit; i++) {
+                byte b = buf[i];
+                if (quote != 0) {
+                    if (b == quote) {
+                        quote = 0;
+                    }
+                } else if (b == '"' || b == '\'') {
+                    quote = b;
+                } else if (b == '>') {
+                    return i;
+                }
+            }
+            off = limit - pos;
+            if (!fill()) {
+                throw error("XML document structures must start and end within the same entity.");
+            }
+        }
+    }
+
+    private void declarePrefix(String prefix, String uri) throws SAXException {
+        if (!prefix.isEmpty() && uri.isEmpty()) {
+            throw error("The value of the attribute \"prefix=\"xmlns\",localpart=\"" + prefix + "\",rawname=\"xmlns:" + prefix + "\"\" is invalid. Prefixed namespace bindings may not be empty.");
+        }
+        if (nsCount == nsPrefixes.length) {
+            nsPrefixes = Arrays.copyOf(nsPrefixes, nsCount * 2);
+            nsUris = Arrays.copyOf(nsUris, nsCount * 2);
+        }
+        nsPrefixes[nsCount] = prefix;
+        nsUris[nsCount] = uri;
+        nsCount++;
+    }
+
+    private void endPrefixMappings(int nsMark) throws SAXException {
+        for (int i = nsMark; i < nsCount; i++) {
+            handler.endPrefixMapping(nsPrefixes[i]);
+            nsPrefixes[i] = null;
+            nsUris[i] = null;
+        }
+        nsCount = nsMark;
+    }
+
+    private String resolve(Symbol name, boolean element) throws SAXException {
+        String prefix = name.prefix;
+        if (prefix.isEmpty() && !element) {
+            return "";
+        }
+        for (int i = nsCount - 1; i >= 0; i--) {
+            if (prefix.equals(nsPrefixes[i])) {
+                return nsUris[i];
+            }
+        }
+        if (prefix.isEmpty()) {
+            return "";
+        }
+        if ("xml".equals(prefix)) {
+            return XMLConstants.XML_NS_URI;
+        }
+        throw error("The prefix \"" + prefix + "\" for " + (element ? "element" : "attribute")
+            + " \"" + name.qName + "\" is not bound.");
+    }
+
+    /**
+     * @return the symbol of the name between start and end
+     */
+    private Symbol symbol(int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buf[i];
+        }
+        int index = hash & (symbols.length - 1);
+        for (Symbol s = symbols[index]; s != null; s = s.next) {
+            if (s.hash == hash && s.matches(buf, start, end)) {
+                return s;
+            }
+        }
+        Symbol s = new Symbol(buf, start, end, hash);
+        if (symbolCount < MAX_SYMBOLS) {
+            s.next = symbols[index];
+            symbols[index] = s;
+            symbolCount++;
+            if (symbolCount > symbols.length * 3 / 4) {
+                rehashSymbols();
+            }
+        }
+        return s;
+    }
+
+    private void rehashSymbols() {
+        Symbol[] old = symbols;
+        symbols = new Symbol[old.length * 2];
+        for (Symbol head : old) {
+            for (Symbol s = head; s != null; ) {
+                Symbol next = s.next;
+                int index = s.hash & (symbols.length - 1);
+                s.next = symbols[index];
+                symbols[index] = s;
+                s = next;
+            }
+        }
+    }
+
+    /**
+     * Reads more bytes, after moving the unprocessed bytes to the start of the buffer
+     *
+     * @return false, if the end of the stream has been reached
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        int read = in.read(buf, limit, buf.length - limit);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    /**
+     * Fills the buffer until at least the given number of bytes are available after the current position
+     */
+    private boolean ensure(int count) throws IOException {
+        while (limit - pos < count) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the offset of the byte relative to the current position or -1, if it isn't found
+     */
+    private int indexOf(byte b, int fromOffset) throws IOException {
+        int off = fromOffset;
+        while (true) {
+            for (int i = pos + off; i < limit; i++) {
+                if (buf[i] == b) {
+                    return i - pos;
+                }
+            }
+            off = Math.max(fromOffset, limit - pos);
+            if (!fill()) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * @return the offset of the pattern relative to the current position or -1, if it isn't found
+     */
+    private int indexOf(byte[] pattern, int fromOffset) throws IOException {
+        int off = fromOffset;
+        while (true) {
+            for (int i = pos + off, last = limit - pattern.length; i <= last; i++) {
+                if (matches(pattern, i)) {
+                    return i - pos;
+                }
+            }
+            off = Math.max(fromOffset, limit - pos - pattern.length + 1);
+            if (!fill()) {
+                return -1;
+            }
+        }
+    }
+
+    private boolean startsWith(byte[] pattern, int p) throws IOException {
+        return ensure(p - pos + pattern.length) && matches(pattern, p);
+    }
+
+    private boolean matches(byte[] pattern, int p) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (buf[p + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Skips the whitespace starting at p, while filling the buffer as needed
+     *
+     * @return the offset of the next non-whitespace byte relative to the current position
+     */
+    private int skipWhitespace(int p) throws IOException {
+        int off = p - pos;
+        while (true) {
+            while (pos + off < limit && isWhitespace(buf[pos + off])) {
+                off++;
+            }
+            if (pos + off < limit || !fill()) {
+                return pos + off;
+            }
+        }
+    }
+
+    private int skipWhitespace(int p, int end) {
+        while (p < end && isWhitespace(buf[p])) {
+            p++;
+        }
+        return p;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r';
+    }
+
+    private static boolean isNameStart(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_' || b == ':' || b < 0;
+    }
+
+    private static boolean isNameChar(byte b) {
+        return isNameStart(b) || (b >= '0' && b <= '9') || b == '-' || b == '.';
+    }
+
+    private static boolean isXmlChar(int cp) {
+        return cp == 0x9 || cp == 0xA || cp == 0xD || (cp >= 0x20 && cp <= 0xD7FF)
+            || (cp >= 0xE000 && cp <= 0xFFFD) || (cp >= 0x10000 && cp <= 0x10FFFF);
+    }
+
+    private static SAXParseException error(String message) {
+        return new SAXParseException(message, null);
+    }
+
+    /**
+     * A qualified name of an element or attribute
+     */
+    private static final class Symbol {
+        private final byte[] bytes;
+        private final int hash;
+        private final String qName;
+        private final String prefix;
+        private final String localName;
+        private Symbol next;
+
+        Symbol(byte[] buf, int start, int end, int hash) {
+            this.bytes = Arrays.copyOfRange(buf, start, end);
+            this.hash = hash;
+            this.qName = new String(bytes, StandardCharsets.UTF_8);
+            int colon = qName.indexOf(':');
+            this.prefix = (colon < 0) ? "" : qName.substring(0, colon);
+            this.localName = (colon < 0) ? qName : qName.substring(colon + 1);
+        }
+
+        boolean matches(byte[] buf, int start, int end) {
+            if (end - start != bytes.length) {
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] != buf[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The attributes of the current start tag, whose values are decoded on demand.
+     * They are only valid during the {@link ContentHandler#startElement} callback.
+     */
+    private final class ScannedAttributes implements Attributes {
+        private Symbol[] names = new Symbol[8];
+        private String[] uris = new String[8];
+        private String[] values = new String[8];
+        private int[] valueStarts = new int[8];
+        private int[] valueEnds = new int[8];
+        private int length;
+
+        void add(Symbol name, int valueStart, int valueEnd, String value) {
+            if (length == names.length) {
+                int size = length * 2;
+                names = Arrays.copyOf(names, size);
+                uris = Arrays.copyOf(uris, size);
+                values = Arrays.copyOf(values, size);
+                valueStarts = Arrays.copyOf(valueStarts, size);
+                valueEnds = Arrays.copyOf(valueEnds, size);
+            }
+            names[length] = name;
+            values[length] = value;
+            valueStarts[length] = valueStart;
+            valueEnds[length] = valueEnd;
+            length++;
+        }
+
+        void clear() {
+            Arrays.fill(values, 0, length, null);
+            length = 0;
+        }
+
+        @Override
+        public int getLength() {
+            return length;
+        }
+
+        @Override
+        public String getURI(int index) {
+            return (index >= 0 && index < length) ? uris[index] : null;
+        }
+
+        @Override
+        public String getLocalName(int index) {
+            return (index >= 0 && index < length) ? names[index].localName : null;
+        }
+
+        @Override
+        public String getQName(int index) {
+            return (index >= 0 && index < length) ? names[index].qName : null;
+        }
+
+        @Override
+        public String getType(int index) {
+            return (index >= 0 && index < length) ? "CDATA" : null;
+        }
+
+        @Override
+        public String getValue(int index) {
+            if (index < 0 || index >= length) {
+                return null;
+            }
+            if (values[index] == null) {
+                // only plain values are decoded lazily, which can't fail
+                values[index] = new String(buf, valueStarts[index], valueEnds[index] - valueStarts[index],
+                    StandardCharsets.ISO_8859_1);
+            }
+            return values[index];
+        }
+
+        @Override
+        public int getIndex(String uri, String localName) {
+            for (int i = 0; i < length; i++) {
+                if (names[i].localName.equals(localName) && uris[i].equals(uri)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int getIndex(String qName) {
+            for (int i = 0; i < length; i++) {
+                if (names[i].qName.equals(qName)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public String getType(String uri, String localName) {
+            return getType(getIndex(uri, localName));
+        }
+
+        @Override
+        public String getType(String qName) {
+            return getType(getIndex(qName));
+        }
+
+        @Override
+        public String getValue(String uri, String localName) {
+            return getValue(getIndex(uri, localName));
+        }
+
+        @Override
+        public String getValue(String qName) {
+            return getValue(getIndex(qName));
+        }
+    }
+}
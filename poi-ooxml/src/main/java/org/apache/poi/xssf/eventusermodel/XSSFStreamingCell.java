@@ -0,0 +1,374 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import java.time.LocalDateTime;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.CellBase;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Hyperlink;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.Beta;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+
+/**
+ * A read-only view of a cell of the current row of a {@link XSSFStreamingSheet} iteration.
+ * <p>
+ * The cell objects are reused for the following rows, so the values must be read before
+ * the iterator is advanced. The value text is kept in a reusable buffer and only converted
+ * to a string or number when it is accessed.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class XSSFStreamingCell extends CellBase {
+    private final XSSFStreamingRow _row;
+    private int _columnIndex;
+    private CellType _cellType = CellType.BLANK;
+    private CellType _cachedType;
+    private int _styleIndex;
+    /** the index of a shared string or -1 if the text is stored in the value buffer */
+    private int _sharedStringIndex = -1;
+    private final StringBuilder _value = new StringBuilder();
+    private final StringBuilder _formula = new StringBuilder();
+    private boolean _sharedFormula;
+    private boolean _numberParsed;
+    private double _number;
+
+    XSSFStreamingCell(XSSFStreamingRow row) {
+        _row = row;
+    }
+
+    /**
+     * Prepares the view for the next cell
+     */
+    void reset(int columnIndex, int styleIndex) {
+        _columnIndex = columnIndex;
+        _styleIndex = styleIndex;
+        _cellType = CellType.BLANK;
+        _cachedType = null;
+        _sharedStringIndex = -1;
+        _value.setLength(0);
+        _formula.setLength(0);
+        _sharedFormula = false;
+        _numberParsed = false;
+    }
+
+    StringBuilder getValueBuffer() {
+        return _value;
+    }
+
+    StringBuilder getFormulaBuffer() {
+        return _formula;
+    }
+
+    void setType(CellType cellType, CellType cachedType) {
+        _cellType = cellType;
+        _cachedType = cachedType;
+    }
+
+    void setSharedStringIndex(int index) {
+        _sharedStringIndex = index;
+    }
+
+    void setSharedFormula(boolean sharedFormula) {
+        _sharedFormula = sharedFormula;
+    }
+
+    @Override
+    protected SpreadsheetVersion getSpreadsheetVersion() {
+        return SpreadsheetVersion.EXCEL2007;
+    }
+
+    @Override
+    public int getColumnIndex() {
+        return _columnIndex;
+    }
+
+    @Override
+    public int getRowIndex() {
+        return _row.getRowNum();
+    }
+
+    @Override
+    public XSSFStreamingSheet getSheet() {
+        return _row.getSheet();
+    }
+
+    @Override
+    public XSSFStreamingRow getRow() {
+        return _row;
+    }
+
+    @Override
+    public CellType getCellType() {
+        return _cellType;
+    }
+
+    @Override
+    public CellType getCachedFormulaResultType() {
+        if (_cellType != CellType.FORMULA) {
+            throw new IllegalStateException("Only formula cells have cached results");
+        }
+        return _cachedType;
+    }
+
+    /**
+     * @return the formula of the cell
+     * @throws IllegalStateException if the cell is no formula cell or if it uses the shared formula of
+     *  another cell, which would have to be shifted to this cell
+     */
+    @Override
+    public String getCellFormula() {
+        if (_cellType != CellType.FORMULA) {
+            throw typeMismatch(CellType.FORMULA, _cellType, false);
+        }
+        if (_sharedFormula) {
+            throw new IllegalStateException("The formula of cell " + getAddress()
+                + " is shared with a previous cell and isn't available when streaming");
+        }
+        return _formula.toString();
+    }
+
+    @Override
+    public double getNumericCellValue() {
+        CellType valueType = (_cellType == CellType.FORMULA) ? _cachedType : _cellType;
+        switch (valueType) {
+            case BLANK:
+                return 0.0;
+            case NUMERIC:
+                if (!_numberParsed) {
+                    _number = parseNumber();
+                    _numberParsed = true;
+                }
+                return _number;
+            default:
+                throw typeMismatch(CellType.NUMERIC, valueType, _cellType == CellType.FORMULA);
+        }
+    }
+
+    private double parseNumber() {
+        if (_value.length() == 0) {
+            return 0.0;
+        }
+        try {
+            return CellValueParser.parseDouble(_value);
+        } catch (NumberFormatException e) {
+            throw typeMismatch(CellType.NUMERIC, CellType.STRING, false);
+        }
+    }
+
+    @Override
+    public Date getDateCellValue() {
+        if (_cellType == CellType.BLANK) {
+            return null;
+        }
+        return DateUtil.getJavaDate(getNumericCellValue(), getSheet().getWorkbook().isDate1904());
+    }
+
+    @Override
+    public LocalDateTime getLocalDateTimeCellValue() {
+        if (_cellType == CellType.BLANK) {
+            return null;
+        }
+        return DateUtil.getLocalDateTime(getNumericCellValue(), getSheet().getWorkbook().isDate1904());
+    }
+
+    @Override
+    public RichTextString getRichStringCellValue() {
+        return new XSSFRichTextString(getStringCellValue());
+    }
+
+    @Override
+    public String getStringCellValue() {
+        CellType valueType = (_cellType == CellType.FORMULA) ? _cachedType : _cellType;
+        switch (valueType) {
+            case BLANK:
+                return "";
+            case STRING:
+                return (_sharedStringIndex >= 0)
+                    ? getSheet().getWorkbook().getSharedString(_sharedStringIndex)
+                    : _value.toString();
+            default:
+                throw typeMismatch(CellType.STRING, valueType, _cellType == CellType.FORMULA);
+        }
+    }
+
+    @Override
+    public boolean getBooleanCellValue() {
+        CellType valueType = (_cellType == CellType.FORMULA) ? _cachedType : _cellType;
+        switch (valueType) {
+            case BLANK:
+                return false;
+            case BOOLEAN:
+                return _value.length() > 0 && (_value.charAt(0) == '1' || _value.charAt(0) == 't');
+            default:
+                throw typeMismatch(CellType.BOOLEAN, valueType, _cellType == CellType.FORMULA);
+        }
+    }
+
+    @Override
+    public byte getErrorCellValue() {
+        CellType valueType = (_cellType == CellType.FORMULA) ? _cachedType : _cellType;
+        if (valueType != CellType.ERROR) {
+            throw typeMismatch(CellType.ERROR, valueType, _cellType == CellType.FORMULA);
+        }
+        if (_value.length() == 0) {
+            return 0;
+        }
+        try {
+            return FormulaError.forString(_value.toString()).getCode();
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalStateException("Unexpected error code", e);
+        }
+    }
+
+    @Override
+    public CellStyle getCellStyle() {
+        return getSheet().getWorkbook().getCellStyleAt(_styleIndex);
+    }
+
+    @Override
+    public Comment getCellComment() {
+        return null;
+    }
+
+    @Override
+    public Hyperlink getHyperlink() {
+        return null;
+    }
+
+    @Override
+    public CellRangeAddress getArrayFormulaRange() {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean isPartOfArrayFormulaGroup() {
+        throw readOnly();
+    }
+
+    @Override
+    public String toString() {
+        return new CellReference(this).formatAsString();
+    }
+
+    private static RuntimeException typeMismatch(CellType expectedType, CellType actualType, boolean isFormulaCell) {
+        String msg = "Cannot get a " + expectedType + " value from a " + actualType + " " + (isFormulaCell ? "formula " : "") + "cell";
+        return new IllegalStateException(msg);
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    protected void setCellTypeImpl(CellType cellType) {
+        throw readOnly();
+    }
+
+    @Override
+    protected void setCellFormulaImpl(String formula) {
+        throw readOnly();
+    }
+
+    @Override
+    protected void removeFormulaImpl() {
+        throw readOnly();
+    }
+
+    @Override
+    protected void setCellValueImpl(double value) {
+        throw readOnly();
+    }
+
+    @Override
+    protected void setCellValueImpl(Date value) {
+        throw readOnly();
+    }
+
+    @Override
+    protected void setCellValueImpl(LocalDateTime value) {
+        throw readOnly();
+    }
+
+    @Override
+    protected void setCellValueImpl(Calendar value) {
+        throw readOnly();
+    }
+
+    @Override
+    protected void setCellValueImpl(String value) {
+        throw readOnly();
+    }
+
+    @Override
+    protected void setCellValueImpl(RichTextString value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellValue(boolean value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellErrorValue(byte value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellStyle(CellStyle style) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setAsActiveCell() {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCellComment(Comment comment) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeCellComment() {
+        throw readOnly();
+    }
+
+    @Override
+    public void setHyperlink(Hyperlink link) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeHyperlink() {
+        throw readOnly();
+    }
+}
@@ -0,0 +1,267 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.util.Beta;
+
+/**
+ * A read-only view of the current row of a {@link XSSFStreamingSheet} iteration.
+ * <p>
+ * The row iterator returns the same row object for every row and the cell objects are reused,
+ * too. So a row and its cells are only valid until the iterator is advanced, values which are
+ * needed later on have to be copied.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class XSSFStreamingRow implements Row {
+    private final XSSFStreamingSheet _sheet;
+    private XSSFStreamingCell[] _cells = new XSSFStreamingCell[16];
+    private int _cellCount;
+    /** the cell, which is returned for missing cells by {@link MissingCellPolicy#CREATE_NULL_AS_BLANK} */
+    private final XSSFStreamingCell _blankCell;
+    private int _rowNum;
+    private short _height;
+    private short _defaultHeight;
+    private boolean _zeroHeight;
+    private int _styleIndex;
+    private int _outlineLevel;
+
+    XSSFStreamingRow(XSSFStreamingSheet sheet) {
+        _sheet = sheet;
+        _blankCell = new XSSFStreamingCell(this);
+    }
+
+    /**
+     * Prepares the view for the next row
+     *
+     * @param height the custom height in twips or -1
+     * @param styleIndex the index of the row style or -1
+     */
+    void reset(int rowNum, short height, short defaultHeight, boolean zeroHeight, int styleIndex, int outlineLevel) {
+        _rowNum = rowNum;
+        _height = height;
+        _defaultHeight = defaultHeight;
+        _zeroHeight = zeroHeight;
+        _styleIndex = styleIndex;
+        _outlineLevel = outlineLevel;
+        _cellCount = 0;
+    }
+
+    /**
+     * @return the view for the next cell of the row
+     */
+    XSSFStreamingCell nextCell(int columnIndex, int styleIndex) {
+        if (_cellCount == _cells.length) {
+            _cells = Arrays.copyOf(_cells, _cells.length * 2);
+        }
+        XSSFStreamingCell cell = _cells[_cellCount];
+        if (cell == null) {
+            cell = new XSSFStreamingCell(this);
+            _cells[_cellCount] = cell;
+        }
+        _cellCount++;
+        cell.reset(columnIndex, styleIndex);
+        return cell;
+    }
+
+    @Override
+    public int getRowNum() {
+        return _rowNum;
+    }
+
+    @Override
+    public XSSFStreamingCell getCell(int cellnum) {
+        return getCell(cellnum, _sheet.getWorkbook().getMissingCellPolicy());
+    }
+
+    @Override
+    public XSSFStreamingCell getCell(int cellnum, MissingCellPolicy policy) {
+        if (cellnum < 0) {
+            throw new IllegalArgumentException("Cell index must be >= 0");
+        }
+        // the cells are ordered by column
+        int low = 0;
+        int high = _cellCount - 1;
+        XSSFStreamingCell cell = null;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int column = _cells[mid].getColumnIndex();
+            if (column < cellnum) {
+                low = mid + 1;
+            } else if (column > cellnum) {
+                high = mid - 1;
+            } else {
+                cell = _cells[mid];
+                break;
+            }
+        }
+        switch (policy) {
+            case RETURN_NULL_AND_BLANK:
+                return cell;
+            case RETURN_BLANK_AS_NULL:
+                return (cell == null || cell.getCellType() == CellType.BLANK) ? null : cell;
+            case CREATE_NULL_AS_BLANK:
+                if (cell == null) {
+                    _blankCell.reset(cellnum, 0);
+                    cell = _blankCell;
+                }
+                return cell;
+            default:
+                throw new IllegalArgumentException("Illegal policy " + policy);
+        }
+    }
+
+    @Override
+    public short getFirstCellNum() {
+        return (short) (_cellCount == 0 ? -1 : _cells[0].getColumnIndex());
+    }
+
+    @Override
+    public short getLastCellNum() {
+        return (short) (_cellCount == 0 ? -1 : _cells[_cellCount - 1].getColumnIndex() + 1);
+    }
+
+    @Override
+    public int getPhysicalNumberOfCells() {
+        return _cellCount;
+    }
+
+    @Override
+    public boolean getZeroHeight() {
+        return _zeroHeight;
+    }
+
+    @Override
+    public short getHeight() {
+        return (_height == -1) ? _defaultHeight : _height;
+    }
+
+    @Override
+    public float getHeightInPoints() {
+        return getHeight() / 20f;
+    }
+
+    @Override
+    public boolean isFormatted() {
+        return _styleIndex >= 0;
+    }
+
+    @Override
+    public CellStyle getRowStyle() {
+        return isFormatted() ? _sheet.getWorkbook().getCellStyleAt(_styleIndex) : null;
+    }
+
+    @Override
+    public Iterator<Cell> cellIterator() {
+        return new Iterator<Cell>() {
+            private int _index;
+
+            @Override
+            public boolean hasNext() {
+                return _index < _cellCount;
+            }
+
+            @Override
+            public Cell next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return _cells[_index++];
+            }
+        };
+    }
+
+    @Override
+    public XSSFStreamingSheet getSheet() {
+        return _sheet;
+    }
+
+    @Override
+    public int getOutlineLevel() {
+        return _outlineLevel;
+    }
+
+    @Override
+    public String toString() {
+        return "XSSFStreamingRow[" + _rowNum + "]";
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Streaming rows are read-only");
+    }
+
+    @Override
+    public Cell createCell(int column) {
+        throw readOnly();
+    }
+
+    @Override
+    public Cell createCell(int column, CellType type) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeCell(Cell cell) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setRowNum(int rowNum) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setHeight(short height) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setZeroHeight(boolean zHeight) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setHeightInPoints(float height) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setRowStyle(CellStyle style) {
+        throw readOnly();
+    }
+
+    @Override
+    public void shiftCellsRight(int firstShiftColumnIndex, int lastShiftColumnIndex, int step) {
+        throw readOnly();
+    }
+
+    @Override
+    public void shiftCellsLeft(int firstShiftColumnIndex, int lastShiftColumnIndex, int step) {
+        throw readOnly();
+    }
+}
@@ -0,0 +1,346 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.XMLHelper;
+
+/**
+ * Forward-only iterator over the rows of a sheet part, which moves a StAX cursor over the
+ * {@code sheetData} element and fills the flyweight row of the iteration.
+ */
+final class XSSFStreamingRowIterator implements Iterator<Row>, Closeable {
+    /** the default row height of 15 points in twips */
+    private static final short DEFAULT_ROW_HEIGHT = 300;
+
+    private final XSSFStreamingSheet _sheet;
+    private final InputStream _is;
+    private final XMLStreamReader _xml;
+    private final XSSFStreamingRow _row;
+    private short _defaultRowHeight = DEFAULT_ROW_HEIGHT;
+    private int _lastRowNum = -1;
+    /** whether the cursor was moved to the start of the next row, or the end of the sheet data */
+    private boolean _positioned;
+    private boolean _hasNext;
+    private boolean _closed;
+
+    XSSFStreamingRowIterator(XSSFStreamingSheet sheet, InputStream is) throws IOException {
+        _sheet = sheet;
+        _is = is;
+        try {
+            _xml = XMLHelper.newXMLInputFactory().createXMLStreamReader(is);
+        } catch (XMLStreamException e) {
+            is.close();
+            throw new IOException("Failed to parse sheet " + sheet.getSheetName(), e);
+        }
+        _row = new XSSFStreamingRow(sheet);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!_positioned) {
+            _hasNext = moveToNextRow();
+            _positioned = true;
+            if (!_hasNext) {
+                close();
+            }
+        }
+        return _hasNext;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        _positioned = false;
+        try {
+            readRow();
+        } catch (XMLStreamException e) {
+            close();
+            throw new POIXMLException("Failed to parse sheet " + _sheet.getSheetName(), e);
+        }
+        return _row;
+    }
+
+    @Override
+    public void close() {
+        if (!_closed) {
+            _closed = true;
+            _positioned = true;
+            _hasNext = false;
+            try {
+                _xml.close();
+            } catch (XMLStreamException e) {
+                // the stream is closed anyway
+            }
+            IOUtils.closeQuietly(_is);
+            _sheet.getWorkbook().unregisterIterator(this);
+        }
+    }
+
+    private boolean moveToNextRow() {
+        try {
+            while (_xml.hasNext()) {
+                int event = _xml.next();
+                if (event == START_ELEMENT) {
+                    String name = _xml.getLocalName();
+                    if ("row".equals(name)) {
+                        return true;
+                    } else if ("sheetFormatPr".equals(name)) {
+                        String height = _xml.getAttributeValue(null, "defaultRowHeight");
+                        if (height != null) {
+                            _defaultRowHeight = (short) Math.round(Double.parseDouble(height) * 20);
+                        }
+                    }
+                } else if (event == END_ELEMENT && "sheetData".equals(_xml.getLocalName())) {
+                    return false;
+                }
+            }
+            return false;
+        } catch (XMLStreamException e) {
+            close();
+            throw new POIXMLException("Failed to parse sheet " + _sheet.getSheetName(), e);
+        }
+    }
+
+    private void readRow() throws XMLStreamException {
+        int rowNum = _lastRowNum + 1;
+        short height = -1;
+        boolean customHeight = false;
+        boolean hidden = false;
+        boolean customFormat = false;
+        int styleIndex = -1;
+        int outlineLevel = 0;
+        for (int i = 0, count = _xml.getAttributeCount(); i < count; i++) {
+            String name = _xml.getAttributeLocalName(i);
+            String value = _xml.getAttributeValue(i);
+            switch (name) {
+                case "r":
+                    rowNum = Integer.parseInt(value) - 1;
+                    break;
+                case "ht":
+                    height = (short) Math.round(Double.parseDouble(value) * 20);
+                    break;
+                case "customHeight":
+                    customHeight = isTrue(value);
+                    break;
+                case "hidden":
+                    hidden = isTrue(value);
+                    break;
+                case "s":
+                    styleIndex = Integer.parseInt(value);
+                    break;
+                case "customFormat":
+                    customFormat = isTrue(value);
+                    break;
+                case "outlineLevel":
+                    outlineLevel = Integer.parseInt(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+        _lastRowNum = rowNum;
+        _row.reset(rowNum, customHeight ? height : -1, _defaultRowHeight, hidden,
+                customFormat ? styleIndex : -1, outlineLevel);
+
+        int column = -1;
+        while (true) {
+            int event = _xml.next();
+            if (event == START_ELEMENT) {
+                if ("c".equals(_xml.getLocalName())) {
+                    column = readCell(column);
+                } else {
+                    skipElement();
+                }
+            } else if (event == END_ELEMENT) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads a {@code c} element
+     *
+     * @return the column of the cell
+     */
+    private int readCell(int previousColumn) throws XMLStreamException {
+        int column = previousColumn + 1;
+        int styleIndex = 0;
+        String type = null;
+        for (int i = 0, count = _xml.getAttributeCount(); i < count; i++) {
+            String name = _xml.getAttributeLocalName(i);
+            if ("r".equals(name)) {
+                column = CellValueParser.parseColumn(_xml.getAttributeValue(i));
+            } else if ("s".equals(name)) {
+                styleIndex = Integer.parseInt(_xml.getAttributeValue(i));
+            } else if ("t".equals(name)) {
+                type = _xml.getAttributeValue(i);
+            }
+        }
+
+        XSSFStreamingCell cell = _row.nextCell(column, styleIndex);
+        StringBuilder value = cell.getValueBuffer();
+        boolean formula = false;
+        boolean inlineString = false;
+        while (true) {
+            int event = _xml.next();
+            if (event == START_ELEMENT) {
+                String name = _xml.getLocalName();
+                if ("v".equals(name)) {
+                    if (inlineString) {
+                        skipElement();
+                    } else {
+                        readText(value);
+                    }
+                } else if ("f".equals(name)) {
+                    formula = true;
+                    // the cells, which share the formula of a previous cell, only refer to its index
+                    boolean shared = "shared".equals(_xml.getAttributeValue(null, "t"))
+                        && _xml.getAttributeValue(null, "ref") == null;
+                    StringBuilder text = cell.getFormulaBuffer();
+                    readText(text);
+                    cell.setSharedFormula(shared && text.length() == 0);
+                } else if ("is".equals(name)) {
+                    inlineString = true;
+                    value.setLength(0);
+                    readInlineString(value);
+                } else {
+                    skipElement();
+                }
+            } else if (event == END_ELEMENT) {
+                break;
+            }
+        }
+
+        setCellType(cell, type, formula);
+        return column;
+    }
+
+    private void setCellType(XSSFStreamingCell cell, String type, boolean formula) {
+        StringBuilder value = cell.getValueBuffer();
+        CellType valueType;
+        if (type == null || "n".equals(type)) {
+            valueType = (value.length() == 0 && !formula) ? CellType.BLANK : CellType.NUMERIC;
+        } else if ("s".equals(type)) {
+            if (value.length() == 0) {
+                valueType = CellType.BLANK;
+            } else {
+                cell.setSharedStringIndex(parseIndex(value));
+                valueType = CellType.STRING;
+            }
+        } else if ("b".equals(type)) {
+            valueType = CellType.BOOLEAN;
+        } else if ("e".equals(type)) {
+            valueType = CellType.ERROR;
+        } else {
+            // inline strings, cached formula strings and ISO 8601 dates are returned as text
+            valueType = CellType.STRING;
+        }
+        if (formula) {
+            cell.setType(CellType.FORMULA, valueType == CellType.BLANK ? CellType.NUMERIC : valueType);
+        } else {
+            cell.setType(valueType, null);
+        }
+    }
+
+    /**
+     * Appends the text of the inline string, but not of the phonetic runs
+     */
+    private void readInlineString(StringBuilder sb) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = _xml.next();
+            if (event == START_ELEMENT) {
+                String name = _xml.getLocalName();
+                if ("t".equals(name)) {
+                    readText(sb);
+                } else if ("rPh".equals(name)) {
+                    skipElement();
+                } else {
+                    depth++;
+                }
+            } else if (event == END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Appends the text of the current element up to its end element
+     */
+    private void readText(StringBuilder sb) throws XMLStreamException {
+        while (true) {
+            int event = _xml.next();
+            if (event == CHARACTERS || event == CDATA || event == SPACE) {
+                sb.append(_xml.getTextCharacters(), _xml.getTextStart(), _xml.getTextLength());
+            } else if (event == START_ELEMENT) {
+                skipElement();
+            } else if (event == END_ELEMENT) {
+                return;
+            }
+        }
+    }
+
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = _xml.next();
+            if (event == START_ELEMENT) {
+                depth++;
+            } else if (event == END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static int parseIndex(StringBuilder value) {
+        int index = 0;
+        for (int i = 0, len = value.length(); i < len; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return Integer.parseInt(value.toString().trim());
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
+    private static boolean isTrue(String value) {
+        return "1".equals(value) || "true".equals(value);
+    }
+}
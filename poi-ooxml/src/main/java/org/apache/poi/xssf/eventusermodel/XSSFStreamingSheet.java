@@ -0,0 +1,709 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.ss.usermodel.AutoFilter;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellRange;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.DataValidation;
+import org.apache.poi.ss.usermodel.DataValidationHelper;
+import org.apache.poi.ss.usermodel.Drawing;
+import org.apache.poi.ss.usermodel.Footer;
+import org.apache.poi.ss.usermodel.Header;
+import org.apache.poi.ss.usermodel.Hyperlink;
+import org.apache.poi.ss.usermodel.PageMargin;
+import org.apache.poi.ss.usermodel.PaneType;
+import org.apache.poi.ss.usermodel.PrintSetup;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.SheetConditionalFormatting;
+import org.apache.poi.ss.usermodel.SheetVisibility;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.PaneInformation;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.Removal;
+
+/**
+ * A sheet of a {@link XSSFStreamingWorkbook}, which only provides forward-only access to its rows.
+ * <p>
+ * Every call of {@link #rowIterator()} parses the sheet part from its start. The iterator returns
+ * the same {@link XSSFStreamingRow} object for every row, so the memory usage doesn't depend on
+ * the size of the sheet. All other sheet properties are not read and the corresponding methods
+ * throw an {@link UnsupportedOperationException}.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class XSSFStreamingSheet implements Sheet {
+    private final XSSFStreamingWorkbook _workbook;
+    private final String _name;
+    private final String _relId;
+    private final SheetVisibility _visibility;
+
+    XSSFStreamingSheet(XSSFStreamingWorkbook workbook, String name, String relId, SheetVisibility visibility) {
+        _workbook = workbook;
+        _name = name;
+        _relId = relId;
+        _visibility = visibility;
+    }
+
+    /**
+     * Opens a new forward-only iteration over the rows of this sheet.
+     * <p>
+     * The returned row and its cells are only valid until the next call of {@code next()}.
+     * The underlying stream is closed when the iteration is exhausted or the workbook is closed.
+     * </p>
+     */
+    @Override
+    public Iterator<Row> rowIterator() {
+        try {
+            return _workbook.openRowIterator(this);
+        } catch (IOException e) {
+            throw new POIXMLException("Failed to read sheet " + _name, e);
+        }
+    }
+
+    String getRelId() {
+        return _relId;
+    }
+
+    SheetVisibility getVisibility() {
+        return _visibility;
+    }
+
+    @Override
+    public XSSFStreamingWorkbook getWorkbook() {
+        return _workbook;
+    }
+
+    @Override
+    public String getSheetName() {
+        return _name;
+    }
+
+    @Override
+    public boolean isSelected() {
+        return _workbook.getActiveSheetIndex() == _workbook.getSheetIndex(this);
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Not supported by streaming sheets");
+    }
+
+    @Override
+    public Row createRow(int rownum) {
+        throw unsupported();
+    }
+
+    @Override
+    public void removeRow(Row row) {
+        throw unsupported();
+    }
+
+    @Override
+    public Row getRow(int rownum) {
+        throw unsupported();
+    }
+
+    @Override
+    public int getPhysicalNumberOfRows() {
+        throw unsupported();
+    }
+
+    @Override
+    public int getFirstRowNum() {
+        throw unsupported();
+    }
+
+    @Override
+    public int getLastRowNum() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setColumnHidden(int columnIndex, boolean hidden) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean isColumnHidden(int columnIndex) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setRightToLeft(boolean value) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean isRightToLeft() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setColumnWidth(int columnIndex, int width) {
+        throw unsupported();
+    }
+
+    @Override
+    public int getColumnWidth(int columnIndex) {
+        throw unsupported();
+    }
+
+    @Override
+    public float getColumnWidthInPixels(int columnIndex) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setDefaultColumnWidth(int width) {
+        throw unsupported();
+    }
+
+    @Override
+    public int getDefaultColumnWidth() {
+        throw unsupported();
+    }
+
+    @Override
+    public short getDefaultRowHeight() {
+        throw unsupported();
+    }
+
+    @Override
+    public float getDefaultRowHeightInPoints() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setDefaultRowHeight(short height) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setDefaultRowHeightInPoints(float height) {
+        throw unsupported();
+    }
+
+    @Override
+    public CellStyle getColumnStyle(int column) {
+        throw unsupported();
+    }
+
+    @Override
+    public int addMergedRegion(CellRangeAddress region) {
+        throw unsupported();
+    }
+
+    @Override
+    public int addMergedRegionUnsafe(CellRangeAddress region) {
+        throw unsupported();
+    }
+
+    @Override
+    public void validateMergedRegions() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setVerticallyCenter(boolean value) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setHorizontallyCenter(boolean value) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean getHorizontallyCenter() {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean getVerticallyCenter() {
+        throw unsupported();
+    }
+
+    @Override
+    public void removeMergedRegion(int index) {
+        throw unsupported();
+    }
+
+    @Override
+    public void removeMergedRegions(Collection<Integer> indices) {
+        throw unsupported();
+    }
+
+    @Override
+    public int getNumMergedRegions() {
+        throw unsupported();
+    }
+
+    @Override
+    public CellRangeAddress getMergedRegion(int index) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<CellRangeAddress> getMergedRegions() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setForceFormulaRecalculation(boolean value) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean getForceFormulaRecalculation() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setAutobreaks(boolean value) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setDisplayGuts(boolean value) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setDisplayZeros(boolean value) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean isDisplayZeros() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setFitToPage(boolean value) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setRowSumsBelow(boolean value) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setRowSumsRight(boolean value) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean getAutobreaks() {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean getDisplayGuts() {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean getFitToPage() {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean getRowSumsBelow() {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean getRowSumsRight() {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean isPrintGridlines() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setPrintGridlines(boolean show) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean isPrintRowAndColumnHeadings() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setPrintRowAndColumnHeadings(boolean show) {
+        throw unsupported();
+    }
+
+    @Override
+    public PrintSetup getPrintSetup() {
+        throw unsupported();
+    }
+
+    @Override
+    public Header getHeader() {
+        throw unsupported();
+    }
+
+    @Override
+    public Footer getFooter() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setSelected(boolean value) {
+        throw unsupported();
+    }
+
+    @Deprecated
+    @Removal(version = "7.0.0")
+    @Override
+    public double getMargin(short margin) {
+        throw unsupported();
+    }
+
+    @Override
+    public double getMargin(PageMargin margin) {
+        throw unsupported();
+    }
+
+    @Deprecated
+    @Removal(version = "7.0.0")
+    @Override
+    public void setMargin(short margin, double size) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setMargin(PageMargin margin, double size) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean getProtect() {
+        throw unsupported();
+    }
+
+    @Override
+    public void protectSheet(String password) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean getScenarioProtect() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setZoom(int scale) {
+        throw unsupported();
+    }
+
+    @Override
+    public short getTopRow() {
+        throw unsupported();
+    }
+
+    @Override
+    public short getLeftCol() {
+        throw unsupported();
+    }
+
+    @Override
+    public void showInPane(int topRow, int leftCol) {
+        throw unsupported();
+    }
+
+    @Override
+    public void shiftRows(int startRow, int endRow, int n) {
+        throw unsupported();
+    }
+
+    @Override
+    public void shiftRows(int startRow, int endRow, int n, boolean copyRowHeight, boolean resetOriginalRowHeight) {
+        throw unsupported();
+    }
+
+    @Override
+    public void shiftColumns(int startColumn, int endColumn, int n) {
+        throw unsupported();
+    }
+
+    @Override
+    public void createFreezePane(int colSplit, int rowSplit, int leftmostColumn, int topRow) {
+        throw unsupported();
+    }
+
+    @Override
+    public void createFreezePane(int colSplit, int rowSplit) {
+        throw unsupported();
+    }
+
+    @Deprecated
+    @Removal(version = "7.0.0")
+    @Override
+    public void createSplitPane(int xSplitPos, int ySplitPos, int leftmostColumn, int topRow, int activePane) {
+        throw unsupported();
+    }
+
+    @Override
+    public void createSplitPane(int xSplitPos, int ySplitPos, int leftmostColumn, int topRow, PaneType activePane) {
+        throw unsupported();
+    }
+
+    @Override
+    public PaneInformation getPaneInformation() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setDisplayGridlines(boolean show) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean isDisplayGridlines() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setDisplayFormulas(boolean show) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean isDisplayFormulas() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setDisplayRowColHeadings(boolean show) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean isDisplayRowColHeadings() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setRowBreak(int row) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean isRowBroken(int row) {
+        throw unsupported();
+    }
+
+    @Override
+    public void removeRowBreak(int row) {
+        throw unsupported();
+    }
+
+    @Override
+    public int[] getRowBreaks() {
+        throw unsupported();
+    }
+
+    @Override
+    public int[] getColumnBreaks() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setColumnBreak(int column) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean isColumnBroken(int column) {
+        throw unsupported();
+    }
+
+    @Override
+    public void removeColumnBreak(int column) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setColumnGroupCollapsed(int columnNumber, boolean collapsed) {
+        throw unsupported();
+    }
+
+    @Override
+    public void groupColumn(int fromColumn, int toColumn) {
+        throw unsupported();
+    }
+
+    @Override
+    public void ungroupColumn(int fromColumn, int toColumn) {
+        throw unsupported();
+    }
+
+    @Override
+    public void groupRow(int fromRow, int toRow) {
+        throw unsupported();
+    }
+
+    @Override
+    public void ungroupRow(int fromRow, int toRow) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setRowGroupCollapsed(int row, boolean collapse) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setDefaultColumnStyle(int column, CellStyle style) {
+        throw unsupported();
+    }
+
+    @Override
+    public void autoSizeColumn(int column) {
+        throw unsupported();
+    }
+
+    @Override
+    public void autoSizeColumn(int column, boolean useMergedCells) {
+        throw unsupported();
+    }
+
+    @Override
+    public Comment getCellComment(CellAddress ref) {
+        throw unsupported();
+    }
+
+    @Override
+    public Map<CellAddress, ? extends Comment> getCellComments() {
+        throw unsupported();
+    }
+
+    @Override
+    public Drawing<?> getDrawingPatriarch() {
+        throw unsupported();
+    }
+
+    @Override
+    public Drawing<?> createDrawingPatriarch() {
+        throw unsupported();
+    }
+
+    @Override
+    public CellRange<? extends Cell> setArrayFormula(String formula, CellRangeAddress range) {
+        throw unsupported();
+    }
+
+    @Override
+    public CellRange<? extends Cell> removeArrayFormula(Cell cell) {
+        throw unsupported();
+    }
+
+    @Override
+    public DataValidationHelper getDataValidationHelper() {
+        throw unsupported();
+    }
+
+    @Override
+    public List<? extends DataValidation> getDataValidations() {
+        throw unsupported();
+    }
+
+    @Override
+    public void addValidationData(DataValidation dataValidation) {
+        throw unsupported();
+    }
+
+    @Override
+    public AutoFilter setAutoFilter(CellRangeAddress range) {
+        throw unsupported();
+    }
+
+    @Override
+    public SheetConditionalFormatting getSheetConditionalFormatting() {
+        throw unsupported();
+    }
+
+    @Override
+    public CellRangeAddress getRepeatingRows() {
+        throw unsupported();
+    }
+
+    @Override
+    public CellRangeAddress getRepeatingColumns() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setRepeatingRows(CellRangeAddress rowRangeRef) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setRepeatingColumns(CellRangeAddress columnRangeRef) {
+        throw unsupported();
+    }
+
+    @Override
+    public int getColumnOutlineLevel(int columnIndex) {
+        throw unsupported();
+    }
+
+    @Override
+    public Hyperlink getHyperlink(int row, int column) {
+        throw unsupported();
+    }
+
+    @Override
+    public Hyperlink getHyperlink(CellAddress addr) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<? extends Hyperlink> getHyperlinkList() {
+        throw unsupported();
+    }
+
+    @Override
+    public CellAddress getActiveCell() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setActiveCell(CellAddress address) {
+        throw unsupported();
+    }
+}
@@ -0,0 +1,605 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.EvaluationWorkbook;
+import org.apache.poi.ss.formula.udf.UDFFinder;
+import org.apache.poi.ss.usermodel.CellReferenceType;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.Date1904Support;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.PictureData;
+import org.apache.poi.ss.usermodel.Row.MissingCellPolicy;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.SheetVisibility;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.Removal;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+
+/**
+ * A read-only, pull-based view of a .xlsx workbook with constant memory usage per sheet.
+ * <p>
+ * Opening the workbook only reads the workbook part, the styles and the shared strings. The sheets
+ * are parsed lazily with a StAX cursor while their {@link Sheet#rowIterator() row iterators} are
+ * advanced, and the iterators reuse a single row and cell object for the whole sheet. This combines
+ * the memory footprint of the {@link XSSFSheetXMLHandler event API} with the pull-style access of
+ * the usermodel.
+ * </p>
+ * <p>
+ * Only the rows and cell values, styles and formulas are available. The formulas of cells, which only
+ * refer to the shared formula of a previous cell, can't be read and rich text is returned as plain text.
+ * All other methods throw an {@link UnsupportedOperationException}.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public class XSSFStreamingWorkbook implements Workbook, Date1904Support {
+    private final OPCPackage _pkg;
+    private final boolean _ownsPackage;
+    private final XSSFReader _reader;
+    private final SharedStrings _sharedStrings;
+    private final StylesTable _styles;
+    private final XSSFCellStyle[] _cellStyles;
+    private final List<XSSFStreamingSheet> _sheets = new ArrayList<>();
+    private final Set<XSSFStreamingRowIterator> _openIterators = new HashSet<>();
+    private MissingCellPolicy _missingCellPolicy = MissingCellPolicy.RETURN_NULL_AND_BLANK;
+    private boolean _date1904;
+    private int _activeSheetIndex;
+    private int _firstVisibleTab;
+
+    /**
+     * Opens the workbook of the given package.
+     * The package isn't closed by {@link #close()}.
+     *
+     * @param pkg the package of the workbook
+     * @throws IOException if the workbook, styles or shared strings parts can't be read
+     */
+    public XSSFStreamingWorkbook(OPCPackage pkg) throws IOException {
+        this(pkg, false);
+    }
+
+    private XSSFStreamingWorkbook(OPCPackage pkg, boolean ownsPackage) throws IOException {
+        _pkg = pkg;
+        _ownsPackage = ownsPackage;
+        try {
+            _reader = new XSSFReader(pkg);
+            _reader.setUseReadOnlySharedStringsTable(true);
+            _sharedStrings = _reader.getSharedStringsTable();
+            StylesTable styles = _reader.getStylesTable();
+            _styles = (styles == null) ? new StylesTable() : styles;
+            try (InputStream is = _reader.getWorkbookData()) {
+                readWorkbook(is);
+            }
+        } catch (OpenXML4JException | XMLStreamException e) {
+            throw new IOException("Failed to read the workbook", e);
+        }
+        _cellStyles = new XSSFCellStyle[_styles.getNumCellStyles()];
+    }
+
+    /**
+     * Opens the workbook of a file in read-only mode, the file is closed by {@link #close()}
+     *
+     * @param file the .xlsx file
+     * @return the workbook
+     * @throws IOException if the file can't be opened or isn't a valid workbook
+     */
+    public static XSSFStreamingWorkbook open(File file) throws IOException {
+        final OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(file, PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("Failed to open " + file, e);
+        }
+        return open(pkg);
+    }
+
+    /**
+     * Opens the workbook of a stream, which is read completely into memory
+     *
+     * @param is the stream of the .xlsx file, which is closed afterwards
+     * @return the workbook
+     * @throws IOException if the stream can't be read or isn't a valid workbook
+     */
+    public static XSSFStreamingWorkbook open(InputStream is) throws IOException {
+        final OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(is);
+        } catch (OpenXML4JException e) {
+            throw new IOException("Failed to open the workbook stream", e);
+        }
+        return open(pkg);
+    }
+
+    private static XSSFStreamingWorkbook open(OPCPackage pkg) throws IOException {
+        try {
+            return new XSSFStreamingWorkbook(pkg, true);
+        } catch (IOException | RuntimeException e) {
+            pkg.revert();
+            throw e;
+        }
+    }
+
+    private void readWorkbook(InputStream is) throws XMLStreamException {
+        XMLStreamReader xml = XMLHelper.newXMLInputFactory().createXMLStreamReader(is);
+        boolean viewRead = false;
+        try {
+            while (xml.hasNext()) {
+                if (xml.next() != START_ELEMENT) {
+                    continue;
+                }
+                switch (xml.getLocalName()) {
+                    case "workbookPr": {
+                        String date1904 = xml.getAttributeValue(null, "date1904");
+                        _date1904 = "1".equals(date1904) || "true".equals(date1904);
+                        break;
+                    }
+                    case "workbookView": {
+                        // only the first view is used by Excel
+                        if (!viewRead) {
+                            viewRead = true;
+                            _activeSheetIndex = parseInt(xml.getAttributeValue(null, "activeTab"));
+                            _firstVisibleTab = parseInt(xml.getAttributeValue(null, "firstSheet"));
+                        }
+                        break;
+                    }
+                    case "sheet":
+                        readSheet(xml);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            xml.close();
+        }
+    }
+
+    private void readSheet(XMLStreamReader xml) {
+        String name = null;
+        String relId = null;
+        SheetVisibility visibility = SheetVisibility.VISIBLE;
+        for (int i = 0, count = xml.getAttributeCount(); i < count; i++) {
+            String attribute = xml.getAttributeLocalName(i);
+            if ("name".equals(attribute)) {
+                name = xml.getAttributeValue(i);
+            } else if ("id".equals(attribute)) {
+                relId = xml.getAttributeValue(i);
+            } else if ("state".equals(attribute)) {
+                String state = xml.getAttributeValue(i);
+                if ("hidden".equals(state)) {
+                    visibility = SheetVisibility.HIDDEN;
+                } else if ("veryHidden".equals(state)) {
+                    visibility = SheetVisibility.VERY_HIDDEN;
+                }
+            }
+        }
+        _sheets.add(new XSSFStreamingSheet(this, name, relId, visibility));
+    }
+
+    private static int parseInt(String value) {
+        return (value == null) ? 0 : Integer.parseInt(value);
+    }
+
+    XSSFStreamingRowIterator openRowIterator(XSSFStreamingSheet sheet) throws IOException {
+        final InputStream is;
+        try {
+            is = _reader.getSheet(sheet.getRelId());
+        } catch (OpenXML4JException e) {
+            throw new IOException("Failed to open sheet " + sheet.getSheetName(), e);
+        }
+        XSSFStreamingRowIterator iterator = new XSSFStreamingRowIterator(sheet, is);
+        synchronized (_openIterators) {
+            _openIterators.add(iterator);
+        }
+        return iterator;
+    }
+
+    void unregisterIterator(XSSFStreamingRowIterator iterator) {
+        synchronized (_openIterators) {
+            _openIterators.remove(iterator);
+        }
+    }
+
+    /**
+     * @return the text of the shared string
+     */
+    String getSharedString(int idx) {
+        if (_sharedStrings instanceof ReadOnlySharedStringsTable) {
+            return ((ReadOnlySharedStringsTable) _sharedStrings).getString(idx);
+        }
+        if (_sharedStrings == null) {
+            throw new IllegalStateException("The workbook has no shared strings table, but a cell refers to entry " + idx);
+        }
+        return _sharedStrings.getItemAt(idx).getString();
+    }
+
+    /**
+     * Closes all open row iterators and the package, if it was opened by this workbook
+     */
+    @Override
+    public void close() throws IOException {
+        List<XSSFStreamingRowIterator> iterators;
+        synchronized (_openIterators) {
+            iterators = new ArrayList<>(_openIterators);
+        }
+        for (XSSFStreamingRowIterator iterator : iterators) {
+            IOUtils.closeQuietly(iterator);
+        }
+        if (_ownsPackage) {
+            // the package was opened read-only, so there's nothing to save
+            _pkg.revert();
+        }
+    }
+
+    @Override
+    public boolean isDate1904() {
+        return _date1904;
+    }
+
+    @Override
+    public int getActiveSheetIndex() {
+        return _activeSheetIndex;
+    }
+
+    @Override
+    public int getFirstVisibleTab() {
+        return _firstVisibleTab;
+    }
+
+    @Override
+    public String getSheetName(int sheet) {
+        return getSheetAt(sheet).getSheetName();
+    }
+
+    @Override
+    public int getSheetIndex(String name) {
+        for (int i = 0; i < _sheets.size(); i++) {
+            if (_sheets.get(i).getSheetName().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getSheetIndex(Sheet sheet) {
+        return _sheets.indexOf(sheet);
+    }
+
+    @Override
+    public Iterator<Sheet> sheetIterator() {
+        return Collections.<Sheet>unmodifiableList(_sheets).iterator();
+    }
+
+    @Override
+    public int getNumberOfSheets() {
+        return _sheets.size();
+    }
+
+    @Override
+    public XSSFStreamingSheet getSheetAt(int index) {
+        if (index < 0 || index >= _sheets.size()) {
+            throw new IllegalArgumentException("Sheet index (" + index + ") is out of range (0.."
+                + (_sheets.size() - 1) + ")");
+        }
+        return _sheets.get(index);
+    }
+
+    @Override
+    public XSSFStreamingSheet getSheet(String name) {
+        int index = getSheetIndex(name);
+        return (index == -1) ? null : _sheets.get(index);
+    }
+
+    @Override
+    public boolean isSheetHidden(int sheetIx) {
+        return getSheetVisibility(sheetIx) == SheetVisibility.HIDDEN;
+    }
+
+    @Override
+    public boolean isSheetVeryHidden(int sheetIx) {
+        return getSheetVisibility(sheetIx) == SheetVisibility.VERY_HIDDEN;
+    }
+
+    @Override
+    public SheetVisibility getSheetVisibility(int sheetIx) {
+        return getSheetAt(sheetIx).getVisibility();
+    }
+
+    @Override
+    public int getNumberOfFonts() {
+        return _styles.getFonts().size();
+    }
+
+    @Override
+    @Deprecated
+    @Removal(version = "6.0.0")
+    public int getNumberOfFontsAsInt() {
+        return getNumberOfFonts();
+    }
+
+    @Override
+    public XSSFFont getFontAt(int idx) {
+        return _styles.getFontAt(idx);
+    }
+
+    @Override
+    public int getNumCellStyles() {
+        return _cellStyles.length;
+    }
+
+    /**
+     * @return the cell style, the style objects are created once and shared by all cells
+     */
+    @Override
+    public XSSFCellStyle getCellStyleAt(int idx) {
+        if (idx < 0 || idx >= _cellStyles.length) {
+            return null;
+        }
+        XSSFCellStyle style = _cellStyles[idx];
+        if (style == null) {
+            style = _styles.getStyleAt(idx);
+            _cellStyles[idx] = style;
+        }
+        return style;
+    }
+
+    @Override
+    public MissingCellPolicy getMissingCellPolicy() {
+        return _missingCellPolicy;
+    }
+
+    @Override
+    public void setMissingCellPolicy(MissingCellPolicy missingCellPolicy) {
+        _missingCellPolicy = missingCellPolicy;
+    }
+
+    @Override
+    public SpreadsheetVersion getSpreadsheetVersion() {
+        return SpreadsheetVersion.EXCEL2007;
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Not supported by streaming workbooks");
+    }
+
+    @Override
+    public void setActiveSheet(int sheetIndex) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setFirstVisibleTab(int sheetIndex) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setSheetOrder(String sheetname, int pos) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setSelectedTab(int index) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setSheetName(int sheet, String name) {
+        throw unsupported();
+    }
+
+    @Override
+    public Sheet createSheet() {
+        throw unsupported();
+    }
+
+    @Override
+    public Sheet createSheet(String sheetname) {
+        throw unsupported();
+    }
+
+    @Override
+    public Sheet cloneSheet(int sheetNum) {
+        throw unsupported();
+    }
+
+    @Override
+    public void removeSheetAt(int index) {
+        throw unsupported();
+    }
+
+    @Override
+    public Font createFont() {
+        throw unsupported();
+    }
+
+    @Override
+    public Font findFont(boolean bold, short color, short fontHeight, String name, boolean italic, boolean strikeout, short typeOffset, byte underline) {
+        throw unsupported();
+    }
+
+    @Override
+    public CellStyle createCellStyle() {
+        throw unsupported();
+    }
+
+    @Override
+    public void write(OutputStream stream) throws IOException {
+        throw unsupported();
+    }
+
+    @Override
+    public int getNumberOfNames() {
+        throw unsupported();
+    }
+
+    @Override
+    public Name getName(String name) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<? extends Name> getNames(String name) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<? extends Name> getAllNames() {
+        throw unsupported();
+    }
+
+    @Override
+    public Name createName() {
+        throw unsupported();
+    }
+
+    @Override
+    public void removeName(Name name) {
+        throw unsupported();
+    }
+
+    @Override
+    public int linkExternalWorkbook(String name, Workbook workbook) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setPrintArea(int sheetIndex, String reference) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setPrintArea(int sheetIndex, int startColumn, int endColumn, int startRow, int endRow) {
+        throw unsupported();
+    }
+
+    @Override
+    public String getPrintArea(int sheetIndex) {
+        throw unsupported();
+    }
+
+    @Override
+    public void removePrintArea(int sheetIndex) {
+        throw unsupported();
+    }
+
+    @Override
+    public DataFormat createDataFormat() {
+        throw unsupported();
+    }
+
+    @Override
+    public int addPicture(byte[] pictureData, int format) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<? extends PictureData> getAllPictures() {
+        throw unsupported();
+    }
+
+    @Override
+    public CreationHelper getCreationHelper() {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean isHidden() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setHidden(boolean hiddenFlag) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setSheetHidden(int sheetIx, boolean hidden) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setSheetVisibility(int sheetIx, SheetVisibility visibility) {
+        throw unsupported();
+    }
+
+    @Override
+    public void addToolPack(UDFFinder toolpack) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setForceFormulaRecalculation(boolean value) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean getForceFormulaRecalculation() {
+        throw unsupported();
+    }
+
+    @Override
+    public int addOlePackage(byte[] oleData, String label, String fileName, String command) throws IOException {
+        throw unsupported();
+    }
+
+    @Override
+    public EvaluationWorkbook createEvaluationWorkbook() {
+        throw unsupported();
+    }
+
+    @Override
+    public CellReferenceType getCellReferenceType() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setCellReferenceType(CellReferenceType cellReferenceType) {
+        throw unsupported();
+    }
+}
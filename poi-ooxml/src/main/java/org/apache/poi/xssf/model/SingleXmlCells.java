@@ -28,6 +28,7 @@ import java.util.Vector;
 import org.apache.poi.ooxml.POIXMLDocumentPart;
 import org.apache.poi.openxml4j.opc.PackagePart;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.xssf.usermodel.helpers.XSSFSingleXmlCell;
 import org.apache.xmlbeans.XmlException;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTSingleXmlCell;
@@ -71,7 +72,11 @@ public class SingleXmlCells extends POIXMLDocumentPart {
     }
 
     public XSSFSheet getXSSFSheet(){
-        return (XSSFSheet) getParent();
+        XSSFSheet sheet = (XSSFSheet) getParent();
+        // look the sheet up in the workbook, which parses the worksheet part of a lazily loaded sheet
+        XSSFWorkbook wb = sheet.getWorkbook();
+        int sheetIndex = wb.getSheetIndex(sheet);
+        return (sheetIndex < 0) ? sheet : wb.getSheetAt(sheetIndex);
     }
 
     protected void writeTo(OutputStream out) throws IOException {
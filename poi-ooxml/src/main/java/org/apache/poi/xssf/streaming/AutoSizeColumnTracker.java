@@ -21,6 +21,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -31,6 +32,9 @@ import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.GlyphAdvanceCache;
 import org.apache.poi.ss.util.SheetUtil;
 import org.apache.poi.util.Internal;
 
@@ -47,7 +51,8 @@ import org.apache.poi.util.Internal;
 */
 @Internal
 /*package*/ class AutoSizeColumnTracker {
-    private final int defaultCharWidth;
+    private int defaultCharWidth;
+    private GlyphAdvanceCache glyphAdvances;
     private final DataFormatter dataFormatter = new DataFormatter();
 
     // map of tracked columns, with values containing the best-fit width for the column
@@ -113,8 +118,45 @@ import org.apache.poi.util.Internal;
      * @since 3.14beta1
      */
     public AutoSizeColumnTracker(final Sheet sheet) {
+        this(sheet, null);
+    }
+
+    /**
+     * AutoSizeColumnTracker constructor. Holds no reference to <code>sheet</code>
+     *
+     * @param sheet the sheet associated with this auto-size column tracker
+     * @param glyphAdvances the glyph advances to estimate the text widths or {@code null} to measure the text exactly
+     * @since POI 5.2.4
+     */
+    public AutoSizeColumnTracker(final Sheet sheet, final GlyphAdvanceCache glyphAdvances) {
         // If sheet needs to be saved, use a java.lang.ref.WeakReference to avoid garbage collector gridlock.
-        defaultCharWidth = SheetUtil.getDefaultCharWidth(sheet.getWorkbook());
+        this.glyphAdvances = glyphAdvances;
+        defaultCharWidth = getDefaultCharWidth(sheet.getWorkbook(), glyphAdvances);
+    }
+
+    /**
+     * Switches the estimation of the text widths for the rows tracked from now on.
+     * The widths of the rows tracked so far are kept.
+     *
+     * @param sheet the sheet associated with this auto-size column tracker
+     * @param glyphAdvances the glyph advances to estimate the text widths or {@code null} to measure the text exactly
+     * @since POI 5.2.4
+     */
+    public void setGlyphAdvances(final Sheet sheet, final GlyphAdvanceCache glyphAdvances) {
+        defaultCharWidth = getDefaultCharWidth(sheet.getWorkbook(), glyphAdvances);
+        this.glyphAdvances = glyphAdvances;
+    }
+
+    /**
+     * @return the glyph advances used to estimate the text widths or {@code null} if the text is measured exactly
+     * @since POI 5.2.4
+     */
+    public GlyphAdvanceCache getGlyphAdvances() {
+        return glyphAdvances;
+    }
+
+    private static int getDefaultCharWidth(Workbook wb, GlyphAdvanceCache glyphAdvances) {
+        return glyphAdvances == null ? SheetUtil.getDefaultCharWidth(wb) : glyphAdvances.getDefaultCharWidth(wb);
     }
     
     /**
@@ -152,6 +194,13 @@ import org.apache.poi.util.Internal;
         return trackAllColumns;
     }
     
+    /**
+     * @return true if any column is tracked, either explicitly or implicitly
+     */
+    boolean isTrackingColumns() {
+        return trackAllColumns || !maxColumnWidths.isEmpty();
+    }
+
     /**
      * Tracks all non-blank columns
      * Allows columns that have been explicitly untracked to be tracked
@@ -369,8 +418,9 @@ import org.apache.poi.util.Internal;
      * @since 3.14beta1
      */
     private void updateColumnWidth(final Cell cell, final ColumnWidthPair pair) {
-        final double unmergedWidth = SheetUtil.getCellWidth(cell, defaultCharWidth, dataFormatter, false);
-        final double mergedWidth = SheetUtil.getCellWidth(cell, defaultCharWidth, dataFormatter, true);
+        final List<CellRangeAddress> mergedRegions = cell.getSheet().getMergedRegions();
+        final double unmergedWidth = SheetUtil.getCellWidth(cell, defaultCharWidth, dataFormatter, false, mergedRegions, glyphAdvances);
+        final double mergedWidth = SheetUtil.getCellWidth(cell, defaultCharWidth, dataFormatter, true, mergedRegions, glyphAdvances);
         pair.setMaxColumnWidths(unmergedWidth, mergedWidth);
     }
 }
@@ -0,0 +1,304 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.poi.util.Beta;
+
+/**
+ * Serializes flushed rows on a background thread.
+ * <p>
+ * Rows flushed by {@link SXSSFSheet#flushRows(int)} are put in a bounded queue, which is processed
+ * in order by a single writer thread. If the queue is full, the producing thread blocks until the
+ * writer has caught up. Failures of the writer are rethrown on the next flush or when the sheet data
+ * is completed.
+ * </p>
+ * <p>
+ * Flushed rows are still referenced by the queue until they are written, so they must not be modified
+ * after they have been flushed. If row pooling is enabled, the rows are recycled by the writer thread.
+ * </p>
+ *
+ * @see SXSSFWorkbook#setBackgroundFlushQueueSize(int)
+ * @since POI 5.2.4
+ */
+@Beta
+public final class BackgroundRowWriter {
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final int _capacity;
+    private final ArrayDeque<Task> _queue;
+    private final Map<BaseSheetDataWriter, int[]> _pending = new IdentityHashMap<>();
+    private Thread _thread;
+    private Throwable _failure;
+    private boolean _closed;
+
+    private int _maxQueueDepth;
+    private long _rowsWritten;
+    private long _producerWaits;
+    private long _producerWaitNanos;
+    private long _writerIdleNanos;
+
+    BackgroundRowWriter(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        _capacity = capacity;
+        _queue = new ArrayDeque<>(Math.min(capacity, 1024));
+    }
+
+    /**
+     * @return the maximum number of queued rows
+     */
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * @return the number of rows, which are currently waiting to be written
+     */
+    public synchronized int getQueueDepth() {
+        return _queue.size();
+    }
+
+    /**
+     * @return the highest number of rows, which have been waiting at the same time
+     */
+    public synchronized int getMaxQueueDepth() {
+        return _maxQueueDepth;
+    }
+
+    /**
+     * @return the number of rows written by the background thread
+     */
+    public synchronized long getRowsWritten() {
+        return _rowsWritten;
+    }
+
+    /**
+     * @return how often a producer had to wait, because the queue was full
+     */
+    public synchronized long getProducerWaitCount() {
+        return _producerWaits;
+    }
+
+    /**
+     * @return the total time in nanoseconds, which producers have waited for the queue
+     *  or the completion of the sheet data
+     */
+    public synchronized long getProducerWaitTimeNanos() {
+        return _producerWaitNanos;
+    }
+
+    /**
+     * @return the total time in nanoseconds, which the writer thread has waited for rows
+     */
+    public synchronized long getWriterIdleTimeNanos() {
+        return _writerIdleNanos;
+    }
+
+    /**
+     * Queues a row, blocks if the queue is full
+     *
+     * @param pool the pool, which the row is released to after it has been written, or {@code null}
+     */
+    synchronized void submit(BaseSheetDataWriter writer, int rownum, SXSSFRow row, SXSSFRowPool pool) throws IOException {
+        checkState();
+        if (_queue.size() >= _capacity) {
+            _producerWaits++;
+            long start = System.nanoTime();
+            try {
+                while (_queue.size() >= _capacity && _failure == null) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the row writer");
+            } finally {
+                _producerWaitNanos += System.nanoTime() - start;
+            }
+            checkState();
+        }
+        if (_thread == null) {
+            _thread = new Thread(this::run, "poi-sxssf-row-writer-" + THREAD_COUNTER.incrementAndGet());
+            _thread.setDaemon(true);
+            _thread.start();
+        }
+        _queue.add(new Task(writer, rownum, row, pool));
+        _pending.computeIfAbsent(writer, w -> new int[1])[0]++;
+        _maxQueueDepth = Math.max(_maxQueueDepth, _queue.size());
+        notifyAll();
+    }
+
+    /**
+     * Waits until all queued rows of the writer have been written
+     */
+    synchronized void await(BaseSheetDataWriter writer) throws IOException {
+        if (_pending.containsKey(writer)) {
+            long start = System.nanoTime();
+            try {
+                while (_pending.containsKey(writer)) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the row writer");
+            } finally {
+                _producerWaitNanos += System.nanoTime() - start;
+            }
+        }
+        if (_failure != null) {
+            throw new IOException("Writing the flushed rows failed", _failure);
+        }
+    }
+
+    /**
+     * Waits until all queued rows of all writers have been written
+     */
+    synchronized void awaitAll() throws IOException {
+        if (!_queue.isEmpty()) {
+            long start = System.nanoTime();
+            try {
+                while (!_queue.isEmpty()) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the row writer");
+            } finally {
+                _producerWaitNanos += System.nanoTime() - start;
+            }
+        }
+        if (_failure != null) {
+            throw new IOException("Writing the flushed rows failed", _failure);
+        }
+    }
+
+    /**
+     * Writes the remaining rows and stops the writer thread
+     */
+    void close() throws IOException {
+        final Thread thread;
+        synchronized (this) {
+            if (_closed) {
+                return;
+            }
+            _closed = true;
+            thread = _thread;
+            notifyAll();
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the row writer");
+            }
+        }
+        synchronized (this) {
+            if (_failure != null) {
+                throw new IOException("Writing the flushed rows failed", _failure);
+            }
+        }
+    }
+
+    private void checkState() throws IOException {
+        if (_failure != null) {
+            throw new IOException("Writing the flushed rows failed", _failure);
+        }
+        if (_closed) {
+            throw new IOException("The row writer has been closed");
+        }
+    }
+
+    private void run() {
+        for (;;) {
+            final Task task;
+            synchronized (this) {
+                if (_queue.isEmpty() && !_closed) {
+                    long start = System.nanoTime();
+                    try {
+                        while (_queue.isEmpty() && !_closed) {
+                            wait();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        _failure = e;
+                    } finally {
+                        _writerIdleNanos += System.nanoTime() - start;
+                    }
+                }
+                task = _queue.peek();
+                if (task == null) {
+                    return;
+                }
+            }
+
+            Throwable failure = null;
+            if (getFailure() == null) {
+                try {
+                    task.writer.writeRow(task.rownum, task.row);
+                    if (task.pool != null) {
+                        task.pool.release(task.row);
+                    }
+                } catch (Throwable e) {
+                    failure = e;
+                }
+            }
+
+            synchronized (this) {
+                // the row is only dequeued after it has been written, so it stays accounted for in the depth
+                _queue.poll();
+                if (failure != null && _failure == null) {
+                    _failure = failure;
+                }
+                if (failure == null && _failure == null) {
+                    _rowsWritten++;
+                }
+                int[] pending = _pending.get(task.writer);
+                if (--pending[0] == 0) {
+                    _pending.remove(task.writer);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private synchronized Throwable getFailure() {
+        return _failure;
+    }
+
+    private static final class Task {
+        final BaseSheetDataWriter writer;
+        final int rownum;
+        final SXSSFRow row;
+        final SXSSFRowPool pool;
+
+        Task(BaseSheetDataWriter writer, int rownum, SXSSFRow row, SXSSFRowPool pool) {
+            this.writer = writer;
+            this.rownum = rownum;
+            this.row = row;
+            this.pool = pool;
+        }
+    }
+}
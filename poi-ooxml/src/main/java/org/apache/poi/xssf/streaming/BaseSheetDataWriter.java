@@ -0,0 +1,260 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.util.Internal;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+
+/**
+ * Internal POI use only - parent of the writers of the flushed rows of a {@link SXSSFSheet}.
+ * <p>
+ * Keeps track of the flushed rows and the shared strings and passes the rows and cells to the
+ * format specific hooks, i.e. the xml of {@link SheetDataWriter} or the records of the xlsb format.
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+public abstract class BaseSheetDataWriter implements Closeable {
+    private int _numberOfFlushedRows;
+    private int _lowestIndexOfFlushedRows; // meaningful only of _numberOfFlushedRows>0
+    private int _numberOfCellsOfLastFlushedRow; // meaningful only of _numberOfFlushedRows>0
+    private int _numberLastFlushedRow = -1; // meaningful only of _numberOfFlushedRows>0
+
+    /**
+     * Table of strings shared across this workbook.
+     * If two cells contain the same string, then the cell value is the same index into SharedStringsTable
+     */
+    private SharedStringsTable _sharedStringSource;
+
+    /**
+     * @param sharedStringsTable the shared strings table, or null if inline text is used
+     */
+    BaseSheetDataWriter(SharedStringsTable sharedStringsTable) {
+        this._sharedStringSource = sharedStringsTable;
+    }
+
+    /**
+     * flush and close the temp data writer.
+     * This method <em>must</em> be invoked before calling {@link #getWorksheetXMLInputStream()}
+     */
+    @Override
+    public abstract void close() throws IOException;
+
+    /**
+     * @return the file backing the writer or null if no temp file is used
+     */
+    protected abstract File getTempFile();
+
+    /**
+     * @return a stream to read temp file with the sheet data
+     */
+    public InputStream getWorksheetXMLInputStream() throws IOException {
+        File fd = getTempFile();
+        if (fd == null) {
+            throw new IOException("getWorksheetXMLInputStream only works when a temp file is used");
+        }
+        FileInputStream fis = new FileInputStream(fd);
+        try {
+            return decorateInputStream(fis);
+        } catch (IOException e) {
+            fis.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Override this to translate (such as decrypt or expand) the file input stream
+     * as it is being read from disk.
+     * The default behavior is to to pass the stream through unmodified.
+     *
+     * @param fis  the stream to decorate
+     * @return a decorated stream
+     * @throws IOException if decorating the stream fails
+     */
+    protected InputStream decorateInputStream(FileInputStream fis) throws IOException {
+        return fis;
+    }
+
+    /**
+     * @return the shared strings table, or null if inline text is used
+     */
+    SharedStringsTable getSharedStringSource() {
+        return _sharedStringSource;
+    }
+
+    /**
+     * @param sharedStringsTable the shared strings table, or null if inline text is used
+     */
+    void setSharedStringSource(SharedStringsTable sharedStringsTable) {
+        this._sharedStringSource = sharedStringsTable;
+    }
+
+    /**
+     * Adds the text of a string cell to the shared strings table
+     *
+     * @return the index of the string
+     */
+    int addSharedString(Cell cell) {
+        if (_sharedStringSource instanceof StreamingSharedStringsTable
+                && cell instanceof SXSSFCell && !((SXSSFCell)cell).isRichTextValue()) {
+            // avoid creating the rich text for plain strings
+            return ((StreamingSharedStringsTable)_sharedStringSource).addSharedString(cell.getStringCellValue());
+        }
+        return _sharedStringSource.addSharedStringItem(cell.getRichStringCellValue());
+    }
+
+    /**
+     * Adds a plain string to the shared strings table
+     *
+     * @return the index of the string
+     */
+    int addSharedString(String value) {
+        if (_sharedStringSource instanceof StreamingSharedStringsTable) {
+            return ((StreamingSharedStringsTable)_sharedStringSource).addSharedString(value);
+        }
+        return _sharedStringSource.addSharedStringItem(new XSSFRichTextString(value));
+    }
+
+    public int getNumberOfFlushedRows() {
+        return _numberOfFlushedRows;
+    }
+
+    public int getNumberOfCellsOfLastFlushedRow() {
+        return _numberOfCellsOfLastFlushedRow;
+    }
+
+    public int getLowestIndexOfFlushedRows() {
+        return _lowestIndexOfFlushedRows;
+    }
+
+    public int getLastFlushedRow() {
+        return _numberLastFlushedRow;
+    }
+
+    /**
+     * Write a row to the file
+     *
+     * @param rownum 0-based row number
+     * @param row    a row
+     *
+     * @throws IOException If an I/O error occurs
+     */
+    public void writeRow(int rownum, SXSSFRow row) throws IOException {
+        trackFlushedRow(rownum, row.getLastCellNum());
+        beginRow(rownum, row);
+        Iterator<Cell> cells = row.allCellsIterator();
+        int columnIndex = 0;
+        while (cells.hasNext()) {
+            writeCell(columnIndex++, cells.next());
+        }
+        endRow();
+    }
+
+    /**
+     * Write the rows of a column batch to the file
+     *
+     * @param firstRowNum 0-based row number of the first row of the batch
+     * @param batch the rows
+     *
+     * @throws IOException If an I/O error occurs
+     */
+    void writeRows(int firstRowNum, ColumnBatch batch) throws IOException {
+        List<ColumnBatch.Column> columns = batch.getColumns();
+        for (int i = 0, rowCount = batch.getRowCount(); i < rowCount; i++) {
+            int rownum = firstRowNum + i;
+            trackFlushedRow(rownum, batch.getLastCellNum(i));
+            beginRow(rownum);
+            for (ColumnBatch.Column column : columns) {
+                if (column.hasValue(i)) {
+                    column.write(this, i);
+                }
+            }
+            endRow();
+        }
+    }
+
+    private void trackFlushedRow(int rownum, int lastCellNum) {
+        if (_numberOfFlushedRows == 0)
+            _lowestIndexOfFlushedRows = rownum;
+        _numberLastFlushedRow = Math.max(rownum, _numberLastFlushedRow);
+        _numberOfCellsOfLastFlushedRow = lastCellNum;
+        _numberOfFlushedRows++;
+    }
+
+    /**
+     * Starts a row with the attributes of the given row
+     */
+    abstract void beginRow(int rownum, SXSSFRow row) throws IOException;
+
+    /**
+     * Starts a row without attributes
+     */
+    abstract void beginRow(int rownum) throws IOException;
+
+    abstract void endRow() throws IOException;
+
+    /**
+     * Writes a cell of the current row
+     *
+     * @param columnIndex the 0-based column index of the cell
+     * @param cell the cell, nothing is written if it's {@code null}
+     * @throws IOException If an I/O error occurs
+     */
+    public abstract void writeCell(int columnIndex, Cell cell) throws IOException;
+
+    /**
+     * Writes a numeric cell of the current row
+     */
+    abstract void writeNumericCell(int columnIndex, double value, int styleIndex) throws IOException;
+
+    /**
+     * Writes a numeric cell of the current row
+     */
+    void writeNumericCell(int columnIndex, long value, int styleIndex) throws IOException {
+        writeNumericCell(columnIndex, (double)value, styleIndex);
+    }
+
+    /**
+     * Writes an error cell of the current row
+     */
+    abstract void writeErrorCell(int columnIndex, FormulaError error, int styleIndex) throws IOException;
+
+    /**
+     * Writes a text cell of the current row, either as shared or inline string
+     */
+    abstract void writeStringCell(int columnIndex, String value, int styleIndex) throws IOException;
+
+    abstract void flush() throws IOException;
+
+    /**
+     * Deletes the temporary file that backed this sheet on disk.
+     * @return true if the file was deleted, false if it wasn't.
+     */
+    abstract boolean dispose() throws IOException;
+}
@@ -0,0 +1,258 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.util.Beta;
+
+/**
+ * A batch of rows, which is held as primitive column arrays, e.g. taken from a database result set.
+ * <p>
+ * The batch is appended to a sheet with {@link SXSSFSheet#appendRows(int, ColumnBatch)}, which serializes
+ * the values without creating {@link SXSSFRow} or {@link SXSSFCell} objects.
+ * The arrays are not copied, so they must not be modified until the batch has been appended.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class ColumnBatch {
+    private static final int MAX_COLUMN_INDEX = SpreadsheetVersion.EXCEL2007.getLastColumnIndex();
+
+    private final int rowCount;
+    private final List<Column> columns = new ArrayList<>();
+    private boolean sorted = true;
+
+    /**
+     * @param rowCount the number of rows in this batch, the column arrays need to have at least this length
+     */
+    public ColumnBatch(int rowCount) {
+        if (rowCount < 0) {
+            throw new IllegalArgumentException("rowCount must not be negative");
+        }
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * @return the number of rows in this batch
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the number of columns in this batch
+     */
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    /**
+     * Adds a numeric column - {@link Double#NaN} values are treated as missing and don't produce a cell,
+     * infinite values are written as {@link FormulaError#DIV0} error cells like {@link SXSSFCell#setCellValue(double)} does
+     *
+     * @param columnIndex the 0-based column index in the sheet
+     * @param values the values of the rows
+     * @param styleIndex the index of the cell style, 0 for the default style
+     * @return this batch
+     */
+    public ColumnBatch addNumericColumn(int columnIndex, double[] values, int styleIndex) {
+        checkColumn(columnIndex, values.length, styleIndex);
+        return add(new DoubleColumn(columnIndex, styleIndex, values));
+    }
+
+    /**
+     * Adds a numeric column of integral values.
+     * Please note that Excel stores numbers as doubles, so values beyond &plusmn;2<sup>53</sup> lose precision.
+     *
+     * @param columnIndex the 0-based column index in the sheet
+     * @param values the values of the rows
+     * @param styleIndex the index of the cell style, 0 for the default style
+     * @return this batch
+     */
+    public ColumnBatch addNumericColumn(int columnIndex, long[] values, int styleIndex) {
+        checkColumn(columnIndex, values.length, styleIndex);
+        return add(new LongColumn(columnIndex, styleIndex, values));
+    }
+
+    /**
+     * Adds a text column - {@code null} values are treated as missing and don't produce a cell
+     *
+     * @param columnIndex the 0-based column index in the sheet
+     * @param values the values of the rows
+     * @param styleIndex the index of the cell style, 0 for the default style
+     * @return this batch
+     */
+    public ColumnBatch addStringColumn(int columnIndex, String[] values, int styleIndex) {
+        checkColumn(columnIndex, values.length, styleIndex);
+        return add(new StringColumn(columnIndex, styleIndex, values));
+    }
+
+    private void checkColumn(int columnIndex, int length, int styleIndex) {
+        if (columnIndex < 0 || columnIndex > MAX_COLUMN_INDEX) {
+            throw new IllegalArgumentException("Invalid column index (" + columnIndex
+                    + ").  Allowable column range is (0.." + MAX_COLUMN_INDEX + ")");
+        }
+        if (length < rowCount) {
+            throw new IllegalArgumentException("Column " + columnIndex + " has only " + length
+                    + " values, but the batch has " + rowCount + " rows");
+        }
+        if (styleIndex < 0 || styleIndex > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid style index: " + styleIndex);
+        }
+        for (Column c : columns) {
+            if (c.columnIndex == columnIndex) {
+                throw new IllegalArgumentException("Column " + columnIndex + " has already been added");
+            }
+        }
+    }
+
+    private ColumnBatch add(Column column) {
+        if (!columns.isEmpty() && columns.get(columns.size() - 1).columnIndex > column.columnIndex) {
+            sorted = false;
+        }
+        columns.add(column);
+        return this;
+    }
+
+    /**
+     * @return the columns in ascending column index order
+     */
+    List<Column> getColumns() {
+        if (!sorted) {
+            columns.sort(Comparator.comparingInt(c -> c.columnIndex));
+            sorted = true;
+        }
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * @return the last cell number (last column index + 1) of the given row or -1 if the row is empty
+     */
+    int getLastCellNum(int row) {
+        List<Column> cols = getColumns();
+        for (int i = cols.size() - 1; i >= 0; i--) {
+            Column c = cols.get(i);
+            if (c.hasValue(row)) {
+                return c.columnIndex + 1;
+            }
+        }
+        return -1;
+    }
+
+    abstract static class Column {
+        final int columnIndex;
+        final int styleIndex;
+
+        Column(int columnIndex, int styleIndex) {
+            this.columnIndex = columnIndex;
+            this.styleIndex = styleIndex;
+        }
+
+        abstract boolean hasValue(int row);
+
+        abstract void write(BaseSheetDataWriter writer, int row) throws IOException;
+
+        abstract void setCellValue(SXSSFCell cell, int row);
+    }
+
+    private static final class DoubleColumn extends Column {
+        private final double[] values;
+
+        DoubleColumn(int columnIndex, int styleIndex, double[] values) {
+            super(columnIndex, styleIndex);
+            this.values = values;
+        }
+
+        @Override
+        boolean hasValue(int row) {
+            return !Double.isNaN(values[row]);
+        }
+
+        @Override
+        void write(BaseSheetDataWriter writer, int row) throws IOException {
+            double value = values[row];
+            if (Double.isInfinite(value)) {
+                // like SXSSFCell.setCellValue(double), as Excel can't read infinite values
+                writer.writeErrorCell(columnIndex, FormulaError.DIV0, styleIndex);
+            } else {
+                writer.writeNumericCell(columnIndex, value, styleIndex);
+            }
+        }
+
+        @Override
+        void setCellValue(SXSSFCell cell, int row) {
+            cell.setCellValue(values[row]);
+        }
+    }
+
+    private static final class LongColumn extends Column {
+        private final long[] values;
+
+        LongColumn(int columnIndex, int styleIndex, long[] values) {
+            super(columnIndex, styleIndex);
+            this.values = values;
+        }
+
+        @Override
+        boolean hasValue(int row) {
+            return true;
+        }
+
+        @Override
+        void write(BaseSheetDataWriter writer, int row) throws IOException {
+            writer.writeNumericCell(columnIndex, values[row], styleIndex);
+        }
+
+        @Override
+        void setCellValue(SXSSFCell cell, int row) {
+            cell.setCellValue((double)values[row]);
+        }
+    }
+
+    private static final class StringColumn extends Column {
+        private final String[] values;
+
+        StringColumn(int columnIndex, int styleIndex, String[] values) {
+            super(columnIndex, styleIndex);
+            this.values = values;
+        }
+
+        @Override
+        boolean hasValue(int row) {
+            return values[row] != null;
+        }
+
+        @Override
+        void write(BaseSheetDataWriter writer, int row) throws IOException {
+            writer.writeStringCell(columnIndex, values[row], styleIndex);
+        }
+
+        @Override
+        void setCellValue(SXSSFCell cell, int row) {
+            cell.setCellValue(values[row]);
+        }
+    }
+}
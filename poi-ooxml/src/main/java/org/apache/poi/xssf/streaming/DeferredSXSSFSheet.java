@@ -73,6 +73,7 @@ public class DeferredSXSSFSheet extends SXSSFSheet {
         } finally {
             // flush buffered rows
             flushRows(0);
+            awaitFlushedRows();
             // flush writer buffer
             _writer.close();
             out.flush();
@@ -0,0 +1,176 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.ss.formula.FormulaParseException;
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.ptg.AreaPtgBase;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Pxg;
+import org.apache.poi.ss.formula.ptg.Pxg3D;
+import org.apache.poi.ss.formula.ptg.RefPtgBase;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+
+/**
+ * Keeps the values of flushed cells, which are referenced by the formulas of a workbook.
+ * <p>
+ * Each formula is parsed when it is set and its cell and area references are turned into
+ * retention rules of the referenced sheet. When rows are flushed, the values covered by the rules
+ * are copied to the {@link RetainedCellValues} of the sheet, so formulas can still be evaluated
+ * after the referenced rows have left the random access window.
+ * </p>
+ * <p>
+ * As the rules are derived from the formulas seen so far, the rows referenced by the first formula
+ * of a kind have to be in the window when it is set. References via defined names and to other
+ * workbooks are not tracked.
+ * </p>
+ *
+ * @see SXSSFFormulaEvaluator#setRetainReferencedCells(boolean)
+ */
+final class FormulaDependencyTracker {
+    private static final Logger LOG = LogManager.getLogger(FormulaDependencyTracker.class);
+
+    private final SXSSFWorkbook _workbook;
+    private final SXSSFEvaluationWorkbook _evaluationWorkbook;
+    private final Map<SXSSFSheet, RetainedCellValues> _retained = new IdentityHashMap<>();
+
+    FormulaDependencyTracker(SXSSFWorkbook workbook) {
+        _workbook = workbook;
+        _evaluationWorkbook = SXSSFEvaluationWorkbook.create(workbook);
+    }
+
+    /**
+     * Parses the formulas, which are already in the random access windows
+     */
+    void scanWindows() {
+        for (Sheet sheet : _workbook) {
+            for (Row row : sheet) {
+                for (Cell cell : row) {
+                    if (cell.getCellType() == CellType.FORMULA) {
+                        formulaSet((SXSSFCell) cell, cell.getCellFormula());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the references of a formula to the retention rules
+     */
+    void formulaSet(SXSSFCell cell, String formula) {
+        SXSSFSheet sheet = cell.getSheet();
+        int rowIndex = cell.getRowIndex();
+        Ptg[] ptgs;
+        try {
+            ptgs = FormulaParser.parse(formula, _evaluationWorkbook, FormulaType.CELL,
+                    _workbook.getSheetIndex(sheet), rowIndex);
+        } catch (FormulaParseException e) {
+            LOG.atWarn().withThrowable(e).log("Failed to parse the formula '{}', its references are not retained", formula);
+            return;
+        }
+
+        for (Ptg ptg : ptgs) {
+            if (ptg instanceof RefPtgBase) {
+                RefPtgBase ref = (RefPtgBase) ptg;
+                for (RetainedCellValues values : getReferencedSheets(sheet, ptg)) {
+                    values.addReference(rowIndex, ref.getRow(), ref.isRowRelative(),
+                            ref.getRow(), ref.isRowRelative(), ref.getColumn(), ref.getColumn());
+                }
+            } else if (ptg instanceof AreaPtgBase) {
+                AreaPtgBase area = (AreaPtgBase) ptg;
+                for (RetainedCellValues values : getReferencedSheets(sheet, ptg)) {
+                    values.addReference(rowIndex, area.getFirstRow(), area.isFirstRowRelative(),
+                            area.getLastRow(), area.isLastRowRelative(),
+                            Math.min(area.getFirstColumn(), area.getLastColumn()),
+                            Math.max(area.getFirstColumn(), area.getLastColumn()));
+                }
+            }
+        }
+    }
+
+    private RetainedCellValues[] getReferencedSheets(SXSSFSheet sheet, Ptg ptg) {
+        if (!(ptg instanceof Pxg)) {
+            return new RetainedCellValues[]{getOrCreate(sheet)};
+        }
+        Pxg pxg = (Pxg) ptg;
+        if (pxg.getExternalWorkbookNumber() > 0) {
+            return new RetainedCellValues[0];
+        }
+        int first = _workbook.getSheetIndex(pxg.getSheetName());
+        int last = first;
+        if (pxg instanceof Pxg3D && ((Pxg3D) pxg).getLastSheetName() != null) {
+            last = _workbook.getSheetIndex(((Pxg3D) pxg).getLastSheetName());
+        }
+        if (first < 0 || last < 0) {
+            return new RetainedCellValues[0];
+        }
+        RetainedCellValues[] values = new RetainedCellValues[Math.abs(last - first) + 1];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getOrCreate(_workbook.getSheetAt(Math.min(first, last) + i));
+        }
+        return values;
+    }
+
+    private RetainedCellValues getOrCreate(SXSSFSheet sheet) {
+        return _retained.computeIfAbsent(sheet, s -> {
+            RetainedCellValues values = new RetainedCellValues();
+            values.rowsFlushed(s.getLastFlushedRowNum());
+            return values;
+        });
+    }
+
+    /**
+     * Copies the referenced values of a row, which is going to be flushed
+     */
+    void retain(SXSSFSheet sheet, int rownum, SXSSFRow row) {
+        RetainedCellValues values = _retained.get(sheet);
+        if (values != null) {
+            values.retain(rownum, row);
+        }
+    }
+
+    /**
+     * Evicts the values, which can't be referenced anymore
+     */
+    void rowsFlushed(SXSSFSheet sheet, int lastFlushedRow) {
+        RetainedCellValues values = _retained.get(sheet);
+        if (values != null) {
+            values.rowsFlushed(lastFlushedRow);
+        }
+    }
+
+    /**
+     * @return the retained values of the sheet or {@code null}, if no formula references the sheet
+     */
+    RetainedCellValues getRetainedCells(SXSSFSheet sheet) {
+        return _retained.get(sheet);
+    }
+
+    void removeSheet(SXSSFSheet sheet) {
+        _retained.remove(sheet);
+    }
+}
@@ -17,9 +17,11 @@
 
 package org.apache.poi.xssf.streaming;
 
+import org.apache.poi.util.IOUtils;
 import org.apache.poi.xssf.streaming.Zip64Impl.Entry;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
@@ -94,6 +96,35 @@ class OpcOutputStream extends DeflaterOutputStream {
     }
 
 
+    /**
+     * Adds an entry whose data has already been deflated
+     *
+     * @param name the entry name
+     * @param crc the CRC-32 of the uncompressed data
+     * @param size the size of the uncompressed data
+     * @param rawStream the raw deflate stream (without zlib header)
+     *
+     * @see org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream#addRawArchiveEntry
+     */
+    public void putRawEntry(String name, long crc, long size, InputStream rawStream) throws IOException {
+        if (current != null) {
+            closeEntry();
+        }
+        Entry entry = new Entry(name);
+        entry.offset = written;
+        written += spec.writeLFH(entry);
+        entries.add(entry);
+
+        long compressedSize = IOUtils.copy(rawStream, out);
+
+        entry.size = size;
+        entry.compressedSize = Math.toIntExact(compressedSize);
+        entry.crc = crc;
+
+        written += entry.compressedSize;
+        written += spec.writeDAT(entry);
+    }
+
     /**
      * @see ZipOutputStream#finish()
      */
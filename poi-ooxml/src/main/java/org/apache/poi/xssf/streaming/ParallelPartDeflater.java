@@ -0,0 +1,222 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.TempFile;
+
+/**
+ * Compresses the parts of a SXSSF workbook on worker threads, each into its own raw deflate
+ * stream, and stitches the pre-compressed entries into the target archive in submission order.
+ *
+ * Large parts (worksheets) are deflated into temporary files, all other parts are kept in memory.
+ */
+final class ParallelPartDeflater implements Closeable {
+    private static final Logger LOG = LogManager.getLogger(ParallelPartDeflater.class);
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    /**
+     * Writes the uncompressed content of a part
+     */
+    interface PartWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private final ExecutorService executor;
+    private final List<Future<DeflatedPart>> parts = new ArrayList<>();
+
+    ParallelPartDeflater(int threads) {
+        executor = Executors.newFixedThreadPool(threads, new DeflaterThreadFactory());
+    }
+
+    /**
+     * Schedules the compression of a part
+     *
+     * @param name the zip entry name
+     * @param time the modification time of the entry or -1 if unknown
+     * @param useTempFile {@code true}, if the compressed data should be buffered in a temp file
+     * @param writer the provider of the uncompressed data
+     */
+    void submit(String name, long time, boolean useTempFile, PartWriter writer) {
+        parts.add(executor.submit(() -> deflate(name, time, useTempFile, writer)));
+    }
+
+    /**
+     * Waits for the scheduled parts and adds them in submission order to the archive
+     */
+    void writeTo(ZipArchiveOutputStream zos) throws IOException {
+        for (Future<DeflatedPart> future : parts) {
+            try (DeflatedPart part = await(future)) {
+                ZipArchiveEntry zeOut = new ZipArchiveEntry(part.name);
+                zeOut.setMethod(ZipEntry.DEFLATED);
+                zeOut.setCrc(part.crc);
+                zeOut.setSize(part.size);
+                zeOut.setCompressedSize(part.compressedSize);
+                if (part.time >= 0) zeOut.setTime(part.time);
+                try (InputStream raw = part.getRawInputStream()) {
+                    zos.addRawArchiveEntry(zeOut, raw);
+                }
+            }
+        }
+        parts.clear();
+    }
+
+    /**
+     * Stops the workers and removes the buffers of parts which haven't been written
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.atWarn().log("Timed out waiting for the deflater threads to terminate");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Future<DeflatedPart> future : parts) {
+            if (future.isDone() && !future.isCancelled()) {
+                try {
+                    IOUtils.closeQuietly(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    // the failure has already been reported by writeTo
+                }
+            }
+        }
+        parts.clear();
+    }
+
+    private static DeflatedPart await(Future<DeflatedPart> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the compression of a workbook part");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static DeflatedPart deflate(String name, long time, boolean useTempFile, PartWriter writer) throws IOException {
+        DeflatedPart part = new DeflatedPart(name, time, useTempFile);
+        Deflater def = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        CRC32 crc = new CRC32();
+        try {
+            try (CheckedOutputStream cos = new CheckedOutputStream(
+                    new DeflaterOutputStream(part.getRawOutputStream(), def, 64*1024), crc)) {
+                writer.write(cos);
+            }
+            part.crc = crc.getValue();
+            part.size = def.getBytesRead();
+            part.compressedSize = def.getBytesWritten();
+            return part;
+        } catch (IOException|RuntimeException|Error e) {
+            part.close();
+            throw e;
+        } finally {
+            def.end();
+        }
+    }
+
+    private static final class DeflatedPart implements Closeable {
+        private final String name;
+        private final long time;
+        private long crc;
+        private long size;
+        private long compressedSize;
+        private UnsynchronizedByteArrayOutputStream memory;
+        private File tempFile;
+
+        DeflatedPart(String name, long time, boolean useTempFile) throws IOException {
+            this.name = name;
+            this.time = time;
+            if (useTempFile) {
+                tempFile = TempFile.createTempFile("poi-sxssf-part", ".deflate");
+            } else {
+                memory = new UnsynchronizedByteArrayOutputStream();
+            }
+        }
+
+        OutputStream getRawOutputStream() throws IOException {
+            return (tempFile != null) ? new BufferedOutputStream(new FileOutputStream(tempFile)) : memory;
+        }
+
+        InputStream getRawInputStream() throws IOException {
+            return (tempFile != null) ? new FileInputStream(tempFile) : memory.toInputStream();
+        }
+
+        @Override
+        public void close() {
+            memory = null;
+            if (tempFile != null && tempFile.exists() && !tempFile.delete()) {
+                LOG.atWarn().log("Could not delete temporary file after processing: {}", tempFile);
+            }
+        }
+    }
+
+    private static final class DeflaterThreadFactory implements ThreadFactory {
+        private final String prefix = "poi-sxssf-deflater-" + POOL_NUMBER.incrementAndGet() + "-";
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, prefix + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
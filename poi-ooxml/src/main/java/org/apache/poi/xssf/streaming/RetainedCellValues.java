@@ -0,0 +1,421 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.EvaluationSheet;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * Values of flushed cells of a sheet, which are still referenced by formulas.
+ * <p>
+ * The cells to keep are described by two kinds of rules, which are derived from the formula references:
+ * <ul>
+ *   <li>relative rules keep the cells of a column for a number of rows behind the last flushed row,
+ *   e.g. {@code B10+A11} in row 11 keeps one row of column B</li>
+ *   <li>pinned rules keep all cells of an area, e.g. {@code $A$1} or {@code SUM($A$1:A10)},
+ *   which keeps column A from row 1 onwards</li>
+ * </ul>
+ * Rules only apply to rows flushed after the rule has been added, so a flushed cell is only
+ * {@link #isCovered(int, int) covered}, if it was retained or if it was empty.
+ * </p>
+ * <p>
+ * The values are kept in primitive arrays of an open addressing hash table keyed by row and column.
+ * Cells kept by relative rules are evicted in flush order.
+ * </p>
+ */
+final class RetainedCellValues {
+    private static final int MAX_ROW = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+    private static final int COLUMN_BITS = 14;
+    private static final long EMPTY = -1;
+    private static final CellType[] TYPES = CellType.values();
+
+    // relative rules per column
+    private int[] _rowsBack = new int[0];
+    private int[] _relativeSince = new int[0];
+    // pinned areas: first row, last row, first column, last column, first flushed row
+    private final List<int[]> _pinned = new ArrayList<>();
+
+    // hash table
+    private long[] _keys;
+    private byte[] _types;
+    private double[] _numbers;
+    private String[] _strings;
+    private int _size;
+
+    // keys of cells kept by relative rules in flush order
+    private long[] _evictionQueue = new long[64];
+    private int _queueHead;
+    private int _queueTail;
+
+    private int _lastFlushedRow = -1;
+
+    RetainedCellValues() {
+        allocate(64);
+    }
+
+    /**
+     * Adds the rule for a reference of a formula
+     *
+     * @param formulaRow the row of the formula
+     */
+    void addReference(int formulaRow, int firstRow, boolean firstRowRelative, int lastRow, boolean lastRowRelative,
+                      int firstColumn, int lastColumn) {
+        int since = _lastFlushedRow + 1;
+        if (firstRow == 0 && lastRow == MAX_ROW) {
+            // whole column reference
+            addPinned(0, MAX_ROW, firstColumn, lastColumn, since);
+        } else if (firstRowRelative && lastRowRelative) {
+            int back = formulaRow - firstRow;
+            if (back > 0) {
+                for (int col = firstColumn; col <= lastColumn; col++) {
+                    addRelative(col, back, since);
+                }
+            }
+        } else if (lastRowRelative) {
+            // growing range like $A$1:A10 - the rows from the anchor are needed by the following formulas
+            addPinned(firstRow, MAX_ROW, firstColumn, lastColumn, since);
+        } else {
+            addPinned(Math.min(firstRow, lastRow), Math.max(firstRow, lastRow), firstColumn, lastColumn, since);
+        }
+    }
+
+    private void addRelative(int col, int back, int since) {
+        if (col >= _rowsBack.length) {
+            int length = Math.max(col + 1, _rowsBack.length * 2);
+            _rowsBack = Arrays.copyOf(_rowsBack, length);
+            _relativeSince = Arrays.copyOf(_relativeSince, length);
+        }
+        int oldBack = _rowsBack[col];
+        if (oldBack == 0) {
+            _rowsBack[col] = back;
+            _relativeSince[col] = since;
+        } else if (back > oldBack) {
+            // rows behind the previous distance have already been evicted
+            _rowsBack[col] = back;
+            _relativeSince[col] = Math.max(_relativeSince[col], since - oldBack);
+        }
+    }
+
+    private void addPinned(int firstRow, int lastRow, int firstColumn, int lastColumn, int since) {
+        for (int[] area : _pinned) {
+            if (area[0] <= firstRow && area[1] >= lastRow && area[2] <= firstColumn && area[3] >= lastColumn) {
+                // already covered by an existing area
+                return;
+            }
+        }
+        _pinned.add(new int[]{firstRow, lastRow, firstColumn, lastColumn, since});
+    }
+
+    /**
+     * Keeps the values of the cells of a row, which is going to be flushed
+     */
+    void retain(int rownum, SXSSFRow row) {
+        Iterator<Cell> cells = row.allCellsIterator();
+        for (int col = 0; cells.hasNext(); col++) {
+            Cell cell = cells.next();
+            if (cell == null) {
+                continue;
+            }
+            boolean pinned = isPinned(rownum, col);
+            if (!pinned && !isRelative(col)) {
+                continue;
+            }
+            CellType type = cell.getCellType();
+            if (type == CellType.FORMULA) {
+                type = cell.getCachedFormulaResultType();
+            }
+            switch (type) {
+                case NUMERIC:
+                    put(rownum, col, type, cell.getNumericCellValue(), null, pinned);
+                    break;
+                case STRING:
+                    put(rownum, col, type, 0, cell.getRichStringCellValue().getString(), pinned);
+                    break;
+                case BOOLEAN:
+                    put(rownum, col, type, cell.getBooleanCellValue() ? 1 : 0, null, pinned);
+                    break;
+                case ERROR:
+                    put(rownum, col, type, cell.getErrorCellValue(), null, pinned);
+                    break;
+                default:
+                    // blank cells are covered without being stored
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Evicts the cells, which aren't referenced by relative rules anymore
+     */
+    void rowsFlushed(int lastFlushedRow) {
+        _lastFlushedRow = lastFlushedRow;
+        while (_queueHead != _queueTail) {
+            long key = _evictionQueue[_queueHead];
+            int row = (int) (key >>> COLUMN_BITS);
+            int col = (int) (key & ((1 << COLUMN_BITS) - 1));
+            if (row > _lastFlushedRow - _rowsBack[col]) {
+                break;
+            }
+            remove(key);
+            _queueHead = (_queueHead + 1) & (_evictionQueue.length - 1);
+        }
+    }
+
+    /**
+     * @return true, if the value of the flushed cell is known, i.e. it has been retained or it was empty
+     */
+    boolean isCovered(int row, int col) {
+        if (indexOf(key(row, col)) >= 0 || isPinned(row, col)) {
+            return true;
+        }
+        return isRelative(col) && row >= _relativeSince[col] && row > _lastFlushedRow - _rowsBack[col];
+    }
+
+    /**
+     * @return the retained cell or {@code null}, if the cell was empty
+     */
+    EvaluationCell getCell(int row, int col, EvaluationSheet sheet) {
+        int idx = indexOf(key(row, col));
+        if (idx < 0) {
+            return null;
+        }
+        return new RetainedCell(sheet, row, col, TYPES[_types[idx]], _numbers[idx], _strings[idx]);
+    }
+
+    /**
+     * @return the number of retained cells
+     */
+    int size() {
+        return _size;
+    }
+
+    private boolean isRelative(int col) {
+        return col < _rowsBack.length && _rowsBack[col] > 0;
+    }
+
+    private boolean isPinned(int row, int col) {
+        for (int[] area : _pinned) {
+            if (area[0] <= row && row <= area[1] && area[2] <= col && col <= area[3] && row >= area[4]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << COLUMN_BITS) | col;
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private void put(int row, int col, CellType type, double number, String string, boolean pinned) {
+        long key = key(row, col);
+        if ((_size + 1) * 2 > _keys.length) {
+            rehash(_keys.length * 2);
+        }
+        int mask = _keys.length - 1;
+        int idx = hash(key) & mask;
+        while (_keys[idx] != EMPTY && _keys[idx] != key) {
+            idx = (idx + 1) & mask;
+        }
+        if (_keys[idx] == EMPTY) {
+            _size++;
+            if (!pinned) {
+                enqueue(key);
+            }
+        }
+        _keys[idx] = key;
+        _types[idx] = (byte) type.ordinal();
+        _numbers[idx] = number;
+        _strings[idx] = string;
+    }
+
+    private int indexOf(long key) {
+        int mask = _keys.length - 1;
+        int idx = hash(key) & mask;
+        while (_keys[idx] != EMPTY) {
+            if (_keys[idx] == key) {
+                return idx;
+            }
+            idx = (idx + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void remove(long key) {
+        int idx = indexOf(key);
+        if (idx < 0) {
+            return;
+        }
+        // backward shift deletion keeps the probe sequences intact without tombstones
+        int mask = _keys.length - 1;
+        int hole = idx;
+        for (int next = (hole + 1) & mask; _keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = hash(_keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                _keys[hole] = _keys[next];
+                _types[hole] = _types[next];
+                _numbers[hole] = _numbers[next];
+                _strings[hole] = _strings[next];
+                hole = next;
+            }
+        }
+        _keys[hole] = EMPTY;
+        _strings[hole] = null;
+        _size--;
+    }
+
+    private void enqueue(long key) {
+        int capacity = _evictionQueue.length;
+        _evictionQueue[_queueTail] = key;
+        _queueTail = (_queueTail + 1) & (capacity - 1);
+        if (_queueTail == _queueHead) {
+            long[] queue = new long[capacity * 2];
+            int headPart = capacity - _queueHead;
+            System.arraycopy(_evictionQueue, _queueHead, queue, 0, headPart);
+            System.arraycopy(_evictionQueue, 0, queue, headPart, _queueHead);
+            _evictionQueue = queue;
+            _queueHead = 0;
+            _queueTail = capacity;
+        }
+    }
+
+    private void allocate(int capacity) {
+        _keys = new long[capacity];
+        Arrays.fill(_keys, EMPTY);
+        _types = new byte[capacity];
+        _numbers = new double[capacity];
+        _strings = new String[capacity];
+    }
+
+    private void rehash(int capacity) {
+        long[] keys = _keys;
+        byte[] types = _types;
+        double[] numbers = _numbers;
+        String[] strings = _strings;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                int idx = hash(keys[i]) & mask;
+                while (_keys[idx] != EMPTY) {
+                    idx = (idx + 1) & mask;
+                }
+                _keys[idx] = keys[i];
+                _types[idx] = types[i];
+                _numbers[idx] = numbers[i];
+                _strings[idx] = strings[i];
+            }
+        }
+    }
+
+    /**
+     * A retained value, formula cells are represented by their cached result
+     */
+    private static final class RetainedCell implements EvaluationCell {
+        private final EvaluationSheet _sheet;
+        private final int _row;
+        private final int _col;
+        private final CellType _type;
+        private final double _number;
+        private final String _string;
+
+        RetainedCell(EvaluationSheet sheet, int row, int col, CellType type, double number, String string) {
+            _sheet = sheet;
+            _row = row;
+            _col = col;
+            _type = type;
+            _number = number;
+            _string = string;
+        }
+
+        @Override
+        public Object getIdentityKey() {
+            return this;
+        }
+
+        @Override
+        public EvaluationSheet getSheet() {
+            return _sheet;
+        }
+
+        @Override
+        public int getRowIndex() {
+            return _row;
+        }
+
+        @Override
+        public int getColumnIndex() {
+            return _col;
+        }
+
+        @Override
+        public CellType getCellType() {
+            return _type;
+        }
+
+        @Override
+        public double getNumericCellValue() {
+            return _number;
+        }
+
+        @Override
+        public String getStringCellValue() {
+            return _string;
+        }
+
+        @Override
+        public boolean getBooleanCellValue() {
+            return _number != 0;
+        }
+
+        @Override
+        public int getErrorCellValue() {
+            return (int) _number;
+        }
+
+        @Override
+        public CellRangeAddress getArrayFormulaRange() {
+            return null;
+        }
+
+        @Override
+        public boolean isPartOfArrayFormulaGroup() {
+            return false;
+        }
+
+        @Override
+        public CellType getCachedFormulaResultType() {
+            return _type;
+        }
+    }
+}
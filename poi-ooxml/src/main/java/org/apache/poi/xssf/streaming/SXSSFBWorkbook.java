@@ -0,0 +1,432 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.openxml4j.opc.internal.ContentTypeManager;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.binary.XSSFBRecordType;
+import org.apache.poi.xssf.binary.XSSFBRecordWriter;
+import org.apache.poi.xssf.binary.XSSFBRelation;
+import org.apache.poi.xssf.binary.XSSFBStylesWriter;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCol;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCols;
+
+/**
+ * Streaming version of a workbook in the binary xlsb format.
+ * <p>
+ * Rows are kept in a sliding window and flushed to temp files like in {@link SXSSFWorkbook},
+ * but the cells are serialized as xlsb records. On {@link #write(OutputStream)} the package is
+ * written directly, the styles and shared strings are converted to their binary parts.
+ * </p>
+ * <p>
+ * Besides the cell values and styles only sheet names and visibility, the sheet view flags,
+ * column widths, default sizes and merged regions are written. Drawings, comments, hyperlinks,
+ * data validations, conditional formatting, defined names, print setup, panes and document properties
+ * are not supported. Formulas referring other sheets, defined names or array constants are
+ * written with their cached values only. Templates, {@link #setSheetDataStore(SheetDataStore) sheet data stores},
+ * {@link #setParallelWriteThreads(int) parallel writing} and the {@link #setUseUtf8SheetDataWriter(boolean) UTF-8 writer}
+ * are not supported, enabling them throws an {@link IllegalArgumentException}.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public class SXSSFBWorkbook extends SXSSFWorkbook {
+    private static final String WORKBOOK_PART = "xl/workbook.bin";
+    private static final String STYLES_PART = "xl/styles.bin";
+    private static final String SHARED_STRINGS_PART = "xl/sharedStrings.bin";
+
+    /** a default window of 28800 x 12300 twips */
+    private static final int BOOK_VIEW_WIDTH = 28800;
+    private static final int BOOK_VIEW_HEIGHT = 12300;
+
+    /** the header color of the sheet view refers to the system foreground color */
+    private static final int SYSTEM_FOREGROUND_COLOR = 64;
+
+    public SXSSFBWorkbook() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param rowAccessWindowSize the number of rows that are kept in memory until flushed out,
+     *  see {@link SXSSFWorkbook#SXSSFWorkbook(int)}
+     */
+    public SXSSFBWorkbook(int rowAccessWindowSize) {
+        this(rowAccessWindowSize, false, true);
+    }
+
+    /**
+     * @param rowAccessWindowSize the number of rows that are kept in memory until flushed out,
+     *  see {@link SXSSFWorkbook#SXSSFWorkbook(int)}
+     * @param compressTmpFiles whether to use gzip compression for temporary files
+     * @param useSharedStringsTable whether to use a shared strings table or to write the strings inline
+     */
+    public SXSSFBWorkbook(int rowAccessWindowSize, boolean compressTmpFiles, boolean useSharedStringsTable) {
+        super(null, rowAccessWindowSize, compressTmpFiles, useSharedStringsTable);
+    }
+
+    /**
+     * The rows are written as xlsb records, so only {@code null} is accepted
+     *
+     * @throws IllegalArgumentException if a store is given
+     */
+    @Override
+    public void setSheetDataStore(SheetDataStore sheetDataStore) {
+        if (sheetDataStore != null) {
+            throw new IllegalArgumentException("Sheet data stores are not supported for xlsb workbooks");
+        }
+        super.setSheetDataStore(null);
+    }
+
+    /**
+     * The xlsb package is written on the calling thread, so only 1 is accepted
+     *
+     * @throws IllegalArgumentException if the number of threads isn't 1
+     */
+    @Override
+    public void setParallelWriteThreads(int threads) {
+        if (threads != 1) {
+            throw new IllegalArgumentException("Parallel writing is not supported for xlsb workbooks");
+        }
+        super.setParallelWriteThreads(threads);
+    }
+
+    /**
+     * The rows are written as xlsb records, so only {@code false} is accepted
+     *
+     * @throws IllegalArgumentException if the UTF-8 writer is requested
+     */
+    @Override
+    public void setUseUtf8SheetDataWriter(boolean useUtf8SheetDataWriter) {
+        if (useUtf8SheetDataWriter) {
+            throw new IllegalArgumentException("The UTF-8 sheet data writer is not supported for xlsb workbooks");
+        }
+        super.setUseUtf8SheetDataWriter(false);
+    }
+
+    @Override
+    BaseSheetDataWriter createBinarySheetDataWriter() throws IOException {
+        return new XSSFBSheetDataWriter(getSharedStringSource(), isCompressTempFiles());
+    }
+
+    /**
+     * Write out this workbook as xlsb to an OutputStream.
+     *
+     * @param stream - the java OutputStream you wish to write to
+     * @throws IOException if anything can't be written.
+     */
+    @Override
+    public void write(OutputStream stream) throws IOException {
+        flushSheets();
+
+        int sheetCount = getNumberOfSheets();
+        SharedStringsTable sst = getSharedStringSource();
+        ZipArchiveOutputStream zos = createArchiveOutputStream(stream);
+        try {
+            putEntry(zos, ContentTypeManager.CONTENT_TYPES_PART_NAME, getContentTypes(sheetCount, sst != null));
+            putEntry(zos, "_rels/.rels", getRelationships(
+                "rId1", PackageRelationshipTypes.CORE_DOCUMENT, WORKBOOK_PART));
+            putEntry(zos, "xl/_rels/workbook.bin.rels", getWorkbookRelationships(sheetCount, sst != null));
+
+            zos.putArchiveEntry(new ZipArchiveEntry(WORKBOOK_PART));
+            writeWorkbook(new XSSFBRecordWriter(zos));
+            zos.closeArchiveEntry();
+
+            zos.putArchiveEntry(new ZipArchiveEntry(STYLES_PART));
+            XSSFBRecordWriter styles = new XSSFBRecordWriter(zos);
+            XSSFBStylesWriter.write(getXSSFWorkbook().getStylesSource(), styles);
+            styles.flush();
+            zos.closeArchiveEntry();
+
+            if (sst != null) {
+                zos.putArchiveEntry(new ZipArchiveEntry(SHARED_STRINGS_PART));
+                writeSharedStrings(sst, new XSSFBRecordWriter(zos));
+                zos.closeArchiveEntry();
+            }
+
+            for (int i = 0; i < sheetCount; i++) {
+                zos.putArchiveEntry(new ZipArchiveEntry(getSheetPartName(i)));
+                writeSheet(getSheetAt(i), new XSSFBRecordWriter(zos), zos);
+                zos.closeArchiveEntry();
+            }
+        } finally {
+            zos.finish();
+        }
+    }
+
+    /**
+     * The xlsb package is written without a template, so this is the same as {@link #write(OutputStream)}
+     */
+    @Override
+    public void writeAvoidingTempFiles(OutputStream stream) throws IOException {
+        write(stream);
+    }
+
+    private static String getSheetPartName(int sheetIndex) {
+        return "xl/worksheets/sheet" + (sheetIndex + 1) + ".bin";
+    }
+
+    private static void putEntry(ZipArchiveOutputStream zos, String name, String content) throws IOException {
+        zos.putArchiveEntry(new ZipArchiveEntry(name));
+        zos.write(content.getBytes(StandardCharsets.UTF_8));
+        zos.closeArchiveEntry();
+    }
+
+    private static String getContentTypes(int sheetCount, boolean hasSharedStrings) {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n")
+          .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+          .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+          .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>");
+        appendOverride(sb, WORKBOOK_PART, XSSFRelation.XLSB_BINARY_WORKBOOK.getContentType());
+        appendOverride(sb, STYLES_PART, XSSFBRelation.STYLES_BINARY.getContentType());
+        if (hasSharedStrings) {
+            appendOverride(sb, SHARED_STRINGS_PART, XSSFBRelation.SHARED_STRINGS_BINARY.getContentType());
+        }
+        for (int i = 0; i < sheetCount; i++) {
+            appendOverride(sb, getSheetPartName(i), XSSFBRelation.WORKSHEET_BINARY.getContentType());
+        }
+        return sb.append("</Types>").toString();
+    }
+
+    private static void appendOverride(StringBuilder sb, String partName, String contentType) {
+        sb.append("<Override PartName=\"/").append(partName)
+          .append("\" ContentType=\"").append(contentType).append("\"/>");
+    }
+
+    private static String getWorkbookRelationships(int sheetCount, boolean hasSharedStrings) {
+        String[] rels = new String[3 * (sheetCount + 2)];
+        int pos = 0;
+        for (int i = 0; i < sheetCount; i++) {
+            rels[pos++] = "rId" + (i + 1);
+            rels[pos++] = XSSFBRelation.WORKSHEET_BINARY.getRelation();
+            rels[pos++] = "worksheets/sheet" + (i + 1) + ".bin";
+        }
+        rels[pos++] = "rId" + (sheetCount + 1);
+        rels[pos++] = XSSFBRelation.STYLES_BINARY.getRelation();
+        rels[pos++] = "styles.bin";
+        if (hasSharedStrings) {
+            rels[pos++] = "rId" + (sheetCount + 2);
+            rels[pos++] = XSSFBRelation.SHARED_STRINGS_BINARY.getRelation();
+            rels[pos++] = "sharedStrings.bin";
+        }
+        String[] used = new String[pos];
+        System.arraycopy(rels, 0, used, 0, pos);
+        return getRelationships(used);
+    }
+
+    /**
+     * @param rels triples of relationship id, type and target
+     */
+    private static String getRelationships(String... rels) {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n")
+          .append("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        for (int i = 0; i < rels.length; i += 3) {
+            sb.append("<Relationship Id=\"").append(rels[i])
+              .append("\" Type=\"").append(rels[i + 1])
+              .append("\" Target=\"").append(rels[i + 2]).append("\"/>");
+        }
+        return sb.append("</Relationships>").toString();
+    }
+
+    private void writeWorkbook(XSSFBRecordWriter writer) throws IOException {
+        writer.writeRecord(XSSFBRecordType.BrtBeginBook);
+        writer.beginRecord(XSSFBRecordType.BrtWbProp)
+            .writeInt(isDate1904() ? 0x01 : 0)
+            .writeInt(0)
+            .writeXLWideString("")
+            .endRecord();
+
+        writer.writeRecord(XSSFBRecordType.BrtBeginBookViews);
+        writer.beginRecord(XSSFBRecordType.BrtBookView)
+            .writeInt(0)
+            .writeInt(0)
+            .writeInt(BOOK_VIEW_WIDTH)
+            .writeInt(BOOK_VIEW_HEIGHT)
+            .writeInt(600)
+            .writeInt(getFirstVisibleTab())
+            .writeInt(getActiveSheetIndex())
+            // show the scroll bars and the sheet tabs
+            .writeByte(0x70)
+            .endRecord();
+        writer.writeRecord(XSSFBRecordType.BrtEndBookViews);
+
+        writer.writeRecord(XSSFBRecordType.BrtBeginBundleShs);
+        for (int i = 0; i < getNumberOfSheets(); i++) {
+            writer.beginRecord(XSSFBRecordType.BrtBundleSh)
+                .writeInt(getSheetVisibility(i).ordinal())
+                .writeInt(i + 1)
+                .writeXLNullableWideString("rId" + (i + 1))
+                .writeXLWideString(getSheetName(i))
+                .endRecord();
+        }
+        writer.writeRecord(XSSFBRecordType.BrtEndBundleShs);
+
+        // automatic calculation with A1 references, full precision and multi-threading
+        int calcFlags = 0x02 | 0x08 | 0x20 | 0x40;
+        if (getForceFormulaRecalculation()) {
+            calcFlags |= 0x01;
+        }
+        writer.beginRecord(XSSFBRecordType.BrtCalcProp)
+            .writeInt(0)
+            .writeInt(1)
+            .writeInt(100)
+            .writeDouble(0.001)
+            .writeInt(0)
+            .writeShort(calcFlags)
+            .endRecord();
+        writer.writeRecord(XSSFBRecordType.BrtEndBook);
+        writer.flush();
+    }
+
+    private static void writeSharedStrings(SharedStringsTable sst, XSSFBRecordWriter writer) throws IOException {
+        int uniqueCount = sst.getUniqueCount();
+        writer.beginRecord(XSSFBRecordType.BrtBeginSst)
+            .writeInt(sst.getCount())
+            .writeInt(uniqueCount)
+            .endRecord();
+        for (int i = 0; i < uniqueCount; i++) {
+            // the formatting runs of rich text are not written
+            writer.beginRecord(XSSFBRecordType.BrtSstItem)
+                .writeByte(0)
+                .writeXLWideString(sst.getItemAt(i).getString())
+                .endRecord();
+        }
+        writer.writeRecord(XSSFBRecordType.BrtEndSst);
+        writer.flush();
+    }
+
+    private void writeSheet(SXSSFSheet sheet, XSSFBRecordWriter writer, OutputStream out) throws IOException {
+        XSSFBSheetDataWriter data = (XSSFBSheetDataWriter) sheet.getRowWriter();
+        writer.writeRecord(XSSFBRecordType.BrtBeginSheet);
+        if (data.getNumberOfFlushedRows() > 0 && data.getLastColumn() >= 0) {
+            writer.beginRecord(XSSFBRecordType.BrtWsDim)
+                .writeInt(data.getLowestIndexOfFlushedRows())
+                .writeInt(data.getLastFlushedRow())
+                .writeInt(data.getFirstColumn())
+                .writeInt(data.getLastColumn())
+                .endRecord();
+        } else {
+            writer.beginRecord(XSSFBRecordType.BrtWsDim)
+                .writeInt(0).writeInt(0).writeInt(0).writeInt(0)
+                .endRecord();
+        }
+
+        // grid lines, headers, zeros, outline symbols and the default header color
+        int viewFlags = (sheet.isDisplayGridlines() ? 0x04 : 0)
+            | (sheet.isDisplayRowColHeadings() ? 0x08 : 0)
+            | (sheet.isDisplayZeros() ? 0x10 : 0)
+            | (sheet.isRightToLeft() ? 0x20 : 0)
+            | (sheet.isSelected() ? 0x40 : 0)
+            | 0x100 | 0x200;
+        writer.writeRecord(XSSFBRecordType.BrtBeginWsViews);
+        writer.beginRecord(XSSFBRecordType.BrtBeginWsView)
+            .writeShort(viewFlags)
+            .writeInt(0)
+            .writeInt(0)
+            .writeInt(0)
+            .writeByte(SYSTEM_FOREGROUND_COLOR)
+            .writeByte(0)
+            .writeShort(0)
+            .writeShort(100)
+            .writeShort(0)
+            .writeShort(0)
+            .writeShort(0)
+            .writeInt(0)
+            .endRecord();
+        writer.writeRecord(XSSFBRecordType.BrtEndWsView);
+        writer.writeRecord(XSSFBRecordType.BrtEndWsViews);
+
+        writer.beginRecord(XSSFBRecordType.BrtWsFmtInfo)
+            .writeInt(0xFFFFFFFF)
+            .writeShort(sheet.getDefaultColumnWidth())
+            .writeShort(sheet.getDefaultRowHeight())
+            .writeShort(0)
+            .writeByte(0)
+            .writeByte(0)
+            .endRecord();
+
+        writeColumns(sheet, writer);
+
+        writer.writeRecord(XSSFBRecordType.BrtBeginSheetData);
+        writer.flush();
+        try (InputStream rows = sheet.getWorksheetXMLInputStream()) {
+            IOUtils.copy(rows, out);
+        }
+        writer.writeRecord(XSSFBRecordType.BrtEndSheetData);
+
+        List<CellRangeAddress> mergedRegions = sheet.getMergedRegions();
+        if (!mergedRegions.isEmpty()) {
+            writer.beginRecord(XSSFBRecordType.BrtBeginMergeCells).writeInt(mergedRegions.size()).endRecord();
+            for (CellRangeAddress region : mergedRegions) {
+                writer.beginRecord(XSSFBRecordType.BrtMergeCell)
+                    .writeInt(region.getFirstRow())
+                    .writeInt(region.getLastRow())
+                    .writeInt(region.getFirstColumn())
+                    .writeInt(region.getLastColumn())
+                    .endRecord();
+            }
+            writer.writeRecord(XSSFBRecordType.BrtEndMergeCells);
+        }
+        writer.writeRecord(XSSFBRecordType.BrtEndSheet);
+        writer.flush();
+    }
+
+    private static void writeColumns(SXSSFSheet sheet, XSSFBRecordWriter writer) throws IOException {
+        List<CTCols> colsList = sheet._sh.getCTWorksheet().getColsList();
+        int count = 0;
+        for (CTCols cols : colsList) {
+            count += cols.sizeOfColArray();
+        }
+        if (count == 0) {
+            return;
+        }
+        writer.writeRecord(XSSFBRecordType.BrtBeginColInfos);
+        for (CTCols cols : colsList) {
+            for (CTCol col : cols.getColList()) {
+                int flags = (col.getHidden() ? 0x01 : 0)
+                    | (col.getCustomWidth() ? 0x02 : 0)
+                    | (col.getBestFit() ? 0x04 : 0)
+                    | ((col.getOutlineLevel() & 0x07) << 8)
+                    | (col.getCollapsed() ? 0x1000 : 0);
+                writer.beginRecord(XSSFBRecordType.BrtColInfo)
+                    .writeInt((int) col.getMin() - 1)
+                    .writeInt((int) col.getMax() - 1)
+                    .writeInt((int) Math.round(col.getWidth() * 256))
+                    .writeInt((int) col.getStyle())
+                    .writeShort(flags)
+                    .endRecord();
+            }
+        }
+        writer.writeRecord(XSSFBRecordType.BrtEndColInfos);
+    }
+}
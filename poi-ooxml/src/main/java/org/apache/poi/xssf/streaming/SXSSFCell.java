@@ -47,10 +47,14 @@ import org.apache.poi.xssf.usermodel.XSSFRichTextString;
  * Streaming version of XSSFCell implementing the "BigGridDemo" strategy.
  */
 public class SXSSFCell extends CellBase {
-    private final SXSSFRow _row;
+    private static final Value BLANK = new BlankValue();
+    private static final Value RECYCLED = new RecycledValue();
+
+    private SXSSFRow _row;
     private Value _value;
     private CellStyle _style;
     private Property _firstProperty;
+    private Value _spareValue; // value object of a recycled cell, which can be reused
 
     public SXSSFCell(SXSSFRow row, CellType cellType)
     {
@@ -75,6 +79,7 @@ public class SXSSFCell extends CellBase {
     @Override
     public int getColumnIndex()
     {
+        checkNotRecycled();
         return _row.getCellIndex(this);
     }
 
@@ -86,6 +91,7 @@ public class SXSSFCell extends CellBase {
     @Override
     public int getRowIndex()
     {
+        checkNotRecycled();
         return _row.getRowNum();
     }
 
@@ -97,6 +103,7 @@ public class SXSSFCell extends CellBase {
     @Override
     public SXSSFSheet getSheet()
     {
+        checkNotRecycled();
         return _row.getSheet();
     }
 
@@ -108,6 +115,7 @@ public class SXSSFCell extends CellBase {
     @Override
     public Row getRow()
     {
+        checkNotRecycled();
         return _row;
     }
 
@@ -230,6 +238,10 @@ public class SXSSFCell extends CellBase {
     @Override
     public void setCellFormulaImpl(String formula) throws FormulaParseException {
         assert formula != null;
+        FormulaDependencyTracker tracker = getSheet().getWorkbook().getFormulaDependencyTracker();
+        if (tracker != null) {
+            tracker.formulaSet(this, formula);
+        }
         if (getCellType() == CellType.FORMULA) {
             ((FormulaValue)_value).setValue(formula);
         } else {
@@ -387,6 +399,13 @@ public class SXSSFCell extends CellBase {
      * </p>
      * @return the value of the cell as a XSSFRichTextString
      */
+    /**
+     * @return true, if this is a string cell with a rich text value
+     */
+    boolean isRichTextValue() {
+        return _value instanceof StringValue && ((StringValue)_value).isRichText();
+    }
+
     @Override
     public RichTextString getRichStringCellValue()
     {
@@ -563,6 +582,7 @@ public class SXSSFCell extends CellBase {
     @Override
     public void setCellStyle(CellStyle style)
     {
+        checkNotRecycled();
         _style=style;
     }
 
@@ -882,12 +902,12 @@ public class SXSSFCell extends CellBase {
         {
             case NUMERIC:
             {
-                _value = new NumericValue();
+                _value = newNumericValue();
                 break;
             }
             case STRING:
             {
-                PlainStringValue sval = new PlainStringValue();
+                PlainStringValue sval = newPlainStringValue();
                 if(_value != null){
                     // if a cell is not blank then convert the old value to string
                     String str = convertCellValueToString();
@@ -910,7 +930,7 @@ public class SXSSFCell extends CellBase {
             }
             case BOOLEAN:
             {
-                BooleanValue bval = new BooleanValue();
+                BooleanValue bval = newBooleanValue();
                 if(_value != null){
                     // if a cell is not blank then convert the old value to string
                     boolean val = convertCellValueToBoolean();
@@ -931,6 +951,77 @@ public class SXSSFCell extends CellBase {
         }
     }
 
+    /**
+     * Invalidates this cell after its row has been written, any further access fails with an
+     * {@link IllegalStateException} until the cell is reused.
+     *
+     * @return true, if the cell can be reused. Formula cells are not reused, because the
+     *  formula evaluator caches their results by cell identity.
+     */
+    /*package*/ boolean recycle()
+    {
+        boolean reusable = !isFormulaCell();
+        if (_value instanceof PlainStringValue) {
+            ((PlainStringValue) _value).setValue(null);
+        }
+        _spareValue = reusable ? _value : null;
+        _value = RECYCLED;
+        _row = null;
+        _style = null;
+        _firstProperty = null;
+        return reusable;
+    }
+
+    /**
+     * Attaches a recycled cell to a new row, as if it was created by {@link #SXSSFCell(SXSSFRow, CellType)}
+     */
+    /*package*/ void reuse(SXSSFRow row, CellType cellType)
+    {
+        assert _value == RECYCLED;
+        _row = row;
+        _value = BLANK;
+        setType(cellType);
+    }
+
+    private void checkNotRecycled()
+    {
+        if (_value == RECYCLED) {
+            throw new IllegalStateException(RecycledValue.MESSAGE);
+        }
+    }
+
+    private NumericValue newNumericValue()
+    {
+        if (_spareValue instanceof NumericValue) {
+            NumericValue value = (NumericValue) _spareValue;
+            _spareValue = null;
+            value.setValue(0);
+            return value;
+        }
+        return new NumericValue();
+    }
+
+    private PlainStringValue newPlainStringValue()
+    {
+        if (_spareValue instanceof PlainStringValue) {
+            PlainStringValue value = (PlainStringValue) _spareValue;
+            _spareValue = null;
+            return value;
+        }
+        return new PlainStringValue();
+    }
+
+    private BooleanValue newBooleanValue()
+    {
+        if (_spareValue instanceof BooleanValue) {
+            BooleanValue value = (BooleanValue) _spareValue;
+            _spareValue = null;
+            value.setValue(false);
+            return value;
+        }
+        return new BooleanValue();
+    }
+
 //COPIED FROM https://svn.apache.org/repos/asf/poi/trunk/poi-ooxml/src/main/java/org/apache/poi/xssf/usermodel/XSSFCell.java since the functions are declared private there
     /**
      * Used to help format error messages
@@ -1260,6 +1351,18 @@ public class SXSSFCell extends CellBase {
         }
     }
 
+    /**
+     * Placeholder of recycled cells, which fails on any access of the cell value
+     */
+    static class RecycledValue implements Value {
+        static final String MESSAGE = "The cell has been flushed and recycled, it must not be used anymore";
+
+        public CellType getType()
+        {
+            throw new IllegalStateException(MESSAGE);
+        }
+    }
+
     static class BooleanValue implements Value {
         boolean _value;
 
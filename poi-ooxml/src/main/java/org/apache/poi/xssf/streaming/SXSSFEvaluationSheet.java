@@ -61,6 +61,11 @@ final class SXSSFEvaluationSheet implements EvaluationSheet {
         SXSSFRow row = _xs.getRow(rowIndex);
         if (row == null) {
             if (rowIndex <= _xs.getLastFlushedRowNum()) {
+                FormulaDependencyTracker tracker = _xs.getWorkbook().getFormulaDependencyTracker();
+                RetainedCellValues retained = tracker == null ? null : tracker.getRetainedCells(_xs);
+                if (retained != null && retained.isCovered(rowIndex, columnIndex)) {
+                    return retained.getCell(rowIndex, columnIndex, this);
+                }
                 throw new SXSSFFormulaEvaluator.RowFlushedException(rowIndex, _xs.getLastFlushedRowNum());
             }
             return null;
@@ -27,6 +27,7 @@ import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.Beta;
 import org.apache.poi.xssf.usermodel.BaseXSSFFormulaEvaluator;
 
 import static org.apache.logging.log4j.util.Unbox.box;
@@ -60,6 +61,48 @@ public final class SXSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
     public static SXSSFFormulaEvaluator create(SXSSFWorkbook workbook, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
         return new SXSSFFormulaEvaluator(workbook, stabilityClassifier, udfFinder);
     }
+    /**
+     * Enables or disables the retention of flushed cell values, which are referenced by formulas.
+     * <p>
+     * If enabled, formulas are parsed when they are set on a cell of the workbook. The values of the
+     * cells, which they reference in earlier rows, are kept in a compact store when the rows are flushed,
+     * so formulas like running totals can be evaluated with a small random access window.
+     * Formula cells are retained with their cached result.
+     * </p>
+     * <p>
+     * The references are learned from the formulas seen so far, so the rows referenced by the first
+     * formula of a kind need to be in the window when it is evaluated. Relative references keep a
+     * fixed number of rows, references with an absolute first row like {@code SUM($A$1:A100)} keep
+     * all values of the referenced columns from that row on. References via defined names aren't tracked.
+     * Evaluating a flushed cell, which hasn't been retained, still throws a {@link RowFlushedException}.
+     * </p>
+     *
+     * @param retain true, to retain the referenced values of all sheets of the workbook
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setRetainReferencedCells(boolean retain) {
+        if (retain == isRetainReferencedCells()) {
+            return;
+        }
+        FormulaDependencyTracker tracker = null;
+        if (retain) {
+            tracker = new FormulaDependencyTracker(wb);
+            tracker.scanWindows();
+        }
+        wb.setFormulaDependencyTracker(tracker);
+    }
+
+    /**
+     * @return true, if flushed values referenced by formulas are retained
+     * @see #setRetainReferencedCells(boolean)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public boolean isRetainReferencedCells() {
+        return wb.getFormulaDependencyTracker() != null;
+    }
+
     public void notifySetFormula(Cell cell) {
         _bookEvaluator.notifyUpdateCell(new SXSSFEvaluationCell((SXSSFCell)cell));
     }
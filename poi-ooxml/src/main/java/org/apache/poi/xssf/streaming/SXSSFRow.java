@@ -18,12 +18,9 @@
 package org.apache.poi.xssf.streaming;
 
 import java.util.Iterator;
-import java.util.Map.Entry;
 import java.util.NoSuchElementException;
-import java.util.SortedMap;
 import java.util.Spliterator;
 import java.util.Spliterators;
-import java.util.TreeMap;
 
 import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.formula.eval.NotImplementedException;
@@ -33,6 +30,7 @@ import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.util.Internal;
+import org.apache.poi.util.IntSparseArray;
 import org.apache.poi.util.NotImplemented;
 
 /**
@@ -43,7 +41,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     private static final Boolean UNDEFINED = null;
 
     private final SXSSFSheet _sheet; // parent sheet
-    private final SortedMap<Integer, SXSSFCell> _cells = new TreeMap<>();
+    private final IntSparseArray<SXSSFCell> _cells = new IntSparseArray<>();
     private short _style = -1; // index of cell style in style table
     private short _height = -1; // row height in twips (1/20 point)
     private boolean _zHeight; // row zero-height (this is somehow different than being hidden)
@@ -52,6 +50,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     private Boolean _hidden = UNDEFINED;
     private Boolean _collapsed = UNDEFINED;
     private int _rowNum;
+    private boolean _recycled;
 
     public SXSSFRow(SXSSFSheet sheet)
     {
@@ -60,6 +59,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
 
     public Iterator<Cell> allCellsIterator()
     {
+        checkNotRecycled();
         return new CellIterator();
     }
 
@@ -138,8 +138,10 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     @Override
     public SXSSFCell createCell(int column, CellType type)
     {
+        checkNotRecycled();
         checkBounds(column);
-        SXSSFCell cell = new SXSSFCell(this, type);
+        SXSSFRowPool pool = _sheet.getRowPool();
+        SXSSFCell cell = pool != null ? pool.acquireCell(this, type) : new SXSSFCell(this, type);
         _cells.put(column, cell);
         _sheet.trackNewCell(cell);
         return cell;
@@ -166,6 +168,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     @Override
     public void removeCell(Cell cell)
     {
+        checkNotRecycled();
         int index = getCellIndex((SXSSFCell) cell);
         _cells.remove(index);
     }
@@ -179,12 +182,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
      */
     /*package*/ int getCellIndex(SXSSFCell cell)
     {
-        for (Entry<Integer, SXSSFCell> entry : _cells.entrySet()) {
-            if (entry.getValue()==cell) {
-                return entry.getKey();
-            }
-        }
-        return -1;
+        return _cells.keyOf(cell);
     }
 
     /**
@@ -196,6 +194,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     @Override
     public void setRowNum(int rowNum)
     {
+        checkNotRecycled();
         this._rowNum = rowNum;
         _sheet.changeRowNum(this, rowNum);
     }
@@ -208,6 +207,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     @Override
     public int getRowNum()
     {
+        checkNotRecycled();
         return _rowNum;
     }
 
@@ -236,6 +236,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     @Override
     public SXSSFCell getCell(int cellnum, MissingCellPolicy policy)
     {
+        checkNotRecycled();
         checkBounds(cellnum);
 
         final SXSSFCell cell = _cells.get(cellnum);
@@ -261,11 +262,8 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     @Override
     public short getFirstCellNum()
     {
-        try {
-            return _cells.firstKey().shortValue();
-        } catch (final NoSuchElementException e) {
-            return -1;
-        }
+        checkNotRecycled();
+        return _cells.isEmpty() ? -1 : (short)_cells.firstKey();
     }
 
     /**
@@ -290,6 +288,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     @Override
     public short getLastCellNum()
     {
+        checkNotRecycled();
         return _cells.isEmpty() ? -1 : (short)(_cells.lastKey() + 1);
     }
 
@@ -302,6 +301,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     @Override
     public int getPhysicalNumberOfCells()
     {
+        checkNotRecycled();
         return _cells.size();
     }
 
@@ -314,6 +314,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     @Override
     public void setHeight(short height)
     {
+        checkNotRecycled();
         _height=height;
     }
 
@@ -426,6 +427,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     @Override
     public Iterator<Cell> cellIterator()
     {
+        checkNotRecycled();
         return new FilledCellIterator();
     }
 
@@ -463,6 +465,38 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
         this._rowNum = rowNum;
     }
 
+    /**
+     * Hands the cells over to the pool and resets this row after it has been written.
+     * Any further access fails with an {@link IllegalStateException} until the row is reused.
+     */
+    void recycle(SXSSFRowPool pool)
+    {
+        for (SXSSFCell cell : _cells.values()) {
+            pool.releaseCell(cell);
+        }
+        _cells.clear();
+        _style = -1;
+        _height = -1;
+        _zHeight = false;
+        _outlineLevel = 0;
+        _hidden = UNDEFINED;
+        _collapsed = UNDEFINED;
+        _recycled = true;
+    }
+
+    void reuse()
+    {
+        assert _recycled;
+        _recycled = false;
+    }
+
+    private void checkNotRecycled()
+    {
+        if (_recycled) {
+            throw new IllegalStateException("The row has been flushed and recycled, it must not be used anymore");
+        }
+    }
+
     /**
      * Create an iterator over the cells from [0, getLastCellNum()).
      * Includes blank cells, excludes empty cells
@@ -0,0 +1,97 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.util.ArrayDeque;
+
+import org.apache.poi.ss.usermodel.CellType;
+
+/**
+ * Pool of flushed rows and cells of a sheet, which are reused by
+ * {@link SXSSFSheet#createRow(int)} and {@link SXSSFRow#createCell(int, CellType)}.
+ * <p>
+ * Rows are released by the thread writing them, which is the background writer thread
+ * if {@link SXSSFWorkbook#setBackgroundFlushQueueSize(int)} is used, hence the access is synchronized.
+ * The number of pooled objects is limited, surplus objects are left to the garbage collector.
+ * </p>
+ *
+ * @see SXSSFSheet#setRowPoolingEnabled(boolean)
+ */
+final class SXSSFRowPool {
+    static final int MAX_POOLED_ROWS = 1024;
+    static final int MAX_POOLED_CELLS = 64 * 1024;
+
+    private final SXSSFSheet _sheet;
+    private final ArrayDeque<SXSSFRow> _rows = new ArrayDeque<>();
+    private final ArrayDeque<SXSSFCell> _cells = new ArrayDeque<>();
+    private long _reusedRows;
+    private long _reusedCells;
+
+    SXSSFRowPool(SXSSFSheet sheet) {
+        _sheet = sheet;
+    }
+
+    synchronized SXSSFRow acquireRow(int rownum) {
+        SXSSFRow row = _rows.pollLast();
+        if (row == null) {
+            row = new SXSSFRow(_sheet);
+        } else {
+            row.reuse();
+            _reusedRows++;
+        }
+        row.setRowNumWithoutUpdatingSheet(rownum);
+        return row;
+    }
+
+    synchronized SXSSFCell acquireCell(SXSSFRow row, CellType type) {
+        SXSSFCell cell = _cells.pollLast();
+        if (cell == null) {
+            return new SXSSFCell(row, type);
+        }
+        cell.reuse(row, type);
+        _reusedCells++;
+        return cell;
+    }
+
+    /**
+     * Invalidates the row and its cells and keeps them for reuse
+     */
+    synchronized void release(SXSSFRow row) {
+        row.recycle(this);
+        if (_rows.size() < MAX_POOLED_ROWS) {
+            _rows.addLast(row);
+        }
+    }
+
+    /**
+     * Called by {@link SXSSFRow#recycle(SXSSFRowPool)} while the pool is locked
+     */
+    void releaseCell(SXSSFCell cell) {
+        if (cell.recycle() && _cells.size() < MAX_POOLED_CELLS) {
+            _cells.addLast(cell);
+        }
+    }
+
+    synchronized long getReusedRowCount() {
+        return _reusedRows;
+    }
+
+    synchronized long getReusedCellCount() {
+        return _reusedCells;
+    }
+}
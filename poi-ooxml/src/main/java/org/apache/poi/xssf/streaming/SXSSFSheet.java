@@ -27,9 +27,12 @@ import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellAddress;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.GlyphAdvanceCache;
 import org.apache.poi.ss.util.PaneInformation;
 import org.apache.poi.ss.util.SheetUtil;
+import org.apache.poi.util.Beta;
 import org.apache.poi.util.Internal;
+import org.apache.poi.util.IntSparseArray;
 import org.apache.poi.util.NotImplemented;
 import org.apache.poi.util.Removal;
 import org.apache.poi.xssf.usermodel.*;
@@ -47,13 +50,19 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
 
     /*package*/ final XSSFSheet _sh;
     protected final SXSSFWorkbook _workbook;
-    private final TreeMap<Integer,SXSSFRow> _rows = new TreeMap<>();
+    private final IntSparseArray<SXSSFRow> _rows = new IntSparseArray<>();
     protected SheetDataWriter _writer;
+    // the writer of a binary sheet, which isn't written as xml
+    private BaseSheetDataWriter _binaryWriter;
     private int _randomAccessWindowSize = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
     protected AutoSizeColumnTracker _autoSizeColumnTracker;
     private int outlineLevelRow;
     private int lastFlushedRowNumber = -1;
+    private int firstFlushedRowNumber = -1;
+    // including the rows, which are still queued for the background writer
+    private int numberOfFlushedRows;
     private boolean allFlushed;
+    private SXSSFRowPool _rowPool;
     private int leftMostColumn = SpreadsheetVersion.EXCEL2007.getLastColumnIndex();
     private int rightMostColumn;
 
@@ -89,7 +98,10 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
     public SXSSFSheet(SXSSFWorkbook workbook, XSSFSheet xSheet) throws IOException {
         _workbook = workbook;
         _sh = xSheet;
-        _writer = workbook.createSheetDataWriter();
+        _binaryWriter = workbook.createBinarySheetDataWriter();
+        if (_binaryWriter == null) {
+            _writer = workbook.createSheetDataWriter();
+        }
         setRandomAccessWindowSize(_workbook.getRandomAccessWindowSize());
         try {
             _autoSizeColumnTracker = new AutoSizeColumnTracker(this);
@@ -106,12 +118,22 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
         return _writer;
     }
 
+    /**
+     * @return the writer of the flushed rows, i.e. the xml {@link #getSheetDataWriter()}
+     *  or the writer of a binary sheet, or {@code null} if the rows aren't written yet
+     */
+    BaseSheetDataWriter getRowWriter() {
+        return (_writer != null) ? _writer : _binaryWriter;
+    }
+
     /* Gets "<sheetData>" document fragment*/
     public InputStream getWorksheetXMLInputStream() throws IOException {
         // flush all remaining data and close the temp file writer
         flushRows(0);
-        _writer.close();
-        return _writer.getWorksheetXMLInputStream();
+        awaitFlushedRows();
+        BaseSheetDataWriter writer = getRowWriter();
+        writer.close();
+        return writer.getWorksheetXMLInputStream();
     }
 
     //start of interface implementation
@@ -133,10 +155,12 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
         }
 
         // attempt to overwrite a row that is already flushed to disk
-        if(_writer != null && rownum <= _writer.getLastFlushedRow() ) {
+        // (rows, which are queued for the background writer, are accounted by lastFlushedRowNumber)
+        BaseSheetDataWriter writer = getRowWriter();
+        if(writer != null && rownum <= Math.max(writer.getLastFlushedRow(), lastFlushedRowNumber) ) {
             throw new IllegalArgumentException(
                     "Attempting to write a row["+rownum+"] " +
-                            "in the range [0," + _writer.getLastFlushedRow() + "] that is already written to disk.");
+                            "in the range [0," + Math.max(writer.getLastFlushedRow(), lastFlushedRowNumber) + "] that is already written to disk.");
         }
 
         // attempt to overwrite a existing row in the input template
@@ -146,8 +170,13 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
                             "in the range [0," + _sh.getLastRowNum() + "] that is already written to disk.");
         }
 
-        SXSSFRow newRow = new SXSSFRow(this);
-        newRow.setRowNumWithoutUpdatingSheet(rownum);
+        SXSSFRow newRow;
+        if (_rowPool != null) {
+            newRow = _rowPool.acquireRow(rownum);
+        } else {
+            newRow = new SXSSFRow(this);
+            newRow.setRowNumWithoutUpdatingSheet(rownum);
+        }
         _rows.put(rownum, newRow);
         allFlushed = false;
         if(_randomAccessWindowSize >= 0 && _rows.size() > _randomAccessWindowSize) {
@@ -171,12 +200,9 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
             throw new IllegalArgumentException("Specified row does not belong to this sheet");
         }
 
-        for(Iterator<Map.Entry<Integer, SXSSFRow>> iter = _rows.entrySet().iterator(); iter.hasNext();) {
-            Map.Entry<Integer, SXSSFRow> entry = iter.next();
-            if(entry.getValue() == row) {
-                iter.remove();
-                return;
-            }
+        int rownum = _rows.keyOf(row);
+        if (rownum >= 0) {
+            _rows.remove(rownum);
         }
     }
 
@@ -199,7 +225,7 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
      */
     @Override
     public int getPhysicalNumberOfRows() {
-        return _rows.size() + _writer.getNumberOfFlushedRows();
+        return _rows.size() + numberOfFlushedRows;
     }
 
     /**
@@ -209,8 +235,12 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
      */
     @Override
     public int getFirstRowNum() {
-        if(_writer.getNumberOfFlushedRows() > 0) {
-            return _writer.getLowestIndexOfFlushedRows();
+        if(firstFlushedRowNumber >= 0) {
+            return firstFlushedRowNumber;
+        }
+        BaseSheetDataWriter writer = getRowWriter();
+        if(writer.getNumberOfFlushedRows() > 0) {
+            return writer.getLowestIndexOfFlushedRows();
         }
         return _rows.isEmpty() ? -1 : _rows.firstKey();
     }
@@ -1290,7 +1320,7 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
      */
     @Override
     public void groupRow(int fromRow, int toRow) {
-        for(SXSSFRow row : _rows.subMap(fromRow, toRow + 1).values()){
+        for(SXSSFRow row : _rows.values(fromRow, toRow + 1)){
             int level = row.getOutlineLevel() + 1;
             row.setOutlineLevel(level);
 
@@ -1540,6 +1570,36 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
         return _autoSizeColumnTracker == null ? Collections.emptySet() : _autoSizeColumnTracker.getTrackedColumns();
     }
 
+    /**
+     * Estimate the text widths for auto-sizing with cached glyph advances instead of laying out each cell's text.
+     * This is considerably faster for large sheets, but the resulting widths are slightly wider than the exact ones.
+     * With {@link GlyphAdvanceCache#fromBundledMetrics()}, columns can be auto-sized even if no fonts are installed.
+     * <p>
+     * The setting applies to the rows flushed from now on and to the rows in the random access window
+     * when {@link #autoSizeColumn(int, boolean)} is called, so it should be set before the first row is written.
+     * </p>
+     *
+     * @param glyphAdvances the glyph advances or {@code null} to measure the text exactly (default)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setAutoSizeGlyphAdvances(GlyphAdvanceCache glyphAdvances) {
+        if (_autoSizeColumnTracker == null) {
+            _autoSizeColumnTracker = new AutoSizeColumnTracker(this, glyphAdvances);
+        } else {
+            _autoSizeColumnTracker.setGlyphAdvances(this, glyphAdvances);
+        }
+    }
+
+    /**
+     * @return the glyph advances used for auto-sizing or {@code null} if the text is measured exactly
+     * @since POI 5.2.4
+     */
+    @Beta
+    public GlyphAdvanceCache getAutoSizeGlyphAdvances() {
+        return _autoSizeColumnTracker == null ? null : _autoSizeColumnTracker.getGlyphAdvances();
+    }
+
     /**
      * Adjusts the column width to fit the contents.
      *
@@ -1618,7 +1678,8 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
         }
 
         // get the best-fit width of rows currently in the random access window
-        final int activeWidth = (int) (256 * SheetUtil.getColumnWidth(this, column, useMergedCells));
+        final int activeWidth = (int) (256 * SheetUtil.getColumnWidth(this, column, useMergedCells,
+                _autoSizeColumnTracker.getGlyphAdvances()));
 
         // the best-fit width for both flushed rows and random access window rows
         // flushedWidth or activeWidth may be negative if column contains only blank cells
@@ -1856,6 +1917,43 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
         _randomAccessWindowSize = value;
     }
 
+    /**
+     * Enables or disables the reuse of flushed rows and cells.
+     * <p>
+     * If enabled, rows and their cells are returned to a pool of this sheet once they have been written
+     * and are reused by {@link #createRow(int)} and {@link SXSSFRow#createCell(int)}. This avoids most
+     * of the allocations per row when streaming large sheets.
+     * </p>
+     * <p>
+     * References to rows and cells must not be kept after they have been flushed: until they are reused,
+     * any access throws an {@link IllegalStateException}, afterwards they represent a different row or cell.
+     * Formula cells are never reused, as the formula evaluator caches their results by identity.
+     * </p>
+     *
+     * @param enabled true, to recycle flushed rows and cells
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setRowPoolingEnabled(boolean enabled) {
+        if (enabled != (_rowPool != null)) {
+            _rowPool = enabled ? new SXSSFRowPool(this) : null;
+        }
+    }
+
+    /**
+     * @return true, if flushed rows and cells are reused
+     * @see #setRowPoolingEnabled(boolean)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public boolean isRowPoolingEnabled() {
+        return _rowPool != null;
+    }
+
+    /*package*/ SXSSFRowPool getRowPool() {
+        return _rowPool;
+    }
+
     /**
      * Are all rows flushed to disk?
      */
@@ -1892,29 +1990,191 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
         this.flushRows(0);
     }
 
+    /**
+     * Appends the rows of a column batch after the last row of this sheet.
+     * <p>
+     * All rows in the random access window are flushed first. The batch rows are then written
+     * directly to the sheet data without creating {@link SXSSFRow} or {@link SXSSFCell} objects,
+     * so they can't be accessed via {@link #getRow(int)} afterwards.
+     * Cells in tracked columns are still considered for auto-sizing.
+     * </p>
+     *
+     * @param firstRowNum the 0-based row number of the first row of the batch
+     * @param batch the rows to append
+     * @throws IllegalArgumentException if the rows are beyond the max. number of rows,
+     *      the row numbers are not behind the existing rows or a style index is invalid
+     * @throws IOException If an I/O error occurs
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void appendRows(int firstRowNum, ColumnBatch batch) throws IOException {
+        int maxrow = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+        int rowCount = batch.getRowCount();
+        if (firstRowNum < 0 || (long)firstRowNum + rowCount - 1 > maxrow) {
+            throw new IllegalArgumentException("Invalid row range (" + firstRowNum + ".."
+                    + ((long)firstRowNum + rowCount - 1) + ") outside allowable range (0.." + maxrow + ")");
+        }
+        int lastRowNum = Math.max(getLastRowNum(), lastFlushedRowNumber);
+        BaseSheetDataWriter writer = getRowWriter();
+        if (writer != null) {
+            lastRowNum = Math.max(lastRowNum, writer.getLastFlushedRow());
+        }
+        if (_sh.getPhysicalNumberOfRows() > 0) {
+            lastRowNum = Math.max(lastRowNum, _sh.getLastRowNum());
+        }
+        if (firstRowNum <= lastRowNum) {
+            throw new IllegalArgumentException(
+                    "Attempting to append rows starting at row[" + firstRowNum + "], " +
+                            "but the rows up to " + lastRowNum + " already exist.");
+        }
+        int numCellStyles = _workbook.getNumCellStyles();
+        for (ColumnBatch.Column column : batch.getColumns()) {
+            if (column.styleIndex >= numCellStyles) {
+                throw new IllegalArgumentException("Column " + column.columnIndex
+                        + " uses an unknown style index: " + column.styleIndex);
+            }
+        }
+        if (writer == null) {
+            throw new IllegalStateException("The sheet data can't be written at this time");
+        }
+        if (rowCount == 0) {
+            return;
+        }
+
+        flushRows(0);
+        boolean autoSize = _autoSizeColumnTracker != null && _autoSizeColumnTracker.isTrackingColumns();
+        FormulaDependencyTracker dependencyTracker = _workbook.getFormulaDependencyTracker();
+        if (dependencyTracker != null && dependencyTracker.getRetainedCells(this) == null) {
+            dependencyTracker = null;
+        }
+        if (autoSize || dependencyTracker != null) {
+            materializeRows(firstRowNum, batch, autoSize, dependencyTracker);
+        }
+        // the batch is written directly, so the queued rows need to be written before. This includes the
+        // rows of the other sheets, as the shared strings table must not be updated by both threads
+        awaitAllFlushedRows();
+        writer.writeRows(firstRowNum, batch);
+        numberOfFlushedRows += rowCount;
+        for (ColumnBatch.Column column : batch.getColumns()) {
+            for (int i = 0; i < rowCount; i++) {
+                if (column.hasValue(i)) {
+                    leftMostColumn = Math.min(column.columnIndex, leftMostColumn);
+                    rightMostColumn = Math.max(column.columnIndex, rightMostColumn);
+                    break;
+                }
+            }
+        }
+        if (firstFlushedRowNumber < 0) {
+            firstFlushedRowNumber = firstRowNum;
+        }
+        lastFlushedRowNumber = firstRowNum + rowCount - 1;
+    }
+
+    /**
+     * Updates the best fit column widths and the retained cell values with the cells of a batch,
+     * which are materialized one row at a time in a reused row
+     */
+    private void materializeRows(int firstRowNum, ColumnBatch batch, boolean autoSize,
+                                 FormulaDependencyTracker dependencyTracker) {
+        List<ColumnBatch.Column> columns = batch.getColumns();
+        SXSSFRow row = new SXSSFRow(this);
+        for (int i = 0, rowCount = batch.getRowCount(); i < rowCount; i++) {
+            int rownum = firstRowNum + i;
+            row.setRowNumWithoutUpdatingSheet(rownum);
+            for (ColumnBatch.Column column : columns) {
+                SXSSFCell cell = row.getCell(column.columnIndex);
+                if (column.hasValue(i)) {
+                    if (cell == null) {
+                        cell = row.createCell(column.columnIndex);
+                        cell.setCellStyle(_workbook.getCellStyleAt(column.styleIndex));
+                    }
+                    column.setCellValue(cell, i);
+                } else if (cell != null) {
+                    row.removeCell(cell);
+                }
+            }
+            if (autoSize) {
+                _autoSizeColumnTracker.updateColumnWidths(row);
+            }
+            if (dependencyTracker != null) {
+                dependencyTracker.retain(this, rownum, row);
+                dependencyTracker.rowsFlushed(this, rownum);
+            }
+        }
+        if (_rowPool != null) {
+            _rowPool.release(row);
+        }
+    }
+
     /**
      * Flush all the data in the buffered stream to the temp file.
      *
      * @throws IOException If an I/O error occurs
      */
     public void flushBufferedData() throws IOException {
-        this._writer.flush();
+        awaitFlushedRows();
+        getRowWriter().flush();
+    }
+
+    /**
+     * Waits until the background writer has written the flushed rows of this sheet
+     *
+     * @throws IOException if writing the rows failed
+     */
+    void awaitFlushedRows() throws IOException {
+        BackgroundRowWriter backgroundWriter = _workbook.getBackgroundRowWriter();
+        BaseSheetDataWriter writer = getRowWriter();
+        if (backgroundWriter != null && writer != null) {
+            backgroundWriter.await(writer);
+        }
+    }
+
+    /**
+     * Waits until the background writer has written the flushed rows of all sheets
+     *
+     * @throws IOException if writing the rows failed
+     */
+    void awaitAllFlushedRows() throws IOException {
+        BackgroundRowWriter backgroundWriter = _workbook.getBackgroundRowWriter();
+        if (backgroundWriter != null) {
+            backgroundWriter.awaitAll();
+        }
     }
 
     private void flushOneRow() throws IOException {
-        Integer firstRowNum = _rows.firstKey();
-        if (firstRowNum!=null) {
-            int rowIndex = firstRowNum;
-            SXSSFRow row = _rows.get(firstRowNum);
+        if (!_rows.isEmpty()) {
+            int rowIndex = _rows.firstKey();
+            SXSSFRow row = _rows.get(rowIndex);
             if (_autoSizeColumnTracker != null) {
                 // Update the best fit column widths for auto-sizing just before the rows are flushed
                 _autoSizeColumnTracker.updateColumnWidths(row);
             }
-            if (_writer != null) {
-                _writer.writeRow(rowIndex, row);
+            FormulaDependencyTracker dependencyTracker = _workbook.getFormulaDependencyTracker();
+            if (dependencyTracker != null) {
+                dependencyTracker.retain(this, rowIndex, row);
+            }
+            BaseSheetDataWriter writer = getRowWriter();
+            if (writer != null) {
+                BackgroundRowWriter backgroundWriter = _workbook.getBackgroundRowWriter();
+                if (backgroundWriter != null) {
+                    // the row is recycled by the writer thread after it has been written
+                    backgroundWriter.submit(writer, rowIndex, row, _rowPool);
+                } else {
+                    writer.writeRow(rowIndex, row);
+                    if (_rowPool != null) {
+                        _rowPool.release(row);
+                    }
+                }
+                numberOfFlushedRows++;
+            }
+            _rows.remove(rowIndex);
+            if (firstFlushedRowNumber < 0) {
+                firstFlushedRowNumber = rowIndex;
             }
-            _rows.remove(firstRowNum);
             lastFlushedRowNumber = rowIndex;
+            if (dependencyTracker != null) {
+                dependencyTracker.rowsFlushed(this, rowIndex);
+            }
         }
     }
 
@@ -1938,8 +2198,10 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
             if (!allFlushed) {
                 flushRows();
             }
+            awaitFlushedRows();
         } finally {
-            ret = _writer == null || _writer.dispose();
+            BaseSheetDataWriter writer = getRowWriter();
+            ret = writer == null || writer.dispose();
         }
         return ret;
     }
@@ -2165,7 +2427,8 @@ public class SXSSFSheet implements Sheet, OoxmlSheetExtensions {
         if (_workbook.shouldCalculateSheetDimensions()) {
             try {
                 CellRangeAddress cellRangeAddress = new CellRangeAddress(
-                        getFirstRowNum(), getLastRowNum(), leftMostColumn, rightMostColumn);
+                        getFirstRowNum(), Math.max(getLastRowNum(), lastFlushedRowNumber),
+                        leftMostColumn, rightMostColumn);
                 _sh.setDimensionOverride(cellRangeAddress);
             } catch (Exception e) {
                 LOG.atDebug().log("Failed to set dimension details on sheet", e);
@@ -138,6 +138,36 @@ public class SXSSFWorkbook implements Workbook {
 
     private boolean shouldCalculateSheetDimensions = true;
 
+    /**
+     * number of threads used to compress the workbook parts on write
+     */
+    private int _parallelWriteThreads = 1;
+
+    /**
+     * optional store for the sheet data, which replaces the temp files per sheet
+     */
+    private SheetDataStore _sheetDataStore;
+
+    /**
+     * whether the rows are serialized with {@link Utf8SheetDataWriter}
+     */
+    private boolean _useUtf8SheetDataWriter;
+
+    /**
+     * optional disk-backed shared strings table, which replaces the table of the template workbook
+     */
+    private final StreamingSharedStringsTable _streamingSharedStrings;
+
+    /**
+     * optional background thread, which serializes the flushed rows
+     */
+    private BackgroundRowWriter _backgroundRowWriter;
+
+    /**
+     * optional tracker of the flushed cells, which are still referenced by formulas
+     */
+    private FormulaDependencyTracker _formulaDependencyTracker;
+
     /**
      * Construct a new workbook with default row window size
      */
@@ -258,20 +288,66 @@ public class SXSSFWorkbook implements Workbook {
      * @param useSharedStringsTable whether to use a shared strings table
      */
     public SXSSFWorkbook(XSSFWorkbook workbook, int rowAccessWindowSize, boolean compressTmpFiles, boolean useSharedStringsTable) {
+        this(workbook, rowAccessWindowSize, compressTmpFiles, useSharedStringsTable, null);
+    }
+
+    /**
+     * Constructs an workbook from an existing workbook, which keeps the unique strings in
+     * a {@link StreamingSharedStringsTable}, i.e. in a temp file instead of the heap.
+     * The strings are streamed into {@code sharedStrings.xml} on write.
+     * <p>
+     *   The strings of the template workbook are copied into the given table, so it needs to be empty.
+     *   The table is closed by this workbook on {@link #close()} and {@link #dispose()}.
+     * </p>
+     * <p>
+     *   See {@link #SXSSFWorkbook(XSSFWorkbook, int, boolean, boolean)} for the sliding window of rows.
+     * </p>
+     *
+     * @param workbook  the template workbook
+     * @param rowAccessWindowSize the number of rows that are kept in memory until flushed out
+     * @param compressTmpFiles whether to use gzip compression for temporary files
+     * @param sharedStrings the empty table for the strings of this workbook
+     * @throws IllegalArgumentException if the table is {@code null} or not empty
+     * @since POI 5.2.4
+     */
+    @Beta
+    public SXSSFWorkbook(XSSFWorkbook workbook, int rowAccessWindowSize, boolean compressTmpFiles, StreamingSharedStringsTable sharedStrings) {
+        this(workbook, rowAccessWindowSize, compressTmpFiles, true, checkStreamingSharedStrings(sharedStrings));
+    }
+
+    private SXSSFWorkbook(XSSFWorkbook workbook, int rowAccessWindowSize, boolean compressTmpFiles, boolean useSharedStringsTable,
+                          StreamingSharedStringsTable sharedStrings) {
         setRandomAccessWindowSize(rowAccessWindowSize);
         setCompressTempFiles(compressTmpFiles);
-        if (workbook == null) {
-            _wb = new XSSFWorkbook();
-            _sharedStringSource = useSharedStringsTable ? _wb.getSharedStringSource() : null;
+        _wb = (workbook == null) ? new XSSFWorkbook() : workbook;
+        _streamingSharedStrings = sharedStrings;
+        if (sharedStrings != null) {
+            // the template sheets refer to the existing strings by index
+            SharedStringsTable templateStrings = _wb.getSharedStringSource();
+            if (templateStrings != null) {
+                sharedStrings.importEntries(templateStrings);
+            }
+            _sharedStringSource = sharedStrings;
         } else {
-            _wb=workbook;
             _sharedStringSource = useSharedStringsTable ? _wb.getSharedStringSource() : null;
+        }
+        if (workbook != null) {
             for ( Sheet sheet : _wb ) {
                 createAndRegisterSXSSFSheet( (XSSFSheet)sheet );
             }
         }
     }
 
+    private static StreamingSharedStringsTable checkStreamingSharedStrings(StreamingSharedStringsTable sharedStrings) {
+        if (sharedStrings == null) {
+            throw new IllegalArgumentException("sharedStrings must not be null");
+        }
+        if (sharedStrings.getUniqueCount() > 0) {
+            throw new IllegalArgumentException("The shared strings table needs to be empty");
+        }
+        return sharedStrings;
+    }
+
     /**
      * Construct an empty workbook and specify the window for row access.
      * <p>
@@ -371,12 +447,190 @@ public class SXSSFWorkbook implements Workbook {
         return shouldCalculateSheetDimensions;
     }
 
+    /**
+     * Get the number of threads used to compress the workbook parts on write
+     *
+     * @return the number of compression threads, 1 means the parts are compressed on the calling thread
+     * @since POI 5.2.4
+     */
+    public int getParallelWriteThreads() {
+        return _parallelWriteThreads;
+    }
+
+    /**
+     * Set the number of threads used to compress the workbook parts on write.
+     * <p>
+     *   By default all parts are deflated one after another on the calling thread.
+     *   With more than one thread, each worksheet as well as the styles and shared strings
+     *   parts are compressed concurrently into independent deflate streams, which are
+     *   then copied in their original order into the target zip.
+     * </p>
+     * <p>
+     *   The compressed worksheets are buffered in temporary files until they are copied,
+     *   so this option needs up to the compressed size of the workbook in temp disk space.
+     *   For a {@link DeferredSXSSFWorkbook}, the row generators are called on the worker threads.
+     * </p>
+     *
+     * @param threads the number of compression threads, must be greater than 0
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setParallelWriteThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be greater than 0");
+        }
+        _parallelWriteThreads = threads;
+    }
+
+    /**
+     * @return the store used for the sheet data or {@code null} if each sheet uses its own temp file
+     * @since POI 5.2.4
+     */
+    public SheetDataStore getSheetDataStore() {
+        return _sheetDataStore;
+    }
+
+    /**
+     * Set the store used for the data of flushed rows.
+     * <p>
+     *   By default, each sheet writes its flushed rows to its own temp file. A {@link SheetDataStore}
+     *   like {@link SpillingSheetDataStore} can keep the data of all sheets within a common memory
+     *   budget instead. The store is not closed by this workbook, so it can be shared between workbooks.
+     *   If a store is set, the {@link #setCompressTempFiles(boolean) compress temp files} option is ignored.
+     * </p>
+     * <p>
+     *     Setting this option only affects subsequent <code>createSheet()</code> calls.
+     * </p>
+     *
+     * @param sheetDataStore the store or {@code null} to use temp files
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setSheetDataStore(SheetDataStore sheetDataStore) {
+        _sheetDataStore = sheetDataStore;
+    }
+
+    /**
+     * @return whether the rows are serialized with {@link Utf8SheetDataWriter}
+     * @since POI 5.2.4
+     */
+    public boolean isUseUtf8SheetDataWriter() {
+        return _useUtf8SheetDataWriter;
+    }
+
+    /**
+     * Set whether the rows are serialized with {@link Utf8SheetDataWriter}, which encodes the
+     * rows directly into a reusable byte buffer instead of going through a {@link java.io.Writer}
+     * and per-cell strings.
+     * <p>
+     *     Setting this option only affects subsequent <code>createSheet()</code> calls.
+     * </p>
+     *
+     * @param useUtf8SheetDataWriter whether to use the UTF-8 serializer
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setUseUtf8SheetDataWriter(boolean useUtf8SheetDataWriter) {
+        _useUtf8SheetDataWriter = useUtf8SheetDataWriter;
+    }
+
+    /**
+     * @return the streaming shared strings table or {@code null} if the table of the underlying
+     *  {@link XSSFWorkbook} is used
+     * @see #SXSSFWorkbook(XSSFWorkbook, int, boolean, StreamingSharedStringsTable)
+     * @since POI 5.2.4
+     */
+    public StreamingSharedStringsTable getStreamingSharedStrings() {
+        return _streamingSharedStrings;
+    }
+
+    /**
+     * @return the number of flushed rows, which can be queued for the background writer thread,
+     *  or 0 if the rows are written by the flushing thread
+     * @since POI 5.2.4
+     */
+    public int getBackgroundFlushQueueSize() {
+        return _backgroundRowWriter == null ? 0 : _backgroundRowWriter.getCapacity();
+    }
+
+    /**
+     * Set whether flushed rows are serialized by a background thread.
+     * <p>
+     *   By default, the rows are serialized and written to the temp files by the thread, which
+     *   flushes them, i.e. which calls {@link SXSSFSheet#createRow(int)} when the row access window
+     *   is full. With a queue size greater than 0, the flushed rows are handed to a single writer
+     *   thread and the producing thread only blocks, if the queue is full.
+     *   The queue is drained, before the sheet data is written.
+     * </p>
+     * <p>
+     *   Flushed rows must not be modified anymore, as they are written concurrently.
+     *   The queue depth and wait times can be monitored via {@link #getBackgroundRowWriter()}.
+     * </p>
+     *
+     * @param queueSize the max. number of queued rows or 0 to write the rows on the flushing thread
+     * @throws IOException if writing the already queued rows fails
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setBackgroundFlushQueueSize(int queueSize) throws IOException {
+        if (queueSize < 0) {
+            throw new IllegalArgumentException("queueSize must not be negative");
+        }
+        if (_backgroundRowWriter != null) {
+            BackgroundRowWriter old = _backgroundRowWriter;
+            _backgroundRowWriter = null;
+            old.close();
+        }
+        if (queueSize > 0) {
+            _backgroundRowWriter = new BackgroundRowWriter(queueSize);
+        }
+    }
+
+    /**
+     * @return the background writer with its metrics, or {@code null} if the flushed rows are
+     *  written by the flushing thread
+     * @see #setBackgroundFlushQueueSize(int)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public BackgroundRowWriter getBackgroundRowWriter() {
+        return _backgroundRowWriter;
+    }
+
+    /*package*/ FormulaDependencyTracker getFormulaDependencyTracker() {
+        return _formulaDependencyTracker;
+    }
+
+    /*package*/ void setFormulaDependencyTracker(FormulaDependencyTracker tracker) {
+        _formulaDependencyTracker = tracker;
+    }
+
+    /**
+     * @return true, if the zip entry is the shared strings part, which is replaced by the streaming table
+     */
+    private boolean isStreamingSharedStringsEntry(String entryName) {
+        if (_streamingSharedStrings == null || _wb.getSharedStringSource() == null) {
+            return false;
+        }
+        return entryName.equals(_wb.getSharedStringSource().getPackagePart().getPartName().getName().substring(1));
+    }
+
     @Internal
     protected SharedStringsTable getSharedStringSource() {
         return _sharedStringSource;
     }
 
     protected SheetDataWriter createSheetDataWriter() throws IOException {
+        if(_sheetDataStore != null) {
+            return _useUtf8SheetDataWriter
+                ? new Utf8SheetDataWriter(_sheetDataStore.createSheetData(), _sharedStringSource)
+                : new SheetDataStoreWriter(_sheetDataStore.createSheetData(), _sharedStringSource);
+        }
+
+        if(_useUtf8SheetDataWriter) {
+            return new Utf8SheetDataWriter(_sharedStringSource, _compressTmpFiles);
+        }
+
         if(_compressTmpFiles) {
             return new GZIPSheetDataWriter(_sharedStringSource);
         }
@@ -384,6 +638,15 @@ public class SXSSFWorkbook implements Workbook {
         return new SheetDataWriter(_sharedStringSource);
     }
 
+    /**
+     * Creates the writer of a sheet, which isn't written as xml, e.g. of a xlsb workbook
+     *
+     * @return the writer or {@code null} to use the xml writer of {@link #createSheetDataWriter()}
+     */
+    BaseSheetDataWriter createBinarySheetDataWriter() throws IOException {
+        return null;
+    }
+
     XSSFSheet getXSSFSheet(SXSSFSheet sheet)
     {
         return _sxFromXHash.get(sheet);
@@ -405,7 +668,12 @@ public class SXSSFWorkbook implements Workbook {
         SXSSFSheet sxSheet = getSXSSFSheet(xSheet);
         if (sxSheet != null) {
             // ensure that the writer is closed in all cases to not have lingering writers
-            IOUtils.closeQuietly(sxSheet.getSheetDataWriter());
+            try {
+                sxSheet.awaitFlushedRows();
+            } catch (IOException e) {
+                LOG.atWarn().withThrowable(e).log("An exception occurred while writing the flushed rows of sheet {}.", sxSheet.getSheetName());
+            }
+            IOUtils.closeQuietly(sxSheet.getRowWriter());
             _sxFromXHash.remove(sxSheet);
             _xFromSxHash.remove(xSheet);
         }
@@ -423,6 +691,10 @@ public class SXSSFWorkbook implements Workbook {
     }
 
     protected void injectData(ZipEntrySource zipEntrySource, OutputStream out) throws IOException {
+        if (_parallelWriteThreads > 1) {
+            injectDataParallel(zipEntrySource, out);
+            return;
+        }
         ArchiveOutputStream zos = createArchiveOutputStream(out);
         try {
             Enumeration<? extends ZipArchiveEntry> en = zipEntrySource.getEntries();
@@ -443,6 +715,8 @@ public class SXSSFWorkbook implements Workbook {
                     if (xSheet != null && !(xSheet instanceof XSSFChartSheet)) {
                         SXSSFSheet sxSheet = getSXSSFSheet(xSheet);
                         copyStreamAndInjectWorksheet(is, zos, createSheetInjector(sxSheet));
+                    } else if (isStreamingSharedStringsEntry(ze.getName())) {
+                        _streamingSharedStrings.writeTo(zos);
                     } else {
                         IOUtils.copy(is, zos);
                     }
@@ -456,6 +730,47 @@ public class SXSSFWorkbook implements Workbook {
         }
     }
 
+    private void injectDataParallel(ZipEntrySource zipEntrySource, OutputStream out) throws IOException {
+        try (ParallelPartDeflater deflater = new ParallelPartDeflater(_parallelWriteThreads)) {
+            Enumeration<? extends ZipArchiveEntry> en = zipEntrySource.getEntries();
+            while (en.hasMoreElements()) {
+                ZipArchiveEntry ze = en.nextElement();
+                // the template entries are read on this thread, only the compression is done by the workers
+                final UnsynchronizedByteArrayOutputStream template = new UnsynchronizedByteArrayOutputStream();
+                try (final InputStream is = zipEntrySource.getInputStream(ze)) {
+                    if (is instanceof ZipArchiveThresholdInputStream) {
+                        // #59743 - disable Threshold handling for SXSSF copy
+                        ((ZipArchiveThresholdInputStream)is).setGuardState(false);
+                    }
+                    IOUtils.copy(is, template);
+                }
+                XSSFSheet xSheet = getSheetFromZipEntryName(ze.getName());
+                // See bug 56557, we should not inject data into the special ChartSheets
+                if (xSheet != null && !(xSheet instanceof XSSFChartSheet)) {
+                    ISheetInjector injector = createSheetInjector(getSXSSFSheet(xSheet));
+                    deflater.submit(ze.getName(), ze.getTime(), true, (output) -> {
+                        try (InputStream is = template.toInputStream()) {
+                            copyStreamAndInjectWorksheet(is, output, injector);
+                        }
+                    });
+                } else if (isStreamingSharedStringsEntry(ze.getName())) {
+                    deflater.submit(ze.getName(), ze.getTime(), true, _streamingSharedStrings::writeTo);
+                } else {
+                    deflater.submit(ze.getName(), ze.getTime(), false, template::writeTo);
+                }
+            }
+
+            ZipArchiveOutputStream zos = createArchiveOutputStream(out);
+            try {
+                deflater.writeTo(zos);
+            } finally {
+                zos.finish();
+            }
+        } finally {
+            zipEntrySource.close();
+        }
+    }
+
     protected ZipArchiveOutputStream createArchiveOutputStream(OutputStream out) {
         if (Zip64Mode.Always.equals(zip64Mode)) {
             return new OpcZipArchiveOutputStream(out);
@@ -860,6 +1175,9 @@ public class SXSSFWorkbook implements Workbook {
 
         // De-register it
         _wb.removeSheetAt(index);
+        if (_formulaDependencyTracker != null) {
+            _formulaDependencyTracker.removeSheet(sxSheet);
+        }
         deregisterSheetMapping(xSheet);
 
         // Clean up temporary resources
@@ -955,11 +1273,19 @@ public class SXSSFWorkbook implements Workbook {
      */
     @Override
     public void close() throws IOException {
+        if (_backgroundRowWriter != null) {
+            try {
+                _backgroundRowWriter.close();
+            } catch (IOException e) {
+                LOG.atWarn().withThrowable(e).log("An exception occurred while writing the flushed rows.");
+            }
+        }
+
         // ensure that any lingering writer is closed
         for (SXSSFSheet sheet : _xFromSxHash.values())
         {
             try {
-                SheetDataWriter _writer = sheet.getSheetDataWriter();
+                BaseSheetDataWriter _writer = sheet.getRowWriter();
                 if (_writer != null) _writer.close();
             } catch (IOException e) {
                 LOG.atWarn().withThrowable(e).log("An exception occurred while closing sheet data writer for sheet {}.", sheet.getSheetName());
@@ -967,6 +1293,10 @@ public class SXSSFWorkbook implements Workbook {
         }
 
 
+        if (_streamingSharedStrings != null) {
+            _streamingSharedStrings.close();
+        }
+
         // Tell the base workbook to close, does nothing if
         //  it's a newly created one
         _wb.close();
@@ -1037,6 +1367,8 @@ public class SXSSFWorkbook implements Workbook {
         for (SXSSFSheet sheet : _xFromSxHash.values()) {
             sheet.deriveDimension();
             sheet.flushRows();
+            // the shared strings of queued rows must be complete before the template is saved
+            sheet.awaitFlushedRows();
         }
     }
 
@@ -1057,6 +1389,14 @@ public class SXSSFWorkbook implements Workbook {
                 success = false;
             }
         }
+        if (_streamingSharedStrings != null) {
+            try {
+                _streamingSharedStrings.close();
+            } catch (IOException e) {
+                LOG.atWarn().withThrowable(e).log("Failed to close shared strings table");
+                success = false;
+            }
+        }
         return success;
     }
 
@@ -0,0 +1,74 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.poi.util.Beta;
+
+/**
+ * A store for the flushed "sheetData" fragments of a {@link SXSSFWorkbook}.
+ * <p>
+ * By default, every {@link SXSSFSheet} writes its flushed rows to its own temp file.
+ * A sheet data store replaces these temp files, e.g. to keep the data in memory
+ * and to share resources between all sheets of one or more workbooks.
+ * </p>
+ * <p>
+ * The store is not closed by the workbook, as it can be shared between workbooks.
+ * </p>
+ *
+ * @see SXSSFWorkbook#setSheetDataStore(SheetDataStore)
+ * @see SpillingSheetDataStore
+ * @since POI 5.2.4
+ */
+@Beta
+public interface SheetDataStore extends Closeable {
+
+    /**
+     * The data of a single sheet
+     */
+    interface SheetData {
+        /**
+         * @return the stream to append the XML of flushed rows to - closing the stream completes the data
+         */
+        OutputStream getOutputStream();
+
+        /**
+         * @return a stream to read the completed data, the output stream must have been closed before
+         */
+        InputStream getInputStream() throws IOException;
+
+        /**
+         * Releases the resources held by this data
+         *
+         * @return true, if all resources were released
+         */
+        boolean dispose();
+    }
+
+    /**
+     * Creates an empty data buffer for a new sheet
+     *
+     * @return the sheet data buffer
+     * @throws IOException if the buffer can't be created
+     */
+    SheetData createSheetData() throws IOException;
+}
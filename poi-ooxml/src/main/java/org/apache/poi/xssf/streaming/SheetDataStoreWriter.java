@@ -0,0 +1,54 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.poi.xssf.model.SharedStringsTable;
+
+/**
+ * Sheet writer which appends the sheet data to a {@link SheetDataStore} instead of a temp file.
+ */
+class SheetDataStoreWriter extends SheetDataWriter {
+    private final SheetDataStore.SheetData _data;
+
+    SheetDataStoreWriter(SheetDataStore.SheetData data, SharedStringsTable sharedStringsTable) throws IOException {
+        super(new BufferedWriter(new OutputStreamWriter(data.getOutputStream(), StandardCharsets.UTF_8)), sharedStringsTable);
+        _data = data;
+    }
+
+    @Override
+    public InputStream getWorksheetXMLInputStream() throws IOException {
+        return _data.getInputStream();
+    }
+
+    @Override
+    boolean dispose() throws IOException {
+        final boolean ret;
+        try {
+            _out.close();
+        } finally {
+            ret = _data.dispose();
+        }
+        return ret;
+    }
+}
@@ -20,12 +20,9 @@
 package org.apache.poi.xssf.streaming;
 
 import java.io.BufferedWriter;
-import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
@@ -38,7 +35,6 @@ import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.FormulaError;
-import org.apache.poi.ss.usermodel.RichTextString;
 import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.util.CodepointsUtil;
 import org.apache.poi.util.Removal;
@@ -52,36 +48,49 @@ import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
  * this class only writes the "sheetData" document fragment
  * so that it was renamed to "SheetDataWriter"
  */
-public class SheetDataWriter implements Closeable {
+public class SheetDataWriter extends BaseSheetDataWriter {
     private static final Logger LOG = LogManager.getLogger(SheetDataWriter.class);
 
     private final File _fd;
     protected final Writer _out;
     private int _rownum;
-    private int _numberOfFlushedRows;
-    private int _lowestIndexOfFlushedRows; // meaningful only of _numberOfFlushedRows>0
-    private int _numberOfCellsOfLastFlushedRow; // meaningful only of _numberOfFlushedRows>0
-    private int _numberLastFlushedRow = -1; // meaningful only of _numberOfFlushedRows>0
-
-    /**
-     * Table of strings shared across this workbook.
-     * If two cells contain the same string, then the cell value is the same index into SharedStringsTable
-     */
-    private SharedStringsTable _sharedStringSource;
 
     public SheetDataWriter() throws IOException {
+        super(null);
         _fd = createTempFile();
         _out = createWriter(_fd);
     }
 
     public SheetDataWriter(Writer writer) throws IOException {
+        super(null);
         _fd = null;
         _out = writer;
     }
 
     public SheetDataWriter(SharedStringsTable sharedStringsTable) throws IOException {
         this();
-        this._sharedStringSource = sharedStringsTable;
+        setSharedStringSource(sharedStringsTable);
+    }
+
+    /**
+     * @param writer the writer for the sheet data
+     * @param sharedStringsTable the shared strings table, or null if inline text is used
+     * @since POI 5.2.4
+     */
+    protected SheetDataWriter(Writer writer, SharedStringsTable sharedStringsTable) throws IOException {
+        this(null, writer, sharedStringsTable);
+    }
+
+    /**
+     * @param fd the file backing the writer or null if no temp file is used
+     * @param writer the writer for the sheet data
+     * @param sharedStringsTable the shared strings table, or null if inline text is used
+     * @since POI 5.2.4
+     */
+    protected SheetDataWriter(File fd, Writer writer, SharedStringsTable sharedStringsTable) throws IOException {
+        super(sharedStringsTable);
+        _fd = fd;
+        _out = writer;
     }
 
     /**
@@ -128,7 +137,7 @@ public class SheetDataWriter implements Closeable {
      * @param fos  the stream to decorate
      * @return a decorated stream
      * @throws IOException if decorating the stream fails
-     * @see #decorateInputStream(FileInputStream)
+     * @see #decorateInputStream(java.io.FileInputStream)
      */
     protected OutputStream decorateOutputStream(FileOutputStream fos) throws IOException {
         return fos;
@@ -138,85 +147,18 @@ public class SheetDataWriter implements Closeable {
      * flush and close the temp data writer.
      * This method <em>must</em> be invoked before calling {@link #getWorksheetXMLInputStream()}
      */
+    @Override
     public void close() throws IOException {
         // this would break writing the same document multiple times: _out.flush();
         _out.close();
     }
 
+    @Override
     protected File getTempFile() {
         return _fd;
     }
 
-    /**
-     * @return a stream to read temp file with the sheet data
-     */
-    public InputStream getWorksheetXMLInputStream() throws IOException {
-        File fd = getTempFile();
-        if (fd == null) {
-            throw new IOException("getWorksheetXMLInputStream only works when a temp file is used");
-        }
-        FileInputStream fis = new FileInputStream(fd);
-        try {
-            return decorateInputStream(fis);
-        } catch (IOException e) {
-            fis.close();
-            throw e;
-        }
-    }
-
-    /**
-     * Override this to translate (such as decrypt or expand) the file input stream
-     * as it is being read from disk.
-     * The default behavior is to to pass the stream through unmodified.
-     *
-     * @param fis  the stream to decorate
-     * @return a decorated stream
-     * @throws IOException if decorating the stream fails
-     * @see #decorateOutputStream(FileOutputStream)
-     */
-    protected InputStream decorateInputStream(FileInputStream fis) throws IOException {
-        return fis;
-    }
-
-    public int getNumberOfFlushedRows() {
-        return _numberOfFlushedRows;
-    }
-
-    public int getNumberOfCellsOfLastFlushedRow() {
-        return _numberOfCellsOfLastFlushedRow;
-    }
-
-    public int getLowestIndexOfFlushedRows() {
-        return _lowestIndexOfFlushedRows;
-    }
-
-    public int getLastFlushedRow() {
-        return _numberLastFlushedRow;
-    }
-
-    /**
-     * Write a row to the file
-     *
-     * @param rownum 0-based row number
-     * @param row    a row
-     *
-     * @throws IOException If an I/O error occurs
-     */
-    public void writeRow(int rownum, SXSSFRow row) throws IOException {
-        if (_numberOfFlushedRows == 0)
-            _lowestIndexOfFlushedRows = rownum;
-        _numberLastFlushedRow = Math.max(rownum, _numberLastFlushedRow);
-        _numberOfCellsOfLastFlushedRow = row.getLastCellNum();
-        _numberOfFlushedRows++;
-        beginRow(rownum, row);
-        Iterator<Cell> cells = row.allCellsIterator();
-        int columnIndex = 0;
-        while (cells.hasNext()) {
-            writeCell(columnIndex++, cells.next());
-        }
-        endRow();
-    }
-
+    @Override
     void beginRow(int rownum, SXSSFRow row) throws IOException {
         _out.write("<row");
         writeAttribute("r", Integer.toString(rownum + 1));
@@ -245,10 +187,72 @@ public class SheetDataWriter implements Closeable {
         this._rownum = rownum;
     }
 
+    /**
+     * Begins a row without row properties
+     */
+    @Override
+    void beginRow(int rownum) throws IOException {
+        _out.write("<row");
+        writeAttribute("r", Integer.toString(rownum + 1));
+        _out.write(">\n");
+        this._rownum = rownum;
+    }
+
+    @Override
     void endRow() throws IOException {
         _out.write("</row>\n");
     }
 
+    @Override
+    void writeNumericCell(int columnIndex, double value, int styleIndex) throws IOException {
+        beginCell(columnIndex, styleIndex);
+        writeAttribute("t", "n");
+        _out.write("><v>");
+        _out.write(Double.toString(value));
+        _out.write("</v></c>");
+    }
+
+    @Override
+    void writeErrorCell(int columnIndex, FormulaError error, int styleIndex) throws IOException {
+        beginCell(columnIndex, styleIndex);
+        writeAttribute("t", "e");
+        _out.write("><v>");
+        outputEscapedString(error.getString());
+        _out.write("</v></c>");
+    }
+
+    @Override
+    void writeStringCell(int columnIndex, String value, int styleIndex) throws IOException {
+        beginCell(columnIndex, styleIndex);
+        if (getSharedStringSource() != null) {
+            int sRef = addSharedString(value);
+
+            writeAttribute("t", STCellType.S.toString());
+            _out.write("><v>");
+            _out.write(String.valueOf(sRef));
+            _out.write("</v>");
+        } else {
+            writeAttribute("t", "inlineStr");
+            _out.write("><is><t");
+            if (hasLeadingTrailingSpaces(value)) {
+                writeAttribute("xml:space", "preserve");
+            }
+            _out.write(">");
+            outputEscapedString(value);
+            _out.write("</t></is>");
+        }
+        _out.write("</c>");
+    }
+
+    private void beginCell(int columnIndex, int styleIndex) throws IOException {
+        _out.write("<c");
+        writeAttribute("r", new CellReference(_rownum, columnIndex).formatAsString());
+        if (styleIndex != 0) {
+            writeAttribute("s", Integer.toString(styleIndex));
+        }
+    }
+
+    @Override
     public void writeCell(int columnIndex, Cell cell) throws IOException {
         if (cell == null) {
             return;
@@ -321,9 +325,8 @@ public class SheetDataWriter implements Closeable {
                 break;
             }
             case STRING: {
-                if (_sharedStringSource != null) {
-                    RichTextString rt = cell.getRichStringCellValue();
-                    int sRef = _sharedStringSource.addSharedStringItem(rt);
+                if (getSharedStringSource() != null) {
+                    int sRef = addSharedString(cell);
 
                     writeAttribute("t", STCellType.S.toString());
                     _out.write("><v>");
@@ -447,14 +450,12 @@ public class SheetDataWriter implements Closeable {
         return c < ' ' || ('\uFFFE' <= c && c <= '\uFFFF');
     }
 
+    @Override
     void flush() throws IOException {
         this._out.flush();
     }
 
-    /**
-     * Deletes the temporary file that backed this sheet on disk.
-     * @return true if the file was deleted, false if it wasn't.
-     */
+    @Override
     boolean dispose() throws IOException {
         final boolean ret;
         try {
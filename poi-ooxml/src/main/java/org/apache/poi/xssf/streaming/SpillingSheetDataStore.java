@@ -0,0 +1,440 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.TempFile;
+
+/**
+ * A {@link SheetDataStore} which keeps the sheet data of all sheets in compressed off-heap chunks
+ * within a global memory budget.
+ * <p>
+ * The XML of the flushed rows is collected in chunks of {@link #DEFAULT_CHUNK_SIZE} bytes, which are
+ * deflated and copied to direct (off-heap) buffers. When the compressed size of all held chunks would
+ * exceed the memory budget, further chunks are appended to a single spill file, which is shared by
+ * all sheets using this store. So instead of a temp file per sheet, at most one temp file is created
+ * and only if the memory budget is exceeded.
+ * </p>
+ * <p>
+ * The space of disposed sheets is given back to the memory budget, but the spill file is only
+ * truncated when the store is closed. Instances can be shared between workbooks and threads.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public class SpillingSheetDataStore implements SheetDataStore {
+    private static final Logger LOG = LogManager.getLogger(SpillingSheetDataStore.class);
+
+    /**
+     * The default number of uncompressed bytes which are compressed as one chunk
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final long _memoryBudget;
+    private final int _chunkSize;
+    private final int _compressionLevel;
+
+    private long _bytesInMemory;
+    private long _bytesSpilled;
+    private long _bytesWritten;
+    private File _spillFile;
+    private RandomAccessFile _spillRaf;
+    private FileChannel _spillChannel;
+    private boolean _closed;
+
+    /**
+     * @param memoryBudget the maximum number of compressed bytes held in memory
+     */
+    public SpillingSheetDataStore(long memoryBudget) {
+        this(memoryBudget, DEFAULT_CHUNK_SIZE, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * @param memoryBudget the maximum number of compressed bytes held in memory
+     * @param chunkSize the number of uncompressed bytes which are compressed together
+     * @param compressionLevel the deflate level used for the chunks, see {@link Deflater#setLevel(int)}
+     */
+    public SpillingSheetDataStore(long memoryBudget, int chunkSize, int compressionLevel) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("memoryBudget must not be negative");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be greater than 0");
+        }
+        _memoryBudget = memoryBudget;
+        _chunkSize = chunkSize;
+        _compressionLevel = compressionLevel;
+    }
+
+    /**
+     * @return the maximum number of compressed bytes held in memory
+     */
+    public long getMemoryBudget() {
+        return _memoryBudget;
+    }
+
+    /**
+     * @return the number of compressed bytes currently held in off-heap memory
+     */
+    public synchronized long getBytesInMemory() {
+        return _bytesInMemory;
+    }
+
+    /**
+     * @return the number of compressed bytes which have been written to the spill file
+     */
+    public synchronized long getBytesSpilled() {
+        return _bytesSpilled;
+    }
+
+    /**
+     * @return the number of uncompressed bytes which have been written to this store
+     */
+    public synchronized long getBytesWritten() {
+        return _bytesWritten;
+    }
+
+    /**
+     * @return the spill file or {@code null}, if the memory budget hasn't been exceeded yet
+     */
+    public synchronized File getSpillFile() {
+        return _spillFile;
+    }
+
+    @Override
+    public synchronized SheetData createSheetData() throws IOException {
+        if (_closed) {
+            throw new IOException("SheetDataStore has been closed");
+        }
+        return new ChunkedSheetData();
+    }
+
+    /**
+     * Releases the memory and deletes the spill file.
+     * The data of sheets using this store can't be read anymore afterwards.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (_closed) {
+            return;
+        }
+        _closed = true;
+        _bytesInMemory = 0;
+        if (_spillRaf != null) {
+            try {
+                _spillRaf.close();
+            } finally {
+                if (!_spillFile.delete()) {
+                    LOG.atWarn().log("Could not delete spill file: {}", _spillFile);
+                }
+                _spillRaf = null;
+                _spillChannel = null;
+            }
+        }
+    }
+
+    private synchronized Chunk store(byte[] data, int length, int rawLength) throws IOException {
+        if (_closed) {
+            throw new IOException("SheetDataStore has been closed");
+        }
+        _bytesWritten += rawLength;
+        if (_bytesInMemory + length <= _memoryBudget) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+            buffer.put(data, 0, length);
+            buffer.flip();
+            _bytesInMemory += length;
+            return new Chunk(buffer, -1, length, rawLength);
+        }
+
+        if (_spillChannel == null) {
+            _spillFile = TempFile.createTempFile("poi-sxssf-spill", ".tmp");
+            _spillRaf = new RandomAccessFile(_spillFile, "rw");
+            _spillChannel = _spillRaf.getChannel();
+        }
+        long offset = _bytesSpilled;
+        ByteBuffer src = ByteBuffer.wrap(data, 0, length);
+        long pos = offset;
+        while (src.hasRemaining()) {
+            pos += _spillChannel.write(src, pos);
+        }
+        _bytesSpilled += length;
+        return new Chunk(null, offset, length, rawLength);
+    }
+
+    private synchronized void release(Chunk chunk) {
+        if (chunk.buffer != null && !_closed) {
+            _bytesInMemory -= chunk.length;
+        }
+    }
+
+    private void readChunk(Chunk chunk, byte[] dst) throws IOException {
+        if (chunk.buffer != null) {
+            chunk.buffer.duplicate().get(dst, 0, chunk.length);
+            return;
+        }
+        final FileChannel channel;
+        synchronized (this) {
+            if (_closed) {
+                throw new IOException("SheetDataStore has been closed");
+            }
+            channel = _spillChannel;
+        }
+        // positional reads are safe to be used concurrently
+        ByteBuffer bb = ByteBuffer.wrap(dst, 0, chunk.length);
+        long pos = chunk.offset;
+        while (bb.hasRemaining()) {
+            int read = channel.read(bb, pos);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of spill file");
+            }
+            pos += read;
+        }
+    }
+
+    private static final class Chunk {
+        final ByteBuffer buffer;
+        final long offset;
+        final int length;
+        final int rawLength;
+
+        Chunk(ByteBuffer buffer, long offset, int length, int rawLength) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+            this.rawLength = rawLength;
+        }
+    }
+
+    private final class ChunkedSheetData extends OutputStream implements SheetData {
+        private final List<Chunk> chunks = new ArrayList<>();
+        private byte[] raw = new byte[_chunkSize];
+        private byte[] compressed = new byte[_chunkSize / 2 + 64];
+        private int rawLength;
+        private Deflater deflater = new Deflater(_compressionLevel);
+        private boolean closed;
+        private boolean disposed;
+
+        @Override
+        public OutputStream getOutputStream() {
+            return this;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureOpen();
+            raw[rawLength++] = (byte)b;
+            if (rawLength == raw.length) {
+                sealChunk();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            while (len > 0) {
+                int count = Math.min(len, raw.length - rawLength);
+                System.arraycopy(b, off, raw, rawLength, count);
+                rawLength += count;
+                off += count;
+                len -= count;
+                if (rawLength == raw.length) {
+                    sealChunk();
+                }
+            }
+        }
+
+        /**
+         * Flushing is a no-op, as partially filled chunks would waste memory
+         */
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            try {
+                if (!disposed && rawLength > 0) {
+                    sealChunk();
+                }
+            } finally {
+                closed = true;
+                releaseBuffers();
+            }
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Sheet data has already been completed");
+            }
+        }
+
+        private void sealChunk() throws IOException {
+            deflater.reset();
+            deflater.setInput(raw, 0, rawLength);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            chunks.add(store(compressed, length, rawLength));
+            rawLength = 0;
+        }
+
+        private void releaseBuffers() {
+            if (deflater != null) {
+                deflater.end();
+                deflater = null;
+            }
+            raw = null;
+            compressed = null;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (!closed) {
+                throw new IOException("Sheet data needs to be completed before it can be read");
+            }
+            if (disposed) {
+                throw new IOException("Sheet data has already been disposed");
+            }
+            return new ChunkInputStream(new ArrayList<>(chunks));
+        }
+
+        @Override
+        public boolean dispose() {
+            disposed = true;
+            closed = true;
+            releaseBuffers();
+            for (Chunk chunk : chunks) {
+                release(chunk);
+            }
+            chunks.clear();
+            return true;
+        }
+    }
+
+    private final class ChunkInputStream extends InputStream {
+        private final List<Chunk> chunks;
+        private final Inflater inflater = new Inflater();
+        private int chunkIndex;
+        private byte[] compressed = new byte[0];
+        private byte[] raw = new byte[0];
+        private int rawPos;
+        private int rawLength;
+        private boolean closed;
+
+        ChunkInputStream(List<Chunk> chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return raw[rawPos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, rawLength - rawPos);
+            System.arraycopy(raw, rawPos, b, off, count);
+            rawPos += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return rawLength - rawPos;
+        }
+
+        private boolean fill() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            while (rawPos == rawLength) {
+                if (chunkIndex == chunks.size()) {
+                    return false;
+                }
+                Chunk chunk = chunks.get(chunkIndex++);
+                if (compressed.length < chunk.length) {
+                    compressed = new byte[chunk.length];
+                }
+                if (raw.length < chunk.rawLength) {
+                    raw = new byte[chunk.rawLength];
+                }
+                readChunk(chunk, compressed);
+                inflater.reset();
+                inflater.setInput(compressed, 0, chunk.length);
+                try {
+                    int length = 0;
+                    while (length < chunk.rawLength && !inflater.finished()) {
+                        int n = inflater.inflate(raw, length, chunk.rawLength - length);
+                        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            throw new EOFException("Truncated sheet data chunk");
+                        }
+                        length += n;
+                    }
+                    rawPos = 0;
+                    rawLength = length;
+                } catch (DataFormatException e) {
+                    throw new IOException("Corrupted sheet data chunk", e);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                inflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,616 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.apache.poi.ooxml.POIXMLTypeLoader.DEFAULT_XML_OPTIONS;
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlOptions;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRst;
+
+/**
+ * A shared strings table for {@link SXSSFWorkbook}, which doesn't keep the strings on the heap.
+ * <p>
+ * Each unique string is serialized once to its {@code <si>} element and appended to a temp file,
+ * which is copied as-is into {@code sharedStrings.xml} when the workbook is written.
+ * The deduplication is done via an open addressing hash index in off-heap memory, which
+ * holds the hash and the entry number of the strings, and an index of the entry offsets.
+ * Hash hits are verified against the serialized entry, so only a small LRU set of recently used
+ * strings is kept on the heap.
+ * </p>
+ * <p>
+ * Compared to {@link SharedStringsTable}, no {@link CTRst} objects are created for plain strings.
+ * Random access via {@link #getItemAt(int)} is supported, but needs to read and parse the entry.
+ * </p>
+ *
+ * @see SXSSFWorkbook#SXSSFWorkbook(org.apache.poi.xssf.usermodel.XSSFWorkbook, int, boolean, StreamingSharedStringsTable)
+ * @since POI 5.2.4
+ */
+@Beta
+public class StreamingSharedStringsTable extends SharedStringsTable {
+    private static final Logger LOG = LogManager.getLogger(StreamingSharedStringsTable.class);
+
+    /**
+     * The default number of recently used strings, which are kept on the heap
+     */
+    public static final int DEFAULT_HOT_SET_SIZE = 10_000;
+
+    private static final byte[] SST_START = ("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<sst xmlns=\"" + NS_SPREADSHEETML + "\" count=\"").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SST_END = "</sst>".getBytes(StandardCharsets.US_ASCII);
+    private static final String SI_NS_START = "<si xmlns=\"" + NS_SPREADSHEETML + "\">";
+    private static final byte[] SI_START = "<si>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] T_START = "<si><t>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] T_START_PRESERVE = "<si><t xml:space=\"preserve\">".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] T_END = "</t></si>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LT = "&lt;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GT = "&gt;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] AMP = "&amp;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CR = "&#xd;".getBytes(StandardCharsets.US_ASCII);
+
+    private static final XmlOptions SAVE_OPTIONS = new XmlOptions();
+    private static final XmlOptions PARSE_OPTIONS = new XmlOptions(DEFAULT_XML_OPTIONS);
+    static {
+        SAVE_OPTIONS.setSaveSyntheticDocumentElement(new QName(NS_SPREADSHEETML, "si"));
+        SAVE_OPTIONS.setUseDefaultNamespace(true);
+        SAVE_OPTIONS.setSaveAggressiveNamespaces();
+        // the content of the <si> element is the entry
+        PARSE_OPTIONS.setLoadReplaceDocumentElement(null);
+    }
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_INDEX_CAPACITY = 1 << 16;
+
+    private final int _hotSetSize;
+    private final Map<String, Integer> _hotSet;
+
+    /** hash index: the upper 32 bits of a slot are the hash, the lower the entry number + 1 */
+    private OffHeapLongArray _index = new OffHeapLongArray(INITIAL_INDEX_CAPACITY);
+    private long _indexCapacity = INITIAL_INDEX_CAPACITY;
+    /** the offsets of the entries in the data */
+    private OffHeapLongArray _offsets = new OffHeapLongArray(INITIAL_INDEX_CAPACITY);
+
+    /** the serialized entries - the tail is kept in the write buffer */
+    private File _dataFile;
+    private RandomAccessFile _dataRaf;
+    private FileChannel _dataChannel;
+    private byte[] _writeBuffer = new byte[WRITE_BUFFER_SIZE];
+    private int _writeBufferLength;
+    private long _flushedSize;
+
+    /** the currently serialized entry */
+    private byte[] _entry = new byte[256];
+    private int _entryLength;
+    /** buffer for verifying hash hits */
+    private byte[] _compare = new byte[256];
+
+    private boolean _closed;
+
+    /**
+     * Creates a table, which keeps the {@link #DEFAULT_HOT_SET_SIZE default number} of recently used strings on the heap
+     */
+    public StreamingSharedStringsTable() {
+        this(DEFAULT_HOT_SET_SIZE);
+    }
+
+    /**
+     * @param hotSetSize the number of recently used strings, which are kept on the heap - 0 to disable the hot set
+     */
+    public StreamingSharedStringsTable(int hotSetSize) {
+        if (hotSetSize < 0) {
+            throw new IllegalArgumentException("hotSetSize must not be negative");
+        }
+        _hotSetSize = hotSetSize;
+        _hotSet = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > _hotSetSize;
+            }
+        };
+    }
+
+    /**
+     * @return the number of recently used strings, which are kept on the heap
+     */
+    public int getHotSetSize() {
+        return _hotSetSize;
+    }
+
+    /**
+     * Add a plain string to this table.
+     * If the table already contains this string, its index is returned.
+     *
+     * @param string the string to add
+     * @return the index of the string
+     */
+    public int addSharedString(String string) {
+        if (string == null) {
+            throw new IllegalArgumentException("string must not be null");
+        }
+        ensureOpen();
+        count++;
+        if (_hotSetSize > 0) {
+            Integer idx = _hotSet.get(string);
+            if (idx != null) {
+                return idx;
+            }
+        }
+        encodePlain(string);
+        int idx = addEntry();
+        if (_hotSetSize > 0) {
+            _hotSet.put(string, idx);
+        }
+        return idx;
+    }
+
+    /**
+     * Add an entry to this table.
+     * Strings without formatting runs are handled like {@link #addSharedString(String)}.
+     *
+     * @param string the entry to add
+     * @return the index of the entry
+     */
+    @Override
+    public int addSharedStringItem(RichTextString string) {
+        if (!(string instanceof XSSFRichTextString)) {
+            throw new IllegalArgumentException("Only XSSFRichTextString argument is supported");
+        }
+        CTRst st = ((XSSFRichTextString) string).getCTRst();
+        if (isPlain(st)) {
+            return addSharedString(st.getT());
+        }
+        ensureOpen();
+        count++;
+        encodeRich(st);
+        return addEntry();
+    }
+
+    /**
+     * Appends the entries of another table, e.g. of a template workbook.
+     * The entries keep their indexes, if this table is empty.
+     *
+     * @param sst the table to copy
+     */
+    void importEntries(SharedStringsTable sst) {
+        ensureOpen();
+        for (RichTextString rt : sst.getSharedStringItems()) {
+            CTRst st = ((XSSFRichTextString) rt).getCTRst();
+            // key plain entries like addSharedString does, so that they are found again
+            if (isPlain(st)) {
+                encodePlain(st.getT());
+            } else {
+                encodeRich(st);
+            }
+            int hash = hash(_entry, _entryLength);
+            appendEntry(hash, findSlot(hash));
+        }
+        count += sst.getCount();
+    }
+
+    /**
+     * Return a string item by index - the item is read back and parsed
+     *
+     * @param idx index of item to return.
+     * @return the item at the specified position in this table
+     */
+    @Override
+    public RichTextString getItemAt(int idx) {
+        if (idx < 0 || idx >= uniqueCount) {
+            throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + uniqueCount);
+        }
+        ensureOpen();
+        try {
+            int length = getEntryLength(idx);
+            byte[] buf = new byte[length];
+            readEntry(idx, buf, length);
+            String xml = new String(buf, 0, length, StandardCharsets.UTF_8);
+            if (xml.startsWith("<si>")) {
+                xml = SI_NS_START + xml.substring(4);
+            }
+            return new XSSFRichTextString(CTRst.Factory.parse(xml, PARSE_OPTIONS));
+        } catch (IOException | XmlException e) {
+            throw new POIXMLException("Unable to read shared string " + idx, e);
+        }
+    }
+
+    /**
+     * Provide access to the strings in this table - please note that all strings are read back
+     *
+     * @return list of shared string instances
+     */
+    @Override
+    public List<RichTextString> getSharedStringItems() {
+        List<RichTextString> items = new ArrayList<>(uniqueCount);
+        for (int i = 0; i < uniqueCount; i++) {
+            items.add(getItemAt(i));
+        }
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Streams this table out as XML.
+     *
+     * @param out The stream to write to, which is not closed.
+     * @throws IOException if an error occurs while writing.
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        ensureOpen();
+        out.write(SST_START);
+        out.write(Integer.toString(count).getBytes(StandardCharsets.US_ASCII));
+        out.write(("\" uniqueCount=\"" + uniqueCount + "\">").getBytes(StandardCharsets.US_ASCII));
+        if (_dataChannel != null) {
+            byte[] buf = new byte[WRITE_BUFFER_SIZE];
+            ByteBuffer bb = ByteBuffer.wrap(buf);
+            long pos = 0;
+            while (pos < _flushedSize) {
+                bb.clear();
+                bb.limit((int)Math.min(buf.length, _flushedSize - pos));
+                int read = _dataChannel.read(bb, pos);
+                if (read < 0) {
+                    throw new EOFException("Unexpected end of shared strings file");
+                }
+                out.write(buf, 0, read);
+                pos += read;
+            }
+        }
+        out.write(_writeBuffer, 0, _writeBufferLength);
+        out.write(SST_END);
+    }
+
+    /**
+     * Deletes the temp file and releases the index memory.
+     * The table can't be used anymore afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        if (_closed) {
+            return;
+        }
+        _closed = true;
+        _hotSet.clear();
+        _index = null;
+        _offsets = null;
+        _writeBuffer = null;
+        if (_dataRaf != null) {
+            try {
+                _dataRaf.close();
+            } finally {
+                if (!_dataFile.delete()) {
+                    LOG.atWarn().log("Could not delete shared strings file: {}", _dataFile);
+                }
+                _dataRaf = null;
+                _dataChannel = null;
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (_closed) {
+            throw new IllegalStateException("Shared strings table has been closed");
+        }
+    }
+
+    /**
+     * @return the index of the current entry, which is appended if it is new
+     */
+    private int addEntry() {
+        int hash = hash(_entry, _entryLength);
+        long mask = _indexCapacity - 1;
+        long pos = hash & mask;
+        try {
+            for (;;) {
+                long slot = _index.get(pos);
+                if (slot == 0) {
+                    break;
+                }
+                if ((int)(slot >>> 32) == hash) {
+                    int idx = (int)slot - 1;
+                    if (entryEquals(idx)) {
+                        return idx;
+                    }
+                }
+                pos = (pos + 1) & mask;
+            }
+            return appendEntry(hash, pos);
+        } catch (IOException e) {
+            throw new POIXMLException("Unable to access the shared strings file", e);
+        }
+    }
+
+    private long findSlot(int hash) {
+        long mask = _indexCapacity - 1;
+        long pos = hash & mask;
+        while (_index.get(pos) != 0) {
+            pos = (pos + 1) & mask;
+        }
+        return pos;
+    }
+
+    private int appendEntry(int hash, long slotPos) {
+        if (uniqueCount == Integer.MAX_VALUE - 1) {
+            throw new IllegalStateException("The maximum number of shared strings has been reached");
+        }
+        int idx = uniqueCount++;
+        _offsets.ensureCapacity(uniqueCount);
+        _offsets.set(idx, _flushedSize + _writeBufferLength);
+        try {
+            write(_entry, _entryLength);
+        } catch (IOException e) {
+            throw new POIXMLException("Unable to write the shared strings file", e);
+        }
+        _index.set(slotPos, ((long)hash << 32) | ((idx + 1) & 0xFFFFFFFFL));
+        if (uniqueCount * 2L > _indexCapacity) {
+            growIndex();
+        }
+        return idx;
+    }
+
+    private void growIndex() {
+        long newCapacity = _indexCapacity * 2;
+        long newMask = newCapacity - 1;
+        OffHeapLongArray newIndex = new OffHeapLongArray(newCapacity);
+        for (long i = 0; i < _indexCapacity; i++) {
+            long slot = _index.get(i);
+            if (slot != 0) {
+                long pos = (int)(slot >>> 32) & newMask;
+                while (newIndex.get(pos) != 0) {
+                    pos = (pos + 1) & newMask;
+                }
+                newIndex.set(pos, slot);
+            }
+        }
+        _index = newIndex;
+        _indexCapacity = newCapacity;
+    }
+
+    private boolean entryEquals(int idx) throws IOException {
+        int length = getEntryLength(idx);
+        if (length != _entryLength) {
+            return false;
+        }
+        if (_compare.length < length) {
+            _compare = new byte[Math.max(length, _compare.length * 2)];
+        }
+        readEntry(idx, _compare, length);
+        for (int i = 0; i < length; i++) {
+            if (_compare[i] != _entry[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int getEntryLength(int idx) {
+        long end = (idx + 1 < uniqueCount) ? _offsets.get(idx + 1) : _flushedSize + _writeBufferLength;
+        return (int)(end - _offsets.get(idx));
+    }
+
+    private void readEntry(int idx, byte[] dst, int length) throws IOException {
+        long offset = _offsets.get(idx);
+        if (offset < _flushedSize && offset + length > _flushedSize) {
+            // the entry spans the file and the write buffer
+            flushWriteBuffer();
+        }
+        if (offset >= _flushedSize) {
+            System.arraycopy(_writeBuffer, (int)(offset - _flushedSize), dst, 0, length);
+            return;
+        }
+        ByteBuffer bb = ByteBuffer.wrap(dst, 0, length);
+        long pos = offset;
+        while (bb.hasRemaining()) {
+            int read = _dataChannel.read(bb, pos);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of shared strings file");
+            }
+            pos += read;
+        }
+    }
+
+    private void write(byte[] data, int length) throws IOException {
+        if (length > _writeBuffer.length - _writeBufferLength) {
+            flushWriteBuffer();
+            if (length > _writeBuffer.length) {
+                writeToFile(data, length);
+                return;
+            }
+        }
+        System.arraycopy(data, 0, _writeBuffer, _writeBufferLength, length);
+        _writeBufferLength += length;
+    }
+
+    private void flushWriteBuffer() throws IOException {
+        if (_writeBufferLength > 0) {
+            writeToFile(_writeBuffer, _writeBufferLength);
+            _writeBufferLength = 0;
+        }
+    }
+
+    private void writeToFile(byte[] data, int length) throws IOException {
+        if (_dataChannel == null) {
+            _dataFile = TempFile.createTempFile("poi-sxssf-sst", ".xml");
+            _dataRaf = new RandomAccessFile(_dataFile, "rw");
+            _dataChannel = _dataRaf.getChannel();
+        }
+        ByteBuffer bb = ByteBuffer.wrap(data, 0, length);
+        while (bb.hasRemaining()) {
+            _flushedSize += _dataChannel.write(bb, _flushedSize);
+        }
+    }
+
+    private static boolean isPlain(CTRst st) {
+        return st.sizeOfRArray() == 0 && st.sizeOfRPhArray() == 0 && !st.isSetPhoneticPr() && st.isSetT();
+    }
+
+    private void encodePlain(String s) {
+        _entryLength = 0;
+        int len = s.length();
+        boolean preserve = len > 0 &&
+            (Character.isWhitespace(s.charAt(0)) || Character.isWhitespace(s.charAt(len - 1)));
+        appendAscii(preserve ? T_START_PRESERVE : T_START);
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '<':
+                    appendAscii(LT);
+                    break;
+                case '>':
+                    appendAscii(GT);
+                    break;
+                case '&':
+                    appendAscii(AMP);
+                    break;
+                case '\r':
+                    appendAscii(CR);
+                    break;
+                case '\t':
+                case '\n':
+                    appendByte(c);
+                    break;
+                default:
+                    if (c < 0x80) {
+                        // XmlBeans replaces control characters with question marks
+                        appendByte(c < ' ' ? '?' : c);
+                    } else if (c < 0x800) {
+                        ensureEntryCapacity(2);
+                        _entry[_entryLength++] = (byte)(0xC0 | (c >> 6));
+                        _entry[_entryLength++] = (byte)(0x80 | (c & 0x3F));
+                    } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        int cp = Character.toCodePoint(c, s.charAt(++i));
+                        ensureEntryCapacity(4);
+                        _entry[_entryLength++] = (byte)(0xF0 | (cp >> 18));
+                        _entry[_entryLength++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+                        _entry[_entryLength++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+                        _entry[_entryLength++] = (byte)(0x80 | (cp & 0x3F));
+                    } else if (Character.isSurrogate(c) || c >= '\uFFFE') {
+                        appendByte('?');
+                    } else {
+                        ensureEntryCapacity(3);
+                        _entry[_entryLength++] = (byte)(0xE0 | (c >> 12));
+                        _entry[_entryLength++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+                        _entry[_entryLength++] = (byte)(0x80 | (c & 0x3F));
+                    }
+                    break;
+            }
+        }
+        appendAscii(T_END);
+    }
+
+    private void encodeRich(CTRst st) {
+        _entryLength = 0;
+        String xml = st.xmlText(SAVE_OPTIONS);
+        if (xml.startsWith(SI_NS_START)) {
+            // the namespace is already declared by the <sst> element
+            appendAscii(SI_START);
+            appendAscii(xml.substring(SI_NS_START.length()).getBytes(StandardCharsets.UTF_8));
+        } else {
+            appendAscii(xml.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void appendAscii(byte[] bytes) {
+        ensureEntryCapacity(bytes.length);
+        System.arraycopy(bytes, 0, _entry, _entryLength, bytes.length);
+        _entryLength += bytes.length;
+    }
+
+    private void appendByte(char c) {
+        ensureEntryCapacity(1);
+        _entry[_entryLength++] = (byte)c;
+    }
+
+    private void ensureEntryCapacity(int length) {
+        if (_entry.length - _entryLength < length) {
+            _entry = Arrays.copyOf(_entry, Math.max(_entry.length * 2, _entryLength + length));
+        }
+    }
+
+    private static int hash(byte[] data, int length) {
+        // FNV-1a with a final avalanche, as the lower bits are used for the slot
+        int h = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            h = (h ^ data[i]) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    /**
+     * A long array in direct buffers, which are allocated in chunks of 1 MB
+     */
+    private static final class OffHeapLongArray {
+        private static final int CHUNK_SHIFT = 17;
+        private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+        private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+        private LongBuffer[] _chunks = new LongBuffer[0];
+        private long _capacity;
+
+        OffHeapLongArray(long size) {
+            ensureCapacity(size);
+        }
+
+        void ensureCapacity(long size) {
+            while (_capacity < size) {
+                int n = _chunks.length;
+                _chunks = Arrays.copyOf(_chunks, n + 1);
+                // direct buffers are zero-initialized
+                _chunks[n] = ByteBuffer.allocateDirect(CHUNK_SIZE * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+                _capacity += CHUNK_SIZE;
+            }
+        }
+
+        long get(long i) {
+            return _chunks[(int)(i >>> CHUNK_SHIFT)].get((int)(i & CHUNK_MASK));
+        }
+
+        void set(long i, long value) {
+            _chunks[(int)(i >>> CHUNK_SHIFT)].put((int)(i & CHUNK_MASK), value);
+        }
+    }
+}
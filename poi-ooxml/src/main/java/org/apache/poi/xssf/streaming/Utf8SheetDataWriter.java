@@ -0,0 +1,487 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.model.SharedStringsTable;
+
+/**
+ * Sheet writer which encodes the rows directly as UTF-8 into a reusable byte buffer.
+ * <p>
+ * Compared to {@link SheetDataWriter}, numbers and cell references are formatted without
+ * intermediate strings and text is escaped in place, so writing numeric and inline string cells
+ * doesn't allocate objects. Integral numbers are written without a fraction, e.g. "1" instead of "1.0".
+ * </p>
+ *
+ * @see SXSSFWorkbook#setUseUtf8SheetDataWriter(boolean)
+ * @since POI 5.2.4
+ */
+@Beta
+public class Utf8SheetDataWriter extends SheetDataWriter {
+    private static final byte[] ROW_START = "<row r=\"".getBytes(US_ASCII);
+    private static final byte[] ROW_END = "</row>\n".getBytes(US_ASCII);
+    private static final byte[] TAG_END_NL = ">\n".getBytes(US_ASCII);
+    private static final byte[] CELL_START = "<c r=\"".getBytes(US_ASCII);
+    private static final byte[] CELL_END = "</c>".getBytes(US_ASCII);
+    private static final byte[] STYLE_ATTR = " s=\"".getBytes(US_ASCII);
+    private static final byte[] TYPE_N = " t=\"n\"".getBytes(US_ASCII);
+    private static final byte[] TYPE_STR = " t=\"str\"".getBytes(US_ASCII);
+    private static final byte[] TYPE_B = " t=\"b\"".getBytes(US_ASCII);
+    private static final byte[] TYPE_E = " t=\"e\"".getBytes(US_ASCII);
+    private static final byte[] TYPE_S = " t=\"s\"".getBytes(US_ASCII);
+    private static final byte[] TYPE_INLINE = " t=\"inlineStr\"".getBytes(US_ASCII);
+    private static final byte[] F_START = "><f>".getBytes(US_ASCII);
+    private static final byte[] F_END = "</f>".getBytes(US_ASCII);
+    private static final byte[] V_START = "<v>".getBytes(US_ASCII);
+    private static final byte[] TAG_V_START = "><v>".getBytes(US_ASCII);
+    private static final byte[] V_END = "</v>".getBytes(US_ASCII);
+    private static final byte[] IS_START = "><is><t".getBytes(US_ASCII);
+    private static final byte[] IS_END = "</t></is>".getBytes(US_ASCII);
+    private static final byte[] SPACE_PRESERVE = " xml:space=\"preserve\"".getBytes(US_ASCII);
+    private static final byte[] LT = "&lt;".getBytes(US_ASCII);
+    private static final byte[] GT = "&gt;".getBytes(US_ASCII);
+    private static final byte[] AMP = "&amp;".getBytes(US_ASCII);
+    private static final byte[] QUOT = "&quot;".getBytes(US_ASCII);
+    private static final byte[] LF = "&#xa;".getBytes(US_ASCII);
+    private static final byte[] CR = "&#xd;".getBytes(US_ASCII);
+    private static final byte[] TAB = "&#x9;".getBytes(US_ASCII);
+    private static final byte[] NBSP = "&#xa0;".getBytes(US_ASCII);
+
+    // 2^53 - larger longs are rounded when converted to double
+    private static final long MAX_EXACT_LONG = 1L << 53;
+
+    private final Utf8Writer _utf8;
+    private final boolean _compressed;
+    private final SheetDataStore.SheetData _sheetData;
+    private int _rownum;
+
+    /**
+     * Creates a writer which uses an uncompressed temp file
+     */
+    public Utf8SheetDataWriter() throws IOException {
+        this((SharedStringsTable)null);
+    }
+
+    /**
+     * Creates a writer which uses an uncompressed temp file
+     *
+     * @param sharedStringsTable the shared strings table, or null if inline text is used
+     */
+    public Utf8SheetDataWriter(SharedStringsTable sharedStringsTable) throws IOException {
+        this(sharedStringsTable, false);
+    }
+
+    /**
+     * Creates a writer which uses a temp file
+     *
+     * @param sharedStringsTable the shared strings table, or null if inline text is used
+     * @param compressTempFile whether to use gzip compression for the temp file
+     */
+    public Utf8SheetDataWriter(SharedStringsTable sharedStringsTable, boolean compressTempFile) throws IOException {
+        this(createTempFile(compressTempFile), sharedStringsTable, compressTempFile);
+    }
+
+    /**
+     * Creates a writer which writes to the given stream instead of a temp file
+     *
+     * @param out the stream to write the sheet data to
+     * @param sharedStringsTable the shared strings table, or null if inline text is used
+     */
+    public Utf8SheetDataWriter(OutputStream out, SharedStringsTable sharedStringsTable) throws IOException {
+        this(null, new Utf8Writer(out), sharedStringsTable, false, null);
+    }
+
+    /**
+     * Creates a writer which appends to the data of a {@link SheetDataStore}
+     */
+    Utf8SheetDataWriter(SheetDataStore.SheetData sheetData, SharedStringsTable sharedStringsTable) throws IOException {
+        this(null, new Utf8Writer(sheetData.getOutputStream()), sharedStringsTable, false, sheetData);
+    }
+
+    private Utf8SheetDataWriter(File fd, SharedStringsTable sharedStringsTable, boolean compressed) throws IOException {
+        this(fd, new Utf8Writer(openTempFile(fd, compressed)), sharedStringsTable, compressed, null);
+    }
+
+    private Utf8SheetDataWriter(File fd, Utf8Writer writer, SharedStringsTable sharedStringsTable,
+                                boolean compressed, SheetDataStore.SheetData sheetData) throws IOException {
+        super(fd, writer, sharedStringsTable);
+        _utf8 = writer;
+        _compressed = compressed;
+        _sheetData = sheetData;
+    }
+
+    private static File createTempFile(boolean compressed) throws IOException {
+        return compressed
+            ? TempFile.createTempFile("poi-sxssf-sheet-xml", ".gz")
+            : TempFile.createTempFile("poi-sxssf-sheet", ".xml");
+    }
+
+    private static OutputStream openTempFile(File fd, boolean compressed) throws IOException {
+        FileOutputStream fos = new FileOutputStream(fd);
+        try {
+            return compressed ? new GZIPOutputStream(fos) : fos;
+        } catch (final IOException e) {
+            fos.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream getWorksheetXMLInputStream() throws IOException {
+        return (_sheetData != null) ? _sheetData.getInputStream() : super.getWorksheetXMLInputStream();
+    }
+
+    @Override
+    protected InputStream decorateInputStream(FileInputStream fis) throws IOException {
+        return _compressed ? new GZIPInputStream(fis) : fis;
+    }
+
+    @Override
+    void beginRow(int rownum, SXSSFRow row) throws IOException {
+        _utf8.writeAscii(ROW_START);
+        _utf8.writeLong(rownum + 1L);
+        _utf8.writeAscii('"');
+        if (row.hasCustomHeight()) {
+            writeAttribute("customHeight", "true");
+            writeAttribute("ht", Float.toString(row.getHeightInPoints()));
+        }
+        if (row.getZeroHeight()) {
+            writeAttribute("hidden", "true");
+        }
+        if (row.isFormatted()) {
+            writeAttribute("s", row.getRowStyleIndex());
+            writeAttribute("customFormat", "1");
+        }
+        if (row.getOutlineLevel() != 0) {
+            writeAttribute("outlineLevel", row.getOutlineLevel());
+        }
+        if(row.getHidden() != null) {
+            writeAttribute("hidden", row.getHidden() ? "1" : "0");
+        }
+        if(row.getCollapsed() != null) {
+            writeAttribute("collapsed", row.getCollapsed() ? "1" : "0");
+        }
+
+        _utf8.writeAscii(TAG_END_NL);
+        this._rownum = rownum;
+    }
+
+    @Override
+    void beginRow(int rownum) throws IOException {
+        _utf8.writeAscii(ROW_START);
+        _utf8.writeLong(rownum + 1L);
+        _utf8.writeAscii('"');
+        _utf8.writeAscii(TAG_END_NL);
+        this._rownum = rownum;
+    }
+
+    @Override
+    void endRow() throws IOException {
+        _utf8.writeAscii(ROW_END);
+    }
+
+    @Override
+    void writeNumericCell(int columnIndex, double value, int styleIndex) throws IOException {
+        beginCell(columnIndex, styleIndex);
+        _utf8.writeAscii(TYPE_N);
+        _utf8.writeAscii(TAG_V_START);
+        _utf8.writeDouble(value);
+        _utf8.writeAscii(V_END);
+        _utf8.writeAscii(CELL_END);
+    }
+
+    @Override
+    void writeNumericCell(int columnIndex, long value, int styleIndex) throws IOException {
+        beginCell(columnIndex, styleIndex);
+        _utf8.writeAscii(TYPE_N);
+        _utf8.writeAscii(TAG_V_START);
+        if (value >= -MAX_EXACT_LONG && value <= MAX_EXACT_LONG) {
+            _utf8.writeLong(value);
+        } else {
+            // keep the precision which is stored by Excel
+            _utf8.writeDouble((double)value);
+        }
+        _utf8.writeAscii(V_END);
+        _utf8.writeAscii(CELL_END);
+    }
+
+    @Override
+    void writeErrorCell(int columnIndex, FormulaError error, int styleIndex) throws IOException {
+        beginCell(columnIndex, styleIndex);
+        _utf8.writeAscii(TYPE_E);
+        _utf8.writeAscii(TAG_V_START);
+        outputEscapedString(error.getString());
+        _utf8.writeAscii(V_END);
+        _utf8.writeAscii(CELL_END);
+    }
+
+    @Override
+    void writeStringCell(int columnIndex, String value, int styleIndex) throws IOException {
+        beginCell(columnIndex, styleIndex);
+        if (getSharedStringSource() != null) {
+            int sRef = addSharedString(value);
+
+            _utf8.writeAscii(TYPE_S);
+            _utf8.writeAscii(TAG_V_START);
+            _utf8.writeLong(sRef);
+            _utf8.writeAscii(V_END);
+        } else {
+            _utf8.writeAscii(TYPE_INLINE);
+            _utf8.writeAscii(IS_START);
+            if (hasLeadingTrailingSpaces(value)) {
+                _utf8.writeAscii(SPACE_PRESERVE);
+            }
+            _utf8.writeAscii('>');
+            outputEscapedString(value);
+            _utf8.writeAscii(IS_END);
+        }
+        _utf8.writeAscii(CELL_END);
+    }
+
+    private void beginCell(int columnIndex, int styleIndex) throws IOException {
+        _utf8.writeAscii(CELL_START);
+        _utf8.writeCellReference(_rownum, columnIndex);
+        _utf8.writeAscii('"');
+        if (styleIndex != 0) {
+            _utf8.writeAscii(STYLE_ATTR);
+            _utf8.writeLong(styleIndex);
+            _utf8.writeAscii('"');
+        }
+    }
+
+    @Override
+    public void writeCell(int columnIndex, Cell cell) throws IOException {
+        if (cell == null) {
+            return;
+        }
+        _utf8.writeAscii(CELL_START);
+        _utf8.writeCellReference(_rownum, columnIndex);
+        _utf8.writeAscii('"');
+        CellStyle cellStyle = cell.getCellStyle();
+        if (cellStyle.getIndex() != 0) {
+            // need to convert the short to unsigned short as the indexes can be up to 64k
+            _utf8.writeAscii(STYLE_ATTR);
+            _utf8.writeLong(cellStyle.getIndex() & 0xffff);
+            _utf8.writeAscii('"');
+        }
+        CellType cellType = cell.getCellType();
+        switch (cellType) {
+            case BLANK: {
+                _utf8.writeAscii('>');
+                break;
+            }
+            case FORMULA: {
+                switch(cell.getCachedFormulaResultType()) {
+                    case NUMERIC:
+                        _utf8.writeAscii(TYPE_N);
+                        break;
+                    case STRING:
+                        _utf8.writeAscii(TYPE_STR);
+                        break;
+                    case BOOLEAN:
+                        _utf8.writeAscii(TYPE_B);
+                        break;
+                    case ERROR:
+                        _utf8.writeAscii(TYPE_E);
+                        break;
+                }
+                _utf8.writeAscii(F_START);
+                outputEscapedString(cell.getCellFormula());
+                _utf8.writeAscii(F_END);
+                switch (cell.getCachedFormulaResultType()) {
+                    case NUMERIC:
+                        double nval = cell.getNumericCellValue();
+                        if (!Double.isNaN(nval)) {
+                            _utf8.writeAscii(V_START);
+                            _utf8.writeDouble(nval);
+                            _utf8.writeAscii(V_END);
+                        }
+                        break;
+                    case STRING:
+                        String value = cell.getStringCellValue();
+                        if(value != null && !value.isEmpty()) {
+                            _utf8.writeAscii(V_START);
+                            outputEscapedString(value);
+                            _utf8.writeAscii(V_END);
+                        }
+                        break;
+                    case BOOLEAN:
+                        _utf8.writeAscii(TAG_V_START);
+                        _utf8.writeAscii(cell.getBooleanCellValue() ? '1' : '0');
+                        _utf8.writeAscii(V_END);
+                        break;
+                    case ERROR: {
+                        FormulaError error = FormulaError.forInt(cell.getErrorCellValue());
+
+                        _utf8.writeAscii(TAG_V_START);
+                        outputEscapedString(error.getString());
+                        _utf8.writeAscii(V_END);
+                        break;
+                    }
+                }
+                break;
+            }
+            case STRING: {
+                if (getSharedStringSource() != null) {
+                    int sRef = addSharedString(cell);
+
+                    _utf8.writeAscii(TYPE_S);
+                    _utf8.writeAscii(TAG_V_START);
+                    _utf8.writeLong(sRef);
+                    _utf8.writeAscii(V_END);
+                } else {
+                    String value = cell.getStringCellValue();
+                    _utf8.writeAscii(TYPE_INLINE);
+                    _utf8.writeAscii(IS_START);
+                    if (hasLeadingTrailingSpaces(value)) {
+                        _utf8.writeAscii(SPACE_PRESERVE);
+                    }
+                    _utf8.writeAscii('>');
+                    outputEscapedString(value);
+                    _utf8.writeAscii(IS_END);
+                }
+                break;
+            }
+            case NUMERIC: {
+                _utf8.writeAscii(TYPE_N);
+                _utf8.writeAscii(TAG_V_START);
+                _utf8.writeDouble(cell.getNumericCellValue());
+                _utf8.writeAscii(V_END);
+                break;
+            }
+            case BOOLEAN: {
+                _utf8.writeAscii(TYPE_B);
+                _utf8.writeAscii(TAG_V_START);
+                _utf8.writeAscii(cell.getBooleanCellValue() ? '1' : '0');
+                _utf8.writeAscii(V_END);
+                break;
+            }
+            case ERROR: {
+                FormulaError error = FormulaError.forInt(cell.getErrorCellValue());
+
+                _utf8.writeAscii(TYPE_E);
+                _utf8.writeAscii(TAG_V_START);
+                outputEscapedString(error.getString());
+                _utf8.writeAscii(V_END);
+                break;
+            }
+            default: {
+                throw new IllegalStateException("Invalid cell type: " + cellType);
+            }
+        }
+        _utf8.writeAscii(CELL_END);
+    }
+
+    private void writeAttribute(String name, String value) throws IOException {
+        _utf8.writeAscii(' ');
+        _utf8.write(name);
+        _utf8.writeAscii('=');
+        _utf8.writeAscii('"');
+        _utf8.write(value);
+        _utf8.writeAscii('"');
+    }
+
+    private void writeAttribute(String name, int value) throws IOException {
+        _utf8.writeAscii(' ');
+        _utf8.write(name);
+        _utf8.writeAscii('=');
+        _utf8.writeAscii('"');
+        _utf8.writeLong(value);
+        _utf8.writeAscii('"');
+    }
+
+    @Override
+    protected void outputEscapedString(String s) throws IOException {
+        if (s == null || s.length() == 0) {
+            return;
+        }
+
+        for (int i = 0, len = s.length(); i < len; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '<':
+                    _utf8.writeAscii(LT);
+                    break;
+                case '>':
+                    _utf8.writeAscii(GT);
+                    break;
+                case '&':
+                    _utf8.writeAscii(AMP);
+                    break;
+                case '"':
+                    _utf8.writeAscii(QUOT);
+                    break;
+                // Special characters
+                case '\n':
+                    _utf8.writeAscii(LF);
+                    break;
+                case '\r':
+                    _utf8.writeAscii(CR);
+                    break;
+                case '\t':
+                    _utf8.writeAscii(TAB);
+                    break;
+                case '\u00A0': // NO-BREAK SPACE
+                    _utf8.writeAscii(NBSP);
+                    break;
+                default:
+                    // surrogates are paired by the writer, the replacement matches SheetDataWriter
+                    if (replaceWithQuestionMark(c)) {
+                        _utf8.writeAscii('?');
+                    } else {
+                        _utf8.writeChar(c);
+                    }
+                    break;
+            }
+        }
+    }
+
+    @Override
+    boolean dispose() throws IOException {
+        if (_sheetData != null) {
+            final boolean ret;
+            try {
+                _out.close();
+            } finally {
+                ret = _sheetData.dispose();
+            }
+            return ret;
+        }
+        if (getTempFile() == null) {
+            _out.close();
+            return true;
+        }
+        return super.dispose();
+    }
+}
@@ -0,0 +1,302 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.util.CellReference;
+
+/**
+ * Unsynchronized writer, which encodes characters as UTF-8 into a reusable byte buffer.
+ * <p>
+ * Besides the {@link Writer} methods, it provides allocation-free methods to append
+ * ASCII constants, integers, doubles and cell references.
+ * Unpaired surrogates are replaced by '?', like {@link java.io.OutputStreamWriter} does.
+ */
+final class Utf8Writer extends Writer {
+    static final int DEFAULT_BUFFER_SIZE = 32 * 1024;
+
+    private static final int MAX_COLUMNS = SpreadsheetVersion.EXCEL2007.getMaxColumns();
+    // the column names in 3 byte slots, e.g. "A", "AB", "XFD"
+    private static final byte[] COLUMN_NAMES = new byte[MAX_COLUMNS * 3];
+    private static final byte[] COLUMN_NAME_LENGTHS = new byte[MAX_COLUMNS];
+
+    static {
+        for (int col = 0; col < MAX_COLUMNS; col++) {
+            byte[] name = CellReference.convertNumToColString(col).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(name, 0, COLUMN_NAMES, col * 3, name.length);
+            COLUMN_NAME_LENGTHS[col] = (byte)name.length;
+        }
+    }
+
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+        1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17
+    };
+
+    // 2^53 - all integers below are exactly representable as double
+    private static final double MAX_EXACT_INTEGER = 9007199254740992d;
+
+    private final OutputStream _os;
+    private final byte[] _buf;
+    private final byte[] _digits = new byte[20];
+    private int _pos;
+    private char _highSurrogate;
+    private boolean _closed;
+
+    Utf8Writer(OutputStream os) {
+        this(os, DEFAULT_BUFFER_SIZE);
+    }
+
+    Utf8Writer(OutputStream os, int bufferSize) {
+        // the largest fixed size write is a cell reference / number, which needs less than 32 bytes
+        _os = os;
+        _buf = new byte[Math.max(bufferSize, 64)];
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        writeChar((char)c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for (int i = off, end = off + len; i < end; i++) {
+            writeChar(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i = off, end = off + len; i < end; i++) {
+            writeChar(str.charAt(i));
+        }
+    }
+
+    @Override
+    public void write(String str) throws IOException {
+        write(str, 0, str.length());
+    }
+
+    void writeChar(char c) throws IOException {
+        if (_highSurrogate != 0) {
+            char high = _highSurrogate;
+            _highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int cp = Character.toCodePoint(high, c);
+                ensureCapacity(4);
+                _buf[_pos++] = (byte)(0xF0 | (cp >> 18));
+                _buf[_pos++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+                _buf[_pos++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+                _buf[_pos++] = (byte)(0x80 | (cp & 0x3F));
+                return;
+            }
+            writeAscii('?');
+        }
+
+        if (c < 0x80) {
+            writeAscii(c);
+        } else if (c < 0x800) {
+            ensureCapacity(2);
+            _buf[_pos++] = (byte)(0xC0 | (c >> 6));
+            _buf[_pos++] = (byte)(0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            _highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            writeAscii('?');
+        } else {
+            ensureCapacity(3);
+            _buf[_pos++] = (byte)(0xE0 | (c >> 12));
+            _buf[_pos++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+            _buf[_pos++] = (byte)(0x80 | (c & 0x3F));
+        }
+    }
+
+    /**
+     * @param c a character below 0x80
+     */
+    void writeAscii(char c) throws IOException {
+        flushHighSurrogate();
+        if (_pos == _buf.length) {
+            flushBuffer();
+        }
+        _buf[_pos++] = (byte)c;
+    }
+
+    /**
+     * @param ascii the already encoded bytes
+     */
+    void writeAscii(byte[] ascii) throws IOException {
+        flushHighSurrogate();
+        if (ascii.length > _buf.length - _pos) {
+            flushBuffer();
+            if (ascii.length > _buf.length) {
+                _os.write(ascii);
+                return;
+            }
+        }
+        System.arraycopy(ascii, 0, _buf, _pos, ascii.length);
+        _pos += ascii.length;
+    }
+
+    /**
+     * Writes the decimal representation of the value
+     */
+    void writeLong(long value) throws IOException {
+        flushHighSurrogate();
+        ensureCapacity(20);
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                writeAscii(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            _buf[_pos++] = '-';
+            value = -value;
+        }
+        writeDigits(value, 0);
+    }
+
+    /**
+     * Writes a decimal representation of the value, which is parsed back to the identical double.
+     * In contrast to {@link Double#toString(double)}, integral values are written without a fraction
+     * and the exponent notation is only used for very large or small values.
+     */
+    void writeDouble(double value) throws IOException {
+        flushHighSurrogate();
+        double abs = Math.abs(value);
+        if (abs < MAX_EXACT_INTEGER) {
+            // find the shortest fraction, which is converted back to the same double.
+            // m and 10^k are exact doubles, so m / 10^k is correctly rounded and if
+            // it matches the value, the decimal string "m * 10^-k" is parsed to the value too
+            for (int k = 0; k < POW10.length; k++) {
+                double scaled = abs * POW10[k];
+                if (scaled >= MAX_EXACT_INTEGER) {
+                    break;
+                }
+                long m = (long)Math.rint(scaled);
+                if (m / POW10[k] == abs) {
+                    ensureCapacity(24);
+                    if (value < 0 && m != 0) {
+                        _buf[_pos++] = '-';
+                    }
+                    writeDigits(m, k);
+                    return;
+                }
+            }
+        }
+        writeAscii(Double.toString(value).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Writes the A1 reference of a cell, e.g. "XFD1048576"
+     *
+     * @param rowIndex the 0-based row index
+     * @param columnIndex the 0-based column index
+     */
+    void writeCellReference(int rowIndex, int columnIndex) throws IOException {
+        flushHighSurrogate();
+        ensureCapacity(16);
+        int len = COLUMN_NAME_LENGTHS[columnIndex];
+        System.arraycopy(COLUMN_NAMES, columnIndex * 3, _buf, _pos, len);
+        _pos += len;
+        writeDigits(rowIndex + 1L, 0);
+    }
+
+    /**
+     * Writes a non-negative number with the given count of fraction digits,
+     * the buffer needs to have enough space
+     */
+    private void writeDigits(long value, int fractionDigits) {
+        int len = 0;
+        do {
+            _digits[len++] = (byte)('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+
+        if (fractionDigits == 0) {
+            while (len > 0) {
+                _buf[_pos++] = _digits[--len];
+            }
+            return;
+        }
+
+        if (len <= fractionDigits) {
+            _buf[_pos++] = '0';
+            _buf[_pos++] = '.';
+            for (int i = len; i < fractionDigits; i++) {
+                _buf[_pos++] = '0';
+            }
+        } else {
+            while (len > fractionDigits) {
+                _buf[_pos++] = _digits[--len];
+            }
+            _buf[_pos++] = '.';
+        }
+        while (len > 0) {
+            _buf[_pos++] = _digits[--len];
+        }
+    }
+
+    /**
+     * Replaces a high surrogate without low surrogate, like the other unpaired surrogates
+     */
+    private void flushHighSurrogate() throws IOException {
+        if (_highSurrogate != 0) {
+            _highSurrogate = 0;
+            ensureCapacity(1);
+            _buf[_pos++] = '?';
+        }
+    }
+
+    private void ensureCapacity(int len) throws IOException {
+        if (_buf.length - _pos < len) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (_pos > 0) {
+            _os.write(_buf, 0, _pos);
+            _pos = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        _os.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (_closed) {
+            return;
+        }
+        _closed = true;
+        try {
+            flushHighSurrogate();
+            flushBuffer();
+        } finally {
+            _os.close();
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.binary.XSSFBFormulaEncoder;
+import org.apache.poi.xssf.binary.XSSFBRecordType;
+import org.apache.poi.xssf.binary.XSSFBRecordWriter;
+import org.apache.poi.xssf.model.SharedStringsTable;
+
+/**
+ * Writes the rows of a sheet as records of the xlsb format instead of xml.
+ * The temp file only contains the BrtRowHdr and cell records, the other records of the
+ * worksheet part are added by {@link SXSSFBWorkbook}.
+ */
+final class XSSFBSheetDataWriter extends BaseSheetDataWriter {
+    private static final Logger LOG = LogManager.getLogger(XSSFBSheetDataWriter.class);
+
+    /** the default row height of 15 points in twips */
+    private static final int DEFAULT_ROW_HEIGHT = 300;
+    /** integers, which can be stored in the 30 bits of a RkNumber */
+    private static final int RK_MIN_INT = -(1 << 29);
+    private static final int RK_MAX_INT = (1 << 29) - 1;
+
+    private final File _fd;
+    private final XSSFBRecordWriter _records;
+    private final boolean _compressed;
+    private SXSSFEvaluationWorkbook _evaluationWorkbook;
+    private boolean _warnedUnsupportedFormula;
+    private int _rownum;
+    private int _firstColumn = -1;
+    private int _lastColumn = -1;
+
+    XSSFBSheetDataWriter(SharedStringsTable sharedStringsTable, boolean compressed) throws IOException {
+        this(TempFile.createTempFile("poi-sxssf-sheet", compressed ? ".bin.gz" : ".bin"), sharedStringsTable, compressed);
+    }
+
+    private XSSFBSheetDataWriter(File fd, SharedStringsTable sharedStringsTable, boolean compressed) throws IOException {
+        super(sharedStringsTable);
+        _fd = fd;
+        _records = new XSSFBRecordWriter(createOutputStream(fd, compressed));
+        _compressed = compressed;
+    }
+
+    private static OutputStream createOutputStream(File fd, boolean compressed) throws IOException {
+        FileOutputStream fos = new FileOutputStream(fd);
+        try {
+            return new BufferedOutputStream(compressed ? new GZIPOutputStream(fos) : fos);
+        } catch (IOException e) {
+            fos.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        _records.close();
+    }
+
+    @Override
+    protected File getTempFile() {
+        return _fd;
+    }
+
+    @Override
+    protected InputStream decorateInputStream(FileInputStream fis) throws IOException {
+        return _compressed ? new GZIPInputStream(fis) : fis;
+    }
+
+    @Override
+    void flush() throws IOException {
+        _records.flush();
+    }
+
+    @Override
+    boolean dispose() throws IOException {
+        final boolean ret;
+        try {
+            _records.close();
+        } finally {
+            ret = _fd.delete();
+        }
+        return ret;
+    }
+
+    /**
+     * @return the index of the first written column or -1 if no cell was written
+     */
+    int getFirstColumn() {
+        return _firstColumn;
+    }
+
+    /**
+     * @return the index of the last written column or -1 if no cell was written
+     */
+    int getLastColumn() {
+        return _lastColumn;
+    }
+
+    @Override
+    void beginRow(int rownum, SXSSFRow row) throws IOException {
+        int flags = (row.getOutlineLevel() & 0x07);
+        if (Boolean.TRUE.equals(row.getCollapsed())) {
+            flags |= 0x08;
+        }
+        if (row.getZeroHeight() || Boolean.TRUE.equals(row.getHidden())) {
+            flags |= 0x10;
+        }
+        if (row.hasCustomHeight()) {
+            flags |= 0x20;
+        }
+        if (row.isFormatted()) {
+            flags |= 0x40;
+        }
+        writeRowHeader(rownum, row.isFormatted() ? row.getRowStyleIndex() : 0,
+                row.hasCustomHeight() ? row.getHeight() : DEFAULT_ROW_HEIGHT, flags);
+    }
+
+    @Override
+    void beginRow(int rownum) throws IOException {
+        writeRowHeader(rownum, 0, DEFAULT_ROW_HEIGHT, 0);
+    }
+
+    private void writeRowHeader(int rownum, int styleIndex, int height, int flags) throws IOException {
+        _records.beginRecord(XSSFBRecordType.BrtRowHdr)
+            .writeInt(rownum)
+            .writeInt(styleIndex)
+            .writeShort(height)
+            .writeByte(0)
+            .writeByte(flags)
+            .writeByte(0)
+            // the column spans are optional
+            .writeInt(0)
+            .endRecord();
+        _rownum = rownum;
+    }
+
+    @Override
+    void endRow() {
+        // rows don't have an end record
+    }
+
+    @Override
+    void writeNumericCell(int columnIndex, double value, int styleIndex) throws IOException {
+        writeNumber(columnIndex, styleIndex, value);
+    }
+
+    @Override
+    void writeNumericCell(int columnIndex, long value, int styleIndex) throws IOException {
+        writeNumber(columnIndex, styleIndex, value);
+    }
+
+    @Override
+    void writeErrorCell(int columnIndex, FormulaError error, int styleIndex) throws IOException {
+        beginCell(XSSFBRecordType.BrtCellError, columnIndex, styleIndex).writeByte(error.getCode()).endRecord();
+    }
+
+    @Override
+    void writeStringCell(int columnIndex, String value, int styleIndex) throws IOException {
+        if (getSharedStringSource() != null) {
+            beginCell(XSSFBRecordType.BrtCellIsst, columnIndex, styleIndex).writeInt(addSharedString(value)).endRecord();
+        } else {
+            beginCell(XSSFBRecordType.BrtCellSt, columnIndex, styleIndex).writeXLWideString(value).endRecord();
+        }
+    }
+
+    @Override
+    public void writeCell(int columnIndex, Cell cell) throws IOException {
+        if (cell == null) {
+            return;
+        }
+        int styleIndex = cell.getCellStyle().getIndex() & 0xffff;
+        CellType cellType = cell.getCellType();
+        switch (cellType) {
+            case BLANK:
+                beginCell(XSSFBRecordType.BrtCellBlank, columnIndex, styleIndex).endRecord();
+                break;
+            case NUMERIC:
+                writeNumber(columnIndex, styleIndex, cell.getNumericCellValue());
+                break;
+            case STRING:
+                if (getSharedStringSource() != null) {
+                    beginCell(XSSFBRecordType.BrtCellIsst, columnIndex, styleIndex).writeInt(addSharedString(cell)).endRecord();
+                } else {
+                    beginCell(XSSFBRecordType.BrtCellSt, columnIndex, styleIndex)
+                        .writeXLWideString(cell.getStringCellValue()).endRecord();
+                }
+                break;
+            case BOOLEAN:
+                beginCell(XSSFBRecordType.BrtCellBool, columnIndex, styleIndex)
+                    .writeByte(cell.getBooleanCellValue() ? 1 : 0).endRecord();
+                break;
+            case ERROR:
+                beginCell(XSSFBRecordType.BrtCellError, columnIndex, styleIndex)
+                    .writeByte(cell.getErrorCellValue()).endRecord();
+                break;
+            case FORMULA:
+                writeFormulaCell(columnIndex, styleIndex, cell);
+                break;
+            default:
+                throw new IllegalStateException("Invalid cell type: " + cellType);
+        }
+    }
+
+    private void writeFormulaCell(int columnIndex, int styleIndex, Cell cell) throws IOException {
+        byte[] rgce = encodeFormula(cell);
+        CellType resultType = cell.getCachedFormulaResultType();
+        if (rgce == null) {
+            // keep at least the cached value
+            switch (resultType) {
+                case NUMERIC:
+                    writeNumber(columnIndex, styleIndex, cell.getNumericCellValue());
+                    break;
+                case STRING:
+                    beginCell(XSSFBRecordType.BrtCellSt, columnIndex, styleIndex)
+                        .writeXLWideString(cell.getStringCellValue()).endRecord();
+                    break;
+                case BOOLEAN:
+                    beginCell(XSSFBRecordType.BrtCellBool, columnIndex, styleIndex)
+                        .writeByte(cell.getBooleanCellValue() ? 1 : 0).endRecord();
+                    break;
+                case ERROR:
+                    beginCell(XSSFBRecordType.BrtCellError, columnIndex, styleIndex)
+                        .writeByte(cell.getErrorCellValue()).endRecord();
+                    break;
+                default:
+                    beginCell(XSSFBRecordType.BrtCellBlank, columnIndex, styleIndex).endRecord();
+                    break;
+            }
+            return;
+        }
+
+        XSSFBRecordWriter record;
+        switch (resultType) {
+            case STRING:
+                record = beginCell(XSSFBRecordType.BrtFmlaString, columnIndex, styleIndex)
+                    .writeXLWideString(cell.getStringCellValue());
+                break;
+            case BOOLEAN:
+                record = beginCell(XSSFBRecordType.BrtFmlaBool, columnIndex, styleIndex)
+                    .writeByte(cell.getBooleanCellValue() ? 1 : 0);
+                break;
+            case ERROR:
+                record = beginCell(XSSFBRecordType.BrtFmlaError, columnIndex, styleIndex)
+                    .writeByte(cell.getErrorCellValue());
+                break;
+            default:
+                record = beginCell(XSSFBRecordType.BrtFmlaNum, columnIndex, styleIndex)
+                    .writeDouble(cell.getNumericCellValue());
+                break;
+        }
+        // grbitFlags, then the CellParsedFormula without extra data
+        record.writeShort(0)
+            .writeInt(rgce.length)
+            .writeBytes(rgce)
+            .writeInt(0)
+            .endRecord();
+    }
+
+    /**
+     * @return the formula tokens or {@code null} if the formula can't be written in xlsb
+     */
+    private byte[] encodeFormula(Cell cell) {
+        Sheet sheet = cell.getSheet();
+        byte[] rgce = null;
+        if (sheet.getWorkbook() instanceof SXSSFWorkbook) {
+            SXSSFWorkbook wb = (SXSSFWorkbook) sheet.getWorkbook();
+            if (_evaluationWorkbook == null) {
+                _evaluationWorkbook = SXSSFEvaluationWorkbook.create(wb);
+            }
+            Ptg[] ptgs = FormulaParser.parse(cell.getCellFormula(), _evaluationWorkbook, FormulaType.CELL,
+                    wb.getSheetIndex(sheet), _rownum);
+            rgce = XSSFBFormulaEncoder.encode(ptgs);
+        }
+        if (rgce == null && !_warnedUnsupportedFormula) {
+            _warnedUnsupportedFormula = true;
+            LOG.atWarn().log("Formula '{}' of sheet {} can't be written in xlsb, only the cached values of such formulas are written.",
+                    cell.getCellFormula(), sheet.getSheetName());
+        }
+        return rgce;
+    }
+
+    private void writeNumber(int columnIndex, int styleIndex, double value) throws IOException {
+        int rk = toRkNumber(value);
+        if (rk != 0) {
+            beginCell(XSSFBRecordType.BrtCellRk, columnIndex, styleIndex).writeInt(rk).endRecord();
+        } else {
+            beginCell(XSSFBRecordType.BrtCellReal, columnIndex, styleIndex).writeDouble(value).endRecord();
+        }
+    }
+
+    /**
+     * @return the RkNumber of the value or 0, if the value can't be stored without loss
+     */
+    private static int toRkNumber(double value) {
+        if (value >= RK_MIN_INT && value <= RK_MAX_INT && value == Math.rint(value)) {
+            return ((int) value << 2) | 0x02;
+        }
+        long bits = Double.doubleToRawLongBits(value);
+        if ((bits & 0x3FFFFFFFFL) == 0) {
+            // the 30 high bits of the double
+            return (int) (bits >>> 32);
+        }
+        return 0;
+    }
+
+    private XSSFBRecordWriter beginCell(XSSFBRecordType type, int columnIndex, int styleIndex) {
+        if (_firstColumn == -1 || columnIndex < _firstColumn) {
+            _firstColumn = columnIndex;
+        }
+        if (columnIndex > _lastColumn) {
+            _lastColumn = columnIndex;
+        }
+        // the style reference has 24 bits, the flags byte is unused
+        return _records.beginRecord(type)
+            .writeInt(columnIndex)
+            .write24BitInt(styleIndex)
+            .writeByte(0);
+    }
+}
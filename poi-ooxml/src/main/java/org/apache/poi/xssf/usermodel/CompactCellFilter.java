@@ -0,0 +1,808 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+
+/**
+ * Filters the simple {@code c} elements out of the {@code sheetData} of a worksheet part, before
+ * the part is parsed into xml beans, and collects them as {@link CompactCells}.
+ * <p>
+ * A cell is simple, if it only has the {@code r}, {@code s} and {@code t} attributes, a type of
+ * {@code n}, {@code s}, {@code b}, {@code e} or {@code str} and at most a {@code f} element without
+ * attributes and a {@code v} element. All other cells, comments, processing instructions and
+ * CDATA sections inside of cells and everything outside of the {@code c} elements are passed
+ * through unchanged. Documents with an encoding other than UTF-8 are passed through completely.
+ */
+final class CompactCellFilter extends InputStream {
+    private static final int TEXT = 0;
+    private static final int START = 1;
+    private static final int END = 2;
+    private static final int EMPTY = 3;
+    private static final int OTHER = 4;
+
+    private static final int MAX_COLUMN = SpreadsheetVersion.EXCEL2007.getLastColumnIndex();
+
+    private final InputStream in;
+    private final byte[] buf = new byte[8192];
+    private int pos;
+    private int limit;
+
+    /** the markup or text read by {@link #nextUnit()} */
+    private byte[] unit = new byte[256];
+    private int unitLength;
+
+    private byte[] out = new byte[8192];
+    private int outPos;
+    private int outLimit;
+
+    /** the units of the current {@code c} element, with the type, start and end of each unit */
+    private byte[] cell = new byte[256];
+    private int cellLength;
+    private int[] cellUnits = new int[24];
+    private int cellUnitCount;
+
+    private boolean started;
+    private boolean passThrough;
+    private boolean inSheetData;
+    private boolean inRow;
+    private int depth;
+
+    private int rowNum;
+    private int rowOrdinal = -1;
+    private int cellPosition;
+    private CompactCells rowCells;
+    private final List<CompactCells> rows = new ArrayList<>();
+
+    /** the bounds of the last attribute found by {@link #nextAttribute(byte[], int, int)} */
+    private int nameStart, nameEnd, valueStart, valueEnd;
+
+    CompactCellFilter(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Returns the compact cells by the position of their {@code row} element within the
+     * {@code sheetData}. Rows without compact cells have a {@code null} entry or are beyond the
+     * size of the list. The result is complete after the stream has been read to its end.
+     */
+    List<CompactCells> getRows() {
+        return rows;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n;
+        do {
+            n = read(b, 0, 1);
+        } while (n == 0);
+        return (n < 0) ? -1 : (b[0] & 0xFF);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (outPos == outLimit) {
+            if (passThrough) {
+                if (pos < limit) {
+                    int n = Math.min(len, limit - pos);
+                    System.arraycopy(buf, pos, b, off, n);
+                    pos += n;
+                    return n;
+                }
+                return in.read(b, off, len);
+            }
+            outPos = outLimit = 0;
+            if (!process()) {
+                passThrough = true;
+            }
+        }
+        int n = Math.min(len, outLimit - outPos);
+        System.arraycopy(out, outPos, b, off, n);
+        outPos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Processes the next unit of the document
+     *
+     * @return false at the end of the document
+     */
+    private boolean process() throws IOException {
+        if (!started) {
+            started = true;
+            if (!isUtf8()) {
+                passThrough = true;
+                return true;
+            }
+        }
+        int type = nextUnit();
+        if (type < 0) {
+            return false;
+        }
+        if (!inSheetData) {
+            emit(unit, 0, unitLength);
+            if (type == START && isLocalName(unit, 1, "sheetData")) {
+                inSheetData = true;
+                depth = 0;
+            } else if (type == OTHER && !isSupportedMarkup()) {
+                passThrough = true;
+            }
+            return true;
+        }
+        switch (type) {
+            case START:
+            case EMPTY:
+                if (depth == 1 && inRow && isLocalName(unit, 1, "c")) {
+                    filterCell(type);
+                    return true;
+                }
+                if (depth == 0) {
+                    inRow = isLocalName(unit, 1, "row");
+                    if (inRow) {
+                        startRow();
+                    }
+                }
+                if (type == START) {
+                    depth++;
+                }
+                break;
+            case END:
+                if (depth == 0) {
+                    // the end of the sheetData, the rest of the document isn't filtered
+                    inSheetData = false;
+                    passThrough = true;
+                } else {
+                    depth--;
+                }
+                break;
+            default:
+                break;
+        }
+        emit(unit, 0, unitLength);
+        return true;
+    }
+
+    /**
+     * Checks the first bytes for byte order marks and multibyte encodings
+     */
+    private boolean isUtf8() throws IOException {
+        while (limit < 2) {
+            int n = in.read(buf, limit, buf.length - limit);
+            if (n < 0) {
+                return true;
+            }
+            limit += n;
+        }
+        int b0 = buf[pos] & 0xFF;
+        int b1 = buf[pos + 1] & 0xFF;
+        return b0 != 0 && b1 != 0 && b0 != 0xFE && b0 != 0xFF;
+    }
+
+    /**
+     * @return false for document type declarations and xml declarations with an unsupported encoding
+     */
+    private boolean isSupportedMarkup() {
+        if (unitLength > 2 && unit[1] == '!' && unit[2] != '-' && unit[2] != '[') {
+            return false;
+        }
+        if (unitLength > 5 && unit[1] == '?' && unit[2] == 'x' && unit[3] == 'm' && unit[4] == 'l') {
+            String decl = new String(unit, 0, unitLength, StandardCharsets.ISO_8859_1);
+            int idx = decl.indexOf("encoding");
+            if (idx < 0) {
+                return true;
+            }
+            int quote = idx + 8;
+            while (quote < decl.length() && decl.charAt(quote) != '"' && decl.charAt(quote) != '\'') {
+                quote++;
+            }
+            int end = (quote < decl.length()) ? decl.indexOf(decl.charAt(quote), quote + 1) : -1;
+            if (end < 0) {
+                return false;
+            }
+            switch (decl.substring(quote + 1, end).toUpperCase(Locale.ROOT)) {
+                case "UTF-8":
+                case "UTF8":
+                case "US-ASCII":
+                case "ASCII":
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private void startRow() {
+        rowOrdinal++;
+        cellPosition = 0;
+        rowCells = null;
+        rowNum = -1;
+        int tagEnd = tagEnd(unit, unitLength);
+        int p = skipName(unit, 1, tagEnd);
+        while ((p = nextAttribute(unit, p, tagEnd)) > 0) {
+            if (nameEnd - nameStart == 1 && unit[nameStart] == 'r') {
+                rowNum = parseUnsigned(unit, valueStart, valueEnd);
+            }
+        }
+    }
+
+    /**
+     * Reads the {@code c} element, which starts with the current unit, and either
+     * stores it as compact cell or writes it to the output
+     */
+    private void filterCell(int type) throws IOException {
+        cellLength = 0;
+        cellUnitCount = 0;
+        addCellUnit(type);
+        if (type == START) {
+            int innerDepth = 0;
+            int t;
+            while ((t = nextUnit()) >= 0) {
+                addCellUnit(t);
+                if (t == START) {
+                    innerDepth++;
+                } else if (t == END) {
+                    if (innerDepth == 0) {
+                        break;
+                    }
+                    innerDepth--;
+                }
+            }
+        }
+        if (!storeCell()) {
+            emit(cell, 0, cellLength);
+        }
+        cellPosition++;
+    }
+
+    private void addCellUnit(int type) {
+        if (cellLength + unitLength > cell.length) {
+            cell = Arrays.copyOf(cell, Math.max(cellLength + unitLength, cell.length * 2));
+        }
+        System.arraycopy(unit, 0, cell, cellLength, unitLength);
+        if (cellUnitCount * 3 + 3 > cellUnits.length) {
+            cellUnits = Arrays.copyOf(cellUnits, cellUnits.length * 2);
+        }
+        cellUnits[cellUnitCount * 3] = type;
+        cellUnits[cellUnitCount * 3 + 1] = cellLength;
+        cellUnits[cellUnitCount * 3 + 2] = cellLength + unitLength;
+        cellUnitCount++;
+        cellLength += unitLength;
+    }
+
+    /**
+     * Stores the captured cell as compact cell
+     *
+     * @return false, if the cell isn't simple and needs to be parsed into a xml bean
+     */
+    private boolean storeCell() {
+        if (rowNum <= 0) {
+            return false;
+        }
+
+        // the attributes of the start tag
+        int column = -1;
+        int style = -1;
+        byte valueType = CompactCells.NUMERIC;
+        int tagEnd = tagEnd(cell, cellUnits[2]);
+        int p = skipName(cell, 1, tagEnd);
+        while ((p = nextAttribute(cell, p, tagEnd)) > 0) {
+            if (nameEnd - nameStart != 1) {
+                return false;
+            }
+            switch (cell[nameStart]) {
+                case 'r':
+                    column = parseColumn(cell, valueStart, valueEnd);
+                    if (column < 0) {
+                        return false;
+                    }
+                    break;
+                case 's':
+                    style = parseUnsigned(cell, valueStart, valueEnd);
+                    if (style < 0) {
+                        return false;
+                    }
+                    break;
+                case 't':
+                    valueType = parseType(cell, valueStart, valueEnd);
+                    if (valueType < 0) {
+                        return false;
+                    }
+                    break;
+                default:
+                    return false;
+            }
+        }
+        if (p < 0 || column < 0) {
+            return false;
+        }
+
+        // the f and v children
+        String formula = null;
+        String value = null;
+        if (cellUnits[0] == START) {
+            int u = 1;
+            while (u < cellUnitCount - 1) {
+                int type = cellUnits[u * 3];
+                int start = cellUnits[u * 3 + 1];
+                int end = cellUnits[u * 3 + 2];
+                if (type == TEXT) {
+                    if (!isWhitespace(cell, start, end)) {
+                        return false;
+                    }
+                    u++;
+                    continue;
+                }
+                if (type != START || u + 2 >= cellUnitCount - 1 || cellUnits[(u + 1) * 3] != TEXT
+                        || cellUnits[(u + 2) * 3] != END || hasAttributes(cell, start, end)) {
+                    return false;
+                }
+                int endTag = cellUnits[(u + 2) * 3 + 1] + 2;
+                String text = decode(cell, cellUnits[(u + 1) * 3 + 1], cellUnits[(u + 1) * 3 + 2]);
+                if (text == null || text.isEmpty()) {
+                    return false;
+                }
+                if (formula == null && value == null && isLocalName(cell, start + 1, "f")
+                        && isLocalName(cell, endTag, "f")) {
+                    formula = text;
+                } else if (value == null && isLocalName(cell, start + 1, "v") && isLocalName(cell, endTag, "v")) {
+                    value = text;
+                } else {
+                    return false;
+                }
+                u += 3;
+            }
+            if (cellUnitCount < 2 || cellUnits[(cellUnitCount - 1) * 3] != END) {
+                return false;
+            }
+        }
+
+        double number = 0;
+        String text = null;
+        switch (valueType) {
+            case CompactCells.NUMERIC:
+                if (value == null) {
+                    valueType = CompactCells.BLANK;
+                    break;
+                }
+                try {
+                    number = Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+                if (!CompactCells.formatNumber(number).equals(value)) {
+                    text = value;
+                }
+                break;
+            case CompactCells.SHARED_STRING:
+                number = (value == null) ? -1 : parseUnsigned(value);
+                if (number < 0) {
+                    return false;
+                }
+                break;
+            case CompactCells.BOOLEAN:
+                if ("1".equals(value)) {
+                    number = 1;
+                } else if (!"0".equals(value)) {
+                    return false;
+                }
+                break;
+            default:
+                if (value == null) {
+                    return false;
+                }
+                text = value;
+                break;
+        }
+
+        if (rowCells == null) {
+            rowCells = new CompactCells();
+            while (rows.size() < rowOrdinal) {
+                rows.add(null);
+            }
+            rows.add(rowCells);
+        }
+        rowCells.add(cellPosition, column, valueType, style, number, text, formula);
+        return true;
+    }
+
+    /**
+     * Parses the cell reference and checks that it belongs to the current row
+     *
+     * @return the column index or -1 if the reference doesn't fit
+     */
+    private int parseColumn(byte[] data, int start, int end) {
+        int column = 0;
+        int p = start;
+        while (p < end && data[p] >= 'A' && data[p] <= 'Z') {
+            column = column * 26 + (data[p] - 'A' + 1);
+            if (column > MAX_COLUMN + 1) {
+                return -1;
+            }
+            p++;
+        }
+        if (p == start || parseUnsigned(data, p, end) != rowNum) {
+            return -1;
+        }
+        return column - 1;
+    }
+
+    private static byte parseType(byte[] data, int start, int end) {
+        int length = end - start;
+        if (length == 1) {
+            switch (data[start]) {
+                case 'n':
+                    return CompactCells.NUMERIC;
+                case 's':
+                    return CompactCells.SHARED_STRING;
+                case 'b':
+                    return CompactCells.BOOLEAN;
+                case 'e':
+                    return CompactCells.ERROR;
+                default:
+                    return -1;
+            }
+        }
+        if (length == 3 && data[start] == 's' && data[start + 1] == 't' && data[start + 2] == 'r') {
+            return CompactCells.STRING;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the non-negative integer or -1 if the bytes aren't a valid integer
+     */
+    private static int parseUnsigned(byte[] data, int start, int end) {
+        if (start == end || end - start > 10) {
+            return -1;
+        }
+        long value = 0;
+        for (int p = start; p < end; p++) {
+            if (data[p] < '0' || data[p] > '9') {
+                return -1;
+            }
+            value = value * 10 + (data[p] - '0');
+        }
+        return (value > Integer.MAX_VALUE) ? -1 : (int) value;
+    }
+
+    private static int parseUnsigned(String text) {
+        byte[] data = text.getBytes(StandardCharsets.ISO_8859_1);
+        return parseUnsigned(data, 0, data.length);
+    }
+
+    /**
+     * Finds the next attribute of a tag and stores its bounds
+     *
+     * @return the position behind the attribute, 0 at the end of the tag or -1 for malformed tags
+     */
+    private int nextAttribute(byte[] data, int p, int tagEnd) {
+        while (p < tagEnd && isWhitespace(data[p])) {
+            p++;
+        }
+        if (p >= tagEnd) {
+            return 0;
+        }
+        nameStart = p;
+        while (p < tagEnd && data[p] != '=' && !isWhitespace(data[p])) {
+            p++;
+        }
+        nameEnd = p;
+        while (p < tagEnd && isWhitespace(data[p])) {
+            p++;
+        }
+        if (p >= tagEnd || data[p] != '=') {
+            return -1;
+        }
+        p++;
+        while (p < tagEnd && isWhitespace(data[p])) {
+            p++;
+        }
+        if (p >= tagEnd || (data[p] != '"' && data[p] != '\'')) {
+            return -1;
+        }
+        byte quote = data[p];
+        valueStart = ++p;
+        while (p < tagEnd && data[p] != quote) {
+            p++;
+        }
+        if (p >= tagEnd) {
+            return -1;
+        }
+        valueEnd = p;
+        return p + 1;
+    }
+
+    /**
+     * @return the end of the attributes of a start tag, i.e. the position of {@code >} or {@code />}
+     */
+    private static int tagEnd(byte[] data, int end) {
+        return (end >= 2 && data[end - 2] == '/') ? end - 2 : end - 1;
+    }
+
+    private static int skipName(byte[] data, int p, int end) {
+        while (p < end && !isWhitespace(data[p])) {
+            p++;
+        }
+        return p;
+    }
+
+    private static boolean hasAttributes(byte[] data, int start, int end) {
+        for (int p = start; p < end; p++) {
+            if (isWhitespace(data[p])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the local part of the tag name at the offset, i.e. ignores a namespace prefix
+     */
+    private static boolean isLocalName(byte[] data, int offset, String name) {
+        int end = offset;
+        while (end < data.length && !isWhitespace(data[end]) && data[end] != '>' && data[end] != '/') {
+            end++;
+        }
+        int start = end - name.length();
+        if (start < offset || (start > offset && data[start - 1] != ':')) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (data[start + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte[] data, int start, int end) {
+        for (int p = start; p < end; p++) {
+            if (!isWhitespace(data[p])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r';
+    }
+
+    /**
+     * Decodes the UTF-8 text and its predefined entity and character references
+     *
+     * @return the text or {@code null} if the text contains anything, which the xml parser would
+     *      normalize or reject, like carriage returns, invalid UTF-8 sequences or unknown entities
+     */
+    private static String decode(byte[] data, int start, int end) {
+        boolean ascii = true;
+        boolean entities = false;
+        for (int p = start; p < end; p++) {
+            byte b = data[p];
+            if (b < 0) {
+                ascii = false;
+            } else if (b == '&') {
+                entities = true;
+            } else if (b == '\r') {
+                return null;
+            }
+        }
+        String text = new String(data, start, end - start, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+        if (!ascii && text.indexOf('\uFFFD') >= 0) {
+            return null;
+        }
+        if (!entities) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        int p = 0;
+        int amp;
+        while ((amp = text.indexOf('&', p)) >= 0) {
+            sb.append(text, p, amp);
+            int semicolon = text.indexOf(';', amp);
+            if (semicolon < 0) {
+                return null;
+            }
+            String name = text.substring(amp + 1, semicolon);
+            switch (name) {
+                case "lt":
+                    sb.append('<');
+                    break;
+                case "gt":
+                    sb.append('>');
+                    break;
+                case "amp":
+                    sb.append('&');
+                    break;
+                case "apos":
+                    sb.append('\'');
+                    break;
+                case "quot":
+                    sb.append('"');
+                    break;
+                default:
+                    if (name.length() < 2 || name.charAt(0) != '#') {
+                        return null;
+                    }
+                    int cp;
+                    try {
+                        cp = (name.charAt(1) == 'x')
+                            ? Integer.parseInt(name.substring(2), 16)
+                            : Integer.parseInt(name.substring(1), 10);
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                    if (cp < 0x20 || cp > Character.MAX_CODE_POINT || (cp >= 0xD800 && cp <= 0xDFFF)) {
+                        // control characters are left to the xml parser
+                        return null;
+                    }
+                    sb.appendCodePoint(cp);
+                    break;
+            }
+            p = semicolon + 1;
+        }
+        sb.append(text, p, text.length());
+        return sb.toString();
+    }
+
+    /**
+     * Reads the next text or markup into the unit buffer
+     *
+     * @return the type of the unit or -1 at the end of the document
+     */
+    private int nextUnit() throws IOException {
+        unitLength = 0;
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        if (buf[pos] != '<') {
+            while (true) {
+                int p = pos;
+                while (p < limit && buf[p] != '<') {
+                    p++;
+                }
+                append(buf, pos, p);
+                pos = p;
+                if (pos < limit || !fill()) {
+                    return TEXT;
+                }
+            }
+        }
+        int first = readByte();
+        int second = readByte();
+        if (second == '!') {
+            int third = readByte();
+            if (third == '-') {
+                return readUntil("-->");
+            } else if (third == '[') {
+                return readUntil("]]>");
+            }
+            return readUntil(">");
+        } else if (second == '?') {
+            return readUntil("?>");
+        }
+        // element tags, with '>' inside of attribute values
+        int quote = 0;
+        int b = second;
+        while (b >= 0) {
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                break;
+            }
+            b = readByte();
+        }
+        if (first < 0 || b < 0) {
+            return OTHER;
+        }
+        if (second == '/') {
+            return END;
+        }
+        return (unit[unitLength - 2] == '/') ? EMPTY : START;
+    }
+
+    private int readUntil(String end) throws IOException {
+        int n = end.length();
+        while (true) {
+            if (unitLength >= n + 1) {
+                boolean found = true;
+                for (int i = 0; i < n; i++) {
+                    if (unit[unitLength - n + i] != end.charAt(i)) {
+                        found = false;
+                        break;
+                    }
+                }
+                if (found) {
+                    return OTHER;
+                }
+            }
+            if (readByte() < 0) {
+                return OTHER;
+            }
+        }
+    }
+
+    /**
+     * Appends the next byte of the input to the unit
+     *
+     * @return the byte or -1 at the end of the input
+     */
+    private int readByte() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        if (unitLength == unit.length) {
+            unit = Arrays.copyOf(unit, unit.length * 2);
+        }
+        byte b = buf[pos++];
+        unit[unitLength++] = b;
+        return b & 0xFF;
+    }
+
+    private void append(byte[] data, int start, int end) {
+        int length = end - start;
+        if (unitLength + length > unit.length) {
+            unit = Arrays.copyOf(unit, Math.max(unitLength + length, unit.length * 2));
+        }
+        System.arraycopy(data, start, unit, unitLength, length);
+        unitLength += length;
+    }
+
+    private void emit(byte[] data, int start, int length) {
+        if (outLimit + length > out.length) {
+            out = Arrays.copyOf(out, Math.max(outLimit + length, out.length * 2));
+        }
+        System.arraycopy(data, start, out, outLimit, length);
+        outLimit += length;
+    }
+
+    private boolean fill() throws IOException {
+        pos = limit = 0;
+        int n;
+        do {
+            n = in.read(buf, 0, buf.length);
+        } while (n == 0);
+        if (n < 0) {
+            return false;
+        }
+        limit = n;
+        return true;
+    }
+}
@@ -0,0 +1,44 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+/**
+ * The value type, style index, value and formula of a compact {@link XSSFCell}, which has no xml bean.
+ * <p>
+ * The number holds numeric values, the index of shared strings and 1/0 for booleans, the text holds
+ * error codes, string formula results and the raw value of numbers which aren't stored in the default format.
+ *
+ * @see XSSFReadOptions#isCompactCells()
+ */
+final class CompactCellValue {
+    /** one of the type constants of {@link CompactCells} */
+    byte type;
+    /** the style index or -1 if the cell has no style */
+    int style;
+    double number;
+    String text;
+    String formula;
+
+    CompactCellValue(byte type, int style, double number, String text, String formula) {
+        this.type = type;
+        this.style = style;
+        this.number = number;
+        this.text = text;
+        this.formula = formula;
+    }
+}
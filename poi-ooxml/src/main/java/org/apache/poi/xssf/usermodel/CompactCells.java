@@ -0,0 +1,102 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import java.util.Arrays;
+
+/**
+ * The compact cells of one row, which have been taken out of the worksheet xml by the
+ * {@link CompactCellFilter}, in primitive arrays until the {@link XSSFRow} is created.
+ */
+final class CompactCells {
+    /** a numeric cell without a value, i.e. a blank cell or a formula without a cached result */
+    static final byte BLANK = 0;
+    static final byte NUMERIC = 1;
+    static final byte SHARED_STRING = 2;
+    static final byte BOOLEAN = 3;
+    static final byte ERROR = 4;
+    /** a string formula result */
+    static final byte STRING = 5;
+
+    private int size;
+    private int[] positions = new int[8];
+    private int[] columns = new int[8];
+    private byte[] types = new byte[8];
+    private int[] styles = new int[8];
+    private double[] numbers = new double[8];
+    private String[] texts = new String[8];
+    private String[] formulas = new String[8];
+
+    /**
+     * @param position the position of the {@code c} element within the row
+     * @param column the 0-based column index
+     * @param type the value type, one of the constants of this class
+     * @param style the style index or -1 if the cell has no style
+     * @param number the numeric value, the shared string index or 1/0 for booleans
+     * @param text the text of error and string values or the raw text of numbers,
+     *      which isn't the result of {@link #formatNumber(double)}
+     * @param formula the formula or {@code null}
+     */
+    void add(int position, int column, byte type, int style, double number, String text, String formula) {
+        if (size == positions.length) {
+            int capacity = size * 2;
+            positions = Arrays.copyOf(positions, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            types = Arrays.copyOf(types, capacity);
+            styles = Arrays.copyOf(styles, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            formulas = Arrays.copyOf(formulas, capacity);
+        }
+        positions[size] = position;
+        columns[size] = column;
+        types[size] = type;
+        styles[size] = style;
+        numbers[size] = number;
+        texts[size] = text;
+        formulas[size] = formula;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getPosition(int index) {
+        return positions[index];
+    }
+
+    /**
+     * Creates the cell at the index of this store
+     */
+    XSSFCell createCell(XSSFRow row, int index) {
+        return new XSSFCell(row, columns[index], types[index], styles[index],
+                numbers[index], texts[index], formulas[index]);
+    }
+
+    /**
+     * Formats a number like it's usually stored in a {@code v} element,
+     * i.e. integral values without a fraction
+     */
+    static String formatNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
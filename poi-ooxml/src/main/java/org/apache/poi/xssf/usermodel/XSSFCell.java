@@ -108,6 +108,12 @@ public final class XSSFCell extends CellBase {
      */
     private final StylesTable _stylesSource;
 
+    /**
+     * The value of a compact cell, which has no xml bean, see {@link XSSFReadOptions#isCompactCells()}.
+     * It's only set while {@code _cell} is {@code null}, so cells with a xml bean don't pay for it.
+     */
+    private CompactCellValue _compact;
+
     /**
      * Construct a XSSFCell.
      *
@@ -130,6 +136,25 @@ public final class XSSFCell extends CellBase {
         _stylesSource = row.getSheet().getWorkbook().getStylesSource();
     }
 
+    /**
+     * Construct a compact XSSFCell without a xml bean.
+     *
+     * @param row the parent row.
+     * @param column the 0-based column index
+     * @param type the value type, one of the constants of {@link CompactCells}
+     * @param style the style index or -1 if the cell has no style
+     * @param number the numeric value, the shared string index or 1/0 for booleans
+     * @param text the error code, string formula result or the raw value of a number
+     * @param formula the formula or {@code null}
+     */
+    XSSFCell(XSSFRow row, int column, byte type, int style, double number, String text, String formula) {
+        _row = row;
+        _cellNum = column;
+        _compact = new CompactCellValue(type, style, number, text, formula);
+        _sharedStringSource = row.getSheet().getWorkbook().getSharedStringSource();
+        _stylesSource = row.getSheet().getWorkbook().getStylesSource();
+    }
+
     @Override
     protected SpreadsheetVersion getSpreadsheetVersion() {
         return SpreadsheetVersion.EXCEL2007;
@@ -201,10 +226,10 @@ public final class XSSFCell extends CellBase {
             case BLANK:
                 return false;
             case BOOLEAN:
-                return _cell.isSetV() && TRUE_AS_STRING.equals(_cell.getV());
+                return TRUE_AS_STRING.equals(getRawValue());
             case FORMULA:
                 //YK: should throw an exception if requesting boolean value from a non-boolean formula
-                return _cell.isSetV() && TRUE_AS_STRING.equals(_cell.getV());
+                return TRUE_AS_STRING.equals(getRawValue());
             default:
                 throw typeMismatch(CellType.BOOLEAN, cellType, false);
         }
@@ -219,6 +244,12 @@ public final class XSSFCell extends CellBase {
      */
     @Override
     public void setCellValue(boolean value) {
+        if (_cell == null) {
+            _compact.type = CompactCells.BOOLEAN;
+            _compact.number = value ? 1 : 0;
+            _compact.text = null;
+            return;
+        }
         _cell.setT(STCellType.B);
         _cell.setV(value ? TRUE_AS_STRING : FALSE_AS_STRING);
     }
@@ -241,6 +272,9 @@ public final class XSSFCell extends CellBase {
             case BLANK:
                 return 0.0;
             case NUMERIC:
+                if (_cell == null) {
+                    return (_compact.type == CompactCells.NUMERIC) ? _compact.number : 0.0;
+                }
                 if(_cell.isSetV()) {
                     String v = _cell.getV();
                     if (v.isEmpty()) {
@@ -263,6 +297,12 @@ public final class XSSFCell extends CellBase {
 
     @Override
     public void setCellValueImpl(double value) {
+        if (_cell == null) {
+            _compact.type = CompactCells.NUMERIC;
+            _compact.number = value;
+            _compact.text = null;
+            return;
+        }
         _cell.setT(STCellType.N);
         _cell.setV(String.valueOf(value));
     }
@@ -297,6 +337,18 @@ public final class XSSFCell extends CellBase {
                 rt = new XSSFRichTextString("");
                 break;
             case STRING:
+                if (_cell == null) {
+                    if (_compact.type == CompactCells.SHARED_STRING) {
+                        try {
+                            rt = (XSSFRichTextString)_sharedStringSource.getItemAt((int)_compact.number);
+                        } catch(Throwable t) {
+                            rt = new XSSFRichTextString("");
+                        }
+                    } else {
+                        rt = new XSSFRichTextString(_compact.text);
+                    }
+                    break;
+                }
                 STCellType.Enum xmlbeanCellType = _cell.getT();
                 if (xmlbeanCellType == STCellType.INLINE_STR) {
                     if(_cell.isSetIs()) {
@@ -329,7 +381,8 @@ public final class XSSFCell extends CellBase {
                 if (cachedValueType != CellType.STRING) {
                     throw typeMismatch(CellType.STRING, cachedValueType, true);
                 }
-                rt = new XSSFRichTextString(_cell.isSetV() ? _cell.getV() : "");
+                String value = getRawValue();
+                rt = new XSSFRichTextString(value == null ? "" : value);
                 break;
             }
             default:
@@ -347,6 +400,20 @@ public final class XSSFCell extends CellBase {
     @Override
     protected void setCellValueImpl(RichTextString str) {
         CellType cellType = getCellType();
+        if (_cell == null) {
+            if (cellType == CellType.FORMULA) {
+                _compact.type = CompactCells.STRING;
+                _compact.text = str.getString();
+            } else {
+                XSSFRichTextString rt = (str instanceof XSSFRichTextString)
+                    ? (XSSFRichTextString)str : new XSSFRichTextString(str.getString());
+                rt.setStylesTableReference(_stylesSource);
+                _compact.type = CompactCells.SHARED_STRING;
+                _compact.number = _sharedStringSource.addSharedStringItem(rt);
+                _compact.text = null;
+            }
+            return;
+        }
         if (cellType == CellType.FORMULA) {
             _cell.setV(str.getString());
             _cell.setT(STCellType.STR);
@@ -395,6 +462,13 @@ public final class XSSFCell extends CellBase {
             throw typeMismatch(CellType.FORMULA, cellType, false);
         }
 
+        if (_cell == null) {
+            if (_compact.formula == null && isPartOfArrayFormulaGroup()) {
+                XSSFCell cell = getSheet().getFirstCellInArrayFormula(this);
+                return cell.getCellFormula(fpb);
+            }
+            return _compact.formula;
+        }
         CTCellFormula f = _cell.getF();
         if (isPartOfArrayFormulaGroup()) {
             /* In an excel generated array formula, the formula property might be set, but the string is empty in related cells */
@@ -468,7 +542,7 @@ public final class XSSFCell extends CellBase {
 
     /* package */ void setCellArrayFormula(String formula, CellRangeAddress range) {
         setFormula(formula, FormulaType.ARRAY);
-        CTCellFormula cellFormula = _cell.getF();
+        CTCellFormula cellFormula = getCTCell().getF();
         cellFormula.setT(STCellFormulaType.ARRAY);
         cellFormula.setRef(range.formatAsString());
     }
@@ -498,9 +572,14 @@ public final class XSSFCell extends CellBase {
             }
         }
 
+        if (_cell == null && formulaType == FormulaType.CELL) {
+            _compact.formula = formula;
+            return;
+        }
+        CTCell cell = getCTCell();
         CTCellFormula f;
-        if (_cell.isSetF()) {
-            f = _cell.getF();
+        if (cell.isSetF()) {
+            f = cell.getF();
             f.setStringValue(formula);
             if(f.getT() == STCellFormulaType.SHARED){
                 getRow().getSheet().onReadCell(this);
@@ -508,14 +587,16 @@ public final class XSSFCell extends CellBase {
         } else {
             f = CTCellFormula.Factory.newInstance();
             f.setStringValue(formula);
-            _cell.setF(f);
+            cell.setF(f);
         }
     }
 
     @Override
     protected void removeFormulaImpl() {
         _row.getSheet().getWorkbook().onDeleteFormula(this);
-        if (_cell.isSetF()) {
+        if (_cell == null) {
+            _compact.formula = null;
+        } else if (_cell.isSetF()) {
             _row.getSheet().onDeleteFormula(this, null);
             _cell.unsetF();
         }
@@ -547,7 +628,7 @@ public final class XSSFCell extends CellBase {
      * @return A1 style reference to the location of this cell
      */
     public String getReference() {
-        String ref = _cell.getR();
+        String ref = (_cell == null) ? null : _cell.getR();
         if(ref == null) {
             return getAddress().formatAsString();
         }
@@ -574,7 +655,11 @@ public final class XSSFCell extends CellBase {
     private XSSFCellStyle getExplicitCellStyle() {
         XSSFCellStyle style = null;
         if(_stylesSource.getNumCellStyles() > 0) {
-            if (_cell.isSetS()) {
+            if (_cell == null) {
+                if (_compact.style >= 0) {
+                    style = _stylesSource.getStyleAt(_compact.style);
+                }
+            } else if (_cell.isSetS()) {
                 long idx = _cell.getS();
                 style = _stylesSource.getStyleAt(Math.toIntExact(idx));
             }
@@ -618,7 +703,9 @@ public final class XSSFCell extends CellBase {
     @Override
     public void setCellStyle(CellStyle style) {
         if(style == null) {
-            if(_cell.isSetS()) {
+            if (_cell == null) {
+                _compact.style = -1;
+            } else if(_cell.isSetS()) {
                 _cell.unsetS();
             }
         } else {
@@ -626,7 +713,11 @@ public final class XSSFCell extends CellBase {
             xStyle.verifyBelongsToStylesSource(_stylesSource);
 
             long idx = _stylesSource.putStyle(xStyle);
-            _cell.setS(idx);
+            if (_cell == null) {
+                _compact.style = Math.toIntExact(idx);
+            } else {
+                _cell.setS(idx);
+            }
         }
     }
 
@@ -641,6 +732,9 @@ public final class XSSFCell extends CellBase {
      * @return true if the cell is of a formula type POI can handle
      */
     private boolean isFormulaCell() {
+        if (_cell == null) {
+            return _compact.formula != null || getSheet().isCellInArrayFormulaContext(this);
+        }
         return (_cell.isSetF() && _cell.getF().getT() != STCellFormulaType.DATA_TABLE)
                 || getSheet().isCellInArrayFormulaContext(this);
     }
@@ -683,6 +777,20 @@ public final class XSSFCell extends CellBase {
      * Detect cell type based on the "t" attribute of the CTCell bean
      */
     private CellType getBaseCellType(boolean blankCells) {
+        if (_cell == null) {
+            switch (_compact.type) {
+                case CompactCells.BLANK:
+                    return blankCells ? CellType.BLANK : CellType.NUMERIC;
+                case CompactCells.NUMERIC:
+                    return CellType.NUMERIC;
+                case CompactCells.BOOLEAN:
+                    return CellType.BOOLEAN;
+                case CompactCells.ERROR:
+                    return CellType.ERROR;
+                default:
+                    return CellType.STRING;
+            }
+        }
         switch (_cell.getT().intValue()) {
             case STCellType.INT_B:
                 return CellType.BOOLEAN;
@@ -780,7 +888,7 @@ public final class XSSFCell extends CellBase {
             throw typeMismatch(CellType.ERROR, cellType, false);
         }
 
-        return _cell.getV();
+        return getRawValue();
     }
     /**
      * Get the value of the cell as an error code.
@@ -830,6 +938,11 @@ public final class XSSFCell extends CellBase {
      *        cell and set its value.
      */
     public void setCellErrorValue(FormulaError error) {
+        if (_cell == null) {
+            _compact.type = CompactCells.ERROR;
+            _compact.text = error.getString();
+            return;
+        }
         _cell.setT(STCellType.E);
         _cell.setV(error.getString());
     }
@@ -844,6 +957,12 @@ public final class XSSFCell extends CellBase {
      * This method erases all the data previously associated with this cell.
      */
     private void setBlankPrivate(){
+        if (_cell == null) {
+            _compact.type = CompactCells.BLANK;
+            _compact.text = null;
+            _compact.formula = null;
+            return;
+        }
         CTCell blank = CTCell.Factory.newInstance();
         blank.setR(_cell.getR());
         if(_cell.isSetS()) {
@@ -860,8 +979,10 @@ public final class XSSFCell extends CellBase {
     protected void setCellNum(int num) {
         checkBounds(num);
         _cellNum = num;
-        String ref = new CellReference(getRowIndex(), getColumnIndex()).formatAsString();
-        _cell.setR(ref);
+        if (_cell != null) {
+            String ref = new CellReference(getRowIndex(), getColumnIndex()).formatAsString();
+            _cell.setR(ref);
+        }
     }
 
     @Override
@@ -876,6 +997,15 @@ public final class XSSFCell extends CellBase {
      */
     protected void setCellType(CellType cellType, BaseXSSFEvaluationWorkbook evalWb) {
         CellType prevType = getCellType();
+        if (_cell == null && cellType == CellType.BLANK) {
+            if (prevType == CellType.FORMULA) {
+                getSheet().getWorkbook().onDeleteFormula(this);
+            }
+            setBlankPrivate();
+            return;
+        }
+        // the other changes of compact cells are applied to the xml bean
+        getCTCell();
         if(prevType == CellType.FORMULA && cellType != CellType.FORMULA) {
             if (_cell.isSetF()) {
                 _row.getSheet().onDeleteFormula(this, evalWb);
@@ -975,6 +1105,21 @@ public final class XSSFCell extends CellBase {
      *     {@code null} for blank cells.
      */
     public String getRawValue() {
+        if (_cell == null) {
+            switch (_compact.type) {
+                case CompactCells.NUMERIC:
+                    return (_compact.text != null) ? _compact.text : CompactCells.formatNumber(_compact.number);
+                case CompactCells.SHARED_STRING:
+                    return Integer.toString((int)_compact.number);
+                case CompactCells.BOOLEAN:
+                    return (_compact.number != 0) ? TRUE_AS_STRING : FALSE_AS_STRING;
+                case CompactCells.ERROR:
+                case CompactCells.STRING:
+                    return _compact.text;
+                default:
+                    return null;
+            }
+        }
         return _cell.getV();
     }
 
@@ -1087,15 +1232,60 @@ public final class XSSFCell extends CellBase {
 
     /**
      * Returns the xml bean containing information about the cell's location (reference), value,
-     * data type, formatting, and formula
+     * data type, formatting, and formula.
+     * <p>
+     * For a compact cell, the xml bean is created and added to the row by this call
+     * and the cell isn't compact anymore.
      *
      * @return the xml bean containing information about this cell
+     * @see XSSFReadOptions#isCompactCells()
      */
     @Internal
     public CTCell getCTCell(){
+        if (_cell == null) {
+            CTCell cell = _row.getCTRow().addNewC();
+            copyCompactTo(cell);
+            setCTCell(cell);
+        }
         return _cell;
     }
 
+    /**
+     * Copies the reference, style, type, formula and value of a compact cell to an empty xml bean.
+     * The cell stays compact, the xml bean isn't bound to it.
+     *
+     * @param cell the empty xml bean
+     */
+    void copyCompactTo(CTCell cell) {
+        cell.setR(new CellReference(getRowIndex(), getColumnIndex()).formatAsString());
+        if (_compact.style >= 0) {
+            cell.setS(_compact.style);
+        }
+        if (_compact.formula != null) {
+            cell.addNewF().setStringValue(_compact.formula);
+        }
+        switch (_compact.type) {
+            case CompactCells.SHARED_STRING:
+                cell.setT(STCellType.S);
+                break;
+            case CompactCells.BOOLEAN:
+                cell.setT(STCellType.B);
+                break;
+            case CompactCells.ERROR:
+                cell.setT(STCellType.E);
+                break;
+            case CompactCells.STRING:
+                cell.setT(STCellType.STR);
+                break;
+            default:
+                break;
+        }
+        String value = getRawValue();
+        if (value != null) {
+            cell.setV(value);
+        }
+    }
+
     /**
      * Set a new internal xml bean. This is only for internal use, do not call this from outside!
      *
@@ -1104,6 +1294,61 @@ public final class XSSFCell extends CellBase {
     @Internal
     public void setCTCell(CTCell cell) {
         _cell = cell;
+        _compact = null;
+    }
+
+    /**
+     * Returns whether this cell is kept in a compact form without a xml bean.
+     *
+     * @return true, if the cell has no xml bean
+     * @see XSSFReadOptions#isCompactCells()
+     * @since POI 5.2.4
+     */
+    @Internal
+    public boolean isCompact() {
+        return _cell == null;
+    }
+
+    /**
+     * Returns the formula of a compact cell as stored in the file, i.e. without
+     * the resolution of array formulas of {@link #getCellFormula()}.
+     *
+     * @return the formula or {@code null} if the cell has no formula or isn't compact
+     * @since POI 5.2.4
+     */
+    @Internal
+    public String getCompactFormula() {
+        return (_cell == null) ? _compact.formula : null;
+    }
+
+    /**
+     * Replaces the formula of a compact cell without parsing it.
+     * This is only for internal use, e.g. for updating the references of formulas.
+     *
+     * @param formula the new formula
+     * @throws IllegalStateException if the cell isn't compact
+     * @since POI 5.2.4
+     */
+    @Internal
+    public void setCompactFormula(String formula) {
+        if (_cell != null) {
+            throw new IllegalStateException("The cell " + getReference() + " isn't compact");
+        }
+        _compact.formula = formula;
+    }
+
+    /**
+     * @return the value type of a compact cell, one of the type constants of {@link CompactCells}
+     */
+    byte getCompactType() {
+        return _compact.type;
+    }
+
+    /**
+     * @return the style index of a compact cell or -1 if the cell has no style
+     */
+    int getCompactStyle() {
+        return _compact.style;
     }
 
     /**
@@ -1203,7 +1448,7 @@ public final class XSSFCell extends CellBase {
             throw new IllegalStateException("Cell " + new CellReference(this).formatAsString()
                     + " is not part of an array formula.");
         }
-        String formulaRef = cell._cell.getF().getRef();
+        String formulaRef = cell.getCTCell().getF().getRef();
         return CellRangeAddress.valueOf(formulaRef);
     }
 
@@ -1224,9 +1469,10 @@ public final class XSSFCell extends CellBase {
         //remove the reference in the calculation chain
         if(calcChain != null) calcChain.removeItem(sheetId, getReference());
 
-        CTCell ctCell = getCTCell();
-        String r = new CellReference(getRowIndex(), getColumnIndex()).formatAsString();
-        ctCell.setR(r);
+        if (_cell != null) {
+            String r = new CellReference(getRowIndex(), getColumnIndex()).formatAsString();
+            _cell.setR(r);
+        }
     }
 
 }
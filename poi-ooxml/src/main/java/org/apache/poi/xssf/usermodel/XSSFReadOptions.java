@@ -0,0 +1,126 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.util.Beta;
+
+/**
+ * Options for opening an existing workbook with {@link XSSFWorkbook#XSSFWorkbook(OPCPackage, XSSFReadOptions)}.
+ * <p>
+ * Use the {@link Builder} to create custom options, e.g.
+ * <pre>{@code
+ * XSSFReadOptions options = new XSSFReadOptions.Builder().compactCells(true).build();
+ * }</pre>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class XSSFReadOptions {
+    public static final boolean DEFAULT_COMPACT_CELLS = false;
+    public static final boolean DEFAULT_LAZY_SHEETS = false;
+
+    /**
+     * The options used by the constructors without explicit options
+     */
+    static final XSSFReadOptions DEFAULT = new Builder().build();
+
+    private final boolean compactCells;
+    private final boolean lazySheets;
+
+    private XSSFReadOptions(Builder builder) {
+        compactCells = builder.compactCells;
+        lazySheets = builder.lazySheets;
+    }
+
+    /**
+     * Whether the cells are kept in a compact form instead of one {@code CTCell} xml bean per cell.
+     * <p>
+     * The value, type, style and plain formula of a compact cell are stored in a small holder of the
+     * {@link XSSFCell}. Its xml bean is only created when it is needed, e.g. when {@link XSSFCell#getCTCell()} is
+     * called, the cell is part of a shared or array formula or the cell is changed in a way the compact form
+     * can't hold. When the workbook is written, the compact cells only get temporary xml beans for the save.
+     * Cells with attributes or elements the compact form doesn't cover, like inline strings or rich values,
+     * are read into xml beans as usual.
+     * <p>
+     * This reduces the memory needed for large sheets, as most cells don't need an xml bean.
+     * The {@link org.apache.poi.ss.usermodel.Cell} API behaves the same in both modes.
+     *
+     * @return true if the cells are kept in a compact form, false by default
+     */
+    public boolean isCompactCells() {
+        return compactCells;
+    }
+
+    /**
+     * Whether the worksheet parts are only parsed on the first access to their sheet.
+     * <p>
+     * The names, visibility and order of the sheets and the defined names are available right away,
+     * as they are part of the workbook part. A worksheet part is parsed, when its sheet is returned by
+     * {@link XSSFWorkbook#getSheetAt(int)}, {@link XSSFWorkbook#getSheet(String)} or the sheet iterator,
+     * including the accesses of the formula evaluation to other sheets. Sheets which have never been
+     * accessed are copied unchanged to the output, when the workbook is written.
+     * <p>
+     * This lets the time and memory needed for opening a workbook scale with the sheets which are actually used.
+     *
+     * @return true if the worksheet parts are parsed on demand, false by default
+     */
+    public boolean isLazySheets() {
+        return lazySheets;
+    }
+
+    @Override
+    public String toString() {
+        return "XSSFReadOptions{compactCells=" + compactCells + ", lazySheets=" + lazySheets + "}";
+    }
+
+    public static final class Builder {
+        private boolean compactCells = DEFAULT_COMPACT_CELLS;
+        private boolean lazySheets = DEFAULT_LAZY_SHEETS;
+
+        /**
+         * Builder class for XSSFReadOptions
+         */
+        public Builder() {
+        }
+
+        /**
+         * @param compactCells whether the cells are kept in a compact form
+         * @return this builder
+         * @see XSSFReadOptions#isCompactCells()
+         */
+        public Builder compactCells(boolean compactCells) {
+            this.compactCells = compactCells;
+            return this;
+        }
+
+        /**
+         * @param lazySheets whether the worksheet parts are parsed on the first access to their sheet
+         * @return this builder
+         * @see XSSFReadOptions#isLazySheets()
+         */
+        public Builder lazySheets(boolean lazySheets) {
+            this.lazySheets = lazySheets;
+            return this;
+        }
+
+        public XSSFReadOptions build() {
+            return new XSSFReadOptions(this);
+        }
+    }
+}
@@ -17,9 +17,12 @@
 
 package org.apache.poi.xssf.usermodel;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.Spliterator;
@@ -71,15 +74,34 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
      * @param sheet the parent sheet.
      */
     protected XSSFRow(CTRow row, XSSFSheet sheet) {
+        this(row, sheet, null);
+    }
+
+    /**
+     * Construct a XSSFRow with compact cells.
+     *
+     * @param row the xml bean containing the cell definitions, which aren't compact.
+     * @param sheet the parent sheet.
+     * @param compactCells the compact cells, which have been filtered out of the row, or {@code null}
+     */
+    XSSFRow(CTRow row, XSSFSheet sheet, CompactCells compactCells) {
         _row = row;
         _sheet = sheet;
         _cells = new TreeMap<>();
-        for (CTCell c : row.getCArray()) {
-            XSSFCell cell = new XSSFCell(this, c);
+        CTCell[] cArray = row.getCArray();
+        int compactCount = (compactCells == null) ? 0 : compactCells.size();
+        // merge the cells in their original order, as cells without a reference follow their predecessor
+        for (int i = 0, c = 0, k = 0; c < cArray.length || k < compactCount; i++) {
+            XSSFCell cell;
+            if (k < compactCount && compactCells.getPosition(k) == i) {
+                cell = compactCells.createCell(this, k++);
+            } else {
+                cell = new XSSFCell(this, cArray[c++]);
+                sheet.onReadCell(cell);
+            }
             // Performance optimization for bug 57840: explicit boxing is slightly faster than auto-unboxing, though may use more memory
             final Integer colI = Integer.valueOf(cell.getColumnIndex()); // NOSONAR
             _cells.put(colI, cell);
-            sheet.onReadCell(cell);
         }
 
         if (! row.isSetR()) {
@@ -212,8 +234,17 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
     public XSSFCell createCell(int columnIndex, CellType type) {
         // Performance optimization for bug 57840: explicit boxing is slightly faster than auto-unboxing, though may use more memory
         final Integer colI = Integer.valueOf(columnIndex); // NOSONAR
-        CTCell ctCell;
         XSSFCell prev = _cells.get(colI);
+        if (_sheet.getWorkbook().getReadOptions().isCompactCells() && (prev == null || prev.isCompact())) {
+            XSSFCell xcell = new XSSFCell(this, columnIndex, CompactCells.BLANK, -1, 0, null, null);
+            xcell.setCellNum(columnIndex);
+            if (type != CellType.BLANK && type != CellType.FORMULA) {
+                setDefaultValue(xcell, type);
+            }
+            _cells.put(colI, xcell);
+            return xcell;
+        }
+        CTCell ctCell;
         if(prev != null){
             ctCell = prev.getCTCell();
             ctCell.set(CTCell.Factory.newInstance());
@@ -523,6 +554,10 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
         // Performance optimization for bug 57840: explicit boxing is slightly faster than auto-unboxing, though may use more memory
         final Integer colI = Integer.valueOf(cell.getColumnIndex()); // NOSONAR
         XSSFCell removed = _cells.remove(colI);
+        if (removed.isCompact()) {
+            // compact cells aren't part of the _row.cArray
+            return;
+        }
 
         // also remove the corresponding CTCell from the _row.cArray,
         // it may not be at the same position right now
@@ -555,11 +590,66 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
         // _row.cArray and _cells.getCTCell might be out of sync after adding/removing cells,
         // thus we need to re-order it here to make the resulting file correct
 
+        // compact cells aren't part of _row.cArray, they only get a temporary CTCell while the sheet is saved
+        Collection<XSSFCell> cells = _cells.values();
+        int compactCount = 0;
+        for (XSSFCell cell : cells) {
+            if (cell.isCompact()) {
+                compactCount++;
+            }
+        }
+        if (compactCount > 0) {
+            List<XSSFCell> beanCells = new ArrayList<>(cells.size() - compactCount);
+            for (XSSFCell cell : cells) {
+                if (!cell.isCompact()) {
+                    beanCells.add(cell);
+                }
+            }
+            cells = beanCells;
+        }
+
+        syncCTCells(cells);
+
+        if (compactCount > 0) {
+            int i = 0;
+            for (XSSFCell cell : _cells.values()) {
+                if (cell.isCompact()) {
+                    cell.applyDefaultCellStyleIfNecessary();
+                    cell.copyCompactTo(_row.insertNewC(i));
+                }
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Fired after the document has been written to an output stream.
+     * Removes the temporary CTCells of the compact cells, which have been inserted by {@link #onDocumentWrite()}.
+     */
+    void onDocumentWritten() {
+        if (_row.sizeOfCArray() != _cells.size()) {
+            // onDocumentWrite() hasn't been called, so there are no temporary CTCells
+            return;
+        }
+        int i = 0;
+        for (XSSFCell cell : _cells.values()) {
+            if (cell.isCompact()) {
+                _row.removeC(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Brings _row.cArray in the order of the given cells, which all have a CTCell
+     */
+    private void syncCTCells(Collection<XSSFCell> cells) {
         // do a quick check if there is work to do to not incur the overhead if not necessary anyway
         CTCell[] cArrayOrig = _row.getCArray();
-        if(cArrayOrig.length == _cells.size()) {
+        if(cArrayOrig.length == cells.size()) {
             boolean allEqual = true;
-            Iterator<XSSFCell> it = _cells.values().iterator();
+            Iterator<XSSFCell> it = cells.iterator();
             for (CTCell ctCell : cArrayOrig) {
                 XSSFCell cell = it.next();
                 cell.applyDefaultCellStyleIfNecessary();
@@ -579,13 +669,25 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
             }
         }
 
-        fixupCTCells(cArrayOrig);
+        fixupCTCells(cArrayOrig, cells);
     }
 
-    private void fixupCTCells(CTCell[] cArrayOrig) {
+    /**
+     * Fired when the document is written and the cells are written directly instead of by XMLBeans.
+     * Only the default column styles are applied, the cell beans of the row don't need to be in sync.
+     *
+     * @see XSSFWorkbook#setDirectSheetDataWrite(boolean)
+     */
+    void onDirectWrite() {
+        for (XSSFCell cell : _cells.values()) {
+            cell.applyDefaultCellStyleIfNecessary();
+        }
+    }
+
+    private void fixupCTCells(CTCell[] cArrayOrig, Collection<XSSFCell> cells) {
         // copy all values to 2nd array and a map for lookup of index
         CTCell[] cArrayCopy = new CTCell[cArrayOrig.length];
-        IdentityHashMap<CTCell, Integer> map = new IdentityHashMap<>(_cells.size());
+        IdentityHashMap<CTCell, Integer> map = new IdentityHashMap<>(cells.size());
         int i = 0;
         for (CTCell ctCell : cArrayOrig) {
             cArrayCopy[i] = (CTCell) ctCell.copy();
@@ -595,7 +697,7 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
 
         // populate _row.cArray correctly
         i = 0;
-        for (XSSFCell cell : _cells.values()) {
+        for (XSSFCell cell : cells) {
             // no need to change anything if position is correct
             Integer correctPosition = map.get(cell.getCTCell());
             Objects.requireNonNull(correctPosition, "Should find CTCell in _row");
@@ -608,8 +710,8 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
         }
 
         // remove any remaining illegal references in _rows.cArray
-        while(cArrayOrig.length > _cells.size()) {
-            _row.removeC(_cells.size());
+        while(cArrayOrig.length > cells.size()) {
+            _row.removeC(cells.size());
         }
     }
 
@@ -0,0 +1,263 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import java.util.Arrays;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.FormulaShifter;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.Internal;
+
+/**
+ * A sequence of row insertions and deletions, which are applied to a sheet at once by
+ * {@link XSSFSheet#shiftRows(XSSFRowShiftBatch)}.
+ * <p>
+ * The operations are applied in the order they are added, i.e. the row indexes of an operation refer to
+ * the rows as they are after the previous operations. Like in Excel, an insertion moves all rows from the
+ * given row to the end of the sheet down and a deletion moves all rows after the deleted rows up.
+ * The formulas, merged regions, hyperlinks, conditional formats and comments are adjusted like a
+ * {@link XSSFSheet#shiftRows(int, int, int)} of the rows up to the last row of the spreadsheet version
+ * would do for every single operation, but each formula is parsed and rendered at most once per batch.
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class XSSFRowShiftBatch {
+    private static final SpreadsheetVersion VERSION = SpreadsheetVersion.EXCEL2007;
+    private static final int LAST_ROW = VERSION.getLastRowIndex();
+
+    /** the shift of the rows of a segment, which have been deleted */
+    private static final int DELETED = Integer.MIN_VALUE;
+    /** the shift of the rows of a segment, which have been moved beyond the last row */
+    private static final int SHIFTED_OUT = Integer.MIN_VALUE + 1;
+
+    private int[] opRows = new int[8];
+    private int[] opShifts = new int[8];
+    private int size;
+
+    // the composed mapping of the original row indexes: segment i covers the original rows from segStarts[i]
+    // to the start of the next segment, which are moved by segShifts[i]
+    private int[] segStarts = {0};
+    private int[] segShifts = {0};
+    private int segments = 1;
+
+    /**
+     * Inserts blank rows, the rows from the given row index on are moved down
+     *
+     * @param rowIndex the index of the first inserted row
+     * @param count the number of rows to insert
+     * @return this batch
+     * @throws IllegalArgumentException if the row index is invalid or the count isn't positive
+     */
+    public XSSFRowShiftBatch insertRows(int rowIndex, int count) {
+        validate(rowIndex, count);
+        add(rowIndex, count);
+
+        split(rowIndex);
+        for (int i = 0; i < segments; i++) {
+            if (isLive(i) && currentStart(i) >= rowIndex) {
+                segShifts[i] += count;
+            }
+        }
+        // rows moved beyond the last row are lost, even if a later deletion would move them back
+        split(LAST_ROW + 1);
+        for (int i = 0; i < segments; i++) {
+            if (isLive(i) && currentStart(i) > LAST_ROW) {
+                segShifts[i] = SHIFTED_OUT;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Deletes rows, the rows after the deleted rows are moved up
+     *
+     * @param rowIndex the index of the first deleted row
+     * @param count the number of rows to delete
+     * @return this batch
+     * @throws IllegalArgumentException if the row index is invalid, the count isn't positive or
+     *      the deleted rows include the last row of the spreadsheet version
+     */
+    public XSSFRowShiftBatch deleteRows(int rowIndex, int count) {
+        validate(rowIndex, count);
+        if (rowIndex + count > LAST_ROW) {
+            throw new IllegalArgumentException("The deleted rows " + rowIndex + " to " + (rowIndex + count - 1)
+                + " must end before the last row " + LAST_ROW);
+        }
+        add(rowIndex, -count);
+
+        int end = rowIndex + count;
+        split(rowIndex);
+        split(end);
+        for (int i = 0; i < segments; i++) {
+            if (isLive(i)) {
+                int start = currentStart(i);
+                if (start >= end) {
+                    segShifts[i] -= count;
+                } else if (start >= rowIndex) {
+                    segShifts[i] = DELETED;
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the number of operations
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index, which a row has after all operations of the batch
+     *
+     * @param rowIndex the index of the row before the operations
+     * @return the index of the row after the operations or -1 if the row is deleted
+     *      or moved beyond the last row
+     */
+    public int shiftedRowIndex(int rowIndex) {
+        int shift = segmentShift(rowIndex);
+        return (shift == DELETED || shift == SHIFTED_OUT) ? -1 : rowIndex + shift;
+    }
+
+    /**
+     * @return true, if the row is moved beyond the last row of the spreadsheet version by an insertion
+     */
+    boolean isShiftedOut(int rowIndex) {
+        return segmentShift(rowIndex) == SHIFTED_OUT;
+    }
+
+    /**
+     * @return the lowest row index of all operations, i.e. the rows above aren't affected by the batch
+     */
+    int getFirstRowIndex() {
+        int first = LAST_ROW;
+        for (int i = 0; i < size; i++) {
+            first = Math.min(first, opRows[i]);
+        }
+        return first;
+    }
+
+    /**
+     * @param op the index of the operation
+     * @return the first inserted or deleted row of the operation
+     */
+    @Internal
+    public int getRowIndex(int op) {
+        checkOp(op);
+        return opRows[op];
+    }
+
+    /**
+     * @param op the index of the operation
+     * @return the number of inserted rows or the negative number of deleted rows
+     */
+    @Internal
+    public int getRowShift(int op) {
+        checkOp(op);
+        return opShifts[op];
+    }
+
+    /**
+     * Creates the formula shifter, which adjusts the references like {@link XSSFSheet#shiftRows(int, int, int)}
+     * of the rows, which are moved by the operation
+     *
+     * @param op the index of the operation
+     * @param sheetIndex the index of the shifted sheet
+     * @param sheetName the name of the shifted sheet
+     * @return the formula shifter of the operation
+     */
+    @Internal
+    public FormulaShifter createFormulaShifter(int op, int sheetIndex, String sheetName) {
+        checkOp(op);
+        int shift = opShifts[op];
+        int firstMoved = (shift > 0) ? opRows[op] : opRows[op] - shift;
+        return FormulaShifter.createForRowShift(sheetIndex, sheetName, firstMoved, LAST_ROW, shift, VERSION);
+    }
+
+    private static void validate(int rowIndex, int count) {
+        if (rowIndex < 0 || rowIndex > LAST_ROW) {
+            throw new IllegalArgumentException("Invalid row number (" + rowIndex
+                + ") outside allowable range (0.." + LAST_ROW + ")");
+        }
+        if (count < 1) {
+            throw new IllegalArgumentException("The number of rows must be positive, but had " + count);
+        }
+    }
+
+    private void checkOp(int op) {
+        if (op < 0 || op >= size) {
+            throw new IndexOutOfBoundsException("Invalid operation " + op + " of " + size);
+        }
+    }
+
+    private void add(int rowIndex, int shift) {
+        if (size == opRows.length) {
+            opRows = Arrays.copyOf(opRows, size * 2);
+            opShifts = Arrays.copyOf(opShifts, size * 2);
+        }
+        opRows[size] = rowIndex;
+        opShifts[size] = shift;
+        size++;
+    }
+
+    private boolean isLive(int segment) {
+        int shift = segShifts[segment];
+        return shift != DELETED && shift != SHIFTED_OUT;
+    }
+
+    private int currentStart(int segment) {
+        return segStarts[segment] + segShifts[segment];
+    }
+
+    /**
+     * Splits the live segment, which covers the given current row index after its first row
+     */
+    private void split(int rowIndex) {
+        for (int i = 0; i < segments; i++) {
+            if (!isLive(i) || currentStart(i) >= rowIndex) {
+                continue;
+            }
+            int originalRow = rowIndex - segShifts[i];
+            int nextStart = (i + 1 < segments) ? segStarts[i + 1] : LAST_ROW + 1;
+            if (originalRow < nextStart) {
+                if (segments == segStarts.length) {
+                    segStarts = Arrays.copyOf(segStarts, segments * 2);
+                    segShifts = Arrays.copyOf(segShifts, segments * 2);
+                }
+                System.arraycopy(segStarts, i + 1, segStarts, i + 2, segments - i - 1);
+                System.arraycopy(segShifts, i + 1, segShifts, i + 2, segments - i - 1);
+                segStarts[i + 1] = originalRow;
+                segShifts[i + 1] = segShifts[i];
+                segments++;
+                return;
+            }
+        }
+    }
+
+    private int segmentShift(int rowIndex) {
+        if (rowIndex < 0 || rowIndex > LAST_ROW) {
+            throw new IllegalArgumentException("Invalid row number (" + rowIndex
+                + ") outside allowable range (0.." + LAST_ROW + ")");
+        }
+        int idx = Arrays.binarySearch(segStarts, 0, segments, rowIndex);
+        return segShifts[(idx >= 0) ? idx : -idx - 2];
+    }
+}
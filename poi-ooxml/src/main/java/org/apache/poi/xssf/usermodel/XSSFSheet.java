@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.*;
+import java.util.function.IntPredicate;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
@@ -47,11 +48,13 @@ import org.apache.poi.ss.util.CellAddress;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.ss.util.CellRangeAddressList;
 import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.GlyphAdvanceCache;
 import org.apache.poi.ss.util.PaneInformation;
 import org.apache.poi.ss.util.SSCellRange;
 import org.apache.poi.ss.util.SheetUtil;
 import org.apache.poi.util.Beta;
 import org.apache.poi.util.Internal;
+import org.apache.poi.util.IntSparseArray;
 import org.apache.poi.util.Removal;
 import org.apache.poi.util.Units;
 import org.apache.poi.xssf.model.Comments;
@@ -90,7 +93,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
     protected CTSheet sheet;
     protected CTWorksheet worksheet;
 
-    private final SortedMap<Integer, XSSFRow> _rows = new TreeMap<>();
+    private final IntSparseArray<XSSFRow> _rows = new IntSparseArray<>();
     private List<XSSFHyperlink> hyperlinks;
     private ColumnHelper columnHelper;
     private Comments sheetComments;
@@ -104,6 +107,10 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
     private final XSSFDataValidationHelper dataValidationHelper;
     private XSSFVMLDrawing xssfvmlDrawing;
     private CellRangeAddress dimensionOverride;
+    /**
+     * whether the worksheet part is parsed on the first access, see {@link XSSFReadOptions#isLazySheets()}
+     */
+    private boolean deferredRead;
 
     /**
      * Creates new XSSFSheet   - called by XSSFWorkbook to create a sheet from scratch.
@@ -139,6 +146,34 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         return (XSSFWorkbook)getParent();
     }
 
+    /**
+     * Marks the worksheet part to be parsed on the first access to the sheet.
+     *
+     * @see XSSFReadOptions#isLazySheets()
+     */
+    void deferDocumentRead() {
+        deferredRead = true;
+    }
+
+    /**
+     * Parses the worksheet part, if its parsing has been deferred and it hasn't been parsed yet.
+     *
+     * @see XSSFReadOptions#isLazySheets()
+     */
+    void ensureDocumentRead() {
+        if (deferredRead) {
+            deferredRead = false;
+            onDocumentRead();
+        }
+    }
+
+    /**
+     * @return true if the worksheet part has been deferred and not been parsed yet
+     */
+    boolean isDocumentReadDeferred() {
+        return deferredRead;
+    }
+
     /**
      * Initialize worksheet data when reading in an exisiting file.
      */
@@ -152,13 +187,20 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
     }
 
     protected void read(InputStream is) throws IOException {
+        List<CompactCells> compactRows = null;
         try {
-            worksheet = WorksheetDocument.Factory.parse(is, DEFAULT_XML_OPTIONS).getWorksheet();
+            if (getWorkbook().getReadOptions().isCompactCells()) {
+                CompactCellFilter filter = new CompactCellFilter(is);
+                worksheet = WorksheetDocument.Factory.parse(filter, DEFAULT_XML_OPTIONS).getWorksheet();
+                compactRows = filter.getRows();
+            } else {
+                worksheet = WorksheetDocument.Factory.parse(is, DEFAULT_XML_OPTIONS).getWorksheet();
+            }
         } catch (XmlException e){
             throw new POIXMLException(e);
         }
 
-        initRows(worksheet);
+        initRows(worksheet, compactRows);
         columnHelper = new ColumnHelper(worksheet);
         // Look for bits we're interested in
         for(RelationPart rp : getRelationParts()){
@@ -171,7 +213,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
                 tables.put( rp.getRelationship().getId(), (XSSFTable)p );
             }
             if(p instanceof XSSFPivotTable) {
-                getWorkbook().getPivotTables().add((XSSFPivotTable) p);
+                getWorkbook().addPivotTable((XSSFPivotTable) p);
             }
         }
 
@@ -185,12 +227,15 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
     @Override
     protected void onDocumentCreate(){
         worksheet = newSheet();
-        initRows(worksheet);
+        initRows(worksheet, null);
         columnHelper = new ColumnHelper(worksheet);
         hyperlinks = new ArrayList<>();
     }
 
-    private void initRows(CTWorksheet worksheetParam) {
+    /**
+     * @param compactRows the compact cells by the position of their row or {@code null}
+     */
+    private void initRows(CTWorksheet worksheetParam, List<CompactCells> compactRows) {
         if (worksheetParam.getSheetData() == null || worksheetParam.getSheetData().getRowArray() == null) {
             throw new IllegalArgumentException("Had empty sheet data when initializing the sheet");
         }
@@ -199,12 +244,16 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         tables = new TreeMap<>();
         sharedFormulas = new HashMap<>();
         arrayFormulas = new ArrayList<>();
+        int rowPosition = 0;
         for (CTRow row : worksheetParam.getSheetData().getRowArray()) {
-            XSSFRow r = new XSSFRow(row, this);
-            // Performance optimization: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-            //noinspection UnnecessaryBoxing
-            final Integer rownumI = Integer.valueOf(r.getRowNum()); // NOSONAR
-            _rows.put(rownumI, r);
+            CompactCells compactCells = null;
+            if (compactRows != null && rowPosition < compactRows.size()) {
+                // release the compact cells of the row, once they are part of the XSSFRow
+                compactCells = compactRows.set(rowPosition, null);
+            }
+            rowPosition++;
+            XSSFRow r = new XSSFRow(row, this, compactCells);
+            _rows.put(r.getRowNum(), r);
         }
     }
 
@@ -494,7 +543,26 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
      */
     @Override
     public void autoSizeColumn(int column, boolean useMergedCells) {
-        double width = SheetUtil.getColumnWidth(this, column, useMergedCells);
+        autoSizeColumn(column, useMergedCells, null);
+    }
+
+    /**
+     * Adjusts the column width to fit the contents, optionally estimating the text widths
+     * with cached glyph advances instead of laying out the text of each cell.
+     * <p>
+     * The estimation is considerably faster on large sheets and doesn't need installed fonts
+     * for {@link GlyphAdvanceCache#fromBundledMetrics()}, but the resulting widths are slightly
+     * wider than the exact ones. Share the cache between the calls to benefit from it.
+     * </p>
+     *
+     * @param column the column index
+     * @param useMergedCells whether to use the contents of merged cells when calculating the width of the column
+     * @param glyphAdvances the glyph advances or {@code null} to measure the text exactly
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void autoSizeColumn(int column, boolean useMergedCells, GlyphAdvanceCache glyphAdvances) {
+        double width = SheetUtil.getColumnWidth(this, column, useMergedCells, glyphAdvances);
 
         if (width != -1) {
             width *= 256;
@@ -701,11 +769,8 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
      */
     @Override
     public XSSFRow createRow(int rownum) {
-        // Performance optimization: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-        //noinspection UnnecessaryBoxing
-        final Integer rownumI = Integer.valueOf(rownum); // NOSONAR
         CTRow ctRow;
-        XSSFRow prev = _rows.get(rownumI);
+        XSSFRow prev = _rows.get(rownum);
         if(prev != null){
             // the Cells in an existing row are invalidated on-purpose, in order to clean up correctly, we
             // need to call the remove, so things like ArrayFormulas and CalculationChain updates are done
@@ -725,13 +790,13 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
             } else {
                 // get number of rows where row index < rownum
                 // --> this tells us where our row should go
-                int idx = _rows.headMap(rownumI).size();
+                int idx = _rows.countBelow(rownum);
                 ctRow = worksheet.getSheetData().insertNewRow(idx);
             }
         }
         XSSFRow r = new XSSFRow(ctRow, this);
         r.setRowNum(rownum);
-        _rows.put(rownumI, r);
+        _rows.put(rownum, r);
         return r;
     }
 
@@ -1190,10 +1255,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
 
     @Override
     public int getLastRowNum() {
-        // _rows.getLastKey() (O(logN)) or caching last row (O(1))?
-        // A test with 1_000_000 rows shows that querying getLastRowNum with lastKey() implementation takes ~40 ms,
-        // and ~1.2 ms with cached implementation. 40 ms is negligible compared to the time of evaluation a million
-        // cells, and the lastKey implementation is much more elegant and less error prone than caching.
+        // the row index keeps track of its lowest and highest key, so lastKey() is O(1)
         return _rows.isEmpty() ? -1 : _rows.lastKey();
     }
 
@@ -1486,10 +1548,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
      */
     @Override
     public XSSFRow getRow(int rownum) {
-        // Performance optimization: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-        //noinspection UnnecessaryBoxing
-        final Integer rownumI = Integer.valueOf(rownum); // NOSONAR
-        return _rows.get(rownumI);
+        return _rows.get(rownum);
     }
 
     /**
@@ -1519,12 +1578,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
             }
         }
         else {
-            // Performance optimization: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-            //noinspection UnnecessaryBoxing
-            final Integer startI = Integer.valueOf(startRowNum); // NOSONAR
-            //noinspection UnnecessaryBoxing
-            final Integer endI = Integer.valueOf(endRowNum+1); // NOSONAR
-            final Collection<XSSFRow> inclusive = _rows.subMap(startI, endI).values();
+            final Collection<XSSFRow> inclusive = _rows.values(startRowNum, endRowNum+1);
             rows.addAll(inclusive);
         }
         return rows;
@@ -2034,12 +2088,9 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         }
 
         final int rowNum = row.getRowNum();
-        // Performance optimization: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-        //noinspection UnnecessaryBoxing
-        final Integer rowNumI = Integer.valueOf(rowNum); // NOSONAR
         // this is not the physical row number!
-        final int idx = _rows.headMap(rowNumI).size();
-        _rows.remove(rowNumI);
+        final int idx = _rows.countBelow(rowNum);
+        _rows.remove(rowNum);
         worksheet.getSheetData().removeRow(idx);
 
         // also remove any comment located in that row
@@ -3072,6 +3123,51 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         }
     }
 
+    /**
+     * Inserts and deletes rows for all operations of the batch at once.
+     * <p>
+     * The result is the same as calling {@link #shiftRows(int, int, int)} for every operation, where an
+     * insertion shifts the rows from its row index to the last row of the spreadsheet version down and a
+     * deletion shifts the rows after the deleted rows up, with the exception of comments, which are moved
+     * even if their row doesn't exist. But the rows, comments and merged regions are moved only once and
+     * every formula of the workbook is parsed and rendered at most once.
+     *
+     * @param batch the insertions and deletions
+     * @throws IllegalArgumentException if an insertion would move an existing row beyond the last row
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void shiftRows(XSSFRowShiftBatch batch) {
+        if (batch.size() == 0) {
+            return;
+        }
+        for (XSSFRow row : _rows.values()) {
+            if (batch.isShiftedOut(row.getRowNum())) {
+                throw new IllegalArgumentException("Row[rownum=" + row.getRowNum()
+                        + "] would be shifted beyond the last row of the sheet");
+            }
+        }
+        int firstRow = batch.getFirstRowIndex();
+        List<XSSFTable> overlappingTables = new ArrayList<>();
+        for (XSSFTable table : getTables()) {
+            if (table.getEndRowIndex() >= firstRow) {
+                overlappingTables.add(table);
+            }
+        }
+        removeRows(rownum -> batch.shiftedRowIndex(rownum) < 0);
+        shiftCommentsAndRows(batch);
+
+        XSSFRowShifter rowShifter = new XSSFRowShifter(this);
+        rowShifter.shiftMergedRegions(batch);
+        rowShifter.updateConditionalFormatting(batch);
+        rowShifter.updateHyperlinks(batch);
+        rowShifter.updateFormulas(batch);
+
+        for (XSSFTable table : overlappingTables) {
+            rebuildTableFormulas(table);
+        }
+    }
+
     /**
      * Shifts columns between startColumn and endColumn n number of columns.
      * If you use a negative number, it will shift columns left.
@@ -3152,13 +3248,17 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         _rows.clear();
         for (CTRow ctRow : sheetData.getRowList()) {
             XSSFRow row = new XSSFRow(ctRow, this);
-            Integer rownumI = Math.toIntExact(row.getRowNum());
-            _rows.put(rownumI, row);
+            _rows.put(row.getRowNum(), row);
         }
     }
 
     // remove all rows which will be overwritten
     private void removeOverwritten(int startRow, int endRow, final int n) {
+        removeRows(rownum -> shouldRemoveRow(startRow, endRow, n, rownum));
+    }
+
+    // remove the rows matching the predicate including their comments and hyperlinks
+    private void removeRows(IntPredicate toRemove) {
         XSSFVMLDrawing vml = getVMLDrawing(false);
         HashSet<Integer> rowsToRemoveSet = new HashSet<>();
         for (Iterator<Row> it = rowIterator() ; it.hasNext() ; ) {
@@ -3166,7 +3266,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
             int rownum = row.getRowNum();
 
             // check if we should remove this row as it will be overwritten by the data later
-            if (shouldRemoveRow(startRow, endRow, n, rownum)) {
+            if (toRemove.test(rownum)) {
                 rowsToRemoveSet.add(rownum);
                 for (Cell c : row) {
                     if (!c.isPartOfArrayFormulaGroup()) {
@@ -3175,10 +3275,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
                     }
                 }
                 // remove row from worksheet.getSheetData row array
-                // Performance optimization: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-                //noinspection UnnecessaryBoxing
-                final Integer rownumI = Integer.valueOf(row.getRowNum()); // NOSONAR
-                int idx = _rows.headMap(rownumI).size();
+                int idx = _rows.countBelow(row.getRowNum());
                 worksheet.getSheetData().removeRow(idx);
 
                 // remove row from _rows
@@ -3294,6 +3391,56 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         rebuildRows();
     }
 
+    private void shiftCommentsAndRows(XSSFRowShiftBatch batch) {
+        if (sheetComments != null) {
+            XSSFVMLDrawing vml = getVMLDrawing(false);
+            // the order of the rows is kept, so the comments moved down are moved from bottom to top and
+            // the ones moved up from top to bottom without clashing with comments, which aren't moved yet
+            List<CellAddress> movedDown = new ArrayList<>();
+            List<CellAddress> movedUp = new ArrayList<>();
+            List<CellAddress> removed = new ArrayList<>();
+            for (Iterator<CellAddress> it = sheetComments.getCellAddresses(); it.hasNext(); ) {
+                CellAddress ref = it.next();
+                int newrownum = batch.shiftedRowIndex(ref.getRow());
+                if (newrownum < 0) {
+                    removed.add(ref);
+                } else if (newrownum > ref.getRow()) {
+                    movedDown.add(ref);
+                } else if (newrownum < ref.getRow()) {
+                    movedUp.add(ref);
+                }
+            }
+            for (CellAddress ref : removed) {
+                sheetComments.removeComment(ref);
+                if (vml != null) {
+                    vml.removeCommentShape(ref.getRow(), ref.getColumn());
+                }
+            }
+            movedDown.sort(Comparator.comparingInt(CellAddress::getRow).reversed());
+            movedUp.sort(Comparator.comparingInt(CellAddress::getRow));
+            for (List<CellAddress> refs : Arrays.asList(movedDown, movedUp)) {
+                for (CellAddress ref : refs) {
+                    XSSFComment oldComment = sheetComments.findCellComment(ref);
+                    if (oldComment != null) {
+                        XSSFComment xssfComment = new XSSFComment(sheetComments, oldComment.getCTComment(),
+                                oldComment.getCTShape());
+                        xssfComment.setRow(batch.shiftedRowIndex(ref.getRow()));
+                    }
+                }
+            }
+        }
+
+        for (XSSFRow row : _rows.values()) {
+            int rownum = row.getRowNum();
+            int newrownum = batch.shiftedRowIndex(rownum);
+            if (newrownum != rownum) {
+                row.shift(newrownum - rownum);
+            }
+        }
+
+        rebuildRows();
+    }
+
     private int shiftedRowNum(int startRow, int endRow, int n, int rownum) {
         // no change if before any affected row
         if(rownum < startRow && (n > 0 || (startRow - rownum) > n)) {
@@ -3742,8 +3889,19 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         }
     }
 
+    @Override
+    protected void prepareForCommit() {
+        // the unparsed content of a deferred sheet is written as is
+        if (!deferredRead) {
+            super.prepareForCommit();
+        }
+    }
+
     @Override
     protected void commit() throws IOException {
+        if (deferredRead) {
+            return;
+        }
         PackagePart part = getPackagePart();
         try (OutputStream out = part.getOutputStream()) {
             write(out);
@@ -3796,14 +3954,18 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
             }*/
         }
 
+        boolean directWrite = getWorkbook().isDirectSheetDataWrite();
         CellRangeAddress cellRangeAddress = dimensionOverride;
         if (cellRangeAddress == null) {
             int minCell = Integer.MAX_VALUE, maxCell = Integer.MIN_VALUE;
-            for(Map.Entry<Integer, XSSFRow> entry : _rows.entrySet()) {
-                XSSFRow row = entry.getValue();
+            for(XSSFRow row : _rows.values()) {
 
                 // first perform the normal write actions for the row
-                row.onDocumentWrite();
+                if (directWrite) {
+                    row.onDirectWrite();
+                } else {
+                    row.onDocumentWrite();
+                }
 
                 // then calculate min/max cell-numbers for the worksheet-dimension
                 if(row.getFirstCellNum() != -1) {
@@ -3827,10 +3989,22 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
             }
         }
 
-        XmlOptions xmlOptions = new XmlOptions(DEFAULT_XML_OPTIONS);
-        xmlOptions.setSaveSyntheticDocumentElement(new QName(CTWorksheet.type.getName().getNamespaceURI(), "worksheet"));
+        if (directWrite) {
+            // the sheet data is streamed from the rows, the rest of the worksheet is saved by XMLBeans
+            new XSSFWorksheetWriter(out).write(worksheet, _rows.values());
+        } else {
+            XmlOptions xmlOptions = new XmlOptions(DEFAULT_XML_OPTIONS);
+            xmlOptions.setSaveSyntheticDocumentElement(new QName(CTWorksheet.type.getName().getNamespaceURI(), "worksheet"));
 
-        worksheet.save(out, xmlOptions);
+            try {
+                worksheet.save(out, xmlOptions);
+            } finally {
+                // the compact cells only had their CTCells for the save
+                for (XSSFRow row : _rows.values()) {
+                    row.onDocumentWritten();
+                }
+            }
+        }
 
         // Bug 52233: Ensure that we have a col-array even if write() removed it
         if(setToNull) {
@@ -4826,6 +5000,10 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
      * @param evalWb BaseXSSFEvaluationWorkbook in use, if one exists
      */
     protected void onDeleteFormula(XSSFCell cell, BaseXSSFEvaluationWorkbook evalWb){
+        if (cell.isCompact()) {
+            // compact cells have no shared formulas
+            return;
+        }
 
         CTCellFormula f = cell.getCTCell().getF();
         if (f != null && f.getT() == STCellFormulaType.SHARED && f.isSetRef() && f.getStringValue() != null) {
@@ -4838,7 +5016,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
                     if(row != null) {
                         for(int j = cell.getColumnIndex(); j <= ref.getLastColumn(); j++){
                             XSSFCell nextCell = row.getCell(j);
-                            if(nextCell != null && nextCell != cell && nextCell.getCellType() == CellType.FORMULA) {
+                            if(nextCell != null && nextCell != cell && !nextCell.isCompact() && nextCell.getCellType() == CellType.FORMULA) {
                                 CTCellFormula nextF = nextCell.getCTCell().getF();
                                 if (nextF.getT() == STCellFormulaType.SHARED && nextF.getSi() == f.getSi()) {
                                     nextF.setStringValue(nextCell.getCellFormula(evalWb));
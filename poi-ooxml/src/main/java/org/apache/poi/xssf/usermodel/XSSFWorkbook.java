@@ -36,6 +36,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Spliterator;
 import java.util.regex.Pattern;
 
@@ -187,6 +188,11 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
      */
     private boolean cellFormulaValidation = true;
 
+    /**
+     * Whether the sheet data of the sheets is written directly from the rows and cells.
+     */
+    private boolean directSheetDataWrite;
+
     /**
      * array of pictures for this workbook
      */
@@ -208,6 +214,8 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
 
     private final XSSFFactory xssfFactory;
 
+    private final XSSFReadOptions readOptions;
+
     /**
      * Create a new SpreadsheetML workbook.
      */
@@ -230,6 +238,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     private XSSFWorkbook(XSSFWorkbookType workbookType, XSSFFactory factory) {
         super(newPackage(workbookType));
         this.xssfFactory = (factory == null) ? XSSFFactory.getInstance() : factory;
+        this.readOptions = XSSFReadOptions.DEFAULT;
         onWorkbookCreate();
     }
 
@@ -251,8 +260,30 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
      * input format
      */
     public XSSFWorkbook(OPCPackage pkg) throws IOException {
+        this(pkg, XSSFReadOptions.DEFAULT);
+    }
+
+    /**
+     * Constructs a XSSFWorkbook object given a OpenXML4J {@code Package} object and the options
+     * for reading it, e.g. for keeping the cells in a compact form.
+     *
+     * <p>Once you have finished working with the Workbook, you should close the package
+     * by calling either {@link #close()} or {@link OPCPackage#close()}, to avoid
+     * leaving file handles open.
+     *
+     * @param pkg the OpenXML4J {@code OPC Package} object.
+     * @param options the options for reading the workbook
+     * @throws IOException If reading data from the package fails
+     * @throws POIXMLException a RuntimeException that can be caused by invalid OOXML data
+     * @throws RuntimeException a number of other runtime exceptions can be thrown, especially if there are problems with the
+     * input format
+     * @since POI 5.2.4
+     */
+    @Beta
+    public XSSFWorkbook(OPCPackage pkg, XSSFReadOptions options) throws IOException {
         super(pkg);
         this.xssfFactory = XSSFFactory.getInstance();
+        this.readOptions = Objects.requireNonNull(options, "options");
 
         beforeDocumentRead();
 
@@ -354,6 +385,15 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
         return xssfFactory;
     }
 
+    /**
+     * @return the options this workbook has been read with, the default options for new workbooks
+     * @since POI 5.2.4
+     */
+    @Beta
+    public XSSFReadOptions getReadOptions() {
+        return readOptions;
+    }
+
     protected void beforeDocumentRead() {
         // Ensure it isn't a XLSB file, which we don't support
         if (getCorePart().getContentType().equals(XSSFRelation.XLSB_BINARY_WORKBOOK.getContentType())) {
@@ -465,7 +505,11 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
             return;
         }
         sh.sheet = ctSheet;
-        sh.onDocumentRead();
+        if (readOptions.isLazySheets()) {
+            sh.deferDocumentRead();
+        } else {
+            sh.onDocumentRead();
+        }
         sheets.add(sh);
     }
 
@@ -627,7 +671,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
      */
     public XSSFSheet cloneSheet(int sheetNum, String newName) {
         validateSheetIndex(sheetNum);
-        XSSFSheet srcSheet = sheets.get(sheetNum);
+        XSSFSheet srcSheet = getSheetAt(sheetNum);
 
         if (newName == null) {
             String srcName = srcSheet.getSheetName();
@@ -1167,6 +1211,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     public XSSFSheet getSheet(String name) {
         for (XSSFSheet sheet : sheets) {
             if (name.equalsIgnoreCase(sheet.getSheetName())) {
+                sheet.ensureDocumentRead();
                 return sheet;
             }
         }
@@ -1184,7 +1229,9 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     @Override
     public XSSFSheet getSheetAt(int index) {
         validateSheetIndex(index);
-        return sheets.get(index);
+        XSSFSheet sheet = sheets.get(index);
+        sheet.ensureDocumentRead();
+        return sheet;
     }
 
     /**
@@ -1274,6 +1321,9 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     @Override
     @SuppressWarnings("unchecked")
     public Spliterator<Sheet> spliterator() {
+        for (XSSFSheet sheet : sheets) {
+            sheet.ensureDocumentRead();
+        }
         return (Spliterator<Sheet>)(Spliterator<? extends Sheet>) sheets.spliterator();
     }
 
@@ -1289,7 +1339,9 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
         }
         @Override
         public T next() throws NoSuchElementException {
-            return it.next();
+            T sheet = it.next();
+            ((XSSFSheet)sheet).ensureDocumentRead();
+            return sheet;
         }
         /**
          * Unexpected behavior may occur if sheets are reordered after iterator
@@ -1627,6 +1679,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     public void setSelectedTab(int index) {
         int idx = 0;
         for (XSSFSheet sh : sheets) {
+            sh.ensureDocumentRead();
             sh.setSelected(idx == index);
             idx++;
         }
@@ -2330,10 +2383,13 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
         } else {
             caches = ctWorkbook.addNewPivotCaches();
         }
+        // the cache ids of existing files don't need to be consecutive
+        long cacheId = getPivotTables().size();
+        for (CTPivotCache existing : caches.getPivotCacheArray()) {
+            cacheId = Math.max(cacheId, existing.getCacheId());
+        }
         CTPivotCache cache = caches.addNewPivotCache();
-
-        int tableId = getPivotTables().size()+1;
-        cache.setCacheId(tableId);
+        cache.setCacheId(cacheId + 1);
         cache.setId(rId);
         if(pivotCaches == null) {
             pivotCaches = new ArrayList<>();
@@ -2342,11 +2398,29 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
         return cache;
     }
 
+    /**
+     * Returns the pivot tables of all sheets. With {@link XSSFReadOptions#isLazySheets()}, the sheets which
+     * haven't been accessed yet are parsed first, as their pivot tables are only known afterwards.
+     *
+     * @return the pivot tables of the workbook
+     */
     @Beta
     public List<XSSFPivotTable> getPivotTables() {
+        if (sheets != null) {
+            for (XSSFSheet sheet : sheets) {
+                sheet.ensureDocumentRead();
+            }
+        }
         return pivotTables;
     }
 
+    /**
+     * Registers a pivot table of a sheet, which is being parsed
+     */
+    void addPivotTable(XSSFPivotTable pivotTable) {
+        pivotTables.add(pivotTable);
+    }
+
     @Beta
     protected void setPivotTables(List<XSSFPivotTable> pivotTables) {
         this.pivotTables = pivotTables;
@@ -2436,6 +2510,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     public XSSFTable getTable(String name) {
         if (name != null && sheets != null) {
             for (XSSFSheet sheet : sheets) {
+                sheet.ensureDocumentRead();
                 for (XSSFTable tbl : sheet.getTables()) {
                     if (name.equalsIgnoreCase(tbl.getName())) {
                         return tbl;
@@ -2506,6 +2581,34 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
         return this.cellFormulaValidation;
     }
 
+    /**
+     * Whether the rows and cells of the sheets are written directly to the worksheet parts, the way SXSSF
+     * writes them, instead of being saved by XMLBeans together with the other elements of the worksheets.
+     * This reduces the time and the memory needed for saving large sheets, especially of sheets with
+     * {@link XSSFReadOptions#isCompactCells() compact cells}, which don't get their xml beans created.
+     * The written xml is equivalent, but not necessarily identical to the one saved by XMLBeans.
+     * <p>
+     * This is disabled by default.
+     *
+     * @param value true if the sheet data is written directly
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setDirectSheetDataWrite(final boolean value) {
+        this.directSheetDataWrite = value;
+    }
+
+    /**
+     * Whether the rows and cells of the sheets are written directly to the worksheet parts.
+     *
+     * @see #setDirectSheetDataWrite(boolean)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public boolean isDirectSheetDataWrite() {
+        return this.directSheetDataWrite;
+    }
+
     @Override
     public XSSFEvaluationWorkbook createEvaluationWorkbook() {
         return XSSFEvaluationWorkbook.create(this);
@@ -0,0 +1,419 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import static org.apache.poi.ooxml.POIXMLTypeLoader.DEFAULT_XML_OPTIONS;
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlCursor.TokenType;
+import org.apache.xmlbeans.XmlOptions;
+import org.openxmlformats.schemas.officeDocument.x2006.relationships.STRelationshipId;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCellFormula;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRow;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorksheet;
+
+/**
+ * Writes a worksheet part, whose {@code sheetData} is streamed from the rows and cells of the
+ * {@link XSSFSheet} like the {@code SheetDataWriter} of SXSSF does, instead of being saved by XMLBeans.
+ * <p>
+ * The other elements of the worksheet, the cells with inline strings, extensions or rarely used
+ * attributes and the extensions of the rows are saved by XMLBeans as fragments, which share the
+ * namespace declarations of the worksheet element. Compact cells are written from their fields
+ * without creating their xml beans.
+ *
+ * @see XSSFWorkbook#setDirectSheetDataWrite(boolean)
+ */
+final class XSSFWorksheetWriter {
+    private static final String NS_RELATIONSHIPS = STRelationshipId.type.getName().getNamespaceURI();
+
+    private final Writer out;
+    /** the namespace declarations of the worksheet element, prefix to namespace uri */
+    private final Map<String, String> namespaces = new LinkedHashMap<>();
+    private final XmlOptions fragmentOptions = new XmlOptions(DEFAULT_XML_OPTIONS);
+    /** the qualified name prefix of the spreadsheetml elements, either empty or ending with a colon */
+    private String prefix;
+
+    XSSFWorksheetWriter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    /**
+     * Writes the worksheet without closing the underlying stream
+     *
+     * @param worksheet the worksheet bean providing the elements besides the sheet data
+     * @param rows the rows in ascending order
+     */
+    void write(CTWorksheet worksheet, Iterable<XSSFRow> rows) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        try (XmlCursor cur = worksheet.newCursor()) {
+            Map<String, String> attributes = readRootAttributes(cur);
+            fragmentOptions.setSaveNoXmlDecl();
+            fragmentOptions.setSaveImplicitNamespaces(namespaces);
+
+            out.write('<');
+            out.write(prefix);
+            out.write("worksheet");
+            for (Map.Entry<String, String> ns : namespaces.entrySet()) {
+                writeNamespace(ns.getKey(), ns.getValue());
+            }
+            for (Map.Entry<String, String> att : attributes.entrySet()) {
+                writeAttribute(att.getKey(), att.getValue());
+            }
+            out.write('>');
+
+            if (cur.toFirstChild()) {
+                do {
+                    QName name = cur.getName();
+                    if ("sheetData".equals(name.getLocalPart()) && NS_SPREADSHEETML.equals(name.getNamespaceURI())) {
+                        writeSheetData(rows);
+                    } else {
+                        cur.getObject().save(out, fragmentOptions);
+                    }
+                } while (cur.toNextSibling());
+            }
+        }
+        writeEndElement("worksheet");
+        out.flush();
+    }
+
+    /**
+     * Collects the namespace declarations and returns the qualified attributes of the worksheet element.
+     * The spreadsheetml and relationship namespaces are declared, if they aren't already.
+     */
+    private Map<String, String> readRootAttributes(XmlCursor cur) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        Map<QName, String> qualified = new LinkedHashMap<>();
+        cur.push();
+        for (TokenType t = cur.toNextToken(); t.isAttr() || t.isNamespace(); t = cur.toNextToken()) {
+            if (t.isNamespace()) {
+                // the local part of a namespace token is the prefix
+                QName name = cur.getName();
+                namespaces.put(name.getLocalPart(), name.getNamespaceURI());
+            } else {
+                qualified.put(cur.getName(), cur.getTextValue());
+            }
+        }
+        cur.pop();
+
+        prefix = declare(NS_SPREADSHEETML, "");
+        declare(NS_RELATIONSHIPS, "r");
+        for (Map.Entry<QName, String> att : qualified.entrySet()) {
+            attributes.put(qualify(att.getKey(), namespaces, "ns"), att.getValue());
+        }
+        return attributes;
+    }
+
+    /**
+     * @return the prefix of the namespace followed by a colon or the empty string for the default namespace
+     */
+    private String declare(String uri, String suggestedPrefix) {
+        for (Map.Entry<String, String> ns : namespaces.entrySet()) {
+            if (uri.equals(ns.getValue())) {
+                return ns.getKey().isEmpty() ? "" : ns.getKey() + ":";
+            }
+        }
+        String p = suggestedPrefix;
+        for (int i = 1; namespaces.containsKey(p); i++) {
+            p = (suggestedPrefix.isEmpty() ? "ns" : suggestedPrefix) + i;
+        }
+        namespaces.put(p, uri);
+        return p.isEmpty() ? "" : p + ":";
+    }
+
+    /**
+     * @return the qualified name of an attribute, whose namespace is declared in the given namespaces
+     *     or is added to them with a generated prefix
+     */
+    private static String qualify(QName name, Map<String, String> scope, String prefixBase) {
+        String uri = name.getNamespaceURI();
+        if (uri == null || uri.isEmpty()) {
+            return name.getLocalPart();
+        }
+        for (Map.Entry<String, String> ns : scope.entrySet()) {
+            // attributes aren't affected by the default namespace
+            if (!ns.getKey().isEmpty() && uri.equals(ns.getValue())) {
+                return ns.getKey() + ":" + name.getLocalPart();
+            }
+        }
+        String p = prefixBase;
+        for (int i = 1; scope.containsKey(p); i++) {
+            p = prefixBase + i;
+        }
+        scope.put(p, uri);
+        return p + ":" + name.getLocalPart();
+    }
+
+    private void writeSheetData(Iterable<XSSFRow> rows) throws IOException {
+        writeStartElement("sheetData");
+        out.write('>');
+        for (XSSFRow row : rows) {
+            writeRow(row);
+        }
+        writeEndElement("sheetData");
+    }
+
+    private void writeRow(XSSFRow row) throws IOException {
+        CTRow ctRow = row.getCTRow();
+        writeStartElement("row");
+        writeRowAttributes(ctRow);
+        if (row.getPhysicalNumberOfCells() == 0 && !ctRow.isSetExtLst()) {
+            out.write("/>");
+            return;
+        }
+        out.write('>');
+        for (Iterator<Cell> it = row.cellIterator(); it.hasNext(); ) {
+            XSSFCell cell = (XSSFCell) it.next();
+            if (cell.isCompact()) {
+                writeCompactCell(cell);
+            } else {
+                writeCell(cell.getCTCell());
+            }
+        }
+        if (ctRow.isSetExtLst()) {
+            ctRow.getExtLst().save(out, fragmentOptions);
+        }
+        writeEndElement("row");
+    }
+
+    /**
+     * Writes all attributes of the row bean, including the ones of extensions like {@code x14ac:dyDescent}
+     */
+    private void writeRowAttributes(CTRow ctRow) throws IOException {
+        Map<String, String> scope = null;
+        try (XmlCursor cur = ctRow.newCursor()) {
+            for (TokenType t = cur.toNextToken(); t.isAttr() || t.isNamespace(); t = cur.toNextToken()) {
+                QName name = cur.getName();
+                if (t.isNamespace()) {
+                    if (!name.getNamespaceURI().equals(namespaces.get(name.getLocalPart()))) {
+                        writeNamespace(name.getLocalPart(), name.getNamespaceURI());
+                        if (scope == null) {
+                            scope = new HashMap<>(namespaces);
+                        }
+                        scope.put(name.getLocalPart(), name.getNamespaceURI());
+                    }
+                } else if (name.getNamespaceURI() == null || name.getNamespaceURI().isEmpty()) {
+                    writeAttribute(name.getLocalPart(), cur.getTextValue());
+                } else {
+                    if (scope == null) {
+                        scope = new HashMap<>(namespaces);
+                    }
+                    int size = scope.size();
+                    String qname = qualify(name, scope, "ns");
+                    if (scope.size() > size) {
+                        String p = qname.substring(0, qname.indexOf(':'));
+                        writeNamespace(p, name.getNamespaceURI());
+                    }
+                    writeAttribute(qname, cur.getTextValue());
+                }
+            }
+        }
+    }
+
+    private void writeCompactCell(XSSFCell cell) throws IOException {
+        writeStartElement("c");
+        writeAttribute("r", cell.getReference());
+        if (cell.getCompactStyle() >= 0) {
+            writeAttribute("s", Integer.toString(cell.getCompactStyle()));
+        }
+        switch (cell.getCompactType()) {
+            case CompactCells.SHARED_STRING:
+                writeAttribute("t", "s");
+                break;
+            case CompactCells.BOOLEAN:
+                writeAttribute("t", "b");
+                break;
+            case CompactCells.ERROR:
+                writeAttribute("t", "e");
+                break;
+            case CompactCells.STRING:
+                writeAttribute("t", "str");
+                break;
+            default:
+                break;
+        }
+        String formula = cell.getCompactFormula();
+        String value = cell.getRawValue();
+        if (formula == null && value == null) {
+            out.write("/>");
+            return;
+        }
+        out.write('>');
+        if (formula != null) {
+            writeTextElement("f", formula);
+        }
+        if (value != null) {
+            writeTextElement("v", value);
+        }
+        writeEndElement("c");
+    }
+
+    private void writeCell(CTCell ctCell) throws IOException {
+        if (!isSimple(ctCell)) {
+            ctCell.save(out, fragmentOptions);
+            return;
+        }
+        writeStartElement("c");
+        if (ctCell.isSetR()) {
+            writeAttribute("r", ctCell.getR());
+        }
+        if (ctCell.isSetS()) {
+            writeAttribute("s", Long.toString(ctCell.getS()));
+        }
+        if (ctCell.isSetT()) {
+            writeAttribute("t", ctCell.getT().toString());
+        }
+        if (!ctCell.isSetF() && !ctCell.isSetV()) {
+            out.write("/>");
+            return;
+        }
+        out.write('>');
+        if (ctCell.isSetF()) {
+            CTCellFormula f = ctCell.getF();
+            writeStartElement("f");
+            if (f.isSetT()) {
+                writeAttribute("t", f.getT().toString());
+            }
+            if (f.isSetRef()) {
+                writeAttribute("ref", f.getRef());
+            }
+            if (f.isSetSi()) {
+                writeAttribute("si", Long.toString(f.getSi()));
+            }
+            if (f.isSetAca()) {
+                writeAttribute("aca", Boolean.toString(f.getAca()));
+            }
+            if (f.isSetCa()) {
+                writeAttribute("ca", Boolean.toString(f.getCa()));
+            }
+            String text = f.getStringValue();
+            if (text == null || text.isEmpty()) {
+                out.write("/>");
+            } else {
+                out.write('>');
+                writeEscaped(text);
+                writeEndElement("f");
+            }
+        }
+        if (ctCell.isSetV()) {
+            writeTextElement("v", ctCell.getV());
+        }
+        writeEndElement("c");
+    }
+
+    /**
+     * @return true, if the cell consists of the attributes and elements, which are written directly
+     */
+    private static boolean isSimple(CTCell ctCell) {
+        if (ctCell.isSetIs() || ctCell.isSetExtLst() || ctCell.isSetCm() || ctCell.isSetVm() || ctCell.isSetPh()) {
+            return false;
+        }
+        if (!ctCell.isSetF()) {
+            return true;
+        }
+        CTCellFormula f = ctCell.getF();
+        return !(f.isSetDt2D() || f.isSetDtr() || f.isSetDel1() || f.isSetDel2()
+            || f.isSetR1() || f.isSetR2() || f.isSetBx());
+    }
+
+    private void writeStartElement(String localName) throws IOException {
+        out.write('<');
+        out.write(prefix);
+        out.write(localName);
+    }
+
+    private void writeEndElement(String localName) throws IOException {
+        out.write("</");
+        out.write(prefix);
+        out.write(localName);
+        out.write('>');
+    }
+
+    private void writeTextElement(String localName, String text) throws IOException {
+        writeStartElement(localName);
+        out.write('>');
+        writeEscaped(text);
+        writeEndElement(localName);
+    }
+
+    private void writeNamespace(String nsPrefix, String uri) throws IOException {
+        writeAttribute(nsPrefix.isEmpty() ? "xmlns" : "xmlns:" + nsPrefix, uri);
+    }
+
+    private void writeAttribute(String name, String value) throws IOException {
+        out.write(' ');
+        out.write(name);
+        out.write("=\"");
+        writeEscaped(value);
+        out.write('"');
+    }
+
+    /**
+     * Escapes the text like XMLBeans and {@code SheetDataWriter} do, i.e. control characters
+     * other than tab and line breaks are replaced with question marks.
+     */
+    private void writeEscaped(String s) throws IOException {
+        if (s == null) {
+            return;
+        }
+        for (int i = 0, len = s.length(); i < len; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                case '&':
+                    out.write("&amp;");
+                    break;
+                case '"':
+                    out.write("&quot;");
+                    break;
+                case '\n':
+                    out.write("&#xa;");
+                    break;
+                case '\r':
+                    out.write("&#xd;");
+                    break;
+                case '\t':
+                    out.write("&#x9;");
+                    break;
+                default:
+                    out.write((c < ' ' || c == '\uFFFE' || c == '\uFFFF') ? '?' : c);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel.helpers;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.Consumer;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaRenderer;
+import org.apache.poi.ss.formula.FormulaShifter;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.ptg.AreaPtgBase;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.RefPtgBase;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * Index of formulas by the highest row they reference, which is used to apply several row shifts to the
+ * formulas of a workbook. Every formula is parsed once, when it's added, and rendered once by {@link #apply()},
+ * if any of the row shifts changed it.
+ * <p>
+ * A row shift, which moves the rows from a given row on, can't change the references to rows above, so only
+ * the formulas referencing that row or rows below are adjusted. The highest referenced row of a formula is
+ * tracked as an upper bound, which keeps the order of the index when rows are inserted.
+ *
+ * @since POI 5.2.4
+ */
+/*package*/ final class XSSFFormulaRowIndex {
+    private static final int LAST_ROW = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+
+    private final XSSFEvaluationWorkbook fpb;
+    private Entry[] entries = new Entry[16];
+    private int size;
+    private boolean sorted;
+
+    private static final class Entry {
+        final Ptg[] ptgs;
+        final int sheetIndex;
+        final Consumer<String> setter;
+        int maxRow;
+        boolean changed;
+
+        Entry(Ptg[] ptgs, int sheetIndex, int maxRow, Consumer<String> setter) {
+            this.ptgs = ptgs;
+            this.sheetIndex = sheetIndex;
+            this.maxRow = maxRow;
+            this.setter = setter;
+        }
+    }
+
+    XSSFFormulaRowIndex(XSSFWorkbook wb) {
+        fpb = XSSFEvaluationWorkbook.create(wb);
+    }
+
+    /**
+     * Parses and adds a formula, unless it doesn't contain any cell references
+     *
+     * @param formula the formula
+     * @param type the type of the formula
+     * @param sheetIndex the index of the sheet the formula belongs to or -1 for workbook scoped names
+     * @param rowIndex the row of the formula, only used for structured references
+     * @param setter receives the rendered formula, if it was changed
+     * @throws org.apache.poi.ss.formula.FormulaParseException if the formula can't be parsed
+     */
+    void add(String formula, FormulaType type, int sheetIndex, int rowIndex, Consumer<String> setter) {
+        Ptg[] ptgs = FormulaParser.parse(formula, fpb, type, sheetIndex, rowIndex);
+        int maxRow = -1;
+        for (Ptg ptg : ptgs) {
+            if (ptg instanceof RefPtgBase) {
+                maxRow = Math.max(maxRow, ((RefPtgBase) ptg).getRow());
+            } else if (ptg instanceof AreaPtgBase) {
+                maxRow = Math.max(maxRow, ((AreaPtgBase) ptg).getLastRow());
+            }
+        }
+        if (maxRow < 0) {
+            return;
+        }
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+        }
+        entries[size++] = new Entry(ptgs, sheetIndex, maxRow, setter);
+        sorted = false;
+    }
+
+    /**
+     * Adjusts the formulas, which reference the first moved row or rows below
+     *
+     * @param formulaShifter the shifter of the row shift
+     * @param firstRow the first row, whose references are changed by the shift
+     * @param rowShift the number of rows inserted (positive) or deleted (negative)
+     */
+    void shift(FormulaShifter formulaShifter, int firstRow, int rowShift) {
+        if (!sorted) {
+            Arrays.sort(entries, 0, size, Comparator.comparingInt(e -> e.maxRow));
+            sorted = true;
+        }
+        for (int i = firstAtOrBelow(firstRow); i < size; i++) {
+            Entry e = entries[i];
+            if (formulaShifter.adjustFormula(e.ptgs, e.sheetIndex)) {
+                e.changed = true;
+            }
+            if (rowShift > 0) {
+                // deletions don't move references down, the bound of the insertions is capped to keep it sorted
+                e.maxRow = Math.min(e.maxRow + rowShift, LAST_ROW);
+            }
+        }
+    }
+
+    /**
+     * Renders the changed formulas and passes them to their setters
+     */
+    void apply() {
+        for (int i = 0; i < size; i++) {
+            Entry e = entries[i];
+            if (e.changed) {
+                e.setter.accept(FormulaRenderer.toFormulaString(fpb, e.ptgs));
+            }
+        }
+    }
+
+    /**
+     * @return the index of the first entry, whose highest referenced row is equal to or greater than the row
+     */
+    private int firstAtOrBelow(int row) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[mid].maxRow < row) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -104,16 +104,22 @@ public final class XSSFFormulaUtils {
      * @param cell the cell to update
      */
     private void updateFormula(XSSFCell cell, String oldName, String newName) {
+        if (cell.isCompact()) {
+            // compact cells only have plain formulas
+            String formula = cell.getCompactFormula();
+            if (formula != null) {
+                String updatedFormula = renameSheet(cell, formula, oldName, newName);
+                if (!formula.equals(updatedFormula)) {
+                    cell.setCompactFormula(updatedFormula);
+                }
+            }
+            return;
+        }
         CTCellFormula f = cell.getCTCell().getF();
         if (f != null) {
             String formula = f.getStringValue();
             if (formula != null && formula.length() > 0) {
-                int sheetIndex = _wb.getSheetIndex(cell.getSheet());
-                Ptg[] ptgs = FormulaParser.parse(formula, _fpwb, FormulaType.CELL, sheetIndex, cell.getRowIndex());
-                for (Ptg ptg : ptgs) {
-                    updatePtg(ptg, oldName, newName);
-                }
-                String updatedFormula = FormulaRenderer.toFormulaString(_fpwb, ptgs);
+                String updatedFormula = renameSheet(cell, formula, oldName, newName);
                 if (!formula.equals(updatedFormula)) {
                     f.setStringValue(updatedFormula);
                 }
@@ -121,6 +127,15 @@ public final class XSSFFormulaUtils {
         }
     }
 
+    private String renameSheet(XSSFCell cell, String formula, String oldName, String newName) {
+        int sheetIndex = _wb.getSheetIndex(cell.getSheet());
+        Ptg[] ptgs = FormulaParser.parse(formula, _fpwb, FormulaType.CELL, sheetIndex, cell.getRowIndex());
+        for (Ptg ptg : ptgs) {
+            updatePtg(ptg, oldName, newName);
+        }
+        return FormulaRenderer.toFormulaString(_fpwb, ptgs);
+    }
+
     /**
      * Parse formula in the named range and re-assemble it back using the new sheet name.
      *
@@ -34,6 +34,7 @@ import org.openxmlformats.schemas.spreadsheetml.x2006.main.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.apache.logging.log4j.util.Unbox.box;
 
@@ -68,6 +69,17 @@ import static org.apache.logging.log4j.util.Unbox.box;
         }
     }
 
+    /**
+     * Adds the named ranges to the index of a batch of row shifts
+     */
+    /*package*/ static void addNamedRanges(XSSFWorkbook wb, XSSFFormulaRowIndex index) {
+        for (Name name : wb.getAllNames()) {
+            final int rowIndex = -1; //don't care, named ranges are not allowed to include structured references
+            index.add(name.getRefersToFormula(), FormulaType.NAMEDRANGE, name.getSheetIndex(), rowIndex,
+                name::setRefersToFormula);
+        }
+    }
+
     /**
      * Update formulas.
      */
@@ -102,6 +114,18 @@ import static org.apache.logging.log4j.util.Unbox.box;
         for (Cell c : row) {
             XSSFCell cell = (XSSFCell) c;
 
+            if (cell.isCompact()) {
+                // compact cells only have plain formulas
+                String formula = cell.getCompactFormula();
+                if (formula != null) {
+                    String shiftedFormula = shiftFormula(row, formula, formulaShifter);
+                    if (shiftedFormula != null) {
+                        cell.setCompactFormula(shiftedFormula);
+                    }
+                }
+                continue;
+            }
+
             CTCell ctCell = cell.getCTCell();
             if (ctCell.isSetF()) {
                 CTCellFormula f = ctCell.getF();
@@ -127,6 +151,74 @@ import static org.apache.logging.log4j.util.Unbox.box;
         }
     }
 
+    /**
+     * Adds the formulas of the specified row to the index of a batch of row shifts.
+     * Formulas of other sheets than the shifted one are only added, if they contain sheet or
+     * structured references, as the formula shifter doesn't change other references.
+     *
+     * @param row the row whose formulas are added
+     * @param index the index of the formulas
+     * @param shiftedSheet true, if the row belongs to the shifted sheet
+     */
+    /*package*/ static void addRowFormulas(XSSFRow row, XSSFFormulaRowIndex index, boolean shiftedSheet) {
+        XSSFSheet sheet = row.getSheet();
+        for (Cell c : row) {
+            XSSFCell cell = (XSSFCell) c;
+
+            if (cell.isCompact()) {
+                // compact cells only have plain formulas
+                String formula = cell.getCompactFormula();
+                if (formula != null && (shiftedSheet || mayReferToOtherSheet(formula))) {
+                    addFormula(row, index, formula, cell::setCompactFormula);
+                }
+                continue;
+            }
+
+            CTCell ctCell = cell.getCTCell();
+            if (ctCell.isSetF()) {
+                CTCellFormula f = ctCell.getF();
+                String formula = f.getStringValue();
+                if (formula.length() > 0 && (shiftedSheet || mayReferToOtherSheet(formula))) {
+                    addFormula(row, index, formula, shiftedFormula -> {
+                        f.setStringValue(shiftedFormula);
+                        if (f.getT() == STCellFormulaType.SHARED) {
+                            CTCellFormula sf = sheet.getSharedFormula(Math.toIntExact(f.getSi()));
+                            if (sf != null) {
+                                sf.setStringValue(shiftedFormula);
+                            }
+                        }
+                    });
+                    if (shiftedSheet && f.getT() == STCellFormulaType.SHARED && f.isSetSi()) {
+                        CTCellFormula sf = sheet.getSharedFormula(Math.toIntExact(f.getSi()));
+                        if (sf != null && sf != f && sf.isSetRef()) {
+                            addFormula(row, index, sf.getRef(), sf::setRef);
+                        }
+                    }
+                }
+
+                //Range of cells which the formula applies to.
+                if (f.isSetRef() && shiftedSheet) {
+                    addFormula(row, index, f.getRef(), f::setRef);
+                }
+            }
+        }
+    }
+
+    private static boolean mayReferToOtherSheet(String formula) {
+        return formula.indexOf('!') >= 0 || formula.indexOf('[') >= 0;
+    }
+
+    private static void addFormula(Row row, XSSFFormulaRowIndex index, String formula, Consumer<String> setter) {
+        Sheet sheet = row.getSheet();
+        int sheetIndex = sheet.getWorkbook().getSheetIndex(sheet);
+        try {
+            index.add(formula, FormulaType.CELL, sheetIndex, row.getRowNum(), setter);
+        } catch (FormulaParseException fpe) {
+            // Log, but don't change, rather than breaking
+            LOG.atWarn().withThrowable(fpe).log("Error shifting formula on row {}", box(row.getRowNum()));
+        }
+    }
+
     /**
      * Shift a formula using the supplied FormulaShifter
      *
@@ -169,6 +261,75 @@ import static org.apache.logging.log4j.util.Unbox.box;
 
 
 
+    /**
+     * Updates the ranges of the conditional formats for several shifts and removes the formats without ranges
+     */
+    /*package*/ static void updateConditionalFormattingRanges(Sheet sheet, FormulaShifter[] formulaShifters) {
+        XSSFSheet xsheet = (XSSFSheet) sheet;
+        int sheetIndex = xsheet.getWorkbook().getSheetIndex(sheet);
+
+        CTWorksheet ctWorksheet = xsheet.getCTWorksheet();
+        CTConditionalFormatting[] conditionalFormattingArray = ctWorksheet.getConditionalFormattingArray();
+        // iterate backwards due to possible calls to ctWorksheet.removeConditionalFormatting(j)
+        for (int j = conditionalFormattingArray.length - 1; j >= 0; j--) {
+            CTConditionalFormatting cf = conditionalFormattingArray[j];
+
+            List<CellRangeAddress> cellRanges = new ArrayList<>();
+            for (Object stRef : cf.getSqref()) {
+                String[] regions = stRef.toString().split(" ");
+                for (String region : regions) {
+                    cellRanges.add(CellRangeAddress.valueOf(region));
+                }
+            }
+
+            boolean changed = false;
+            for (FormulaShifter formulaShifter : formulaShifters) {
+                List<CellRangeAddress> temp = new ArrayList<>();
+                for (CellRangeAddress craOld : cellRanges) {
+                    CellRangeAddress craNew = BaseRowColShifter.shiftRange(formulaShifter, craOld, sheetIndex);
+                    if (craNew == null) {
+                        changed = true;
+                        continue;
+                    }
+                    temp.add(craNew);
+                    if (craNew != craOld) {
+                        changed = true;
+                    }
+                }
+                cellRanges = temp;
+            }
+
+            if (changed) {
+                if (cellRanges.isEmpty()) {
+                    ctWorksheet.removeConditionalFormatting(j);
+                    continue;
+                }
+                List<String> refs = new ArrayList<>();
+                for(CellRangeAddress a : cellRanges) refs.add(a.formatAsString());
+                cf.setSqref(refs);
+            }
+        }
+    }
+
+    /**
+     * Adds the formulas of the conditional formatting rules to the index of a batch of row shifts
+     */
+    /*package*/ static void addConditionalFormattingRules(XSSFSheet sheet, XSSFFormulaRowIndex index) {
+        int sheetIndex = sheet.getWorkbook().getSheetIndex(sheet);
+        final int rowIndex = -1; //don't care, structured references not allowed in conditional formatting
+
+        for (CTConditionalFormatting cf : sheet.getCTWorksheet().getConditionalFormattingArray()) {
+            for (CTCfRule cfRule : cf.getCfRuleArray()) {
+                String[] formulaArray = cfRule.getFormulaArray();
+                for (int i = 0; i < formulaArray.length; i++) {
+                    final int formulaIndex = i;
+                    index.add(formulaArray[i], FormulaType.CELL, sheetIndex, rowIndex,
+                        shiftedFmla -> cfRule.setFormulaArray(formulaIndex, shiftedFmla));
+                }
+            }
+        }
+    }
+
     /*package*/ static void updateConditionalFormatting(Sheet sheet, FormulaShifter formulaShifter) {
         XSSFSheet xsheet = (XSSFSheet) sheet;
         XSSFWorkbook wb = xsheet.getWorkbook();
@@ -230,6 +391,29 @@ import static org.apache.logging.log4j.util.Unbox.box;
     }
 
 
+    /**
+     * Updates the hyperlinks for several shifts and sets each changed reference once
+     */
+    /*package*/ static void updateHyperlinks(Sheet sheet, FormulaShifter[] formulaShifters) {
+        final int sheetIndex = sheet.getWorkbook().getSheetIndex(sheet);
+
+        for (Hyperlink hyperlink : sheet.getHyperlinkList()) {
+            XSSFHyperlink xhyperlink = (XSSFHyperlink) hyperlink;
+            CellRangeAddress cra = CellRangeAddress.valueOf(xhyperlink.getCellRef());
+            CellRangeAddress shiftedRange = cra;
+            for (FormulaShifter formulaShifter : formulaShifters) {
+                CellRangeAddress range = BaseRowColShifter.shiftRange(formulaShifter, shiftedRange, sheetIndex);
+                // like for a single shift, a deleted range keeps its last reference
+                if (range != null) {
+                    shiftedRange = range;
+                }
+            }
+            if (shiftedRange != cra) {
+                xhyperlink.setCellReference(shiftedRange.formatAsString());
+            }
+        }
+    }
+
     /*package*/ static void updateHyperlinks(Sheet sheet, FormulaShifter formulaShifter) {
         final int sheetIndex = sheet.getWorkbook().getSheetIndex(sheet);
 
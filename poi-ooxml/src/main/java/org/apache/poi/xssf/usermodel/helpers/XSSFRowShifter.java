@@ -17,13 +17,26 @@
 
 package org.apache.poi.xssf.usermodel.helpers;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.formula.FormulaShifter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.helpers.RowShifter;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.Beta;
 import org.apache.poi.util.Internal;
 import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFRowShiftBatch;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 /**
  * Helper for shifting rows up or down
@@ -66,4 +79,138 @@ public final class XSSFRowShifter extends RowShifter {
     public void updateHyperlinks(FormulaShifter formulaShifter) {
         XSSFRowColShifter.updateHyperlinks(sheet, formulaShifter);
     }
+
+    /**
+     * Shifts, grows, or shrinks the merged regions like {@link #shiftMergedRegions(int, int, int)} would do for
+     * every operation of the batch, but removes and adds the changed regions only once.
+     *
+     * @param batch the insertions and deletions
+     * @return the shifted merged regions, doesn't contain deleted ones
+     * @since POI 5.2.4
+     */
+    @Beta
+    public List<CellRangeAddress> shiftMergedRegions(XSSFRowShiftBatch batch) {
+        final int lastRow = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+        List<CellRangeAddress> shiftedRegions = new ArrayList<>();
+        Set<Integer> removedIndices = new HashSet<>();
+        int size = sheet.getNumMergedRegions();
+        for (int i = 0; i < size; i++) {
+            CellRangeAddress merged = sheet.getMergedRegion(i);
+            CellRangeAddress shifted = merged.copy();
+            boolean removed = false;
+            for (int op = 0; op < batch.size() && !removed; op++) {
+                int n = batch.getRowShift(op);
+                int startRow = (n > 0) ? batch.getRowIndex(op) : batch.getRowIndex(op) - n;
+                removed = shiftMergedRegion(shifted, startRow, lastRow, n);
+            }
+            if (removed) {
+                removedIndices.add(i);
+            } else if (shifted.getFirstRow() != merged.getFirstRow() || shifted.getLastRow() != merged.getLastRow()) {
+                shiftedRegions.add(shifted);
+                removedIndices.add(i);
+            }
+        }
+
+        if (!removedIndices.isEmpty()) {
+            sheet.removeMergedRegions(removedIndices);
+        }
+
+        // the shifted regions keep their order and don't overlap, so there is no need to validate them again
+        for (CellRangeAddress region : shiftedRegions) {
+            sheet.addMergedRegionUnsafe(region);
+        }
+        return shiftedRegions;
+    }
+
+    /**
+     * Shifts a merged region by the rules of {@link #shiftMergedRegions(int, int, int)}
+     *
+     * @return true, if the region is overwritten by the shift and needs to be removed
+     */
+    private static boolean shiftMergedRegion(CellRangeAddress merged, int startRow, int endRow, int n) {
+        final int movedRows = endRow - startRow + 1;
+        final int overwriteFirst, overwriteLast;
+        if (n > 0) {
+            overwriteFirst = Math.max(endRow + 1, endRow + n - movedRows);
+            overwriteLast = endRow + n;
+        } else {
+            overwriteFirst = startRow + n;
+            overwriteLast = Math.min(startRow - 1, startRow + n + movedRows);
+        }
+        if (merged.getFirstRow() <= overwriteLast && overwriteFirst <= merged.getLastRow()) {
+            return true;
+        }
+
+        boolean inStart = (merged.getFirstRow() >= startRow || merged.getLastRow() >= startRow);
+        boolean inEnd = (merged.getFirstRow() <= endRow || merged.getLastRow() <= endRow);
+        if (inStart && inEnd && !merged.containsRow(startRow - 1) && !merged.containsRow(endRow + 1)) {
+            merged.setFirstRow(merged.getFirstRow() + n);
+            merged.setLastRow(merged.getLastRow() + n);
+        }
+        return false;
+    }
+
+    /**
+     * Updates the ranges of the conditional formats for all operations of the batch.
+     * The formulas of the rules are updated by {@link #updateFormulas(XSSFRowShiftBatch)}.
+     *
+     * @param batch the insertions and deletions
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void updateConditionalFormatting(XSSFRowShiftBatch batch) {
+        XSSFRowColShifter.updateConditionalFormattingRanges(sheet, createFormulaShifters(batch));
+    }
+
+    /**
+     * Updates the hyperlinks for all operations of the batch
+     *
+     * @param batch the insertions and deletions
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void updateHyperlinks(XSSFRowShiftBatch batch) {
+        XSSFRowColShifter.updateHyperlinks(sheet, createFormulaShifters(batch));
+    }
+
+    /**
+     * Updates the named ranges, the formulas of all sheets and the formulas of the conditional formatting
+     * rules of this sheet for all operations of the batch. The formulas are indexed by the highest row
+     * they reference, so each operation only adjusts the formulas, which reference the rows it moves.
+     * Every formula is parsed and rendered at most once.
+     *
+     * @param batch the insertions and deletions
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void updateFormulas(XSSFRowShiftBatch batch) {
+        XSSFSheet xsheet = (XSSFSheet) sheet;
+        XSSFWorkbook wb = xsheet.getWorkbook();
+        XSSFFormulaRowIndex index = new XSSFFormulaRowIndex(wb);
+
+        XSSFRowColShifter.addNamedRanges(wb, index);
+        for (Sheet sh : wb) {
+            for (Row row : sh) {
+                XSSFRowColShifter.addRowFormulas((XSSFRow) row, index, sh == sheet);
+            }
+        }
+        XSSFRowColShifter.addConditionalFormattingRules(xsheet, index);
+
+        FormulaShifter[] shifters = createFormulaShifters(batch);
+        for (int op = 0; op < shifters.length; op++) {
+            index.shift(shifters[op], batch.getRowIndex(op), batch.getRowShift(op));
+        }
+        index.apply();
+    }
+
+    private FormulaShifter[] createFormulaShifters(XSSFRowShiftBatch batch) {
+        Workbook wb = sheet.getWorkbook();
+        int sheetIndex = wb.getSheetIndex(sheet);
+        String sheetName = wb.getSheetName(sheetIndex);
+        FormulaShifter[] shifters = new FormulaShifter[batch.size()];
+        for (int op = 0; op < shifters.length; op++) {
+            shifters[op] = batch.createFormulaShifter(op, sheetIndex, sheetName);
+        }
+        return shifters;
+    }
 }
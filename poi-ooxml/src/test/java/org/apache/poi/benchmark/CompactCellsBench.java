@@ -0,0 +1,150 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import static org.apache.commons.io.output.NullOutputStream.NULL_OUTPUT_STREAM;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.xssf.usermodel.XSSFReadOptions;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares opening and writing a workbook with and without {@link XSSFReadOptions#isCompactCells() compact cells}.
+ * <p>
+ * The {@link GCProfiler} reports the bytes allocated per operation, {@link #main(String[])} additionally
+ * prints the heap retained by the opened workbook per cell for both modes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class CompactCellsBench {
+
+    private static final int ROWS = 20_000;
+    private static final int COLUMNS = 10;
+
+    @Param({"false", "true"})
+    public boolean compactCells;
+
+    private byte[] data;
+    private XSSFReadOptions options;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        data = createWorkbook();
+        options = new XSSFReadOptions.Builder().compactCells(compactCells).build();
+    }
+
+    private static byte[] createWorkbook() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < ROWS; r++) {
+                XSSFRow row = sheet.createRow(r);
+                for (int c = 0; c < COLUMNS; c++) {
+                    if (c % 3 == 0) {
+                        row.createCell(c).setCellValue("text " + (r % 100));
+                    } else {
+                        row.createCell(c).setCellValue(r * 1.25 + c);
+                    }
+                }
+            }
+            wb.write(bos);
+        }
+        return bos.toByteArray();
+    }
+
+    private static XSSFWorkbook open(byte[] data, XSSFReadOptions options) throws IOException {
+        try {
+            return new XSSFWorkbook(OPCPackage.open(new UnsynchronizedByteArrayInputStream(data)), options);
+        } catch (InvalidFormatException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) throws IOException {
+        try (XSSFWorkbook wb = open(data, options)) {
+            blackhole.consume(wb.getSheetAt(0).getRow(ROWS - 1).getCell(COLUMNS - 1).getNumericCellValue());
+        }
+    }
+
+    @Benchmark
+    public void readAndWrite() throws IOException {
+        try (XSSFWorkbook wb = open(data, options)) {
+            wb.write(NULL_OUTPUT_STREAM);
+        }
+    }
+
+    /**
+     * Prints the heap retained by the opened workbook per cell, with and without compact cells
+     */
+    private static void printRetainedHeap() throws IOException {
+        byte[] data = createWorkbook();
+        for (boolean compact : new boolean[]{false, true}) {
+            XSSFReadOptions options = new XSSFReadOptions.Builder().compactCells(compact).build();
+            long before = usedHeap();
+            try (XSSFWorkbook wb = open(data, options)) {
+                long retained = usedHeap() - before;
+                System.out.printf(Locale.ROOT, "compactCells=%b: %d bytes retained, %.1f bytes per cell%n",
+                        compact, retained, (double) retained / (ROWS * COLUMNS));
+                // keep the workbook reachable until the measurement is done
+                if (wb.getSheetAt(0).getPhysicalNumberOfRows() != ROWS) {
+                    throw new IllegalStateException("unexpected number of rows");
+                }
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        printRetainedHeap();
+
+        Options opt = new OptionsBuilder()
+                .include(".*" + CompactCellsBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
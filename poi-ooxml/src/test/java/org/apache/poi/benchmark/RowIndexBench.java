@@ -0,0 +1,200 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.util.IntSparseArray;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the row and cell index of {@link XSSFSheet}, {@link SXSSFSheet} and {@link SXSSFRow}
+ * on dense sheets, where every row is used, and sparse sheets, where only every 100th row is used.
+ * The plain {@link IntSparseArray} is compared to the {@link TreeMap} it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class RowIndexBench {
+
+    private static final int ROWS = 5_000;
+    private static final int COLUMNS = 10;
+
+    @Param({"dense", "sparse"})
+    public String layout;
+
+    private int step;
+    private XSSFWorkbook xssfWb;
+    private XSSFSheet xssfSheet;
+    private SXSSFWorkbook sxssfWb;
+    private SXSSFSheet sxssfSheet;
+    private TreeMap<Integer, Object> treeMap;
+    private IntSparseArray<Object> sparseArray;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        step = "dense".equals(layout) ? 1 : 100;
+        xssfWb = new XSSFWorkbook();
+        xssfSheet = xssfWb.createSheet();
+        sxssfWb = new SXSSFWorkbook(-1);
+        sxssfSheet = sxssfWb.createSheet();
+        treeMap = new TreeMap<>();
+        sparseArray = new IntSparseArray<>();
+        for (int r = 0; r < ROWS; r++) {
+            int rownum = r * step;
+            XSSFRow xssfRow = xssfSheet.createRow(rownum);
+            SXSSFRow sxssfRow = sxssfSheet.createRow(rownum);
+            for (int c = 0; c < COLUMNS; c++) {
+                xssfRow.createCell(c).setCellValue(r + c);
+                sxssfRow.createCell(c).setCellValue(r + c);
+            }
+            treeMap.put(rownum, xssfRow);
+            sparseArray.put(rownum, xssfRow);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        xssfWb.close();
+        sxssfWb.dispose();
+        sxssfWb.close();
+    }
+
+    @Benchmark
+    public void xssfGetRow(Blackhole bh) {
+        for (int r = 0, last = ROWS * step; r < last; r++) {
+            bh.consume(xssfSheet.getRow(r));
+        }
+    }
+
+    @Benchmark
+    public void sxssfGetRow(Blackhole bh) {
+        for (int r = 0, last = ROWS * step; r < last; r++) {
+            bh.consume(sxssfSheet.getRow(r));
+        }
+    }
+
+    @Benchmark
+    public void xssfCreateRow(Blackhole bh) throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            // create the rows from bottom to top to insert each row before the existing ones
+            for (int r = ROWS - 1; r >= 0; r--) {
+                bh.consume(sheet.createRow(r * step));
+            }
+        }
+    }
+
+    @Benchmark
+    public void sxssfCreateRow(Blackhole bh) throws IOException {
+        SXSSFWorkbook wb = new SXSSFWorkbook(-1);
+        try {
+            SXSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < ROWS; r++) {
+                bh.consume(sheet.createRow(r * step));
+            }
+        } finally {
+            wb.dispose();
+            wb.close();
+        }
+    }
+
+    @Benchmark
+    public void xssfCellIteration(Blackhole bh) {
+        for (Row row : xssfSheet) {
+            for (Cell cell : row) {
+                bh.consume(cell);
+            }
+        }
+    }
+
+    @Benchmark
+    public void sxssfCellIteration(Blackhole bh) {
+        for (Row row : sxssfSheet) {
+            for (Cell cell : row) {
+                bh.consume(cell);
+            }
+            bh.consume(row.getCell(COLUMNS / 2));
+        }
+    }
+
+    @Benchmark
+    public void xssfShiftRows() {
+        // shift the lower half of the rows down and back up to keep the sheet unchanged
+        int first = (ROWS / 2) * step;
+        int last = (ROWS - 1) * step;
+        xssfSheet.shiftRows(first, last, 1);
+        xssfSheet.shiftRows(first + 1, last + 1, -1);
+    }
+
+    @Benchmark
+    public void treeMapGet(Blackhole bh) {
+        for (int r = 0, last = ROWS * step; r < last; r++) {
+            bh.consume(treeMap.get(r));
+        }
+    }
+
+    @Benchmark
+    public void sparseArrayGet(Blackhole bh) {
+        for (int r = 0, last = ROWS * step; r < last; r++) {
+            bh.consume(sparseArray.get(r));
+        }
+    }
+
+    @Benchmark
+    public void treeMapHeadCount(Blackhole bh) {
+        for (int r = 0, last = ROWS * step; r < last; r += step * 50) {
+            bh.consume(treeMap.headMap(r).size());
+        }
+    }
+
+    @Benchmark
+    public void sparseArrayHeadCount(Blackhole bh) {
+        for (int r = 0, last = ROWS * step; r < last; r += step * 50) {
+            bh.consume(sparseArray.countBelow(r));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + RowIndexBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
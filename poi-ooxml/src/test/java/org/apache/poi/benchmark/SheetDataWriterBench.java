@@ -0,0 +1,110 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import static org.apache.commons.io.output.NullOutputStream.NULL_OUTPUT_STREAM;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.streaming.SheetDataWriter;
+import org.apache.poi.xssf.streaming.Utf8SheetDataWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the row serialization of {@link SheetDataWriter} and {@link Utf8SheetDataWriter}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class SheetDataWriterBench {
+
+    private static final int COLUMNS = 20;
+
+    private SXSSFWorkbook wb;
+    private SXSSFRow numericRow;
+    private SXSSFRow textRow;
+    private SheetDataWriter writer;
+    private SheetDataWriter utf8Writer;
+    private int rownum;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        wb = new SXSSFWorkbook(-1);
+        SXSSFSheet sheet = wb.createSheet();
+        numericRow = sheet.createRow(0);
+        textRow = sheet.createRow(1);
+        for (int c = 0; c < COLUMNS; c++) {
+            numericRow.createCell(c).setCellValue(c * 1234.5678 + 0.25);
+            textRow.createCell(c).setCellValue("Text value <" + c + "> & more");
+        }
+        writer = new SheetDataWriter(new BufferedWriter(new OutputStreamWriter(NULL_OUTPUT_STREAM, StandardCharsets.UTF_8)));
+        utf8Writer = new Utf8SheetDataWriter(NULL_OUTPUT_STREAM, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        writer.close();
+        utf8Writer.close();
+        wb.dispose();
+        wb.close();
+    }
+
+    @Benchmark
+    public void writerNumericRow() throws IOException {
+        writer.writeRow(rownum++ & 0xFFFFF, numericRow);
+    }
+
+    @Benchmark
+    public void utf8NumericRow() throws IOException {
+        utf8Writer.writeRow(rownum++ & 0xFFFFF, numericRow);
+    }
+
+    @Benchmark
+    public void writerTextRow() throws IOException {
+        writer.writeRow(rownum++ & 0xFFFFF, textRow);
+    }
+
+    @Benchmark
+    public void utf8TextRow() throws IOException {
+        utf8Writer.writeRow(rownum++ & 0xFFFFF, textRow);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + SheetDataWriterBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,140 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.TypedSheetContentsHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLScanner;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Compares the parsing of a worksheet part by the SAX parser and by {@link XSSFSheetXMLScanner}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class SheetXMLScannerBench {
+
+    private static final int ROWS = 20_000;
+    private static final int COLUMNS = 10;
+
+    private byte[] sheetXml;
+    private ReadOnlySharedStringsTable strings;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        SXSSFWorkbook wb = new SXSSFWorkbook(100);
+        try {
+            SXSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < ROWS; r++) {
+                SXSSFRow row = sheet.createRow(r);
+                for (int c = 0; c < COLUMNS; c++) {
+                    if (c % 3 == 0) {
+                        row.createCell(c).setCellValue("text " + (r % 100));
+                    } else {
+                        row.createCell(c).setCellValue(r * 1.25 + c);
+                    }
+                }
+            }
+            wb.write(bos);
+        } finally {
+            wb.dispose();
+            wb.close();
+        }
+        try (OPCPackage pkg = OPCPackage.open(bos.toInputStream())) {
+            strings = new ReadOnlySharedStringsTable(pkg);
+            try (InputStream is = new XSSFReader(pkg).getSheetsData().next()) {
+                sheetXml = IOUtils.toByteArray(is);
+            }
+        }
+    }
+
+    @Benchmark
+    public void sax(Blackhole blackhole) throws IOException, SAXException, ParserConfigurationException {
+        XMLReader xmlReader = XMLHelper.newXMLReader();
+        xmlReader.setContentHandler(new XSSFSheetXMLHandler(strings, new ConsumingHandler(blackhole)));
+        xmlReader.parse(new InputSource(new UnsynchronizedByteArrayInputStream(sheetXml)));
+    }
+
+    @Benchmark
+    public void scanner(Blackhole blackhole) throws IOException, SAXException {
+        XSSFSheetXMLScanner scanner = new XSSFSheetXMLScanner(new XSSFSheetXMLHandler(strings, new ConsumingHandler(blackhole)));
+        scanner.parse(new UnsynchronizedByteArrayInputStream(sheetXml));
+    }
+
+    private static final class ConsumingHandler implements TypedSheetContentsHandler {
+        private final Blackhole blackhole;
+
+        ConsumingHandler(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void numericCell(int rowNum, int column, double value, int styleIndex) {
+            blackhole.consume(value);
+        }
+
+        @Override
+        public void stringCell(int rowNum, int column, CharSequence value, int styleIndex) {
+            blackhole.consume(value);
+        }
+
+        @Override
+        public void booleanCell(int rowNum, int column, boolean value, int styleIndex) {
+            blackhole.consume(value);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + SheetXMLScannerBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
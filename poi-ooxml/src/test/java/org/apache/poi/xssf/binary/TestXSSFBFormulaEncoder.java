@@ -0,0 +1,84 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.binary;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+class TestXSSFBFormulaEncoder {
+
+    @Test
+    void references() throws IOException {
+        byte[] rgce = encode("A1+$B$2");
+        assertArrayEquals(new byte[]{
+            // tRefV A1, relative row and column
+            0x44, 0, 0, 0, 0, 0x00, (byte) 0xC0,
+            // tRefV $B$2
+            0x44, 1, 0, 0, 0, 0x01, 0x00,
+            // tAdd
+            0x03
+        }, rgce);
+
+        rgce = encode("SUM(A1:C10)");
+        assertEquals(13 + 4, rgce.length);
+        assertEquals(9, LittleEndian.getInt(rgce, 5));
+        assertEquals(0xC002, LittleEndian.getUShort(rgce, 11));
+    }
+
+    @Test
+    void jumpDistances() throws IOException {
+        byte[] rgce = encode("IF(A1>0,\"yes\",B1)");
+        // A1, 0 and > take 11 bytes, then the tAttrIf jumps over the string and the first tAttrSkip
+        assertEquals(0x19, rgce[11]);
+        assertEquals(9 + 4, LittleEndian.getUShort(rgce, 13));
+        // the string is stored as UTF-16
+        assertEquals(3, LittleEndian.getUShort(rgce, 16));
+        // the first skip jumps to the last byte before the function
+        assertEquals(0x19, rgce[24]);
+        assertEquals(7 + 4 + 4 - 1, LittleEndian.getUShort(rgce, 26));
+        assertEquals(0x19, rgce[35]);
+        assertEquals(3, LittleEndian.getUShort(rgce, 37));
+        assertEquals(43, rgce.length);
+    }
+
+    @Test
+    void unsupported() throws IOException {
+        assertNull(encode("Other!A1"));
+        assertNull(encode("SUM({1,2,3})"));
+    }
+
+    private static byte[] encode(String formula) throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            wb.createSheet("Sheet1");
+            wb.createSheet("Other");
+            Ptg[] ptgs = FormulaParser.parse(formula, XSSFEvaluationWorkbook.create(wb), FormulaType.CELL, 0);
+            return XSSFBFormulaEncoder.encode(ptgs);
+        }
+    }
+}
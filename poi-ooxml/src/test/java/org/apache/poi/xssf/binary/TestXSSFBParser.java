@@ -0,0 +1,216 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.binary;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.zaxxer.sparsebits.SparseBitSet;
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.xssf.eventusermodel.TypedSheetContentsHandler;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the record reading of {@link XSSFBParser}
+ */
+final class TestXSSFBParser {
+
+    @Test
+    void reusesRecordBuffer() throws IOException {
+        // the large records cross the boundaries of the input chunks and grow the record buffer
+        byte[][] records = {filled(3, 1), filled(20_000, 2), filled(0, 3), filled(9_000, 4), filled(70, 5)};
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        for (int i = 0; i < records.length; i++) {
+            writeRecord(bos, 200 + i, records[i]);
+        }
+
+        List<byte[]> buffers = new ArrayList<>();
+        List<String> result = new ArrayList<>();
+        new XSSFBParser(bos.toInputStream()) {
+            @Override
+            protected void handleRecord(int recordType, byte[] buffer, int length) {
+                buffers.add(buffer);
+                assertArrayEquals(records[recordType - 200], Arrays.copyOf(buffer, length));
+                result.add(recordType + ":" + length);
+            }
+
+            @Override
+            public void handleRecord(int recordType, byte[] data) {
+                throw new IllegalStateException("the record should be handled in the buffer");
+            }
+        }.parse();
+
+        assertEquals("[200:3, 201:20000, 202:0, 203:9000, 204:70]", result.toString());
+        // the buffer has only been replaced for the growing record
+        assertNotSame(buffers.get(0), buffers.get(1));
+        assertSame(buffers.get(1), buffers.get(3));
+        assertSame(buffers.get(1), buffers.get(4));
+    }
+
+    @Test
+    void copiesRecordsForLegacyParsers() throws IOException {
+        byte[][] records = {filled(10, 1), filled(5, 2), filled(300, 3)};
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        for (int i = 0; i < records.length; i++) {
+            writeRecord(bos, 1000 + i, records[i]);
+        }
+
+        // the record 1001 isn't part of the bit set and is skipped
+        SparseBitSet bitSet = new SparseBitSet();
+        bitSet.set(1000);
+        bitSet.set(1002);
+        List<byte[]> result = new ArrayList<>();
+        new XSSFBParser(bos.toInputStream(), bitSet) {
+            @Override
+            public void handleRecord(int recordType, byte[] data) {
+                result.add(data);
+            }
+        }.parse();
+
+        assertEquals(2, result.size());
+        assertArrayEquals(records[0], result.get(0));
+        assertArrayEquals(records[2], result.get(1));
+    }
+
+    @Test
+    void truncatedRecord() {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        writeRecord(bos, 5, filled(100, 1));
+        byte[] data = Arrays.copyOf(bos.toByteArray(), 50);
+        XSSFBParser parser = new XSSFBParser(new UnsynchronizedByteArrayInputStream(data)) {
+            @Override
+            public void handleRecord(int recordType, byte[] data) {
+            }
+        };
+        assertThrows(XSSFBParseException.class, parser::parse);
+    }
+
+    @Test
+    void sheetHandlerReportsStringViews() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        writeRecord(bos, XSSFBRecordType.BrtBeginSheetData.getId(), new byte[0]);
+        writeRecord(bos, XSSFBRecordType.BrtRowHdr.getId(), new byte[]{2, 0, 0, 0});
+        writeRecord(bos, XSSFBRecordType.BrtCellSt.getId(), stringCell(0, "a long text, which fills the record buffer"));
+        writeRecord(bos, XSSFBRecordType.BrtCellSt.getId(), stringCell(1, "\u00e4\ud83d\ude00"));
+        byte[] real = new byte[XSSFBCellHeader.length + 8];
+        LittleEndian.putInt(real, 0, 3);
+        LittleEndian.putDouble(real, XSSFBCellHeader.length, 1.5);
+        writeRecord(bos, XSSFBRecordType.BrtCellReal.getId(), real);
+        writeRecord(bos, XSSFBRecordType.BrtEndSheetData.getId(), new byte[0]);
+
+        List<String> result = new ArrayList<>();
+        new XSSFBSheetHandler(bos.toInputStream(), null, new TypedSheetContentsHandler() {
+            @Override
+            public void startRow(int rowNum) {
+                result.add("row " + rowNum);
+            }
+
+            @Override
+            public void numericCell(int rowNum, int column, double value, int styleIndex) {
+                result.add(column + "=" + value);
+            }
+
+            @Override
+            public void stringCell(int rowNum, int column, CharSequence value, int styleIndex) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < value.length(); i++) {
+                    sb.append(value.charAt(i));
+                }
+                assertEquals(value.toString(), sb.toString());
+                result.add(column + "=" + value);
+            }
+
+            @Override
+            public void booleanCell(int rowNum, int column, boolean value, int styleIndex) {
+                result.add(column + "=" + value);
+            }
+        }).parse();
+
+        assertEquals("[row 2, 0=a long text, which fills the record buffer, 1=\u00e4\ud83d\ude00, 3=1.5]", result.toString());
+    }
+
+    @Test
+    void sheetHandlerRejectsShortRecords() {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        writeRecord(bos, XSSFBRecordType.BrtRowHdr.getId(), new byte[]{0, 0, 0, 0});
+        // the previous record leaves the data of a string in the record buffer
+        writeRecord(bos, XSSFBRecordType.BrtCellSt.getId(), stringCell(0, "some text"));
+        writeRecord(bos, XSSFBRecordType.BrtCellReal.getId(), new byte[XSSFBCellHeader.length + 2]);
+        XSSFBSheetHandler handler = new XSSFBSheetHandler(bos.toInputStream(), null, new TypedSheetContentsHandler() {
+            @Override
+            public void numericCell(int rowNum, int column, double value, int styleIndex) {
+            }
+
+            @Override
+            public void stringCell(int rowNum, int column, CharSequence value, int styleIndex) {
+            }
+
+            @Override
+            public void booleanCell(int rowNum, int column, boolean value, int styleIndex) {
+            }
+        });
+        assertThrows(XSSFBParseException.class, handler::parse);
+    }
+
+    private static byte[] filled(int length, int seed) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 31 + seed);
+        }
+        return data;
+    }
+
+    private static byte[] stringCell(int column, String text) {
+        byte[] chars = text.getBytes(StandardCharsets.UTF_16LE);
+        byte[] data = new byte[XSSFBCellHeader.length + 4 + chars.length];
+        LittleEndian.putInt(data, 0, column);
+        LittleEndian.putInt(data, XSSFBCellHeader.length, text.length());
+        System.arraycopy(chars, 0, data, XSSFBCellHeader.length + 4, chars.length);
+        return data;
+    }
+
+    /**
+     * Writes the record id and length as variable length integers of 7 bits per byte
+     */
+    private static void writeRecord(UnsynchronizedByteArrayOutputStream bos, int id, byte[] data) {
+        if (id >= 0x80) {
+            bos.write((id & 0x7F) | 0x80);
+            bos.write(id >> 7);
+        } else {
+            bos.write(id);
+        }
+        int length = data.length;
+        do {
+            int b = length & 0x7F;
+            length >>= 7;
+            bos.write(length > 0 ? b | 0x80 : b);
+        } while (length > 0);
+        bos.write(data, 0, data.length);
+    }
+}
@@ -0,0 +1,94 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link OffHeapSharedStringsTable}
+ */
+final class TestOffHeapSharedStringsTable {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    @Test
+    void matchesReadOnlyTable() throws Exception {
+        for (String file : new String[]{"SampleSS.xlsx", "51519.xlsx"}) {
+            try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream(file))) {
+                for (boolean phonetic : new boolean[]{true, false}) {
+                    ReadOnlySharedStringsTable expected = new ReadOnlySharedStringsTable(pkg, phonetic);
+                    OffHeapSharedStringsTable actual = new OffHeapSharedStringsTable(pkg, phonetic);
+                    assertEquals(expected.getCount(), actual.getCount());
+                    assertEquals(expected.getUniqueCount(), actual.getUniqueCount());
+                    assertEquals(expected.getUniqueCount(), actual.size());
+                    for (int i = 0; i < actual.size(); i++) {
+                        assertEquals(expected.getItemAt(i).getString(), actual.getItemAt(i).getString());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void spansSeveralBuffers() throws Exception {
+        StringBuilder xml = new StringBuilder(
+            "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"50000\" uniqueCount=\"50000\">");
+        for (int i = 0; i < 50000; i++) {
+            xml.append("<si><t>").append(text(i)).append("</t></si>");
+        }
+        xml.append("<si><t></t></si></sst>");
+
+        OffHeapSharedStringsTable table = new OffHeapSharedStringsTable(
+            new UnsynchronizedByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8)), true);
+        assertEquals(50001, table.size());
+        for (int i = 0; i < 50000; i++) {
+            assertEquals(text(i), table.getString(i));
+        }
+        assertEquals("", table.getString(50000));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.getString(50001));
+
+        table.setCacheSize(2);
+        String first = table.getString(7);
+        assertSame(first, table.getString(7));
+        table.getString(8);
+        table.getString(9);
+        assertEquals(first, table.getString(7));
+    }
+
+    @Test
+    void emptyTable() throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream("noSharedStringTable.xlsx"))) {
+            OffHeapSharedStringsTable table = new OffHeapSharedStringsTable(pkg);
+            assertEquals(0, table.getCount());
+            assertEquals(0, table.size());
+        }
+    }
+
+    private static String text(int i) {
+        // mix one, two and three byte characters
+        return "row " + i + " \u00e4\u00f6\u00fc \u65e5\u672c " + (i % 7 == 0 ? "" : "x");
+    }
+}
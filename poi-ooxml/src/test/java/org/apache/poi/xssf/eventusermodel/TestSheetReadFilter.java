@@ -0,0 +1,188 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.ClientAnchor;
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Drawing;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.binary.XSSFBSharedStringsTable;
+import org.apache.poi.xssf.binary.XSSFBSheetHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+/**
+ * Tests for {@link SheetReadFilter} with the XSSF and XSSFB sheet handlers
+ */
+class TestSheetReadFilter {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    @Test
+    void filter() {
+        SheetReadFilter filter = SheetReadFilter.rows(2, 5).withColumns("A", "AB");
+        assertTrue(filter.accepts(2, 0));
+        assertTrue(filter.accepts(5, 27));
+        assertFalse(filter.accepts(1, 0));
+        assertFalse(filter.accepts(2, 1));
+        assertFalse(filter.isAfterLastRow(5));
+        assertTrue(filter.isAfterLastRow(6));
+        assertFalse(filter.isAllColumns());
+        assertTrue(SheetReadFilter.ALL.accepts(1_000_000, 16_000));
+        assertTrue(SheetReadFilter.columns(3).acceptsRow(Integer.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> SheetReadFilter.rows(3, 2));
+        assertThrows(IllegalArgumentException.class, () -> SheetReadFilter.columns(-1));
+    }
+
+    @Test
+    void xssfRowsAndColumns() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < 10; r++) {
+                XSSFRow row = sheet.createRow(r);
+                for (int c = 0; c < 5; c++) {
+                    if (c == 1) {
+                        row.createCell(c).setCellValue("s" + r);
+                    } else {
+                        row.createCell(c).setCellValue(r * 10 + c);
+                    }
+                }
+            }
+            Drawing<?> drawing = sheet.createDrawingPatriarch();
+            addComment(drawing, sheet, 2, 1, "in range");
+            addComment(drawing, sheet, 2, 3, "filtered column");
+            addComment(drawing, sheet, 1, 0, "filtered row");
+            addComment(drawing, sheet, 8, 0, "after range");
+            wb.write(bos);
+        }
+
+        List<String> events = new ArrayList<>();
+        try (OPCPackage pkg = OPCPackage.open(bos.toInputStream())) {
+            XSSFReader reader = new XSSFReader(pkg);
+            XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) reader.getSheetsData();
+            try (InputStream is = iter.next()) {
+                XSSFSheetXMLHandler handler = new XSSFSheetXMLHandler(reader.getStylesTable(), iter.getSheetComments(),
+                    new ReadOnlySharedStringsTable(pkg), new RecordingHandler(events), new DataFormatter(), false);
+                handler.setReadFilter(SheetReadFilter.rows(2, 4).withColumns(0, 1, 7));
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(handler);
+                assertThrows(XSSFSheetXMLHandler.StopParsingException.class, () -> parser.parse(new InputSource(is)));
+            }
+        }
+
+        assertEquals("[row 2, A3=20, B3=s2 (in range), end 2, row 3, A4=30, B4=s3, end 3, " +
+            "row 4, A5=40, B5=s4, end 4, endSheet]", events.toString());
+    }
+
+    @Test
+    void xssfParallelReader() throws Exception {
+        List<String> events = new ArrayList<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.getFile("SampleSS.xlsx"), PackageAccess.READ)) {
+            XSSFParallelSheetReader reader = new XSSFParallelSheetReader(pkg);
+            reader.setReadFilter(SheetReadFilter.rows(0, 1).withColumns(0));
+            reader.process(executor, ref -> "First Sheet".equals(ref.getName()) ? new RecordingHandler(events) : null);
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals("[row 0, A1=Test spreadsheet, end 0, row 1, A2=2nd row, end 1, endSheet]", events.toString());
+    }
+
+    @Test
+    void xssfbRowsAndColumns() throws Exception {
+        List<String> events = new ArrayList<>();
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream("testVarious.xlsb"))) {
+            XSSFBReader reader = new XSSFBReader(pkg);
+            XSSFBSharedStringsTable strings = new XSSFBSharedStringsTable(pkg);
+            XSSFBReader.SheetIterator iter = (XSSFBReader.SheetIterator) reader.getSheetsData();
+            try (InputStream is = iter.next()) {
+                XSSFBSheetHandler handler = new XSSFBSheetHandler(is, reader.getXSSFBStylesTable(),
+                    iter.getXSSFBSheetComments(), strings, new RecordingHandler(events), new DataFormatter(), false);
+                handler.setReadFilter(SheetReadFilter.rows(1, 7).withColumns("B", "C"));
+                handler.parse();
+            }
+        }
+
+        assertEquals("[row 1, B2=13, end 1, row 2, B3=13.12112313, end 2, row 3, B4=$   3.03, end 3, " +
+            "row 4, B5=20%, end 4, row 5, B6=13.12, end 5, row 6, B7=1.23457E+14, end 6, " +
+            "row 7, B8=1.23457E+15, C8=null (Allison, Timothy B.:\ntest comment2), end 7]", events.toString());
+    }
+
+    private static void addComment(Drawing<?> drawing, XSSFSheet sheet, int row, int col, String text) {
+        ClientAnchor anchor = sheet.getWorkbook().getCreationHelper().createClientAnchor();
+        anchor.setRow1(row);
+        anchor.setCol1(col);
+        anchor.setRow2(row + 2);
+        anchor.setCol2(col + 2);
+        Comment comment = drawing.createCellComment(anchor);
+        comment.setString(new XSSFRichTextString(text));
+        comment.setRow(row);
+        comment.setColumn(col);
+    }
+
+    private static final class RecordingHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final List<String> events;
+
+        RecordingHandler(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            events.add("row " + rowNum);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            events.add("end " + rowNum);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            String text = (comment == null) ? "" : " (" + comment.getString().getString().trim() + ")";
+            events.add(cellReference + "=" + formattedValue + text);
+        }
+
+        @Override
+        public void endSheet() {
+            events.add("endSheet");
+        }
+    }
+}
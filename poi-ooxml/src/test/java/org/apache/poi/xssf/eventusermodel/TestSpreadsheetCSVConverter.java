@@ -0,0 +1,251 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.eventusermodel.SpreadsheetCSVConverter.QuoteMode;
+import org.apache.poi.xssf.eventusermodel.SpreadsheetCSVConverter.SheetStatistics;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests for {@link SpreadsheetCSVConverter}
+ */
+final class TestSpreadsheetCSVConverter {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    private static ExecutorService executor;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeAll
+    static void startExecutor() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterAll
+    static void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"xls", "xlsx", "xlsx-scanner"})
+    void formattedValues(String type) throws IOException {
+        SpreadsheetCSVConverter converter = new SpreadsheetCSVConverter();
+        converter.setUseSheetXMLScanner(type.endsWith("scanner"));
+        Map<String, String> csv = convert(converter, createWorkbook(type.startsWith("xlsx")));
+
+        assertEquals(2, csv.size());
+        assertEquals("name,value,date\n" +
+            "a,1.50,6/18/20\n" +
+            "\"b,c\",TRUE\n" +
+            "\n" +
+            "\"say \"\"hi\"\"\",,," + (type.equals("xls") ? "" : "ERROR:") + "#DIV/0!\n" +
+            "\u00e4\u00f6\u00fc \ud83d\ude00,3\n", csv.get("data"));
+        assertEquals("99\n", csv.get("other"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void rawValues(boolean xssf) throws IOException {
+        SpreadsheetCSVConverter converter = new SpreadsheetCSVConverter();
+        converter.setFormattedValues(false);
+        converter.setDelimiter('\t');
+        converter.setQuoteMode(QuoteMode.ALL);
+        converter.setLineSeparator("\r\n");
+        Map<String, String> csv = convert(converter, createWorkbook(xssf));
+
+        assertEquals("\"name\"\t\"value\"\t\"date\"\r\n" +
+            "\"a\"\t\"1.5\"\t\"2020-06-18T00:00:00\"\r\n" +
+            "\"b,c\"\t\"TRUE\"\r\n" +
+            "\r\n" +
+            "\"say \"\"hi\"\"\"\t\t\t\"#DIV/0!\"\r\n" +
+            "\"\u00e4\u00f6\u00fc \ud83d\ude00\"\t\"3\"\r\n", csv.get("data"));
+
+        converter.setDateFormatter(null);
+        converter.setQuoteMode(QuoteMode.NONE);
+        csv = convert(converter, createWorkbook(xssf));
+        assertTrue(csv.get("data").startsWith("name\tvalue\tdate\r\na\t1.5\t44000\r\nb,c\tTRUE\r\n"));
+    }
+
+    @Test
+    void xssfb() throws IOException {
+        SpreadsheetCSVConverter converter = new SpreadsheetCSVConverter();
+        Map<String, String> csv = convert(converter, _ssTests.getFile("testVarious.xlsb"));
+        String[] lines = csv.get("mySheet1").split("\n");
+        assertEquals("String,This is a string", lines[0]);
+        assertEquals("integer,13", lines[1]);
+        // the General format rounds to 10 digits like Excel
+        assertEquals("float,13.12112313", lines[2]);
+
+        converter.setFormattedValues(false);
+        csv = convert(converter, _ssTests.getFile("testVarious.xlsb"));
+        assertEquals("float,13.1211231321", csv.get("mySheet1").split("\n")[2]);
+    }
+
+    @Test
+    void convertToDirectory() throws IOException {
+        File file = createWorkbook(true);
+        File dir = new File(tempDir, "out");
+        assertTrue(dir.mkdir());
+
+        List<SheetStatistics> statistics = new SpreadsheetCSVConverter().convert(file, dir, executor);
+        assertEquals(2, statistics.size());
+        assertEquals("data", statistics.get(0).getSheetName());
+        assertEquals(6, statistics.get(0).getRows());
+        assertEquals("other", statistics.get(1).getSheetName());
+        assertEquals(1, statistics.get(1).getRows());
+        assertEquals(3, statistics.get(1).getBytes());
+
+        byte[] data = Files.readAllBytes(new File(dir, "data.csv").toPath());
+        assertEquals(statistics.get(0).getBytes(), data.length);
+        assertEquals("99\n", new String(Files.readAllBytes(new File(dir, "other.csv").toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void uniqueFileNames() throws IOException {
+        File file = new File(tempDir, "names.xlsx");
+        try (Workbook wb = new XSSFWorkbook();
+             OutputStream os = new FileOutputStream(file)) {
+            wb.createSheet("a|b").createRow(0).createCell(0).setCellValue(1);
+            wb.createSheet("a_b").createRow(0).createCell(0).setCellValue(2);
+            wb.createSheet("A<B").createRow(0).createCell(0).setCellValue(3);
+            wb.write(os);
+        }
+        File dir = new File(tempDir, "names");
+        assertTrue(dir.mkdir());
+
+        List<SheetStatistics> statistics = new SpreadsheetCSVConverter().convert(file, dir, executor);
+        assertEquals(3, statistics.size());
+        assertEquals("1\n", new String(Files.readAllBytes(new File(dir, "a_b.csv").toPath()), StandardCharsets.UTF_8));
+        assertEquals("2\n", new String(Files.readAllBytes(new File(dir, "a_b_2.csv").toPath()), StandardCharsets.UTF_8));
+        assertEquals("3\n", new String(Files.readAllBytes(new File(dir, "A_B_3.csv").toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void skipsSheets() throws IOException {
+        List<SheetStatistics> statistics = new SpreadsheetCSVConverter().convert(createWorkbook(true), executor,
+            (index, name) -> (index == 1) ? Channels.newChannel(new UnsynchronizedByteArrayOutputStream()) : null);
+        assertEquals(1, statistics.size());
+        assertEquals("other", statistics.get(0).getSheetName());
+    }
+
+    @Test
+    void smallBuffer() throws IOException {
+        SpreadsheetCSVConverter converter = new SpreadsheetCSVConverter();
+        Map<String, String> expected = convert(converter, createWorkbook(true));
+        converter.setBufferSize(16);
+        assertEquals(expected, convert(converter, createWorkbook(true)));
+        assertThrows(IllegalArgumentException.class, () -> converter.setBufferSize(15));
+    }
+
+    @Test
+    void unsupportedFile() throws IOException {
+        File file = new File(tempDir, "text.txt");
+        Files.write(file.toPath(), "a,b,c".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> convert(new SpreadsheetCSVConverter(), file));
+    }
+
+    private static Map<String, String> convert(SpreadsheetCSVConverter converter, File file) throws IOException {
+        Map<String, UnsynchronizedByteArrayOutputStream> outputs = new ConcurrentHashMap<>();
+        converter.convert(file, executor, (index, name) -> {
+            UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+            outputs.put(name, bos);
+            return Channels.newChannel(bos);
+        });
+        Map<String, String> result = new ConcurrentHashMap<>();
+        outputs.forEach((name, bos) -> result.put(name, new String(bos.toByteArray(), StandardCharsets.UTF_8)));
+        return result;
+    }
+
+    private File createWorkbook(boolean xssf) throws IOException {
+        File file = new File(tempDir, xssf ? "data.xlsx" : "data.xls");
+        try (Workbook wb = xssf ? new XSSFWorkbook() : new HSSFWorkbook();
+             OutputStream os = new FileOutputStream(file)) {
+            Sheet sheet = wb.createSheet("data");
+            wb.createSheet("other").createRow(0).createCell(0).setCellValue(99);
+
+            CellStyle decimal = wb.createCellStyle();
+            decimal.setDataFormat(wb.createDataFormat().getFormat("0.00"));
+            CellStyle date = wb.createCellStyle();
+            date.setDataFormat((short) 14);
+
+            Row row = sheet.createRow(0);
+            row.createCell(0).setCellValue("name");
+            row.createCell(1).setCellValue("value");
+            row.createCell(2).setCellValue("date");
+
+            row = sheet.createRow(1);
+            row.createCell(0).setCellValue("a");
+            row.createCell(1).setCellValue(1.5);
+            row.getCell(1).setCellStyle(decimal);
+            row.createCell(2).setCellValue(44000);
+            row.getCell(2).setCellStyle(date);
+
+            row = sheet.createRow(2);
+            row.createCell(0).setCellValue("b,c");
+            row.createCell(1).setCellValue(true);
+            // a blank cell with a style doesn't add a field
+            row.createCell(2).setCellStyle(date);
+
+            // row 3 is missing and written as an empty line
+            row = sheet.createRow(4);
+            row.createCell(0).setCellValue("say \"hi\"");
+            row.createCell(3).setCellFormula("1/0");
+            row.getCell(3).setCellErrorValue(FormulaError.DIV0.getCode());
+
+            row = sheet.createRow(5);
+            row.createCell(0).setCellValue("\u00e4\u00f6\u00fc \ud83d\ude00");
+            row.createCell(1).setCellFormula("1+2");
+            row.getCell(1).setCellValue(3);
+
+            wb.write(os);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,170 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.apache.poi.POITestCase.assertContains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.binary.XSSFBSharedStringsTable;
+import org.apache.poi.xssf.binary.XSSFBSheetHandler;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+/**
+ * Tests for {@link TypedSheetContentsHandler} and {@link CellValueParser}
+ */
+class TestTypedSheetContentsHandler {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    @Test
+    void xssfTypedValues() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            XSSFRow row = sheet.createRow(0);
+            row.createCell(0).setCellValue("text");
+            row.createCell(1).setCellValue(0.1);
+            row.createCell(2).setCellValue(true);
+            row.createCell(3).setCellErrorValue(FormulaError.DIV0.getCode());
+            XSSFCell cell = row.createCell(5);
+            cell.setCellFormula("B1*2");
+            cell.setCellValue(0.2);
+            cell = sheet.createRow(3).createCell(1);
+            cell.setCellFormula("A1&\"x\"");
+            cell.setCellValue("textx");
+            wb.write(bos);
+        }
+
+        List<String> events = new ArrayList<>();
+        try (OPCPackage pkg = OPCPackage.open(bos.toInputStream())) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new XSSFSheetXMLHandler(strings, new RecordingHandler(events)));
+            try (InputStream is = reader.getSheetsData().next()) {
+                parser.parse(new InputSource(is));
+            }
+        }
+
+        assertEquals("[row 0, string 0/0 text, number 0/1 0.1, boolean 0/2 true, error 0/3 #DIV/0!, " +
+            "formula 0/5 B1*2, number 0/5 0.2, end 0, row 3, formula 3/1 A1&\"x\", string 3/1 textx, end 3]",
+            events.toString());
+    }
+
+    @Test
+    void xssfbTypedValues() throws Exception {
+        List<String> events = new ArrayList<>();
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream("testVarious.xlsb"))) {
+            XSSFBReader reader = new XSSFBReader(pkg);
+            XSSFBSharedStringsTable strings = new XSSFBSharedStringsTable(pkg);
+            try (InputStream is = reader.getSheetsData().next()) {
+                new XSSFBSheetHandler(is, strings, new RecordingHandler(events)).parse();
+            }
+        }
+        String result = events.toString();
+        assertContains(result, "string 0/1 This is a string");
+        assertContains(result, "number 1/1 13.0");
+        assertContains(result, "number 2/1 13.1211231321");
+        assertContains(result, "number 4/1 0.2");
+        assertContains(result, "number 7/1 1.23456789012345E15");
+        assertContains(result, "number 9/1 42803.0");
+    }
+
+    @Test
+    void parseDouble() {
+        String[] numbers = {"0", "-0", "1", "-1", "0.1", "0.2", "0.3", "13.12112313", "-1.5", "123456789012345",
+            "1234567890123456789", "0.000000000000000000001", "3.14159265358979", "1.7976931348623157E308",
+            "1E-3", "1e5", "4.9E-324", "1.0000000000000000000000", "99999999999999.9", ".5", "5."};
+        for (String number : numbers) {
+            assertEquals(Double.parseDouble(number), CellValueParser.parseDouble(number), 0, number);
+            assertEquals(Double.doubleToLongBits(Double.parseDouble(number)),
+                Double.doubleToLongBits(CellValueParser.parseDouble(number)), number);
+        }
+        assertThrows(NumberFormatException.class, () -> CellValueParser.parseDouble(""));
+        assertThrows(NumberFormatException.class, () -> CellValueParser.parseDouble("-"));
+        assertThrows(NumberFormatException.class, () -> CellValueParser.parseDouble("1.2.3"));
+        assertThrows(NumberFormatException.class, () -> CellValueParser.parseDouble("abc"));
+    }
+
+    @Test
+    void parseColumn() {
+        assertEquals(0, CellValueParser.parseColumn("A1"));
+        assertEquals(27, CellValueParser.parseColumn("AB12"));
+        assertEquals(27, CellValueParser.parseColumn("$AB$12"));
+        assertEquals(16383, CellValueParser.parseColumn("XFD1048576"));
+        assertEquals(-1, CellValueParser.parseColumn("12"));
+    }
+
+    private static final class RecordingHandler implements TypedSheetContentsHandler {
+        private final List<String> events;
+
+        RecordingHandler(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            events.add("row " + rowNum);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            events.add("end " + rowNum);
+        }
+
+        @Override
+        public void numericCell(int rowNum, int column, double value, int styleIndex) {
+            events.add("number " + rowNum + "/" + column + " " + value);
+        }
+
+        @Override
+        public void stringCell(int rowNum, int column, CharSequence value, int styleIndex) {
+            events.add("string " + rowNum + "/" + column + " " + value);
+        }
+
+        @Override
+        public void booleanCell(int rowNum, int column, boolean value, int styleIndex) {
+            events.add("boolean " + rowNum + "/" + column + " " + value);
+        }
+
+        @Override
+        public void errorCell(int rowNum, int column, CharSequence error, int styleIndex) {
+            events.add("error " + rowNum + "/" + column + " " + error);
+        }
+
+        @Override
+        public void formulaCell(int rowNum, int column, CharSequence formula, int styleIndex) {
+            events.add("formula " + rowNum + "/" + column + " " + formula);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+/**
+ * Tests for {@link XSSFChunkedSheetParser}
+ */
+final class TestXSSFChunkedSheetParser {
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void createExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void matchesSequentialParsing() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            CellStyle percent = wb.createCellStyle();
+            percent.setDataFormat(wb.createDataFormat().getFormat("0.0%"));
+            XSSFSheet sheet = wb.createSheet("big");
+            sheet.getHeader().setCenter("centered header");
+            for (int r = 0; r < 3000; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue("text " + (r % 10));
+                row.createCell(1).setCellValue(r);
+                row.createCell(2).setCellValue(r / 3000.0);
+                row.getCell(2).setCellStyle(percent);
+                row.createCell(3).setCellFormula("B" + (r + 1) + "*2");
+            }
+            wb.write(bos);
+        }
+
+        try (OPCPackage pkg = OPCPackage.open(bos.toInputStream())) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            List<String> expected = new ArrayList<>();
+            try (InputStream is = reader.getSheetsData().next()) {
+                XMLReader xmlReader = XMLHelper.newXMLReader();
+                xmlReader.setContentHandler(new XSSFSheetXMLHandler(styles, strings, new CollectingHandler(expected), false));
+                xmlReader.parse(new InputSource(is));
+            }
+
+            XSSFChunkedSheetParser parser = new XSSFChunkedSheetParser(strings, styles);
+            parser.setChunkSize(4096);
+            parser.setMaxPendingChunks(3);
+
+            List<String> ordered = new ArrayList<>();
+            try (InputStream is = reader.getSheetsData().next()) {
+                parser.parse(is, executor, new CollectingHandler(ordered));
+            }
+            assertEquals(expected, ordered);
+            assertEquals("end sheet", ordered.get(ordered.size() - 2));
+            assertEquals("header true oddHeader &Ccentered header", ordered.get(ordered.size() - 1));
+
+            List<String> scanned = new ArrayList<>();
+            parser.setUseSheetXMLScanner(true);
+            try (InputStream is = reader.getSheetsData().next()) {
+                parser.parse(is, executor, new CollectingHandler(scanned));
+            }
+            parser.setUseSheetXMLScanner(false);
+            assertEquals(expected, scanned);
+
+            List<List<String>> chunks = Collections.synchronizedList(new ArrayList<>());
+            try (InputStream is = reader.getSheetsData().next()) {
+                parser.parseUnordered(is, executor, () -> {
+                    List<String> chunk = new ArrayList<>();
+                    chunks.add(chunk);
+                    return new CollectingHandler(chunk);
+                });
+            }
+            assertTrue(chunks.size() > 10);
+            List<String> unordered = new ArrayList<>();
+            chunks.stream().sorted(Comparator.comparingInt(TestXSSFChunkedSheetParser::firstRow)).forEach(unordered::addAll);
+            assertEquals(expected, unordered);
+        }
+    }
+
+    @Test
+    void prefixedAndEmptySheets() throws Exception {
+        String prefixed = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<x:worksheet xmlns:x=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+            + "<x:sheetData><x:row r=\"1\"><x:c r=\"A1\" t=\"inlineStr\"><x:is><x:t>a</x:t></x:is></x:c></x:row>"
+            + "<x:row r=\"3\"><x:c r=\"B3\"><x:v>2</x:v></x:c></x:row><x:row r=\"4\"/>"
+            + "<x:row r=\"5\"><x:c r=\"C5\" t=\"b\"><x:v>1</x:v></x:c></x:row>"
+            + "</x:sheetData></x:worksheet>";
+        XSSFChunkedSheetParser parser = new XSSFChunkedSheetParser(null, null);
+        parser.setChunkSize(16);
+        List<String> output = new ArrayList<>();
+        parser.parse(new UnsynchronizedByteArrayInputStream(prefixed.getBytes(StandardCharsets.UTF_8)),
+            executor, new CollectingHandler(output));
+        assertEquals("[row 0, A1=a, end 0, row 2, B3=2, end 2, row 3, end 3, row 4, C5=TRUE, end 4, end sheet]",
+            output.toString());
+
+        String empty = "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData/></worksheet>";
+        output.clear();
+        parser.parse(new UnsynchronizedByteArrayInputStream(empty.getBytes(StandardCharsets.UTF_8)),
+            executor, new CollectingHandler(output));
+        assertEquals("[end sheet]", output.toString());
+    }
+
+    @Test
+    void rowsWithoutRowNumber() throws Exception {
+        String unnumbered = "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+            + "<row spans=\"1:1\"><c t=\"inlineStr\"><is><t>a</t></is></c></row>"
+            + "<row ht=\"15\" customHeight=\"1\"><c><v>2</v></c></row><row/>"
+            + "<row><c t=\"b\"><v>1</v></c></row>"
+            + "</sheetData></worksheet>";
+        XSSFChunkedSheetParser parser = new XSSFChunkedSheetParser(null, null);
+        parser.setChunkSize(16);
+        List<String> output = new ArrayList<>();
+        parser.parse(new UnsynchronizedByteArrayInputStream(unnumbered.getBytes(StandardCharsets.UTF_8)),
+            executor, new CollectingHandler(output));
+        assertEquals("[row 0, A1=a, end 0, row 1, A2=2, end 1, row 2, end 2, row 3, A4=TRUE, end 3, end sheet]",
+            output.toString());
+
+        List<List<String>> chunks = Collections.synchronizedList(new ArrayList<>());
+        parser.parseUnordered(new UnsynchronizedByteArrayInputStream(unnumbered.getBytes(StandardCharsets.UTF_8)),
+            executor, () -> {
+                List<String> chunk = new ArrayList<>();
+                chunks.add(chunk);
+                return new CollectingHandler(chunk);
+            });
+        assertEquals(Collections.singletonList(output), chunks);
+
+        // a chunk after the first one can't know the number of its first row
+        StringBuilder mixed = new StringBuilder(
+            "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+        for (int r = 1; r <= 20; r++) {
+            mixed.append("<row r=\"").append(r).append("\"><c r=\"A").append(r).append("\"><v>1</v></c></row>");
+        }
+        mixed.append("<row><c><v>2</v></c></row></sheetData></worksheet>");
+        assertThrows(POIXMLException.class, () -> parser.parse(
+            new UnsynchronizedByteArrayInputStream(mixed.toString().getBytes(StandardCharsets.UTF_8)),
+            executor, new CollectingHandler(new ArrayList<>())));
+    }
+
+    private static int firstRow(List<String> chunk) {
+        return chunk.isEmpty() || !chunk.get(0).startsWith("row ")
+            ? Integer.MAX_VALUE : Integer.parseInt(chunk.get(0).substring(4));
+    }
+
+    private static class CollectingHandler implements SheetContentsHandler {
+        private final List<String> output;
+
+        CollectingHandler(List<String> output) {
+            this.output = output;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            output.add("row " + rowNum);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            output.add("end " + rowNum);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            output.add(cellReference + "=" + formattedValue);
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+            output.add("header " + isHeader + " " + tagName + " " + text);
+        }
+
+        @Override
+        public void endSheet() {
+            output.add("end sheet");
+        }
+    }
+}
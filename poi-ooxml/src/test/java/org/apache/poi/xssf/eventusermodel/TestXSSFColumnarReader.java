@@ -0,0 +1,218 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.extractor.ColumnVector;
+import org.apache.poi.ss.extractor.ColumnarBatch;
+import org.apache.poi.ss.extractor.ColumnarSchema;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Tests for {@link XSSFColumnarReader}
+ */
+final class TestXSSFColumnarReader {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void readsBatches(boolean useScanner) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(createWorkbook(false).toInputStream())) {
+            XSSFColumnarReader reader = new XSSFColumnarReader(new XSSFReader(pkg));
+            reader.setUseSheetXMLScanner(useScanner);
+            assertFalse(reader.isDate1904());
+            assertEquals(2, reader.getSheetRefs().size());
+
+            ColumnarSchema schema = new ColumnarSchema()
+                .addStringColumn(0)
+                .addNumericColumn(1)
+                .addDateColumn(2)
+                .setRows(1, Integer.MAX_VALUE)
+                .setBatchSize(4);
+            List<String> result = new ArrayList<>();
+            reader.read("DATA", schema, batch -> result.add(format(batch)));
+
+            // the header row is skipped and the empty row 6 isn't part of the batches
+            assertEquals(2, result.size());
+            assertEquals("[1: a 1.0 2020-06-18T00:00:00Z, 2: b null null, 3: a 2.5 null, 4: null 1.0 null]", result.get(0));
+            assertEquals("[5: c 6.0 1900-02-28T12:00:00Z, 7: \u00e4\u00f6\u00fc null null]", result.get(1));
+        }
+    }
+
+    @Test
+    void reusesSharedStringIndexes() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = createWorkbook(false);
+        try (OPCPackage pkg = OPCPackage.open(bos.toInputStream());
+             XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            ColumnarSchema schema = new ColumnarSchema().addStringColumn(0).setRows(1, 5);
+            List<String> result = new ArrayList<>();
+            new XSSFColumnarReader(new XSSFReader(pkg)).read(0, schema, batch -> {
+                ColumnVector strings = batch.getColumn(0);
+                int[] codes = strings.getStringCodes();
+                assertEquals(codes[0], codes[2]);
+                for (int row = 0; row < batch.getRowCount(); row++) {
+                    if (strings.isNull(row)) {
+                        continue;
+                    }
+                    if (codes[row] < strings.getDictionary().getSharedStringCount()) {
+                        // the code is the index of the shared strings table
+                        assertEquals(wb.getSharedStringSource().getItemAt(codes[row]).getString(), strings.getString(row));
+                    } else {
+                        // the cached string result of the formula isn't a shared string
+                        assertEquals("c", strings.getString(row));
+                    }
+                    result.add(strings.getString(row));
+                }
+            });
+            assertEquals("[a, b, a, c]", result.toString());
+        }
+    }
+
+    @Test
+    void date1904() throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(createWorkbook(true).toInputStream())) {
+            XSSFColumnarReader reader = new XSSFColumnarReader(new XSSFReader(pkg));
+            assertTrue(reader.isDate1904());
+            List<String> result = new ArrayList<>();
+            reader.read(0, new ColumnarSchema().addDateColumn(2).setRows(1, 1), batch -> result.add(format(batch)));
+            assertEquals("[[1: 2024-06-19T00:00:00Z]]", result.toString());
+        }
+    }
+
+    @Test
+    void xssfb() throws IOException, OpenXML4JException, SAXException {
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream("testVarious.xlsb"))) {
+            XSSFColumnarReader reader = new XSSFColumnarReader(new XSSFBReader(pkg));
+            assertFalse(reader.isDate1904());
+
+            List<String> result = new ArrayList<>();
+            reader.read(0, new ColumnarSchema().addStringColumn(0).addStringColumn(1).setRows(0, 0),
+                batch -> result.add(format(batch)));
+            reader.read(0, new ColumnarSchema().addNumericColumn(1).setRows(1, 4),
+                batch -> result.add(format(batch)));
+            assertEquals("[[0: String This is a string], [1: 13.0, 2: 13.1211231321, 3: 3.03, 4: 0.2]]", result.toString());
+        }
+    }
+
+    @Test
+    void unknownSheet() throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(createWorkbook(false).toInputStream())) {
+            XSSFColumnarReader reader = new XSSFColumnarReader(new XSSFReader(pkg));
+            ColumnarSchema schema = new ColumnarSchema().addNumericColumn(0);
+            assertThrows(IllegalArgumentException.class, () -> reader.read("missing", schema, batch -> {}));
+            assertThrows(IllegalArgumentException.class, () -> reader.read(5, schema, batch -> {}));
+        }
+    }
+
+    private static UnsynchronizedByteArrayOutputStream createWorkbook(boolean date1904) throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            wb.getCTWorkbook().getWorkbookPr().setDate1904(date1904);
+            XSSFSheet sheet = wb.createSheet("data");
+            wb.createSheet("other").createRow(0).createCell(0).setCellValue(99);
+
+            XSSFRow row = sheet.createRow(0);
+            row.createCell(0).setCellValue("name");
+            row.createCell(1).setCellValue("value");
+            row.createCell(2).setCellValue("date");
+
+            row = sheet.createRow(1);
+            row.createCell(0).setCellValue("a");
+            row.createCell(1).setCellValue(1);
+            row.createCell(2).setCellValue(44000);
+
+            row = sheet.createRow(2);
+            row.createCell(0).setCellValue("b");
+            // text in numeric and date columns is null
+            row.createCell(1).setCellValue("x");
+            row.createCell(2).setCellValue("y");
+
+            row = sheet.createRow(3);
+            row.createCell(0).setCellValue("a");
+            row.createCell(1).setCellFormula("B2+1.5");
+            row.getCell(1).setCellValue(2.5);
+
+            row = sheet.createRow(4);
+            row.createCell(1).setCellValue(true);
+            // a column outside of the schema
+            row.createCell(5).setCellValue(7);
+
+            row = sheet.createRow(5);
+            row.createCell(0).setCellFormula("\"c\"");
+            row.getCell(0).setCellValue("c");
+            row.createCell(1).setCellValue(6);
+            row.createCell(2).setCellValue(59.5);
+
+            // a row with cells outside of the schema only
+            sheet.createRow(6).createCell(4).setCellValue("z");
+
+            sheet.createRow(7).createCell(0).setCellValue("\u00e4\u00f6\u00fc");
+            wb.write(bos);
+        }
+        return bos;
+    }
+
+    private static String format(ColumnarBatch batch) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            if (row > 0) {
+                sb.append(", ");
+            }
+            sb.append(batch.getRowNum(row)).append(':');
+            for (int col = 0; col < batch.getColumnCount(); col++) {
+                ColumnVector vector = batch.getColumn(col);
+                sb.append(' ');
+                if (vector.isNull(row)) {
+                    sb.append("null");
+                    continue;
+                }
+                switch (vector.getType()) {
+                    case NUMERIC:
+                        sb.append(vector.getDoubles()[row]);
+                        break;
+                    case DATE:
+                        sb.append(Instant.ofEpochMilli(vector.getEpochMillis()[row]));
+                        break;
+                    default:
+                        sb.append(vector.getString(row));
+                        break;
+                }
+            }
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,209 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.ZipPackage;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.binary.XSSFBSharedStringsTable;
+import org.apache.poi.xssf.binary.XSSFBSheetHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+/**
+ * Tests for {@link XSSFParallelSheetReader}
+ */
+final class TestXSSFParallelSheetReader {
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void createExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    private static byte[] createWorkbook(int sheets) throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            CellStyle percent = wb.createCellStyle();
+            percent.setDataFormat(wb.createDataFormat().getFormat("0.0%"));
+            for (int s = 0; s < sheets; s++) {
+                Sheet sheet = wb.createSheet("sheet" + s);
+                for (int r = 0; r < 200; r++) {
+                    Row row = sheet.createRow(r);
+                    row.createCell(0).setCellValue("text " + (r % 10));
+                    row.createCell(1).setCellValue(s * 1000 + r);
+                    row.createCell(2).setCellValue(r / 200.0);
+                    row.getCell(2).setCellStyle(percent);
+                }
+            }
+            wb.write(bos);
+        }
+        return bos.toByteArray();
+    }
+
+    @Test
+    void matchesSequentialParsing() throws Exception {
+        byte[] data = createWorkbook(6);
+        try (OPCPackage pkg = OPCPackage.open(new UnsynchronizedByteArrayInputStream(data))) {
+            assertTrue(((ZipPackage) pkg).supportsConcurrentReads());
+
+            XSSFParallelSheetReader reader = new XSSFParallelSheetReader(pkg);
+            assertEquals(6, reader.getSheetRefs().size());
+            assertNotNull(reader.getSharedStrings());
+
+            Map<String, List<String>> actual = new ConcurrentHashMap<>();
+            reader.process(executor, ref -> new CollectingHandler(actual.computeIfAbsent(ref.getName(), n -> new ArrayList<>())));
+
+            XSSFReader sequential = new XSSFReader(pkg);
+            XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) sequential.getSheetsData();
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            while (iter.hasNext()) {
+                List<String> expected = new ArrayList<>();
+                try (InputStream is = iter.next()) {
+                    XMLReader xmlReader = XMLHelper.newXMLReader();
+                    xmlReader.setContentHandler(new XSSFSheetXMLHandler(
+                        sequential.getStylesTable(), strings, new CollectingHandler(expected), false));
+                    xmlReader.parse(new InputSource(is));
+                }
+                assertEquals(expected, actual.get(iter.getSheetName()), iter.getSheetName());
+            }
+            assertEquals("A1=text 0", actual.get("sheet0").get(1));
+            assertEquals("C101=50.0%", actual.get("sheet3").get(5 * 100 + 3));
+        }
+    }
+
+    @Test
+    void skipsSheetsWithoutHandler() throws Exception {
+        File file = TempFile.createTempFile("parallel", ".xlsx");
+        try {
+            try (FileOutputStream fos = new FileOutputStream(file)) {
+                fos.write(createWorkbook(3));
+            }
+            try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+                assertTrue(((ZipPackage) pkg).supportsConcurrentReads());
+                Map<String, List<String>> actual = new ConcurrentHashMap<>();
+                XSSFParallelSheetReader reader = new XSSFParallelSheetReader(pkg);
+                reader.process(executor, ref -> "sheet1".equals(ref.getName()) ? null
+                    : new CollectingHandler(actual.computeIfAbsent(ref.getName(), n -> new ArrayList<>())));
+                assertEquals(2, actual.size());
+                assertFalse(actual.containsKey("sheet1"));
+                assertEquals("B200=2199", actual.get("sheet2").get(5 * 199 + 2));
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    void xssfb() throws Exception {
+        File file = POIDataSamples.getSpreadSheetInstance().getFile("testVarious.xlsb");
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFParallelSheetReader reader = new XSSFParallelSheetReader(pkg);
+            Map<String, List<String>> actual = new ConcurrentHashMap<>();
+            reader.process(executor, ref -> new CollectingHandler(actual.computeIfAbsent(ref.getName(), n -> new ArrayList<>())));
+
+            XSSFBReader sequential = new XSSFBReader(pkg);
+            XSSFBSharedStringsTable strings = new XSSFBSharedStringsTable(pkg);
+            XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) sequential.getSheetsData();
+            while (iter.hasNext()) {
+                List<String> expected = new ArrayList<>();
+                try (InputStream is = iter.next()) {
+                    new XSSFBSheetHandler(is, sequential.getXSSFBStylesTable(), null, strings,
+                        new CollectingHandler(expected), new DataFormatter(), false).parse();
+                }
+                assertFalse(expected.isEmpty());
+                assertEquals(expected, actual.get(iter.getSheetName()), iter.getSheetName());
+            }
+            assertEquals("B1=This is a string", actual.get("mySheet1").get(2));
+        }
+    }
+
+    @Test
+    void rethrowsFailures() throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(new UnsynchronizedByteArrayInputStream(createWorkbook(3)))) {
+            XSSFParallelSheetReader reader = new XSSFParallelSheetReader(pkg);
+            IllegalStateException e = assertThrows(IllegalStateException.class, () ->
+                reader.process(executor, ref -> new CollectingHandler(new ArrayList<>()) {
+                    @Override
+                    public void endRow(int rowNum) {
+                        throw new IllegalStateException("failed in " + ref.getName());
+                    }
+                }));
+            assertTrue(e.getMessage().startsWith("failed in sheet"));
+        }
+    }
+
+    static class CollectingHandler implements SheetContentsHandler {
+        private final List<String> output;
+
+        CollectingHandler(List<String> output) {
+            this.output = output;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            output.add("row " + rowNum);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            output.add("end " + rowNum);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            output.add(cellReference + "=" + formattedValue);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.XMLHelper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests for {@link XSSFSheetXMLScanner}, which must report the same events as the SAX parser
+ */
+class TestXSSFSheetXMLScanner {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"SampleSS.xlsx", "sample.xlsx", "InlineStrings.xlsx", "Formatting.xlsx",
+        "shared_formulas.xlsx", "45540_classic_Header.xlsx", "comments.xlsx"})
+    void matchesSaxForSampleSheets(String file) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream(file))) {
+            XSSFReader reader = new XSSFReader(pkg);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            while (sheets.hasNext()) {
+                byte[] xml;
+                try (InputStream is = sheets.next()) {
+                    xml = IOUtils.toByteArray(is);
+                }
+                assertMatchesSax(xml);
+            }
+        }
+    }
+
+    @Test
+    void markup() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\r\n"
+            + "<!-- leading comment -->\n"
+            + "<x:worksheet xmlns:x=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" xmlns='urn:default'"
+            + " xmlns:r=\"urn:r\"><x:sheetData>"
+            + "<x:row r=\"1\" r:id = 'a&amp;b&#65;&#x42;' spans=\"1:2\">"
+            + "<x:c r=\"A1\" t=\"inlineStr\"><x:is><x:t xml:space=\"preserve\">a &lt;b&gt; &quot;c&quot; &apos;d&apos;\r\ne\rf</x:t></x:is></x:c>"
+            + "<x:c r=\"B1\" t=\"str\"><x:f><![CDATA[A1&\"<x>\"]]></x:f><x:v>\u00e4\u4e2d\ud83d\ude00</x:v></x:c>"
+            + "<!-- comment <x:c> --><?pi some data?>"
+            + "<x:c r=\"C1\" s=\"1\"/><inner attr=\"tab\tnew\nline\r\ncr\"/>"
+            + "</x:row></x:sheetData>\n</x:worksheet>\n<!-- trailing -->\n";
+        List<String> events = assertMatchesSax(xml.getBytes(StandardCharsets.UTF_8));
+        assertTrue(events.contains("text a <b> \"c\" 'd'\ne\nf"), events.toString());
+        assertTrue(events.contains("text A1&\"<x>\""), events.toString());
+    }
+
+    @Test
+    void bufferBoundaries() throws Exception {
+        StringBuilder sb = new StringBuilder("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">");
+        sb.append("<sheetData><row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>");
+        for (int i = 0; i < 30000; i++) {
+            sb.append("\u00e4\u4e2d\ud83d\ude00&amp;x");
+        }
+        sb.append("</t></is></c><c r=\"B1\" t=\"inlineStr\" long=\"");
+        for (int i = 0; i < 30000; i++) {
+            sb.append("v\u00e4lue ");
+        }
+        sb.append("\"><is><t>b</t></is></c></row>");
+        for (int r = 2; r < 5000; r++) {
+            sb.append("<row r=\"").append(r).append("\"><c r=\"A").append(r).append("\"><v>").append(r * 1.5).append("</v></c></row>");
+        }
+        sb.append("</sheetData></worksheet>");
+        assertMatchesSax(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ISO-8859-1", "UTF-16"})
+    void fallbackForOtherEncodings(String encoding) throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"" + encoding + "\"?>"
+            + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+            + "<row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>\u00e4\u00f6\u00fc</t></is></c></row>"
+            + "</sheetData></worksheet>";
+        List<String> events = assertMatchesSax(xml.getBytes(Charset.forName(encoding)));
+        assertTrue(events.contains("text \u00e4\u00f6\u00fc"), events.toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "<a><b></a>",
+        "<a>&unknown;</a>",
+        "<a><x:b/></a>",
+        "<a><b>",
+        "<a b=\"1\" b2=\"<\"/>",
+        "<a>&#0;</a>",
+        "<a></a>text",
+        "<a b=\"1\"c=\"2\"/>"
+    })
+    void malformed(String xml) {
+        byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+        assertThrows(SAXException.class, () -> parseSax(bytes));
+        assertThrows(SAXException.class, () -> parseScanner(bytes));
+    }
+
+    @Test
+    void sheetHandler() throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.getFile("SampleSS.xlsx"), PackageAccess.READ)) {
+            List<String> sax = new ArrayList<>();
+            List<String> scanner = new ArrayList<>();
+            XSSFParallelSheetReader reader = new XSSFParallelSheetReader(pkg);
+            reader.process(Runnable::run, ref -> new TestXSSFParallelSheetReader.CollectingHandler(sax));
+            reader.setUseSheetXMLScanner(true);
+            reader.process(Runnable::run, ref -> new TestXSSFParallelSheetReader.CollectingHandler(scanner));
+            assertEquals(sax, scanner);
+        }
+    }
+
+    private static List<String> assertMatchesSax(byte[] xml) throws Exception {
+        List<String> expected = parseSax(xml);
+        List<String> actual = parseScanner(xml);
+        assertEquals(expected, actual);
+        return actual;
+    }
+
+    private static List<String> parseSax(byte[] xml) throws Exception {
+        RecordingHandler handler = new RecordingHandler();
+        XMLReader reader = XMLHelper.newXMLReader();
+        reader.setContentHandler(handler);
+        reader.setErrorHandler(handler);
+        reader.parse(new InputSource(new UnsynchronizedByteArrayInputStream(xml)));
+        return handler.events;
+    }
+
+    private static List<String> parseScanner(byte[] xml) throws IOException, SAXException {
+        RecordingHandler handler = new RecordingHandler();
+        new XSSFSheetXMLScanner(handler).parse(new UnsynchronizedByteArrayInputStream(xml));
+        return handler.events;
+    }
+
+    /**
+     * Records the events, the characters are merged as they may be split differently
+     */
+    private static final class RecordingHandler extends DefaultHandler {
+        private final List<String> events = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+
+        @Override
+        public void startDocument() {
+            events.add("startDocument");
+        }
+
+        @Override
+        public void endDocument() {
+            flush();
+            events.add("endDocument");
+        }
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri) {
+            flush();
+            events.add("prefix " + prefix + "=" + uri);
+        }
+
+        @Override
+        public void endPrefixMapping(String prefix) {
+            flush();
+            events.add("end prefix " + prefix);
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            flush();
+            StringBuilder sb = new StringBuilder("start {").append(uri).append('}').append(localName).append(' ').append(qName);
+            for (int i = 0; i < attributes.getLength(); i++) {
+                sb.append(" {").append(attributes.getURI(i)).append('}').append(attributes.getLocalName(i))
+                    .append(' ').append(attributes.getQName(i)).append("=").append(attributes.getValue(i));
+                assertEquals(attributes.getValue(i), attributes.getValue(attributes.getQName(i)));
+                assertEquals(attributes.getValue(i), attributes.getValue(attributes.getURI(i), attributes.getLocalName(i)));
+            }
+            events.add(sb.toString());
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            flush();
+            events.add("end {" + uri + "}" + localName + " " + qName);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            text.append(ch, start, length);
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) {
+            text.append(ch, start, length);
+        }
+
+        @Override
+        public void processingInstruction(String target, String data) {
+            flush();
+            events.add("pi " + target + " " + data);
+        }
+
+        private void flush() {
+            if (text.length() > 0) {
+                events.add("text " + text);
+                text.setLength(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests for {@link XSSFStreamingWorkbook}
+ */
+final class TestXSSFStreamingWorkbook {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    @Test
+    void readsAllCellTypes() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            CellStyle dateStyle = wb.createCellStyle();
+            dateStyle.setDataFormat(wb.createDataFormat().getFormat("yyyy-mm-dd"));
+            XSSFSheet sheet = wb.createSheet("data");
+            wb.createSheet("hidden");
+            wb.setSheetHidden(1, true);
+
+            XSSFRow row = sheet.createRow(0);
+            row.createCell(0).setCellValue("text");
+            row.createCell(1).setCellValue(42);
+            row.createCell(2).setCellValue(-1.5);
+            row.createCell(3).setCellValue(true);
+            row.createCell(4).setCellErrorValue(FormulaError.DIV0.getCode());
+            row.createCell(6, CellType.BLANK);
+
+            row = sheet.createRow(2);
+            row.setHeightInPoints(30);
+            XSSFCell cell = row.createCell(1);
+            cell.setCellFormula("B1*2");
+            cell.setCellValue(84);
+            cell = row.createCell(2);
+            cell.setCellValue(44000);
+            cell.setCellStyle(dateStyle);
+            row.createCell(3).setCellValue("\u00fcbersicht \u4e2d");
+            wb.write(bos);
+        }
+
+        try (XSSFStreamingWorkbook wb = XSSFStreamingWorkbook.open(bos.toInputStream())) {
+            assertEquals(2, wb.getNumberOfSheets());
+            assertEquals("hidden", wb.getSheetName(1));
+            assertTrue(wb.isSheetHidden(1));
+            assertFalse(wb.isSheetHidden(0));
+            assertFalse(wb.isDate1904());
+
+            XSSFStreamingSheet sheet = wb.getSheet("DATA");
+            assertNotNull(sheet);
+            assertSame(wb, sheet.getWorkbook());
+
+            Iterator<Row> rows = sheet.rowIterator();
+            assertTrue(rows.hasNext());
+            Row row = rows.next();
+            assertEquals(0, row.getRowNum());
+            assertEquals(0, row.getFirstCellNum());
+            assertEquals(7, row.getLastCellNum());
+            assertEquals(6, row.getPhysicalNumberOfCells());
+            assertEquals("text", row.getCell(0).getStringCellValue());
+            assertEquals(CellType.STRING, row.getCell(0).getCellType());
+            assertEquals(42.0, row.getCell(1).getNumericCellValue(), 0);
+            assertEquals(-1.5, row.getCell(2).getNumericCellValue(), 0);
+            assertTrue(row.getCell(3).getBooleanCellValue());
+            assertEquals(FormulaError.DIV0.getCode(), row.getCell(4).getErrorCellValue());
+            assertNull(row.getCell(5));
+            assertNull(row.getCell(5, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL));
+            assertEquals(CellType.BLANK, row.getCell(5, Row.MissingCellPolicy.CREATE_NULL_AS_BLANK).getCellType());
+            assertEquals(CellType.BLANK, row.getCell(6).getCellType());
+            assertNull(row.getCell(6, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL));
+            assertThrows(IllegalStateException.class, () -> row.getCell(0).getNumericCellValue());
+            assertThrows(UnsupportedOperationException.class, () -> row.getCell(0).setCellValue(1));
+
+            assertTrue(rows.hasNext());
+            // the row object is reused
+            assertSame(row, rows.next());
+            assertEquals(2, row.getRowNum());
+            assertEquals(30f, row.getHeightInPoints(), 0);
+            Cell formula = row.getCell(1);
+            assertEquals(CellType.FORMULA, formula.getCellType());
+            assertEquals(CellType.NUMERIC, formula.getCachedFormulaResultType());
+            assertEquals("B1*2", formula.getCellFormula());
+            assertEquals(84.0, formula.getNumericCellValue(), 0);
+            assertEquals("2020-06-18", new DataFormatter().formatCellValue(row.getCell(2)));
+            assertEquals("\u00fcbersicht \u4e2d", row.getCell(3).getStringCellValue());
+            assertEquals("D3", row.getCell(3).getAddress().formatAsString());
+
+            assertFalse(rows.hasNext());
+            assertThrows(NoSuchElementException.class, rows::next);
+
+            // a new iteration starts at the first row again
+            assertEquals(0, sheet.rowIterator().next().getRowNum());
+            assertFalse(wb.getSheetAt(1).rowIterator().hasNext());
+            assertThrows(UnsupportedOperationException.class, () -> sheet.getRow(0));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"SampleSS.xlsx", "sample.xlsx", "InlineStrings.xlsx", "Formatting.xlsx", "shared_formulas.xlsx"})
+    void matchesUsermodel(String file) throws IOException {
+        DataFormatter formatter = new DataFormatter();
+        try (InputStream is = _ssTests.openResourceAsStream(file);
+             Workbook expected = new XSSFWorkbook(is);
+             XSSFStreamingWorkbook actual = XSSFStreamingWorkbook.open(_ssTests.getFile(file))) {
+            assertEquals(expected.getNumberOfSheets(), actual.getNumberOfSheets());
+            for (int i = 0; i < expected.getNumberOfSheets(); i++) {
+                Sheet expectedSheet = expected.getSheetAt(i);
+                Sheet actualSheet = actual.getSheetAt(i);
+                assertEquals(expectedSheet.getSheetName(), actualSheet.getSheetName());
+
+                Iterator<Row> actualRows = actualSheet.rowIterator();
+                for (Row expectedRow : expectedSheet) {
+                    assertTrue(actualRows.hasNext());
+                    Row actualRow = actualRows.next();
+                    assertEquals(expectedRow.getRowNum(), actualRow.getRowNum());
+                    assertEquals(expectedRow.getPhysicalNumberOfCells(), actualRow.getPhysicalNumberOfCells());
+                    for (Cell expectedCell : expectedRow) {
+                        Cell actualCell = actualRow.getCell(expectedCell.getColumnIndex());
+                        String ref = file + " " + expectedCell.getAddress();
+                        assertNotNull(actualCell, ref);
+                        assertEquals(expectedCell.getCellType(), actualCell.getCellType(), ref);
+                        if (expectedCell.getCellType() == CellType.FORMULA) {
+                            assertEquals(expectedCell.getCachedFormulaResultType(),
+                                actualCell.getCachedFormulaResultType(), ref);
+                        } else {
+                            assertEquals(formatter.formatCellValue(expectedCell),
+                                formatter.formatCellValue(actualCell), ref);
+                        }
+                        assertEquals(expectedCell.getCellStyle().getIndex(), actualCell.getCellStyle().getIndex(), ref);
+                    }
+                }
+                assertFalse(actualRows.hasNext());
+            }
+        }
+    }
+
+    @Test
+    void closeStopsOpenIterations() throws IOException {
+        Iterator<Row> rows;
+        try (XSSFStreamingWorkbook wb = XSSFStreamingWorkbook.open(_ssTests.getFile("SampleSS.xlsx"))) {
+            rows = wb.getSheetAt(0).rowIterator();
+            assertTrue(rows.hasNext());
+        }
+        assertFalse(rows.hasNext());
+        assertThrows(NoSuchElementException.class, rows::next);
+    }
+}
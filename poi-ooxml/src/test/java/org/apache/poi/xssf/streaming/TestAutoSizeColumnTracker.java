@@ -34,6 +34,7 @@ import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.GlyphAdvanceCache;
 import org.apache.poi.ss.util.SheetUtil;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -194,6 +195,36 @@ class TestAutoSizeColumnTracker {
         checkColumnWidth(shortMsgWidth, 4, false);
     }
 
+    @Test
+    void updateColumnWidthsWithGlyphAdvances() {
+        // the bundled metrics don't depend on the installed fonts
+        tracker = new AutoSizeColumnTracker(sheet, GlyphAdvanceCache.fromBundledMetrics());
+        tracker.trackAllColumns();
+        Row row1 = sheet.createRow(0);
+        Row row2 = sheet.createRow(1);
+        for (int column : columns) {
+            row1.createCell(column).setCellValue(LONG_MESSAGE);
+            row2.createCell(column+1).setCellValue(SHORT_MESSAGE);
+        }
+        tracker.updateColumnWidths(row1);
+        tracker.updateColumnWidths(row2);
+        assertEquals(0, sheet.addMergedRegion(CellRangeAddress.valueOf("D1:E1")));
+
+        final int longMsgWidth = (int) (57.43*256);
+        final int shortMsgWidth = (int) (4.86*256);
+        checkColumnWidth(longMsgWidth, 0, false);
+        checkColumnWidth(longMsgWidth, 1, false);
+        checkColumnWidth(shortMsgWidth, 2, false);
+        checkColumnWidth(-1, 3, true);
+
+        // sheet with streamed rows
+        sheet.setAutoSizeGlyphAdvances(GlyphAdvanceCache.fromBundledMetrics());
+        assertFalse(sheet.getAutoSizeGlyphAdvances().isUsingFontSystem());
+        sheet.trackColumnForAutoSizing(0);
+        sheet.autoSizeColumn(0);
+        checkColumnWidth(sheet.getColumnWidth(0), 0, false);
+    }
+
     private void checkColumnWidth(int expectedWidth, int column, boolean useMergedCells) {
         final int bestFitWidth = tracker.getBestFitColumnWidth(column, useMergedCells);
         if (bestFitWidth < 0 && expectedWidth < 0) return;
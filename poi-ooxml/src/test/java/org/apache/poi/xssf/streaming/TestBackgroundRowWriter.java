@@ -0,0 +1,213 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public final class TestBackgroundRowWriter {
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 1000})
+    void writeInBackground(int queueSize) throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(null, 10, false, true)) {
+            wb.setBackgroundFlushQueueSize(queueSize);
+            assertEquals(queueSize, wb.getBackgroundFlushQueueSize());
+            SXSSFSheet sheet1 = wb.createSheet("s1");
+            SXSSFSheet sheet2 = wb.createSheet("s2");
+            for (int i = 0; i < 2000; i++) {
+                sheet1.createRow(i).createCell(0).setCellValue("text " + i);
+                sheet2.createRow(i).createCell(1).setCellValue(i);
+            }
+            assertThrows(IllegalArgumentException.class, () -> sheet1.createRow(1989));
+            assertEquals(1989, sheet1.getLastFlushedRowNum());
+            assertEquals(0, sheet1.getFirstRowNum());
+
+            wb.write(bos);
+
+            BackgroundRowWriter writer = wb.getBackgroundRowWriter();
+            assertEquals(4000, writer.getRowsWritten());
+            assertEquals(0, writer.getQueueDepth());
+            assertTrue(writer.getMaxQueueDepth() >= 1 && writer.getMaxQueueDepth() <= queueSize);
+            assertTrue(writer.getProducerWaitTimeNanos() >= 0);
+            wb.dispose();
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            XSSFSheet sheet1 = wb.getSheet("s1");
+            XSSFSheet sheet2 = wb.getSheet("s2");
+            for (int i = 0; i < 2000; i++) {
+                assertEquals("text " + i, sheet1.getRow(i).getCell(0).getStringCellValue());
+                assertEquals(i, sheet2.getRow(i).getCell(1).getNumericCellValue());
+            }
+            assertEquals("A1:A2000", sheet1.getCTWorksheet().getDimension().getRef());
+        }
+    }
+
+    @Test
+    void appendRowsWhileOtherSheetsAreQueued() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(null, 1, false, true)) {
+            wb.setBackgroundFlushQueueSize(1000);
+            SXSSFSheet queued = wb.createSheet("queued");
+            SXSSFSheet batched = wb.createSheet("batched");
+            String[] values = new String[100];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = "batch " + i;
+            }
+            for (int b = 0; b < 10; b++) {
+                for (int i = 0; i < 100; i++) {
+                    queued.createRow(b * 100 + i).createCell(0).setCellValue("queued " + (b * 100 + i));
+                }
+                // the batch adds shared strings, while the rows of the other sheet may still be written
+                batched.appendRows(b * 100, new ColumnBatch(100).addStringColumn(0, values, 0));
+            }
+            wb.write(bos);
+            wb.dispose();
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            XSSFSheet queued = wb.getSheet("queued");
+            XSSFSheet batched = wb.getSheet("batched");
+            for (int i = 0; i < 1000; i++) {
+                assertEquals("queued " + i, queued.getRow(i).getCell(0).getStringCellValue());
+                assertEquals("batch " + (i % 100), batched.getRow(i).getCell(0).getStringCellValue());
+            }
+        }
+    }
+
+    @Test
+    void writeDeferredInBackground() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (DeferredSXSSFWorkbook wb = new DeferredSXSSFWorkbook(10)) {
+            wb.setBackgroundFlushQueueSize(16);
+            DeferredSXSSFSheet sheet = wb.createSheet("deferred");
+            sheet.setRowGenerator(s -> {
+                for (int i = 0; i < 500; i++) {
+                    s.createRow(i).createCell(0).setCellValue(i);
+                }
+            });
+            wb.write(bos);
+            wb.dispose();
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            XSSFSheet sheet = wb.getSheet("deferred");
+            assertEquals(499, sheet.getLastRowNum());
+            assertEquals(499, sheet.getRow(499).getCell(0).getNumericCellValue());
+        }
+    }
+
+    @Test
+    void queuedRowsAreCounted() throws IOException {
+        CountDownLatch release = new CountDownLatch(1);
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(null, 1, false, false) {
+            @Override
+            protected SheetDataWriter createSheetDataWriter() throws IOException {
+                return new SheetDataWriter() {
+                    @Override
+                    public void writeRow(int rownum, SXSSFRow row) throws IOException {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                        super.writeRow(rownum, row);
+                    }
+                };
+            }
+        }) {
+            wb.setBackgroundFlushQueueSize(8);
+            SXSSFSheet sheet = wb.createSheet();
+            try {
+                for (int i = 0; i < 5; i++) {
+                    sheet.createRow(i).createCell(0).setCellValue(i);
+                }
+                // 4 rows are queued or blocked in the writer thread
+                assertEquals(5, sheet.getPhysicalNumberOfRows());
+            } finally {
+                release.countDown();
+            }
+            sheet.flushRows();
+            assertEquals(5, sheet.getPhysicalNumberOfRows());
+            wb.dispose();
+        }
+    }
+
+    @Test
+    void failuresAreRethrown() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(null, 1, false, false) {
+            @Override
+            protected SheetDataWriter createSheetDataWriter() throws IOException {
+                return new SheetDataWriter() {
+                    @Override
+                    public void writeRow(int rownum, SXSSFRow row) throws IOException {
+                        if (rownum == 5) {
+                            throw new IOException("disk full");
+                        }
+                        super.writeRow(rownum, row);
+                    }
+                };
+            }
+        }) {
+            wb.setBackgroundFlushQueueSize(2);
+            SXSSFSheet sheet = wb.createSheet();
+            IOException ex = assertThrows(IOException.class, () -> {
+                for (int i = 0; i < 100; i++) {
+                    Row row = sheet.createRow(i);
+                    row.createCell(0).setCellValue(i);
+                    sheet.flushRows(0);
+                }
+                sheet.flushBufferedData();
+            });
+            assertEquals("disk full", ex.getCause().getMessage());
+            assertThrows(IOException.class, () -> wb.write(NullOutputStream.NULL_OUTPUT_STREAM));
+            wb.dispose();
+        }
+    }
+
+    @Test
+    void disable() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(1)) {
+            assertThrows(IllegalArgumentException.class, () -> wb.setBackgroundFlushQueueSize(-1));
+            wb.setBackgroundFlushQueueSize(4);
+            SXSSFSheet sheet = wb.createSheet();
+            sheet.createRow(0);
+            sheet.createRow(1);
+            wb.setBackgroundFlushQueueSize(0);
+            assertNull(wb.getBackgroundRowWriter());
+            assertEquals(1, sheet.getSheetDataWriter().getNumberOfFlushedRows());
+            wb.dispose();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public final class TestColumnBatch {
+
+    @ParameterizedTest
+    @CsvSource({"false, false", "true, false", "false, true", "true, true"})
+    void appendRows(boolean useSharedStrings, boolean useUtf8Writer) throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(null, 10, false, useSharedStrings)) {
+            wb.setUseUtf8SheetDataWriter(useUtf8Writer);
+            CellStyle style = wb.createCellStyle();
+            style.setDataFormat(wb.createDataFormat().getFormat("0.00"));
+
+            SXSSFSheet sheet = wb.createSheet("batch");
+            sheet.createRow(0).createCell(0).setCellValue("header");
+
+            ColumnBatch batch = new ColumnBatch(3)
+                .addStringColumn(3, new String[]{"a", null, " <c> "}, 0)
+                .addNumericColumn(1, new double[]{1.5, Double.NaN, -2}, style.getIndex())
+                .addNumericColumn(2, new long[]{1L << 40, 0, -7}, 0);
+            sheet.appendRows(2, batch);
+
+            assertEquals(4, sheet.getLastFlushedRowNum());
+            assertNull(sheet.getRow(2));
+            assertThrows(IllegalArgumentException.class, () -> sheet.createRow(4));
+            sheet.createRow(5).createCell(0).setCellValue(5);
+
+            wb.write(bos);
+            wb.dispose();
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            XSSFSheet sheet = wb.getSheet("batch");
+            assertEquals("A1:D6", sheet.getCTWorksheet().getDimension().getRef());
+            assertEquals("header", sheet.getRow(0).getCell(0).getStringCellValue());
+
+            XSSFRow row = sheet.getRow(2);
+            assertEquals(1, row.getFirstCellNum());
+            assertEquals(1.5, row.getCell(1).getNumericCellValue());
+            assertEquals("0.00", row.getCell(1).getCellStyle().getDataFormatString());
+            assertEquals(1L << 40, (long)row.getCell(2).getNumericCellValue());
+            assertEquals("a", row.getCell(3).getStringCellValue());
+
+            row = sheet.getRow(3);
+            assertNull(row.getCell(1));
+            assertEquals(0, row.getCell(2).getNumericCellValue());
+            assertNull(row.getCell(3));
+
+            row = sheet.getRow(4);
+            assertEquals(-2, row.getCell(1).getNumericCellValue());
+            assertEquals(-7, row.getCell(2).getNumericCellValue());
+            assertEquals(CellType.STRING, row.getCell(3).getCellType());
+            assertEquals(" <c> ", row.getCell(3).getStringCellValue());
+
+            assertEquals(5, sheet.getRow(5).getCell(0).getNumericCellValue());
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"false", "true"})
+    void infiniteValuesAreDivisionErrors(boolean useUtf8Writer) throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (SXSSFWorkbook wb = new SXSSFWorkbook()) {
+            wb.setUseUtf8SheetDataWriter(useUtf8Writer);
+            SXSSFSheet sheet = wb.createSheet("batch");
+            sheet.appendRows(0, new ColumnBatch(3)
+                .addNumericColumn(0, new double[]{Double.POSITIVE_INFINITY, 1, Double.NEGATIVE_INFINITY}, 0));
+            wb.write(bos);
+            wb.dispose();
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            XSSFSheet sheet = wb.getSheet("batch");
+            assertEquals(CellType.ERROR, sheet.getRow(0).getCell(0).getCellType());
+            assertEquals(FormulaError.DIV0.getCode(), sheet.getRow(0).getCell(0).getErrorCellValue());
+            assertEquals(1, sheet.getRow(1).getCell(0).getNumericCellValue());
+            assertEquals(FormulaError.DIV0.getCode(), sheet.getRow(2).getCell(0).getErrorCellValue());
+        }
+    }
+
+    @Test
+    void appendRowsAfterExistingRows() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(10)) {
+            SXSSFSheet sheet = wb.createSheet();
+            sheet.createRow(3);
+            ColumnBatch batch = new ColumnBatch(1).addNumericColumn(0, new double[]{1}, 0);
+
+            IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> sheet.appendRows(3, batch));
+            assertEquals("Attempting to append rows starting at row[3], but the rows up to 3 already exist.", ex.getMessage());
+            assertThrows(IllegalArgumentException.class, () -> sheet.appendRows(1_048_576, batch));
+
+            ColumnBatch badStyle = new ColumnBatch(1).addNumericColumn(0, new double[]{1}, 42);
+            assertThrows(IllegalArgumentException.class, () -> sheet.appendRows(4, badStyle));
+
+            sheet.appendRows(4, batch);
+            assertThrows(IllegalArgumentException.class, () -> sheet.appendRows(4, batch));
+            sheet.appendRows(5, batch);
+            assertEquals(5, sheet.getLastFlushedRowNum());
+            wb.dispose();
+        }
+    }
+
+    @Test
+    void autoSizeColumns() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(10)) {
+            SXSSFSheet sheet = wb.createSheet();
+            sheet.trackAllColumnsForAutoSizing();
+            ColumnBatch batch = new ColumnBatch(2)
+                .addStringColumn(0, new String[]{"short", "a much longer text value"}, 0)
+                .addNumericColumn(1, new double[]{Double.NaN, 1}, 0);
+            sheet.appendRows(0, batch);
+
+            sheet.autoSizeColumn(0);
+            sheet.autoSizeColumn(1);
+            assertTrue(sheet.getColumnWidth(0) > sheet.getColumnWidth(1));
+            assertTrue(sheet.getColumnWidth(1) > 0);
+            wb.dispose();
+        }
+    }
+
+    @Test
+    void invalidColumns() {
+        ColumnBatch batch = new ColumnBatch(2).addNumericColumn(0, new double[2], 0);
+        assertThrows(IllegalArgumentException.class, () -> batch.addStringColumn(0, new String[2], 0));
+        assertThrows(IllegalArgumentException.class, () -> batch.addStringColumn(1, new String[1], 0));
+        assertThrows(IllegalArgumentException.class, () -> batch.addStringColumn(-1, new String[2], 0));
+        assertThrows(IllegalArgumentException.class, () -> batch.addStringColumn(16384, new String[2], 0));
+        assertThrows(IllegalArgumentException.class, () -> batch.addStringColumn(1, new String[2], -1));
+        assertThrows(IllegalArgumentException.class, () -> new ColumnBatch(-1));
+        assertEquals(1, batch.getColumnCount());
+    }
+}
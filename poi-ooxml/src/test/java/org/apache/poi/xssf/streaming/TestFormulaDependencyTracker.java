@@ -0,0 +1,139 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.junit.jupiter.api.Test;
+
+public final class TestFormulaDependencyTracker {
+
+    @Test
+    void runningTotal() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(2)) {
+            SXSSFFormulaEvaluator eval = new SXSSFFormulaEvaluator(wb);
+            assertFalse(eval.isRetainReferencedCells());
+            eval.setRetainReferencedCells(true);
+            assertTrue(eval.isRetainReferencedCells());
+
+            SXSSFSheet sheet = wb.createSheet("data");
+            SXSSFRow row = sheet.createRow(0);
+            row.createCell(0).setCellValue(1);
+            row.createCell(1).setCellFormula("A1");
+            row.createCell(2).setCellFormula("SUM($A$1:A1)");
+            eval.evaluateFormulaCell(row.getCell(1));
+            eval.evaluateFormulaCell(row.getCell(2));
+            for (int i = 1; i < 1000; i++) {
+                row = sheet.createRow(i);
+                row.createCell(0).setCellValue(i + 1);
+                Cell total = row.createCell(1);
+                total.setCellFormula("B" + i + "+A" + (i + 1));
+                Cell sum = row.createCell(2);
+                sum.setCellFormula("SUM($A$1:A" + (i + 1) + ")");
+                eval.evaluateFormulaCell(total);
+                eval.evaluateFormulaCell(sum);
+
+                double expected = (i + 1) * (i + 2) / 2.0;
+                assertEquals(expected, total.getNumericCellValue());
+                assertEquals(expected, sum.getNumericCellValue());
+            }
+            assertEquals(997, sheet.getLastFlushedRowNum());
+
+            // column A is pinned by the growing range, only the last rows of column B are kept
+            RetainedCellValues retained = wb.getFormulaDependencyTracker().getRetainedCells(sheet);
+            assertTrue(retained.size() < 1000 + 5, "had " + retained.size());
+            assertTrue(retained.isCovered(997, 1));
+            assertFalse(retained.isCovered(10, 1));
+            wb.dispose();
+        }
+    }
+
+    @Test
+    void crossSheetReferences() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(1)) {
+            FormulaEvaluator eval = wb.getCreationHelper().createFormulaEvaluator();
+            ((SXSSFFormulaEvaluator) eval).setRetainReferencedCells(true);
+
+            SXSSFSheet rates = wb.createSheet("rates");
+            SXSSFSheet orders = wb.createSheet("orders");
+            // the formula is set before the referenced rows are flushed
+            Cell total = orders.createRow(0).createCell(0);
+            total.setCellFormula("rates!$A$1*SUM(rates!$B$2:$B$3)");
+
+            rates.createRow(0).createCell(0).setCellValue(1.5);
+            rates.createRow(1).createCell(1).setCellValue(2);
+            rates.createRow(2).createCell(1).setCellValue(4);
+            rates.createRow(3).createCell(1).setCellValue(100);
+            assertEquals(2, rates.getLastFlushedRowNum());
+
+            eval.evaluateFormulaCell(total);
+            assertEquals(9, total.getNumericCellValue());
+            wb.dispose();
+        }
+    }
+
+    @Test
+    void appendedRows() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(5)) {
+            SXSSFFormulaEvaluator eval = new SXSSFFormulaEvaluator(wb);
+            SXSSFSheet sheet = wb.createSheet();
+            sheet.createRow(0).createCell(0).setCellFormula("SUM($B$2:$C$4)");
+            // the formula in the window is picked up, when the tracking is enabled
+            eval.setRetainReferencedCells(true);
+
+            sheet.appendRows(1, new ColumnBatch(3)
+                .addNumericColumn(1, new double[]{1, 2, 3}, 0)
+                .addStringColumn(2, new String[]{"a", null, "c"}, 0));
+            Cell sum = sheet.createRow(4).createCell(0);
+            sum.setCellFormula("SUM(B2:B4)+COUNTA(C2:C4)");
+            eval.evaluateFormulaCell(sum);
+            assertEquals(8, sum.getNumericCellValue());
+            wb.dispose();
+        }
+    }
+
+    @Test
+    void notRetained() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(1)) {
+            SXSSFFormulaEvaluator eval = new SXSSFFormulaEvaluator(wb);
+            eval.setRetainReferencedCells(true);
+            SXSSFSheet sheet = wb.createSheet();
+            sheet.createRow(0).createCell(0).setCellValue(1);
+            sheet.createRow(1).createCell(0).setCellValue(2);
+            // the reference is only known after row 1 has been flushed
+            Cell cell = sheet.createRow(2).createCell(0);
+            cell.setCellFormula("A2*2");
+            assertThrows(SXSSFFormulaEvaluator.RowFlushedException.class, () -> eval.evaluateFormulaCell(cell));
+
+            // but the following rows are retained
+            sheet.createRow(3).createCell(0).setCellValue(21);
+            Cell next = sheet.createRow(4).createCell(0);
+            next.setCellFormula("A4*2");
+            eval.evaluateFormulaCell(next);
+            assertEquals(42, next.getNumericCellValue());
+            wb.dispose();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.binary.XSSFBSharedStringsTable;
+import org.apache.poi.xssf.binary.XSSFBSheetHandler;
+import org.apache.poi.xssf.binary.XSSFBStylesTable;
+import org.apache.poi.xssf.eventusermodel.XSSFBReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+final class TestSXSSFBWorkbook {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void roundTrip(boolean useSharedStrings) throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (SXSSFBWorkbook wb = new SXSSFBWorkbook(10, true, useSharedStrings)) {
+            CellStyle dateStyle = wb.createCellStyle();
+            dateStyle.setDataFormat(wb.createDataFormat().getFormat("yyyy-mm-dd"));
+            CellStyle percentStyle = wb.createCellStyle();
+            percentStyle.setDataFormat(wb.createDataFormat().getFormat("0.0%"));
+
+            SXSSFSheet data = wb.createSheet("data");
+            Row header = data.createRow(0);
+            header.createCell(0).setCellValue("name");
+            header.createCell(1).setCellValue("value");
+            header.createCell(2).setCellValue("\u00fcbersicht \u4e2d");
+            for (int i = 1; i <= 100; i++) {
+                Row row = data.createRow(i);
+                row.createCell(0).setCellValue("row " + i);
+                row.createCell(1).setCellValue(i);
+                row.createCell(2).setCellValue(i + 0.25);
+            }
+            Row special = data.createRow(102);
+            special.createCell(0).setCellValue(true);
+            special.createCell(1).setCellErrorValue(FormulaError.DIV0.getCode());
+            special.createCell(2).setCellValue(-1e300);
+            special.createCell(3).setCellValue(43831);
+            special.getCell(3).setCellStyle(dateStyle);
+            special.createCell(4).setCellValue(0.125);
+            special.getCell(4).setCellStyle(percentStyle);
+            special.createCell(5).setCellValue((1 << 29) + 1);
+            data.addMergedRegion(new CellRangeAddress(103, 103, 0, 2));
+            data.setColumnWidth(0, 20 * 256);
+
+            SXSSFSheet calc = wb.createSheet("calc");
+            Row row = calc.createRow(0);
+            row.createCell(0).setCellValue(2);
+            row.createCell(1).setCellFormula("A1*21");
+            row.getCell(1).setCellValue(42);
+            row.createCell(2).setCellFormula("IF(A1>1,\"big\",\"small\")");
+            row.getCell(2).setCellValue("big");
+            row.createCell(3).setCellFormula("data!B2");
+            row.getCell(3).setCellValue(1);
+
+            wb.write(bos);
+            wb.dispose();
+        }
+
+        List<Map<String, String>> sheets = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        try (OPCPackage pkg = OPCPackage.open(bos.toInputStream())) {
+            XSSFBReader r = new XSSFBReader(pkg);
+            XSSFBSharedStringsTable sst = new XSSFBSharedStringsTable(pkg);
+            XSSFBStylesTable styles = r.getXSSFBStylesTable();
+            XSSFBReader.SheetIterator it = (XSSFBReader.SheetIterator) r.getSheetsData();
+            while (it.hasNext()) {
+                try (InputStream is = it.next()) {
+                    names.add(it.getSheetName());
+                    CellCollector collector = new CellCollector();
+                    new XSSFBSheetHandler(is, styles, it.getXSSFBSheetComments(), sst, collector,
+                        new DataFormatter(), false).parse();
+                    sheets.add(collector.cells);
+                }
+            }
+        }
+
+        assertEquals("[data, calc]", names.toString());
+        Map<String, String> data = sheets.get(0);
+        assertEquals("name", data.get("A1"));
+        assertEquals("\u00fcbersicht \u4e2d", data.get("C1"));
+        assertEquals("row 100", data.get("A101"));
+        assertEquals("100", data.get("B101"));
+        assertEquals("100.25", data.get("C101"));
+        assertEquals("TRUE", data.get("A103"));
+        assertEquals("#DIV/0!", data.get("B103"));
+        assertEquals("-1E+300", data.get("C103"));
+        assertEquals("2020-01-01", data.get("D103"));
+        assertEquals("12.5%", data.get("E103"));
+        assertEquals("536870913", data.get("F103"));
+        assertEquals(3 * 101 + 6, data.size());
+
+        Map<String, String> calc = sheets.get(1);
+        assertEquals("2", calc.get("A1"));
+        assertEquals("42", calc.get("B1"));
+        assertEquals("big", calc.get("C1"));
+        // the cross sheet formula is written as value
+        assertEquals("1", calc.get("D1"));
+    }
+
+    @Test
+    void rejectsUnsupportedOptions() throws Exception {
+        try (SXSSFBWorkbook wb = new SXSSFBWorkbook();
+             SpillingSheetDataStore store = new SpillingSheetDataStore(1024)) {
+            assertThrows(IllegalArgumentException.class, () -> wb.setSheetDataStore(store));
+            assertThrows(IllegalArgumentException.class, () -> wb.setParallelWriteThreads(2));
+            assertThrows(IllegalArgumentException.class, () -> wb.setUseUtf8SheetDataWriter(true));
+            wb.setSheetDataStore(null);
+            wb.setParallelWriteThreads(1);
+            wb.setUseUtf8SheetDataWriter(false);
+            assertNull(wb.getSheetDataStore());
+            assertEquals(1, wb.getParallelWriteThreads());
+            assertFalse(wb.isUseUtf8SheetDataWriter());
+            wb.dispose();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void emptyWorkbook(boolean useSharedStrings) throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (SXSSFBWorkbook wb = new SXSSFBWorkbook(10, false, useSharedStrings)) {
+            wb.createSheet("empty");
+            wb.write(bos);
+            wb.dispose();
+        }
+        try (OPCPackage pkg = OPCPackage.open(bos.toInputStream())) {
+            XSSFBReader.SheetIterator it = (XSSFBReader.SheetIterator) new XSSFBReader(pkg).getSheetsData();
+            it.next().close();
+            assertEquals("empty", it.getSheetName());
+            assertFalse(it.hasNext());
+        }
+    }
+
+    private static final class CellCollector implements SheetContentsHandler {
+        private final Map<String, String> cells = new LinkedHashMap<>();
+
+        @Override
+        public void startRow(int rowNum) {
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            cells.put(cellReference, formattedValue);
+        }
+    }
+}
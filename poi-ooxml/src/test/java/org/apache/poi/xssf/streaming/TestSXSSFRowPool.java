@@ -0,0 +1,147 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public final class TestSXSSFRowPool {
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 100})
+    void reuseRowsAndCells(int backgroundQueueSize) throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(null, 5, false, true)) {
+            wb.setBackgroundFlushQueueSize(backgroundQueueSize);
+            CellStyle style = wb.createCellStyle();
+            style.setDataFormat(wb.createDataFormat().getFormat("0.0"));
+
+            SXSSFSheet sheet = wb.createSheet("pooled");
+            assertFalse(sheet.isRowPoolingEnabled());
+            sheet.setRowPoolingEnabled(true);
+            assertTrue(sheet.isRowPoolingEnabled());
+            for (int i = 0; i < 3000; i++) {
+                SXSSFRow row = sheet.createRow(i);
+                if (i % 2 == 0) {
+                    row.setHeightInPoints(20);
+                    row.createCell(0).setCellValue("text " + i);
+                    row.createCell(2).setCellValue(i);
+                } else {
+                    row.createCell(1).setCellValue(i % 3 == 0);
+                    row.createCell(2, CellType.STRING);
+                    row.getCell(2).setCellValue(i);
+                    row.getCell(2).setCellStyle(style);
+                }
+            }
+            SXSSFRowPool pool = sheet.getRowPool();
+            wb.write(bos);
+            assertTrue(pool.getReusedRowCount() > 2000);
+            assertTrue(pool.getReusedCellCount() > 4000);
+            wb.dispose();
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            XSSFSheet sheet = wb.getSheet("pooled");
+            assertEquals(2999, sheet.getLastRowNum());
+            for (int i = 0; i < 3000; i++) {
+                XSSFRow row = sheet.getRow(i);
+                if (i % 2 == 0) {
+                    assertEquals(20, row.getHeightInPoints());
+                    assertEquals("text " + i, row.getCell(0).getStringCellValue());
+                    assertNull(row.getCell(1));
+                    assertEquals(i, row.getCell(2).getNumericCellValue());
+                    assertEquals("General", row.getCell(2).getCellStyle().getDataFormatString());
+                } else {
+                    assertEquals(sheet.getDefaultRowHeightInPoints(), row.getHeightInPoints());
+                    assertNull(row.getCell(0));
+                    assertEquals(i % 3 == 0, row.getCell(1).getBooleanCellValue());
+                    assertEquals(i, row.getCell(2).getNumericCellValue());
+                    assertEquals("0.0", row.getCell(2).getCellStyle().getDataFormatString());
+                }
+            }
+        }
+    }
+
+    @Test
+    void staleReferencesFail() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(1)) {
+            SXSSFSheet sheet = wb.createSheet();
+            sheet.setRowPoolingEnabled(true);
+            SXSSFRow row = sheet.createRow(0);
+            SXSSFCell cell = row.createCell(0);
+            cell.setCellValue(1);
+            SXSSFCell formula = row.createCell(1);
+            formula.setCellFormula("A1*2");
+
+            // flushes row 0, which is recycled
+            sheet.createRow(1);
+            assertThrows(IllegalStateException.class, row::getRowNum);
+            assertThrows(IllegalStateException.class, () -> row.createCell(3));
+            assertThrows(IllegalStateException.class, () -> row.getCell(0));
+            assertThrows(IllegalStateException.class, cell::getNumericCellValue);
+            assertThrows(IllegalStateException.class, () -> cell.setCellValue("x"));
+            assertThrows(IllegalStateException.class, cell::getRowIndex);
+            assertThrows(IllegalStateException.class, formula::getCellFormula);
+
+            // the recycled objects are reused, but formula cells are not
+            SXSSFRow reused = sheet.createRow(2);
+            assertSame(row, reused);
+            assertEquals(2, reused.getRowNum());
+            assertEquals(-1, reused.getLastCellNum());
+            SXSSFCell first = reused.createCell(5);
+            assertSame(cell, first);
+            assertEquals(CellType.BLANK, first.getCellType());
+            assertEquals(5, first.getColumnIndex());
+            assertNotSame(formula, reused.createCell(6));
+            wb.dispose();
+        }
+    }
+
+    @Test
+    void disablePooling() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(1)) {
+            SXSSFSheet sheet = wb.createSheet();
+            sheet.setRowPoolingEnabled(true);
+            SXSSFRow row = sheet.createRow(0);
+            sheet.setRowPoolingEnabled(false);
+            assertNull(sheet.getRowPool());
+            sheet.createRow(1);
+            // without pooling, flushed rows stay accessible
+            assertEquals(0, row.getRowNum());
+            assertNotSame(row, sheet.createRow(2));
+            wb.dispose();
+        }
+    }
+}
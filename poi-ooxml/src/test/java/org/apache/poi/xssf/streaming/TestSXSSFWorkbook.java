@@ -36,6 +36,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
 
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
 import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.apache.poi.POIDataSamples;
 import org.apache.poi.common.usermodel.HyperlinkType;
@@ -65,6 +66,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
 public final class TestSXSSFWorkbook extends BaseTestXWorkbook {
@@ -640,6 +642,50 @@ public final class TestSXSSFWorkbook extends BaseTestXWorkbook {
         }
     }
 
+    @ParameterizedTest
+    @EnumSource(value = Zip64Mode.class, names = {"Always", "AsNeeded"})
+    void parallelWrite(Zip64Mode zip64Mode) throws IOException {
+        try (
+                SXSSFWorkbook wb = new SXSSFWorkbook(null, 10, false, true);
+                UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream()
+        ) {
+            wb.setZip64Mode(zip64Mode);
+            wb.setParallelWriteThreads(3);
+            assertEquals(3, wb.getParallelWriteThreads());
+            for (int s = 0; s < 5; s++) {
+                SXSSFSheet sheet = wb.createSheet("S" + s);
+                for (int r = 0; r < 200; r++) {
+                    Row row = sheet.createRow(r);
+                    row.createCell(0).setCellValue("S" + s + "R" + r);
+                    row.createCell(1).setCellValue(r * 1.5);
+                }
+            }
+            wb.write(bos);
+            assertTrue(wb.dispose());
+
+            try (XSSFWorkbook xssfWorkbook = new XSSFWorkbook(bos.toInputStream())) {
+                assertEquals(5, xssfWorkbook.getNumberOfSheets());
+                for (int s = 0; s < 5; s++) {
+                    XSSFSheet sheet = xssfWorkbook.getSheetAt(s);
+                    assertEquals("S" + s, sheet.getSheetName());
+                    assertEquals(199, sheet.getLastRowNum());
+                    for (int r = 0; r < 200; r++) {
+                        assertEquals("S" + s + "R" + r, sheet.getRow(r).getCell(0).getStringCellValue());
+                        assertEquals(r * 1.5, sheet.getRow(r).getCell(1).getNumericCellValue(), 0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void parallelWriteThreadsMustBePositive() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook()) {
+            assertEquals(1, wb.getParallelWriteThreads());
+            assertThrows(IllegalArgumentException.class, () -> wb.setParallelWriteThreads(0));
+        }
+    }
+
     @Test
     void getStylesSource() throws IOException {
         try (SXSSFWorkbook workbook = new SXSSFWorkbook()) {
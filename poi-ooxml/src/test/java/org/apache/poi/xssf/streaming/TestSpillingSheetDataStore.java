@@ -0,0 +1,154 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+public final class TestSpillingSheetDataStore {
+
+    @Test
+    void keepsDataInMemoryWithinBudget() throws IOException {
+        try (SpillingSheetDataStore store = new SpillingSheetDataStore(1024 * 1024, 1000, 1)) {
+            byte[] data = createData(10_000);
+            SheetDataStore.SheetData sheetData = store.createSheetData();
+            writeAndClose(sheetData, data);
+
+            assertArrayEquals(data, readAll(sheetData));
+            // read a second time, e.g. when the workbook is written twice
+            assertArrayEquals(data, readAll(sheetData));
+
+            assertTrue(store.getBytesInMemory() > 0);
+            assertEquals(0, store.getBytesSpilled());
+            assertEquals(data.length, store.getBytesWritten());
+            assertNull(store.getSpillFile());
+
+            assertTrue(sheetData.dispose());
+            assertEquals(0, store.getBytesInMemory());
+            assertThrows(IOException.class, sheetData::getInputStream);
+        }
+    }
+
+    @Test
+    void spillsToSharedFile() throws IOException {
+        File spillFile;
+        try (SpillingSheetDataStore store = new SpillingSheetDataStore(2000, 1000, 1)) {
+            byte[] data1 = createData(20_000);
+            byte[] data2 = createData(30_000);
+            SheetDataStore.SheetData sheetData1 = store.createSheetData();
+            SheetDataStore.SheetData sheetData2 = store.createSheetData();
+            // interleave the writes of both sheets
+            OutputStream os1 = sheetData1.getOutputStream();
+            OutputStream os2 = sheetData2.getOutputStream();
+            for (int i = 0; i < 10; i++) {
+                os1.write(data1, i * 2000, 2000);
+                os2.write(data2, i * 3000, 3000);
+            }
+            os1.close();
+            os2.close();
+
+            assertTrue(store.getBytesInMemory() <= 2000);
+            assertTrue(store.getBytesSpilled() > 0);
+            spillFile = store.getSpillFile();
+            assertNotNull(spillFile);
+            assertTrue(spillFile.exists());
+
+            assertArrayEquals(data1, readAll(sheetData1));
+            assertArrayEquals(data2, readAll(sheetData2));
+        }
+        assertFalse(spillFile.exists());
+    }
+
+    @Test
+    void workbookWithStore() throws IOException {
+        try (
+                SpillingSheetDataStore store = new SpillingSheetDataStore(4096);
+                SXSSFWorkbook wb = new SXSSFWorkbook(10);
+                UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream()
+        ) {
+            wb.setSheetDataStore(store);
+            assertEquals(store, wb.getSheetDataStore());
+            for (int s = 0; s < 3; s++) {
+                SXSSFSheet sheet = wb.createSheet();
+                assertTrue(sheet.getSheetDataWriter() instanceof SheetDataStoreWriter);
+                for (int r = 0; r < 1000; r++) {
+                    Row row = sheet.createRow(r);
+                    row.createCell(0).setCellValue("Sheet " + s + " row " + r);
+                    row.createCell(1).setCellValue(r);
+                }
+            }
+            wb.write(bos);
+            assertTrue(store.getBytesSpilled() > 0);
+            assertTrue(wb.dispose());
+            assertEquals(0, store.getBytesInMemory());
+
+            try (XSSFWorkbook xssfWorkbook = new XSSFWorkbook(bos.toInputStream())) {
+                for (int s = 0; s < 3; s++) {
+                    XSSFSheet sheet = xssfWorkbook.getSheetAt(s);
+                    assertEquals(999, sheet.getLastRowNum());
+                    assertEquals("Sheet " + s + " row 500", sheet.getRow(500).getCell(0).getStringCellValue());
+                    assertEquals(500, sheet.getRow(500).getCell(1).getNumericCellValue(), 0);
+                }
+            }
+        }
+    }
+
+    private static byte[] createData(int length) {
+        // compressible, but not trivially
+        Random rnd = new Random(length);
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte)('a' + rnd.nextInt(8));
+        }
+        return data;
+    }
+
+    private static void writeAndClose(SheetDataStore.SheetData sheetData, byte[] data) throws IOException {
+        try (OutputStream os = sheetData.getOutputStream()) {
+            os.write(data, 0, 10);
+            os.write(data[10]);
+            os.write(data, 11, data.length - 11);
+        }
+    }
+
+    private static byte[] readAll(SheetDataStore.SheetData sheetData) throws IOException {
+        try (InputStream is = sheetData.getInputStream()) {
+            return IOUtils.toByteArray(is);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public final class TestStreamingSharedStringsTable {
+
+    @Test
+    void deduplicate() throws IOException {
+        try (StreamingSharedStringsTable sst = new StreamingSharedStringsTable(0)) {
+            // without hot set, every lookup goes through the off-heap index and the written entries
+            int count = 100_000;
+            for (int i = 0; i < count; i++) {
+                assertEquals(i, sst.addSharedString("value " + i));
+            }
+            for (int i = count - 1; i >= 0; i -= 7) {
+                assertEquals(i, sst.addSharedString("value " + i));
+            }
+            assertEquals(count, sst.getUniqueCount());
+            assertEquals(count + (count + 6) / 7, sst.getCount());
+            assertEquals("value 0", sst.getItemAt(0).getString());
+            assertEquals("value 4711", sst.getItemAt(4711).getString());
+            assertEquals("value 99999", sst.getItemAt(count - 1).getString());
+        }
+    }
+
+    @Test
+    void escaping() throws IOException {
+        String[] values = {
+            "", " leading", "trailing\t", "<a & b>", "line\nbreak\r\n", "\u00E4\u00F6\u00FC \u20AC \uD83D\uDE00", "ctrl\u0001"
+        };
+        try (StreamingSharedStringsTable sst = new StreamingSharedStringsTable()) {
+            for (String value : values) {
+                sst.addSharedString(value);
+            }
+            for (int i = 0; i < values.length - 1; i++) {
+                assertEquals(values[i], sst.getItemAt(i).getString());
+            }
+            // XmlBeans replaces control characters too
+            assertEquals("ctrl?", sst.getItemAt(values.length - 1).getString());
+
+            UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+            sst.writeTo(bos);
+            SharedStringsTable parsed = new SharedStringsTable();
+            parsed.readFrom(bos.toInputStream());
+            assertEquals(values.length, parsed.getUniqueCount());
+            assertEquals(values.length, parsed.getCount());
+            assertEquals("<a & b>", parsed.getItemAt(3).getString());
+            assertEquals(values[5], parsed.getItemAt(5).getString());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2})
+    void writeWorkbook(int threads) throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(null, 10, false, new StreamingSharedStringsTable(16))) {
+            wb.setParallelWriteThreads(threads);
+            Font bold = wb.createFont();
+            bold.setBold(true);
+
+            SXSSFSheet sheet = wb.createSheet("strings");
+            for (int i = 0; i < 1000; i++) {
+                SXSSFRow row = sheet.createRow(i);
+                row.createCell(0).setCellValue("row " + i);
+                row.createCell(1).setCellValue("group " + (i % 10));
+            }
+            XSSFRichTextString rt = new XSSFRichTextString("bold text");
+            rt.applyFont(0, 4, bold);
+            sheet.createRow(1000).createCell(0).setCellValue(rt);
+            sheet.appendRows(1001, new ColumnBatch(1).addStringColumn(0, new String[]{"group 3"}, 0));
+
+            StreamingSharedStringsTable sst = wb.getStreamingSharedStrings();
+            wb.write(bos);
+            assertEquals(1011, sst.getUniqueCount());
+            assertEquals(2002, sst.getCount());
+            wb.dispose();
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            SharedStringsTable sst = wb.getSharedStringSource();
+            assertEquals(1011, sst.getUniqueCount());
+            assertEquals(2002, sst.getCount());
+
+            XSSFSheet sheet = wb.getSheet("strings");
+            assertEquals("row 999", sheet.getRow(999).getCell(0).getStringCellValue());
+            assertEquals("group 9", sheet.getRow(999).getCell(1).getStringCellValue());
+            XSSFRichTextString rt = sheet.getRow(1000).getCell(0).getRichStringCellValue();
+            assertEquals("bold text", rt.getString());
+            assertEquals(2, rt.numFormattingRuns());
+            assertEquals("group 3", sheet.getRow(1001).getCell(0).getStringCellValue());
+        }
+    }
+
+    @Test
+    void templateStrings() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook template = new XSSFWorkbook()) {
+            XSSFSheet tsheet = template.createSheet("template");
+            tsheet.createRow(0).createCell(0).setCellValue("a");
+            tsheet.createRow(1).createCell(0).setCellValue("b");
+
+            try (SXSSFWorkbook wb = new SXSSFWorkbook(template, 10, false, new StreamingSharedStringsTable())) {
+                SXSSFSheet sheet = wb.createSheet("streamed");
+                sheet.createRow(0).createCell(0).setCellValue("c");
+                sheet.createRow(1).createCell(0).setCellValue("a");
+                wb.write(bos);
+                wb.dispose();
+            }
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            XSSFSheet template = wb.getSheet("template");
+            assertEquals("a", template.getRow(0).getCell(0).getStringCellValue());
+            assertEquals("b", template.getRow(1).getCell(0).getStringCellValue());
+            XSSFSheet streamed = wb.getSheet("streamed");
+            assertEquals("c", streamed.getRow(0).getCell(0).getStringCellValue());
+            assertEquals("a", streamed.getRow(1).getCell(0).getStringCellValue());
+            assertTrue(wb.getSharedStringSource().getUniqueCount() >= 3);
+        }
+    }
+
+    @Test
+    void templateStringsAreReused() throws IOException {
+        String[] values = { "a", " leading", "<a & b>", "\u00E4\u20AC" };
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook template = new XSSFWorkbook()) {
+            XSSFSheet tsheet = template.createSheet("template");
+            for (int i = 0; i < values.length; i++) {
+                tsheet.createRow(i).createCell(0).setCellValue(values[i]);
+            }
+
+            // without hot set, the template strings can only be found via the index
+            try (SXSSFWorkbook wb = new SXSSFWorkbook(template, 10, false, new StreamingSharedStringsTable(0))) {
+                StreamingSharedStringsTable sst = wb.getStreamingSharedStrings();
+                for (int i = 0; i < values.length; i++) {
+                    assertEquals(i, sst.addSharedString(values[i]));
+                    assertEquals(i, sst.addSharedStringItem(new XSSFRichTextString(values[i])));
+                }
+                assertEquals(values.length, sst.getUniqueCount());
+
+                SXSSFSheet sheet = wb.createSheet("streamed");
+                sheet.createRow(0).createCell(0).setCellValue("a");
+                wb.write(bos);
+                assertEquals(values.length, sst.getUniqueCount());
+                wb.dispose();
+            }
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            assertEquals(values.length, wb.getSharedStringSource().getUniqueCount());
+            assertEquals("0", wb.getSheet("streamed").getRow(0).getCell(0).getCTCell().getV());
+        }
+    }
+
+    @Test
+    void invalidUsage() throws IOException {
+        StreamingSharedStringsTable nonEmpty = new StreamingSharedStringsTable();
+        nonEmpty.addSharedString("x");
+        assertThrows(IllegalArgumentException.class, () -> new SXSSFWorkbook(null, 1, false, nonEmpty));
+        assertThrows(IllegalArgumentException.class, () -> new SXSSFWorkbook(null, 1, false, (StreamingSharedStringsTable)null));
+        nonEmpty.close();
+        assertThrows(IllegalStateException.class, () -> nonEmpty.addSharedString("y"));
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+
+public final class TestUtf8SheetDataWriter {
+
+    @Test
+    void formatDoubles() throws IOException {
+        assertEquals("0", formatDouble(0));
+        assertEquals("0", formatDouble(-0.0));
+        assertEquals("1", formatDouble(1));
+        assertEquals("-1.5", formatDouble(-1.5));
+        assertEquals("123.45", formatDouble(123.45));
+        assertEquals("0.001", formatDouble(0.001));
+        assertEquals("0.1", formatDouble(0.1));
+        assertEquals("1234567890123", formatDouble(1234567890123d));
+        assertEquals("1.0E300", formatDouble(1e300));
+        assertEquals("NaN", formatDouble(Double.NaN));
+        assertEquals("-Infinity", formatDouble(Double.NEGATIVE_INFINITY));
+
+        Random rnd = new Random(4711);
+        for (int i = 0; i < 100_000; i++) {
+            double d;
+            switch (i % 4) {
+                case 0: d = Double.longBitsToDouble(rnd.nextLong()); break;
+                case 1: d = rnd.nextDouble(); break;
+                case 2: d = Math.round(rnd.nextDouble() * 1e8) / 100d; break;
+                default: d = (rnd.nextInt() / 1000d); break;
+            }
+            String str = formatDouble(d);
+            if (Double.isNaN(d)) {
+                assertEquals("NaN", str);
+            } else {
+                assertEquals(d, Double.parseDouble(str), str);
+            }
+        }
+    }
+
+    @Test
+    void cellReferences() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (Utf8Writer writer = new Utf8Writer(bos)) {
+            writer.writeCellReference(0, 0);
+            writer.write(' ');
+            writer.writeCellReference(99, 27);
+            writer.write(' ');
+            writer.writeCellReference(1048575, 16383);
+        }
+        assertEquals("A1 AB100 XFD1048576", bos.toString(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void pendingHighSurrogate() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (Utf8Writer writer = new Utf8Writer(bos)) {
+            writer.write("a\uD835");
+            writer.writeAscii('<');
+            writer.write('\uD835');
+            writer.writeAscii(new byte[]{'/', '>'});
+            writer.write('\uD835');
+            writer.writeDouble(1.5);
+            writer.write('\uD835');
+            writer.writeLong(2);
+            writer.write('\uD835');
+            writer.writeCellReference(0, 0);
+            writer.write('\uD835');
+        }
+        assertEquals("a?<?/>?1.5?2?A1?", bos.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void escapingMatchesSheetDataWriter() throws IOException {
+        String[] values = {
+            "plain", "<tag attr=\"x\">&amp;</tag>", "line\r\nbreak\ttab",
+            "nbsp\u00A0\u00E4\u20AC", "ctrl\u0001\u001F\uFFFE",
+            "\uD835\uDF4A\uD835\uDF4B surrogates", "lone \uD835 high", "lone \uDF4A low", "end \uD835"
+        };
+        for (String value : values) {
+            UnsynchronizedByteArrayOutputStream expected = new UnsynchronizedByteArrayOutputStream();
+            try (Writer w = new OutputStreamWriter(expected, StandardCharsets.UTF_8);
+                 SheetDataWriter writer = new SheetDataWriter(w)) {
+                writer.outputEscapedString(value);
+            }
+            UnsynchronizedByteArrayOutputStream actual = new UnsynchronizedByteArrayOutputStream();
+            try (SheetDataWriter writer = new Utf8SheetDataWriter(actual, null)) {
+                writer.outputEscapedString(value);
+            }
+            assertEquals(expected.toString(StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8), value);
+        }
+    }
+
+    @Test
+    void rowMatchesSheetDataWriter() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook()) {
+            CellStyle style = wb.createCellStyle();
+            SXSSFSheet sheet = wb.createSheet();
+            SXSSFRow row = sheet.createRow(41);
+            row.setHeightInPoints(20);
+            row.createCell(0).setCellValue(" text with <markup> ");
+            row.createCell(1).setCellValue(true);
+            row.createCell(2).setCellErrorValue(FormulaError.DIV0.getCode());
+            row.createCell(3).setCellFormula("A1&\"x\"");
+            row.createCell(5).setCellValue(12.5);
+            row.getCell(5).setCellStyle(style);
+            row.createCell(6);
+
+            UnsynchronizedByteArrayOutputStream expected = new UnsynchronizedByteArrayOutputStream();
+            try (Writer w = new OutputStreamWriter(expected, StandardCharsets.UTF_8);
+                 SheetDataWriter writer = new SheetDataWriter(w)) {
+                writer.writeRow(41, row);
+            }
+            UnsynchronizedByteArrayOutputStream actual = new UnsynchronizedByteArrayOutputStream();
+            try (SheetDataWriter writer = new Utf8SheetDataWriter(actual, null)) {
+                writer.writeRow(41, row);
+                assertEquals(1, writer.getNumberOfFlushedRows());
+                assertEquals(41, writer.getLastFlushedRow());
+            }
+            // integral numbers are written without fraction
+            String expectedXml = expected.toString(StandardCharsets.UTF_8).replace("<v>0.0</v>", "<v>0</v>");
+            assertEquals(expectedXml, actual.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void writeWorkbook(boolean compressTempFiles) throws IOException {
+        for (boolean useSharedStrings : new boolean[]{false, true}) {
+            try (
+                    SXSSFWorkbook wb = new SXSSFWorkbook(null, 10, compressTempFiles, useSharedStrings);
+                    UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream()
+            ) {
+                wb.setUseUtf8SheetDataWriter(true);
+                SXSSFSheet sheet = wb.createSheet();
+                assertTrue(sheet.getSheetDataWriter() instanceof Utf8SheetDataWriter);
+                for (int r = 0; r < 100; r++) {
+                    Row row = sheet.createRow(r);
+                    row.createCell(0).setCellValue("r\u00E4w " + r);
+                    row.createCell(1).setCellValue(r / 4d);
+                    row.createCell(2).setCellFormula("B" + (r + 1) + "*2");
+                }
+                wb.write(bos);
+                assertTrue(wb.dispose());
+
+                try (XSSFWorkbook xssfWorkbook = new XSSFWorkbook(bos.toInputStream())) {
+                    XSSFSheet xs = xssfWorkbook.getSheetAt(0);
+                    assertEquals(99, xs.getLastRowNum());
+                    for (int r = 0; r < 100; r++) {
+                        assertEquals("r\u00E4w " + r, xs.getRow(r).getCell(0).getStringCellValue());
+                        assertEquals(r / 4d, xs.getRow(r).getCell(1).getNumericCellValue(), 0);
+                        assertEquals("B" + (r + 1) + "*2", xs.getRow(r).getCell(2).getCellFormula());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void writeToStore() throws IOException {
+        try (
+                SpillingSheetDataStore store = new SpillingSheetDataStore(1024 * 1024);
+                SXSSFWorkbook wb = new SXSSFWorkbook(10)
+        ) {
+            wb.setSheetDataStore(store);
+            wb.setUseUtf8SheetDataWriter(true);
+            SXSSFSheet sheet = wb.createSheet();
+            sheet.createRow(0).createCell(0).setCellValue(42);
+            try (InputStream is = sheet.getWorksheetXMLInputStream()) {
+                String xml = new String(IOUtils.toByteArray(is), StandardCharsets.UTF_8);
+                assertEquals("<row r=\"1\">\n<c r=\"A1\" t=\"n\"><v>42</v></c></row>\n", xml);
+            }
+            assertTrue(wb.dispose());
+        }
+    }
+
+    private static String formatDouble(double d) throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (Utf8Writer writer = new Utf8Writer(bos)) {
+            writer.writeDouble(d);
+        }
+        return bos.toString(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,174 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.xssf.XSSFTestDataSamples;
+import org.junit.jupiter.api.Test;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
+
+/**
+ * Tests for the compact cells of {@link XSSFReadOptions#isCompactCells()}
+ */
+final class TestXSSFCompactCells {
+    private static final XSSFReadOptions COMPACT = new XSSFReadOptions.Builder().compactCells(true).build();
+
+    @Test
+    void readsCellsWithoutXmlBeans() throws Exception {
+        try (XSSFWorkbook wb = openCompact(createSample())) {
+            XSSFSheet sheet = wb.getSheetAt(0);
+            XSSFRow row = sheet.getRow(0);
+            for (int i = 0; i < 6; i++) {
+                assertTrue(row.getCell(i).isCompact(), "cell " + i);
+            }
+            // rich text is kept as inline string in a xml bean
+            assertFalse(row.getCell(6).isCompact());
+            assertEquals(1, row.getCTRow().sizeOfCArray());
+
+            assertEquals(42.5, row.getCell(0).getNumericCellValue(), 0);
+            assertEquals("text & <more>", row.getCell(1).getStringCellValue());
+            assertTrue(row.getCell(2).getBooleanCellValue());
+            assertEquals(FormulaError.DIV0.getCode(), row.getCell(3).getErrorCellValue());
+            assertEquals(CellType.FORMULA, row.getCell(4).getCellType());
+            assertEquals("A1*2", row.getCell(4).getCellFormula());
+            assertEquals(CellType.NUMERIC, row.getCell(4).getCachedFormulaResultType());
+            assertEquals(85, row.getCell(4).getNumericCellValue(), 0);
+            assertEquals(CellType.BLANK, row.getCell(5).getCellType());
+            assertEquals("0.00", row.getCell(5).getCellStyle().getDataFormatString());
+            assertEquals("inline", row.getCell(6).getStringCellValue());
+        }
+    }
+
+    @Test
+    void roundTripsChangedCells() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = openCompact(createSample())) {
+            XSSFSheet sheet = wb.getSheetAt(0);
+            XSSFRow row = sheet.getRow(0);
+            row.getCell(0).setCellValue("changed");
+            row.getCell(1).setCellFormula("A1&\"!\"");
+            row.removeCell(row.getCell(2));
+            XSSFCell created = row.createCell(10);
+            assertTrue(created.isCompact());
+            created.setCellValue(7);
+            sheet.createRow(3).createCell(0).setCellValue(true);
+            wb.setSheetName(0, "renamed");
+            wb.write(bos);
+
+            // the xml beans are only created for the save
+            assertTrue(row.getCell(0).isCompact());
+            assertTrue(created.isCompact());
+            assertEquals(1, row.getCTRow().sizeOfCArray());
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            XSSFSheet sheet = wb.getSheet("renamed");
+            XSSFRow row = sheet.getRow(0);
+            assertEquals("changed", row.getCell(0).getStringCellValue());
+            assertEquals("A1&\"!\"", row.getCell(1).getCellFormula());
+            assertNull(row.getCell(2));
+            assertEquals(FormulaError.DIV0.getCode(), row.getCell(3).getErrorCellValue());
+            assertEquals("A1*2", row.getCell(4).getCellFormula());
+            assertEquals("0.00", row.getCell(5).getCellStyle().getDataFormatString());
+            assertEquals("inline", row.getCell(6).getStringCellValue());
+            assertEquals(7, row.getCell(10).getNumericCellValue(), 0);
+            assertTrue(sheet.getRow(3).getCell(0).getBooleanCellValue());
+
+            // the cells are written in the order of their columns
+            assertEquals(7, row.getCTRow().sizeOfCArray());
+            assertEquals("K1", row.getCTRow().getCArray(6).getR());
+        }
+    }
+
+    @Test
+    void shiftsFormulasOfCompactCells() throws Exception {
+        try (XSSFWorkbook wb = openCompact(createSample())) {
+            XSSFSheet sheet = wb.getSheetAt(0);
+            sheet.shiftRows(0, 0, 2);
+            XSSFCell cell = sheet.getRow(2).getCell(4);
+            assertEquals("A3*2", cell.getCellFormula());
+        }
+    }
+
+    @Test
+    void filtersSimpleCells() throws IOException {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+            + "<row r=\"1\"><c r=\"A1\" s=\"2\"><v>1.50</v></c><c r=\"B1\" t=\"inlineStr\"><is><t>x</t></is></c>"
+            + "<c r=\"C1\" t=\"str\"><f>\"a\"&amp;\"b\"</f><v>ab</v></c></row>"
+            + "<row r=\"2\"><c r=\"A2\" cm=\"1\"><v>1</v></c></row>"
+            + "</sheetData></worksheet>";
+        CompactCellFilter filter = new CompactCellFilter(
+            new UnsynchronizedByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        String filtered = new String(IOUtils.toByteArray(filter), StandardCharsets.UTF_8);
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+            + "<row r=\"1\"><c r=\"B1\" t=\"inlineStr\"><is><t>x</t></is></c></row>"
+            + "<row r=\"2\"><c r=\"A2\" cm=\"1\"><v>1</v></c></row>"
+            + "</sheetData></worksheet>", filtered);
+
+        List<CompactCells> rows = filter.getRows();
+        assertEquals(1, rows.size());
+        CompactCells cells = rows.get(0);
+        assertEquals(2, cells.size());
+        assertEquals(0, cells.getPosition(0));
+        assertEquals(2, cells.getPosition(1));
+    }
+
+    private static XSSFWorkbook openCompact(byte[] data) throws Exception {
+        InputStream is = new UnsynchronizedByteArrayInputStream(data);
+        return new XSSFWorkbook(OPCPackage.open(is), COMPACT);
+    }
+
+    private static byte[] createSample() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet("data");
+            XSSFRow row = sheet.createRow(0);
+            row.createCell(0).setCellValue(42.5);
+            row.createCell(1).setCellValue("text & <more>");
+            row.createCell(2).setCellValue(true);
+            row.createCell(3).setCellErrorValue(FormulaError.DIV0);
+            XSSFCell formula = row.createCell(4);
+            formula.setCellFormula("A1*2");
+            formula.setCellValue(85);
+            XSSFCellStyle style = wb.createCellStyle();
+            style.setDataFormat(wb.createDataFormat().getFormat("0.00"));
+            row.createCell(5).setCellStyle(style);
+            XSSFCell inline = row.createCell(6);
+            inline.getCTCell().setT(STCellType.INLINE_STR);
+            inline.getCTCell().addNewIs().setT("inline");
+            return XSSFTestDataSamples.writeOut(wb).toByteArray();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.ooxml.POIXMLDocumentPart;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.SheetVisibility;
+import org.apache.poi.ss.util.AreaReference;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.XSSFTestDataSamples;
+import org.junit.jupiter.api.Test;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTPivotCache;
+
+/**
+ * Tests for the lazy sheets of {@link XSSFReadOptions#isLazySheets()}
+ */
+final class TestXSSFLazySheets {
+    private static final XSSFReadOptions LAZY = new XSSFReadOptions.Builder().lazySheets(true).build();
+
+    @Test
+    void parsesSheetsOnFirstAccess() throws Exception {
+        try (XSSFWorkbook wb = openLazy(createSample())) {
+            assertEquals(3, wb.getNumberOfSheets());
+            assertEquals("second", wb.getSheetName(1));
+            assertEquals(SheetVisibility.HIDDEN, wb.getSheetVisibility(2));
+            assertEquals("second!$A$1", wb.getName("total").getRefersToFormula());
+            for (String name : new String[]{"first", "second", "hidden"}) {
+                assertTrue(isDeferred(wb, name));
+            }
+
+            XSSFSheet second = wb.getSheet("second");
+            assertFalse(second.isDocumentReadDeferred());
+            assertEquals(2.0, second.getRow(0).getCell(0).getNumericCellValue(), 0);
+            assertTrue(isDeferred(wb, "first"));
+
+            // the evaluation of references to other sheets parses them
+            XSSFCell cell = second.getRow(1).getCell(0);
+            assertEquals(3.0, wb.getCreationHelper().createFormulaEvaluator().evaluate(cell).getNumberValue(), 0);
+            assertFalse(isDeferred(wb, "first"));
+            assertTrue(isDeferred(wb, "hidden"));
+        }
+    }
+
+    @Test
+    void writesUntouchedSheetsUnchanged() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = openLazy(createSample())) {
+            wb.getSheetAt(0).getRow(0).getCell(0).setCellValue(5);
+            wb.write(bos);
+            assertTrue(isDeferred(wb, "second"));
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            assertEquals(5.0, wb.getSheetAt(0).getRow(0).getCell(0).getNumericCellValue(), 0);
+            assertEquals(2.0, wb.getSheetAt(1).getRow(0).getCell(0).getNumericCellValue(), 0);
+            assertEquals("first!A1+second!A1", wb.getSheetAt(1).getRow(1).getCell(0).getCellFormula());
+            assertEquals("hidden", wb.getSheetAt(2).getRow(0).getCell(0).getStringCellValue());
+        }
+    }
+
+    @Test
+    void iteratesParsedSheets() throws Exception {
+        try (XSSFWorkbook wb = openLazy(createSample())) {
+            int count = 0;
+            for (Sheet sheet : wb) {
+                assertFalse(((XSSFSheet) sheet).isDocumentReadDeferred());
+                assertNotNull(sheet.getRow(0));
+                count++;
+            }
+            assertEquals(3, count);
+        }
+    }
+
+    @Test
+    void createsPivotTablesNextToDeferredOnes() throws Exception {
+        byte[] data;
+        try (XSSFWorkbook wb = XSSFTestDataSamples.openSampleWorkbook("ExcelPivotTableSample.xlsx")) {
+            data = XSSFTestDataSamples.writeOut(wb).toByteArray();
+        }
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = openLazy(data)) {
+            XSSFSheet first = wb.getSheetAt(0);
+            assertTrue(isDeferred(wb, "Tabelle2"));
+            first.createPivotTable(new AreaReference("A1:G4", SpreadsheetVersion.EXCEL2007), new CellReference("J1"));
+            // the pivot tables of the other sheets are needed to find unused part names and cache ids
+            assertEquals(3, wb.getPivotTables().size());
+            wb.write(bos);
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            assertEquals(3, wb.getPivotTables().size());
+            Set<Long> cacheIds = new HashSet<>();
+            for (CTPivotCache cache : wb.getCTWorkbook().getPivotCaches().getPivotCacheArray()) {
+                assertTrue(cacheIds.add(cache.getCacheId()), "duplicate cache id " + cache.getCacheId());
+            }
+            assertEquals(3, cacheIds.size());
+            for (XSSFPivotTable pivotTable : wb.getPivotTables()) {
+                assertTrue(cacheIds.contains(pivotTable.getCTPivotTableDefinition().getCacheId()));
+            }
+        }
+    }
+
+    /**
+     * Checks the state of the sheet without accessing it through the workbook, which would parse it
+     */
+    private static boolean isDeferred(XSSFWorkbook wb, String sheetName) {
+        for (POIXMLDocumentPart part : wb.getRelations()) {
+            if (part instanceof XSSFSheet && sheetName.equals(((XSSFSheet) part).getSheetName())) {
+                return ((XSSFSheet) part).isDocumentReadDeferred();
+            }
+        }
+        throw new AssertionError("sheet " + sheetName + " not found");
+    }
+
+    private static XSSFWorkbook openLazy(byte[] data) throws Exception {
+        return new XSSFWorkbook(OPCPackage.open(new UnsynchronizedByteArrayInputStream(data)), LAZY);
+    }
+
+    private static byte[] createSample() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            wb.createSheet("first").createRow(0).createCell(0).setCellValue(1);
+            XSSFSheet second = wb.createSheet("second");
+            second.createRow(0).createCell(0).setCellValue(2);
+            second.createRow(1).createCell(0).setCellFormula("first!A1+second!A1");
+            wb.createSheet("hidden").createRow(0).createCell(0).setCellValue("hidden");
+            wb.setSheetVisibility(2, SheetVisibility.HIDDEN);
+            XSSFName name = wb.createName();
+            name.setNameName("total");
+            name.setRefersToFormula("second!$A$1");
+            return XSSFTestDataSamples.writeOut(wb).toByteArray();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.poi.common.usermodel.HyperlinkType;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.ClientAnchor;
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.ConditionalFormatting;
+import org.apache.poi.ss.usermodel.Hyperlink;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.SheetConditionalFormatting;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link XSSFSheet#shiftRows(XSSFRowShiftBatch)}
+ */
+final class TestXSSFRowShiftBatch {
+    private static final int LAST_ROW = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+
+    @Test
+    void composesTheOperations() {
+        XSSFRowShiftBatch batch = new XSSFRowShiftBatch()
+            .insertRows(2, 3)
+            .deleteRows(0, 1)
+            .deleteRows(5, 2);
+        assertEquals(3, batch.size());
+        assertEquals(0, batch.getFirstRowIndex());
+
+        assertEquals(-1, batch.shiftedRowIndex(0));
+        assertEquals(0, batch.shiftedRowIndex(1));
+        assertEquals(4, batch.shiftedRowIndex(2));
+        // row 3 is moved to 6 by the insertion, to 5 by the first deletion and deleted by the second one
+        assertEquals(-1, batch.shiftedRowIndex(3));
+        assertEquals(-1, batch.shiftedRowIndex(4));
+        assertEquals(5, batch.shiftedRowIndex(5));
+        assertEquals(LAST_ROW - 6, batch.shiftedRowIndex(LAST_ROW - 3));
+        assertEquals(-1, batch.shiftedRowIndex(LAST_ROW));
+
+        assertEquals(3, batch.getRowShift(0));
+        assertEquals(-2, batch.getRowShift(2));
+        assertEquals(5, batch.getRowIndex(2));
+    }
+
+    @Test
+    void shiftsRowsOutOfTheSheet() {
+        XSSFRowShiftBatch batch = new XSSFRowShiftBatch()
+            .insertRows(10, 5)
+            .deleteRows(0, 5);
+        assertEquals(LAST_ROW - 5, batch.shiftedRowIndex(LAST_ROW - 5));
+        // rows moved beyond the last row don't come back
+        assertEquals(-1, batch.shiftedRowIndex(LAST_ROW - 2));
+        assertFalse(batch.isShiftedOut(LAST_ROW - 5));
+
+        assertThrows(IllegalArgumentException.class, () -> new XSSFRowShiftBatch().insertRows(-1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new XSSFRowShiftBatch().insertRows(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new XSSFRowShiftBatch().deleteRows(LAST_ROW, 1));
+    }
+
+    @Test
+    void rejectsRowsShiftedOutOfTheSheet() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            sheet.createRow(LAST_ROW - 1).createCell(0).setCellValue(1);
+            XSSFRowShiftBatch batch = new XSSFRowShiftBatch().insertRows(0, 2);
+            assertThrows(IllegalArgumentException.class, () -> sheet.shiftRows(batch));
+            assertEquals(LAST_ROW - 1, sheet.getLastRowNum());
+        }
+    }
+
+    @Test
+    void matchesSingleShifts() throws IOException {
+        XSSFRowShiftBatch batch = new XSSFRowShiftBatch()
+            .insertRows(5, 2)
+            .deleteRows(11, 3)
+            .insertRows(20, 1)
+            .deleteRows(0, 1);
+
+        try (XSSFWorkbook expected = createSample(); XSSFWorkbook actual = createSample()) {
+            XSSFSheet sheet = expected.getSheet("data");
+            for (int op = 0; op < batch.size(); op++) {
+                int row = batch.getRowIndex(op);
+                int n = batch.getRowShift(op);
+                if (n > 0) {
+                    sheet.shiftRows(row, LAST_ROW, n);
+                } else {
+                    sheet.shiftRows(row - n, LAST_ROW, n);
+                }
+            }
+            actual.getSheet("data").shiftRows(batch);
+
+            assertEquals(describe(expected), describe(actual));
+            XSSFSheet shifted = actual.getSheet("data");
+            assertEquals("SUM(A1:A29)", shifted.getRow(29).getCell(2).getCellFormula());
+            // the formula of row 9 referenced the deleted row 10
+            assertEquals("#REF!*2", shifted.getRow(9).getCell(1).getCellFormula());
+        }
+    }
+
+    private static XSSFWorkbook createSample() {
+        XSSFWorkbook wb = new XSSFWorkbook();
+        XSSFSheet sheet = wb.createSheet("data");
+        for (int r = 0; r < 30; r++) {
+            XSSFRow row = sheet.createRow(r);
+            row.createCell(0).setCellValue(r);
+            row.createCell(1).setCellFormula("A" + (r + 2) + "*2");
+        }
+        sheet.createRow(30).createCell(2).setCellFormula("SUM(A1:A30)");
+        sheet.getRow(0).createCell(3).setCellFormula("A10+A20");
+
+        XSSFSheet other = wb.createSheet("other");
+        other.createRow(0).createCell(0).setCellFormula("data!A15");
+        other.createRow(1).createCell(0).setCellFormula("SUM(data!A5:A25)");
+        other.createRow(2).createCell(0).setCellFormula("A1+A2");
+
+        Name name = wb.createName();
+        name.setNameName("Range");
+        name.setRefersToFormula("data!$A$10:$A$22");
+
+        sheet.addMergedRegion(CellRangeAddress.valueOf("E2:F3"));
+        sheet.addMergedRegion(CellRangeAddress.valueOf("E12:F14"));
+        sheet.addMergedRegion(CellRangeAddress.valueOf("E20:E21"));
+        sheet.addMergedRegion(CellRangeAddress.valueOf("E25:F28"));
+
+        for (String ref : new String[]{"G8", "G12", "G24"}) {
+            Hyperlink link = wb.getCreationHelper().createHyperlink(HyperlinkType.URL);
+            link.setAddress("https://poi.apache.org/");
+            XSSFCell cell = sheet.getRow(new CellAddress(ref).getRow()).createCell(6);
+            cell.setHyperlink(link);
+        }
+
+        XSSFDrawing drawing = sheet.createDrawingPatriarch();
+        for (String ref : new String[]{"A6", "A11", "A16"}) {
+            CellAddress address = new CellAddress(ref);
+            ClientAnchor anchor = wb.getCreationHelper().createClientAnchor();
+            anchor.setRow1(address.getRow());
+            anchor.setCol1(address.getColumn());
+            anchor.setRow2(address.getRow() + 2);
+            anchor.setCol2(address.getColumn() + 2);
+            Comment comment = drawing.createCellComment(anchor);
+            comment.setString(wb.getCreationHelper().createRichTextString(ref));
+            sheet.getRow(address.getRow()).getCell(address.getColumn()).setCellComment(comment);
+        }
+
+        SheetConditionalFormatting scf = sheet.getSheetConditionalFormatting();
+        scf.addConditionalFormatting(new CellRangeAddress[]{CellRangeAddress.valueOf("A1:A30")},
+            scf.createConditionalFormattingRule("$A$15>5"));
+        scf.addConditionalFormatting(new CellRangeAddress[]{CellRangeAddress.valueOf("B12:B13")},
+            scf.createConditionalFormattingRule("$B$1>5"));
+        return wb;
+    }
+
+    private static List<String> describe(XSSFWorkbook wb) {
+        List<String> lines = new ArrayList<>();
+        for (Name name : wb.getAllNames()) {
+            lines.add(name.getNameName() + "=" + name.getRefersToFormula());
+        }
+        for (XSSFSheet sheet : new XSSFSheet[]{wb.getSheet("data"), wb.getSheet("other")}) {
+            for (Row row : sheet) {
+                for (Cell cell : row) {
+                    String content;
+                    switch (cell.getCellType()) {
+                        case FORMULA:
+                            content = "=" + cell.getCellFormula();
+                            break;
+                        case NUMERIC:
+                            content = Double.toString(cell.getNumericCellValue());
+                            break;
+                        default:
+                            content = cell.getCellType().toString();
+                            break;
+                    }
+                    lines.add(sheet.getSheetName() + "!" + cell.getAddress() + " " + content);
+                }
+            }
+            TreeSet<String> merged = new TreeSet<>();
+            for (CellRangeAddress region : sheet.getMergedRegions()) {
+                merged.add(region.formatAsString());
+            }
+            lines.add("merged " + merged);
+            for (XSSFHyperlink link : sheet.getHyperlinkList()) {
+                lines.add("link " + link.getCellRef());
+            }
+            lines.add("comments " + new TreeSet<>(sheet.getCellComments().keySet()));
+            SheetConditionalFormatting scf = sheet.getSheetConditionalFormatting();
+            for (int i = 0; i < scf.getNumConditionalFormattings(); i++) {
+                ConditionalFormatting cf = scf.getConditionalFormattingAt(i);
+                StringBuilder sb = new StringBuilder("cf");
+                for (CellRangeAddress range : cf.getFormattingRanges()) {
+                    sb.append(' ').append(range.formatAsString());
+                }
+                for (int j = 0; j < cf.getNumberOfRules(); j++) {
+                    sb.append(' ').append(cf.getRule(j).getFormula1());
+                }
+                lines.add(sb.toString());
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,206 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.XSSFTestDataSamples;
+import org.apache.xmlbeans.XmlException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorksheet;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.WorksheetDocument;
+
+/**
+ * Tests for the direct write of the sheet data of {@link XSSFWorkbook#setDirectSheetDataWrite(boolean)}
+ */
+final class TestXSSFWorksheetWriter {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"SampleSS.xlsx", "shared_formulas.xlsx", "WithVariousData.xlsx",
+        "WithMoreVariousData.xlsx", "Formatting.xlsx", "HeaderFooterComplexFormats.xlsx"})
+    void writesSamplesLikeXmlBeans(String sample) throws IOException {
+        try (XSSFWorkbook wb = XSSFTestDataSamples.openSampleWorkbook(sample)) {
+            assertSameContent(wb);
+        }
+    }
+
+    @Test
+    void writesCreatedCells() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet("data");
+            XSSFCellStyle style = wb.createCellStyle();
+            style.setDataFormat(wb.createDataFormat().getFormat("0.00"));
+            sheet.setDefaultColumnStyle(3, style);
+
+            XSSFRow row = sheet.createRow(0);
+            row.setHeightInPoints(30);
+            row.createCell(0).setCellValue(1.25);
+            row.createCell(1).setCellValue("quote \" amp & lt < tab \t");
+            row.createCell(2).setCellValue(false);
+            row.createCell(3).setCellErrorValue(FormulaError.NA);
+            row.createCell(5).setCellFormula("A1*2");
+            XSSFCell text = row.createCell(7);
+            text.setCellFormula("\"x<y\"&\"&\"");
+            text.setCellValue("x<y&\"\tz");
+            XSSFCell inline = row.createCell(6);
+            inline.getCTCell().setT(STCellType.INLINE_STR);
+            inline.getCTCell().addNewIs().setT("inline");
+
+            sheet.createRow(2).setZeroHeight(true);
+            sheet.setArrayFormula("SUM(A1:C1)", CellRangeAddress.valueOf("A4:B4"));
+            sheet.addMergedRegion(CellRangeAddress.valueOf("E6:F7"));
+            sheet.createRow(5000).createCell(200).setCellValue("far");
+
+            assertSameContent(wb);
+
+            wb.setDirectSheetDataWrite(true);
+            try (XSSFWorkbook read = XSSFTestDataSamples.writeOutAndReadBack(wb)) {
+                XSSFSheet readSheet = read.getSheet("data");
+                assertEquals("quote \" amp & lt < tab \t", readSheet.getRow(0).getCell(1).getStringCellValue());
+                assertEquals("x<y&\"\tz", readSheet.getRow(0).getCell(7).getStringCellValue());
+                assertEquals("\"x<y\"&\"&\"", readSheet.getRow(0).getCell(7).getCellFormula());
+                assertEquals("0.00", readSheet.getRow(0).getCell(3).getCellStyle().getDataFormatString());
+                assertEquals("inline", readSheet.getRow(0).getCell(6).getStringCellValue());
+                assertEquals("SUM(A1:C1)", readSheet.getRow(3).getCell(1).getCellFormula());
+                assertTrue(readSheet.getRow(2).getZeroHeight());
+                assertEquals("A1:GS5001", readSheet.getCTWorksheet().getDimension().getRef());
+            }
+        }
+    }
+
+    @Test
+    void writesCompactCellsWithoutBeans() throws Exception {
+        byte[] data;
+        try (XSSFWorkbook wb = XSSFTestDataSamples.openSampleWorkbook("SampleSS.xlsx")) {
+            data = XSSFTestDataSamples.writeOut(wb).toByteArray();
+        }
+        XSSFReadOptions options = new XSSFReadOptions.Builder().compactCells(true).build();
+        try (XSSFWorkbook expected = new XSSFWorkbook(new UnsynchronizedByteArrayInputStream(data));
+             XSSFWorkbook wb = new XSSFWorkbook(OPCPackage.open(new UnsynchronizedByteArrayInputStream(data)), options)) {
+            XSSFCell first = wb.getSheetAt(0).getRow(0).getCell(0);
+            assertTrue(first.isCompact());
+
+            wb.setDirectSheetDataWrite(true);
+            try (XSSFWorkbook read = XSSFTestDataSamples.writeOutAndReadBack(wb)) {
+                assertTrue(first.isCompact());
+                assertSameCells(expected, read);
+            }
+        }
+    }
+
+    @Test
+    void keepsNamespacesOfTheWorksheet() throws IOException, XmlException {
+        try (XSSFWorkbook wb = XSSFTestDataSamples.openSampleWorkbook("SampleSS.xlsx")) {
+            wb.setDirectSheetDataWrite(true);
+            XSSFSheet sheet = wb.getSheetAt(0);
+            UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+            sheet.write(bos);
+            String xml = bos.toString(StandardCharsets.UTF_8);
+
+            assertTrue(xml.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"), xml);
+            assertTrue(xml.contains("<worksheet "), xml);
+            assertTrue(xml.contains("xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\""), xml);
+            // the children don't declare the namespace again
+            String mainNs = "xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"";
+            assertEquals(xml.indexOf(mainNs), xml.lastIndexOf(mainNs), xml);
+            assertFalse(xml.contains("<sheetData xmlns"), xml);
+
+            CTWorksheet parsed = WorksheetDocument.Factory.parse(bos.toInputStream()).getWorksheet();
+            assertEquals(sheet.getCTWorksheet().getSheetData().sizeOfRowArray(), parsed.getSheetData().sizeOfRowArray());
+            assertEquals(sheet.getCTWorksheet().isSetPageMargins(), parsed.isSetPageMargins());
+        }
+    }
+
+    /**
+     * Writes the workbook with and without the direct write and compares the read back workbooks
+     */
+    private static void assertSameContent(XSSFWorkbook wb) throws IOException {
+        wb.setDirectSheetDataWrite(false);
+        try (XSSFWorkbook expected = XSSFTestDataSamples.writeOutAndReadBack(wb)) {
+            wb.setDirectSheetDataWrite(true);
+            try (XSSFWorkbook actual = XSSFTestDataSamples.writeOutAndReadBack(wb)) {
+                assertSameCells(expected, actual);
+                for (int i = 0; i < expected.getNumberOfSheets(); i++) {
+                    CTWorksheet exp = expected.getSheetAt(i).getCTWorksheet();
+                    CTWorksheet act = actual.getSheetAt(i).getCTWorksheet();
+                    assertEquals(exp.isSetDimension(), act.isSetDimension());
+                    if (exp.isSetDimension()) {
+                        assertEquals(exp.getDimension().getRef(), act.getDimension().getRef());
+                    }
+                    assertEquals(exp.sizeOfColsArray(), act.sizeOfColsArray());
+                    assertEquals(exp.isSetMergeCells(), act.isSetMergeCells());
+                    assertEquals(exp.isSetPageMargins(), act.isSetPageMargins());
+                    assertEquals(exp.isSetHeaderFooter(), act.isSetHeaderFooter());
+                    assertEquals(exp.sizeOfConditionalFormattingArray(), act.sizeOfConditionalFormattingArray());
+                }
+            } finally {
+                wb.setDirectSheetDataWrite(false);
+            }
+        }
+    }
+
+    private static void assertSameCells(XSSFWorkbook expected, XSSFWorkbook actual) {
+        assertEquals(expected.getNumberOfSheets(), actual.getNumberOfSheets());
+        for (int i = 0; i < expected.getNumberOfSheets(); i++) {
+            XSSFSheet expSheet = expected.getSheetAt(i);
+            XSSFSheet actSheet = actual.getSheetAt(i);
+            assertEquals(expSheet.getPhysicalNumberOfRows(), actSheet.getPhysicalNumberOfRows());
+            Iterator<Row> actRows = actSheet.rowIterator();
+            for (Row expRow : expSheet) {
+                XSSFRow actRow = (XSSFRow) actRows.next();
+                String msg = expSheet.getSheetName() + " row " + expRow.getRowNum();
+                assertEquals(expRow.getRowNum(), actRow.getRowNum(), msg);
+                assertEquals(expRow.getHeight(), actRow.getHeight(), msg);
+                assertEquals(expRow.getZeroHeight(), actRow.getZeroHeight(), msg);
+                assertEquals(expRow.getOutlineLevel(), actRow.getOutlineLevel(), msg);
+                assertEquals(expRow.getPhysicalNumberOfCells(), actRow.getPhysicalNumberOfCells(), msg);
+                Iterator<Cell> actCells = actRow.cellIterator();
+                for (Cell expCell : expRow) {
+                    XSSFCell actCell = (XSSFCell) actCells.next();
+                    String ref = expSheet.getSheetName() + "!" + actCell.getReference();
+                    assertEquals(expCell.getAddress(), actCell.getAddress(), ref);
+                    assertEquals(expCell.getCellType(), actCell.getCellType(), ref);
+                    assertEquals(((XSSFCell) expCell).getRawValue(), actCell.getRawValue(), ref);
+                    assertEquals(expCell.getCellStyle().getIndex(), actCell.getCellStyle().getIndex(), ref);
+                    if (expCell.getCellType() == CellType.FORMULA) {
+                        assertEquals(expCell.getCellFormula(), actCell.getCellFormula(), ref);
+                    } else if (expCell.getCellType() == CellType.STRING) {
+                        assertEquals(expCell.getStringCellValue(), actCell.getStringCellValue(), ref);
+                    }
+                }
+            }
+        }
+    }
+}
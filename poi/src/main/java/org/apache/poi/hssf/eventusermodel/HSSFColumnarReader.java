@@ -0,0 +1,268 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.eventusermodel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.extractor.ColumnarBatch;
+import org.apache.poi.ss.extractor.ColumnarBatchBuilder;
+import org.apache.poi.ss.extractor.ColumnarBatchHandler;
+import org.apache.poi.ss.extractor.ColumnarSchema;
+import org.apache.poi.ss.extractor.StringDictionary;
+import org.apache.poi.util.Beta;
+
+/**
+ * Reads the cells of a sheet of a .xls file into {@link ColumnarBatch}es with the {@link HSSFEventFactory},
+ * without creating the rows and cells of the usermodel.
+ * <p>
+ * The text cells are encoded with the indexes of the shared strings table and the processing of the
+ * records stops at the end of the sheet or after the last row of the schema.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public class HSSFColumnarReader {
+    /** the user code, which stops the record processing */
+    private static final short STOP = 1;
+
+    private final DirectoryNode dir;
+
+    /**
+     * @param fs the file system of the workbook
+     */
+    public HSSFColumnarReader(POIFSFileSystem fs) {
+        this(fs.getRoot());
+    }
+
+    /**
+     * @param dir the directory of the workbook
+     */
+    public HSSFColumnarReader(DirectoryNode dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Reads a sheet into batches
+     *
+     * @param sheetIndex the zero based index of the sheet in the tab order
+     * @param schema the columns to read
+     * @param handler receives the batches
+     * @throws IOException if the workbook can't be read
+     * @throws IllegalArgumentException if there's no sheet with the index
+     */
+    public void read(int sheetIndex, ColumnarSchema schema, ColumnarBatchHandler handler) throws IOException {
+        process(new BatchListener(sheetIndex, null, schema, handler));
+    }
+
+    /**
+     * Reads a sheet into batches
+     *
+     * @param sheetName the name of the sheet, which is matched case-insensitive
+     * @param schema the columns to read
+     * @param handler receives the batches
+     * @throws IOException if the workbook can't be read
+     * @throws IllegalArgumentException if there's no sheet with the name
+     */
+    public void read(String sheetName, ColumnarSchema schema, ColumnarBatchHandler handler) throws IOException {
+        process(new BatchListener(-1, sheetName, schema, handler));
+    }
+
+    private void process(BatchListener listener) throws IOException {
+        HSSFRequest req = new HSSFRequest();
+        req.addListenerForAllRecords(listener);
+        try {
+            new HSSFEventFactory().abortableProcessWorkbookEvents(req, dir);
+        } catch (HSSFUserException e) {
+            throw new IOException(e);
+        }
+        if (!listener.sheetFound) {
+            throw new IllegalArgumentException("Sheet " + (listener.sheetName != null
+                ? "'" + listener.sheetName + "'" : "index (" + listener.sheetIndex + ")") + " not found");
+        }
+    }
+
+    private static final class BatchListener extends AbortableHSSFListener {
+        private final int sheetIndex;
+        private final String sheetName;
+        private final ColumnarSchema schema;
+        private final ColumnarBatchHandler handler;
+
+        private final List<BoundSheetRecord> boundSheets = new ArrayList<>();
+        private BoundSheetRecord[] sheetsInStreamOrder;
+        private SSTRecord sst;
+        private boolean date1904;
+
+        /** the index of the current substream in the sheets of the stream order, -1 for the workbook globals */
+        private int streamIndex = -2;
+        /** the nesting of the current substream, e.g. of charts within worksheets */
+        private int depth;
+        private boolean sheetFound;
+        private ColumnarBatchBuilder builder;
+        private int currentRow = -1;
+        /** the column of the formula, whose string result follows in a {@link StringRecord} */
+        private int stringFormulaColumn = -1;
+
+        BatchListener(int sheetIndex, String sheetName, ColumnarSchema schema, ColumnarBatchHandler handler) {
+            this.sheetIndex = sheetIndex;
+            this.sheetName = sheetName;
+            this.schema = schema;
+            this.handler = handler;
+        }
+
+        @Override
+        public short abortableProcessRecord(Record record) {
+            switch (record.getSid()) {
+                case BOFRecord.sid:
+                    if (depth++ == 0) {
+                        streamIndex++;
+                        if (streamIndex == 0) {
+                            sheetsInStreamOrder = BoundSheetRecord.orderByBofPosition(boundSheets);
+                        }
+                        if (streamIndex >= 0 && streamIndex < sheetsInStreamOrder.length
+                                && isTargetSheet(sheetsInStreamOrder[streamIndex])) {
+                            sheetFound = true;
+                            builder = new ColumnarBatchBuilder(schema, newDictionary(), date1904, handler);
+                        }
+                    }
+                    return 0;
+                case EOFRecord.sid:
+                    if (--depth == 0 && builder != null) {
+                        builder.finish();
+                        return STOP;
+                    }
+                    return 0;
+                case BoundSheetRecord.sid:
+                    boundSheets.add((BoundSheetRecord) record);
+                    return 0;
+                case SSTRecord.sid:
+                    sst = (SSTRecord) record;
+                    return 0;
+                case DateWindow1904Record.sid:
+                    date1904 = ((DateWindow1904Record) record).getWindowing() == 1;
+                    return 0;
+                default:
+                    return (builder != null && depth == 1) ? processSheetRecord(record) : 0;
+            }
+        }
+
+        private boolean isTargetSheet(BoundSheetRecord sheet) {
+            return (sheetName != null)
+                ? sheetName.equalsIgnoreCase(sheet.getSheetname())
+                : boundSheets.indexOf(sheet) == sheetIndex;
+        }
+
+        private StringDictionary newDictionary() {
+            SSTRecord table = sst;
+            return (table == null)
+                ? new StringDictionary(i -> null, 0)
+                : new StringDictionary(i -> table.getString(i).getString(), table.getNumUniqueStrings());
+        }
+
+        private short processSheetRecord(Record record) {
+            if (record instanceof StringRecord) {
+                if (stringFormulaColumn >= 0) {
+                    builder.stringValue(stringFormulaColumn, ((StringRecord) record).getString());
+                    stringFormulaColumn = -1;
+                }
+                return 0;
+            }
+            if (!(record instanceof CellValueRecordInterface)) {
+                return 0;
+            }
+
+            CellValueRecordInterface cell = (CellValueRecordInterface) record;
+            int row = cell.getRow();
+            if (row != currentRow) {
+                if (currentRow >= 0) {
+                    builder.endRow();
+                }
+                if (builder.isAfterLastRow(row)) {
+                    builder.finish();
+                    return STOP;
+                }
+                currentRow = row;
+                builder.startRow(row);
+            }
+
+            int column = cell.getColumn();
+            stringFormulaColumn = -1;
+            switch (record.getSid()) {
+                case NumberRecord.sid:
+                    builder.numericValue(column, ((NumberRecord) record).getValue());
+                    break;
+                case LabelSSTRecord.sid:
+                    builder.sharedStringValue(column, ((LabelSSTRecord) record).getSSTIndex());
+                    break;
+                case LabelRecord.sid:
+                    builder.stringValue(column, ((LabelRecord) record).getValue());
+                    break;
+                case BoolErrRecord.sid: {
+                    BoolErrRecord boolErr = (BoolErrRecord) record;
+                    if (boolErr.isBoolean()) {
+                        builder.booleanValue(column, boolErr.getBooleanValue());
+                    }
+                    break;
+                }
+                case FormulaRecord.sid:
+                    processFormula((FormulaRecord) record, column);
+                    break;
+                default:
+                    break;
+            }
+            return 0;
+        }
+
+        private void processFormula(FormulaRecord formula, int column) {
+            switch (formula.getCachedResultTypeEnum()) {
+                case NUMERIC:
+                    builder.numericValue(column, formula.getValue());
+                    break;
+                case BOOLEAN:
+                    builder.booleanValue(column, formula.getCachedBooleanValue());
+                    break;
+                case STRING:
+                    if (formula.hasCachedResultString()) {
+                        stringFormulaColumn = column;
+                    } else {
+                        builder.stringValue(column, "");
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
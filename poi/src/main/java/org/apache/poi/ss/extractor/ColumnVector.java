@@ -0,0 +1,188 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.extractor;
+
+import java.util.Arrays;
+
+import org.apache.poi.ss.extractor.ColumnarSchema.ColumnType;
+import org.apache.poi.util.Beta;
+
+/**
+ * The values of one column of a {@link ColumnarBatch}.
+ * <p>
+ * Depending on the type, the values are held in a {@code double[]} (numeric columns), a {@code long[]}
+ * of epoch milliseconds (date columns) or an {@code int[]} of dictionary codes (text columns).
+ * Missing values are marked in a null bitmap - bit {@code i % 64} of {@code long} {@code i / 64}
+ * is set, if the value of row {@code i} is null. The value arrays contain 0 for the null values.
+ * </p>
+ * <p>
+ * The arrays are reused for the following batches, so they must be copied if they are needed
+ * after the batch has been handled. Only the first {@link ColumnarBatch#getRowCount()} entries
+ * are valid.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class ColumnVector {
+    private final int column;
+    private final ColumnType type;
+    private final long[] nulls;
+    private final double[] numbers;
+    private final long[] dates;
+    private final int[] codes;
+    private final StringDictionary dictionary;
+
+    ColumnVector(int column, ColumnType type, int capacity, StringDictionary dictionary) {
+        this.column = column;
+        this.type = type;
+        this.nulls = new long[(capacity + 63) >>> 6];
+        this.numbers = (type == ColumnType.NUMERIC) ? new double[capacity] : null;
+        this.dates = (type == ColumnType.DATE) ? new long[capacity] : null;
+        this.codes = (type == ColumnType.STRING) ? new int[capacity] : null;
+        this.dictionary = (type == ColumnType.STRING) ? dictionary : null;
+        Arrays.fill(nulls, -1L);
+    }
+
+    /**
+     * @return the zero based column of the sheet
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * @return the type of the values
+     */
+    public ColumnType getType() {
+        return type;
+    }
+
+    /**
+     * @param row the index of the row within the batch
+     * @return true, if the value of the row is missing or doesn't match the column type
+     */
+    public boolean isNull(int row) {
+        return (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @return the null bitmap, a set bit marks a null value
+     */
+    public long[] getNullBitmap() {
+        return nulls;
+    }
+
+    /**
+     * @return the values of a numeric column
+     * @throws IllegalStateException if this isn't a numeric column
+     */
+    public double[] getDoubles() {
+        checkType(ColumnType.NUMERIC);
+        return numbers;
+    }
+
+    /**
+     * @return the milliseconds since 1970-01-01T00:00 UTC of a date column
+     * @throws IllegalStateException if this isn't a date column
+     */
+    public long[] getEpochMillis() {
+        checkType(ColumnType.DATE);
+        return dates;
+    }
+
+    /**
+     * @return the dictionary codes of a text column
+     * @throws IllegalStateException if this isn't a text column
+     * @see #getDictionary()
+     */
+    public int[] getStringCodes() {
+        checkType(ColumnType.STRING);
+        return codes;
+    }
+
+    /**
+     * @return the dictionary of a text column, which is shared by all text columns of the sheet
+     * @throws IllegalStateException if this isn't a text column
+     */
+    public StringDictionary getDictionary() {
+        checkType(ColumnType.STRING);
+        return dictionary;
+    }
+
+    /**
+     * @param row the index of the row within the batch
+     * @return the text of the row or {@code null}, if the value is null
+     * @throws IllegalStateException if this isn't a text column
+     */
+    public String getString(int row) {
+        checkType(ColumnType.STRING);
+        return isNull(row) ? null : dictionary.get(codes[row]);
+    }
+
+    private void checkType(ColumnType expected) {
+        if (type != expected) {
+            throw new IllegalStateException("Column " + column + " is a " + type + " column, not a " + expected + " column");
+        }
+    }
+
+    void setDouble(int row, double value) {
+        numbers[row] = value;
+        clearNull(row);
+    }
+
+    void setEpochMillis(int row, long value) {
+        dates[row] = value;
+        clearNull(row);
+    }
+
+    void setCode(int row, int code) {
+        codes[row] = code;
+        clearNull(row);
+    }
+
+    private void clearNull(int row) {
+        nulls[row >>> 6] &= ~(1L << row);
+    }
+
+    /**
+     * Zeroes the value of a row, which has been left null
+     */
+    void zeroIfNull(int row) {
+        if (isNull(row)) {
+            switch (type) {
+                case NUMERIC:
+                    numbers[row] = 0;
+                    break;
+                case DATE:
+                    dates[row] = 0;
+                    break;
+                default:
+                    codes[row] = 0;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Marks all rows as null for the next batch
+     */
+    void reset() {
+        Arrays.fill(nulls, -1L);
+    }
+}
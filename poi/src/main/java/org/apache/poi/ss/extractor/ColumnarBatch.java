@@ -0,0 +1,109 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.extractor;
+
+import org.apache.poi.util.Beta;
+
+/**
+ * A batch of rows of a sheet, which is held as one {@link ColumnVector} per column of the {@link ColumnarSchema}.
+ * <p>
+ * Only rows with at least one value in the columns of the schema are added to a batch, so the
+ * rows of a batch aren't necessarily consecutive - use {@link #getRowNum(int)} to get the row of the sheet.
+ * All batches of a sheet but the last one contain {@link ColumnarSchema#getBatchSize()} rows.
+ * </p>
+ * <p>
+ * The batch and its vectors are reused for the following batches of the sheet, so they are
+ * only valid while the batch is handled.
+ * </p>
+ *
+ * @see ColumnarBatchHandler
+ * @since POI 5.2.4
+ */
+@Beta
+public final class ColumnarBatch {
+    private final ColumnVector[] vectors;
+    private final int[] rowNums;
+    private int rowCount;
+
+    ColumnarBatch(ColumnarSchema schema, StringDictionary dictionary) {
+        int capacity = schema.getBatchSize();
+        vectors = new ColumnVector[schema.getColumnCount()];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = new ColumnVector(schema.getColumn(i), schema.getColumnType(i), capacity, dictionary);
+        }
+        rowNums = new int[capacity];
+    }
+
+    /**
+     * @return the number of rows of this batch
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @param row the index of the row within the batch
+     * @return the zero based row of the sheet
+     */
+    public int getRowNum(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Invalid row " + row + ", the batch has " + rowCount + " rows");
+        }
+        return rowNums[row];
+    }
+
+    /**
+     * @return the number of columns, which is the number of columns of the schema
+     */
+    public int getColumnCount() {
+        return vectors.length;
+    }
+
+    /**
+     * @param index the index of the column within the schema
+     * @return the values of the column
+     */
+    public ColumnVector getColumn(int index) {
+        return vectors[index];
+    }
+
+    int getCapacity() {
+        return rowNums.length;
+    }
+
+    ColumnVector[] getVectors() {
+        return vectors;
+    }
+
+    /**
+     * Adds the row, whose values have been set at the index {@link #getRowCount()}
+     */
+    void commitRow(int rowNum) {
+        for (ColumnVector vector : vectors) {
+            vector.zeroIfNull(rowCount);
+        }
+        rowNums[rowCount++] = rowNum;
+    }
+
+    void reset() {
+        for (ColumnVector vector : vectors) {
+            vector.reset();
+        }
+        rowCount = 0;
+    }
+}
@@ -0,0 +1,218 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.extractor;
+
+import java.util.Arrays;
+
+import org.apache.poi.ss.extractor.ColumnarSchema.ColumnType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.Internal;
+
+/**
+ * Collects the cell values, which are reported by the event based sheet parsers, into
+ * {@link ColumnarBatch}es and passes the full batches to the {@link ColumnarBatchHandler}.
+ * <p>
+ * The cells of a row have to be reported between {@link #startRow(int)} and {@link #endRow()}
+ * and the rows have to be reported in ascending order.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+public final class ColumnarBatchBuilder {
+    private static final long DAY_MILLISECONDS = 86_400_000L;
+    /** the epoch day of 1900-01-01 */
+    private static final long EPOCH_DAY_1900 = -25_567L;
+    /** the epoch day of 1904-01-01 */
+    private static final long EPOCH_DAY_1904 = -24_107L;
+
+    private final ColumnarSchema schema;
+    private final StringDictionary dictionary;
+    private final boolean date1904;
+    private final ColumnarBatchHandler handler;
+    private final ColumnarBatch batch;
+    private final ColumnVector[] vectors;
+    /** the index of the vector of a sheet column or -1 if the column isn't read */
+    private final int[] vectorIndex;
+
+    private int rowNum = -1;
+    private boolean inRow;
+    private boolean rowHasValue;
+
+    /**
+     * @param schema the columns to read
+     * @param dictionary the dictionary of the text columns
+     * @param date1904 true, if the workbook uses the 1904 date system
+     * @param handler receives the batches
+     */
+    public ColumnarBatchBuilder(ColumnarSchema schema, StringDictionary dictionary, boolean date1904,
+            ColumnarBatchHandler handler) {
+        this.schema = schema;
+        this.dictionary = dictionary;
+        this.date1904 = date1904;
+        this.handler = handler;
+        this.batch = new ColumnarBatch(schema, dictionary);
+        this.vectors = batch.getVectors();
+
+        int maxColumn = -1;
+        for (int i = 0; i < schema.getColumnCount(); i++) {
+            maxColumn = Math.max(maxColumn, schema.getColumn(i));
+        }
+        vectorIndex = new int[maxColumn + 1];
+        Arrays.fill(vectorIndex, -1);
+        for (int i = 0; i < schema.getColumnCount(); i++) {
+            vectorIndex[schema.getColumn(i)] = i;
+        }
+    }
+
+    /**
+     * @return the dictionary of the text columns
+     */
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * @return true, if the (zero based) row is after the rows of the schema, i.e. the parsing can be stopped
+     */
+    public boolean isAfterLastRow(int rowNum) {
+        return rowNum > schema.getLastRow();
+    }
+
+    /**
+     * A row has started
+     *
+     * @param rowNum the zero based row
+     */
+    public void startRow(int rowNum) {
+        this.rowNum = rowNum;
+        inRow = rowNum >= schema.getFirstRow() && rowNum <= schema.getLastRow();
+        rowHasValue = false;
+    }
+
+    /**
+     * A numeric cell or the numeric result of a formula
+     */
+    public void numericValue(int column, double value) {
+        ColumnVector vector = getVector(column);
+        if (vector == null) {
+            return;
+        }
+        int row = batch.getRowCount();
+        if (vector.getType() == ColumnType.NUMERIC) {
+            vector.setDouble(row, value);
+            rowHasValue = true;
+        } else if (vector.getType() == ColumnType.DATE && DateUtil.isValidExcelDate(value)) {
+            vector.setEpochMillis(row, toEpochMillis(value));
+            rowHasValue = true;
+        }
+    }
+
+    /**
+     * A boolean cell or the boolean result of a formula, which is read as 1 or 0 by numeric columns
+     */
+    public void booleanValue(int column, boolean value) {
+        ColumnVector vector = getVector(column);
+        if (vector != null && vector.getType() == ColumnType.NUMERIC) {
+            vector.setDouble(batch.getRowCount(), value ? 1 : 0);
+            rowHasValue = true;
+        }
+    }
+
+    /**
+     * A text cell, which refers to the shared strings table
+     *
+     * @param index the index of the shared string
+     */
+    public void sharedStringValue(int column, int index) {
+        ColumnVector vector = getVector(column);
+        if (vector != null && vector.getType() == ColumnType.STRING
+                && index >= 0 && index < dictionary.getSharedStringCount()) {
+            vector.setCode(batch.getRowCount(), index);
+            rowHasValue = true;
+        }
+    }
+
+    /**
+     * A text cell, which isn't stored in the shared strings table, or the text result of a formula
+     *
+     * @param text the text, which is only used during the call
+     */
+    public void stringValue(int column, CharSequence text) {
+        ColumnVector vector = getVector(column);
+        if (vector != null && vector.getType() == ColumnType.STRING) {
+            vector.setCode(batch.getRowCount(), dictionary.encode(text));
+            rowHasValue = true;
+        }
+    }
+
+    /**
+     * The current row has ended - it's added to the batch, if it had a value in the columns of the schema
+     */
+    public void endRow() {
+        if (inRow && rowHasValue) {
+            batch.commitRow(rowNum);
+            if (batch.getRowCount() == batch.getCapacity()) {
+                flush();
+            }
+        }
+        inRow = false;
+    }
+
+    /**
+     * The sheet has ended - passes the last, incomplete batch to the handler
+     */
+    public void finish() {
+        if (inRow) {
+            endRow();
+        }
+        if (batch.getRowCount() > 0) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        handler.handleBatch(batch);
+        batch.reset();
+    }
+
+    private ColumnVector getVector(int column) {
+        if (!inRow || column < 0 || column >= vectorIndex.length) {
+            return null;
+        }
+        int index = vectorIndex[column];
+        return (index < 0) ? null : vectors[index];
+    }
+
+    /**
+     * Converts the serial date to milliseconds since the epoch, like
+     * {@link DateUtil#getLocalDateTime(double, boolean)} with the local date time taken as UTC
+     */
+    private long toEpochMillis(double date) {
+        long wholeDays = (long) date;
+        long epochDay;
+        if (date1904) {
+            epochDay = EPOCH_DAY_1904 + wholeDays;
+        } else {
+            // Excel thinks 2/29/1900 is a valid date, so the later days are shifted by one
+            epochDay = EPOCH_DAY_1900 + wholeDays - (wholeDays < 61 ? 1 : 2);
+        }
+        long millisInDay = (long) ((date - wholeDays) * DAY_MILLISECONDS + 0.5);
+        return epochDay * DAY_MILLISECONDS + millisInDay;
+    }
+}
@@ -0,0 +1,191 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.extractor;
+
+import java.util.Arrays;
+
+import org.apache.poi.util.Beta;
+
+/**
+ * Describes the columns of a sheet, which are read into {@link ColumnarBatch}es, and their types.
+ * <p>
+ * Cells outside the columns of the schema aren't read. Cells, whose value doesn't match the type
+ * of their column, e.g. text in a numeric column, are reported as null.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class ColumnarSchema {
+    /** the default number of rows of a batch */
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    /**
+     * The type of the values of a column
+     */
+    public enum ColumnType {
+        /** numeric and boolean cells as {@code double}s, booleans are reported as 1 and 0 */
+        NUMERIC,
+        /** text cells as codes of a {@link StringDictionary} */
+        STRING,
+        /** numeric cells as milliseconds since 1970-01-01T00:00 (the local date time is treated as UTC) */
+        DATE
+    }
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int firstRow;
+    private int lastRow = Integer.MAX_VALUE;
+    private int[] columns = new int[0];
+    private ColumnType[] types = new ColumnType[0];
+
+    /**
+     * Adds a numeric column
+     *
+     * @param column the zero based column of the sheet
+     * @return this schema
+     */
+    public ColumnarSchema addNumericColumn(int column) {
+        return addColumn(column, ColumnType.NUMERIC);
+    }
+
+    /**
+     * Adds a dictionary encoded text column
+     *
+     * @param column the zero based column of the sheet
+     * @return this schema
+     */
+    public ColumnarSchema addStringColumn(int column) {
+        return addColumn(column, ColumnType.STRING);
+    }
+
+    /**
+     * Adds a date column
+     *
+     * @param column the zero based column of the sheet
+     * @return this schema
+     */
+    public ColumnarSchema addDateColumn(int column) {
+        return addColumn(column, ColumnType.DATE);
+    }
+
+    /**
+     * Adds a column - the columns of the batches are in the order, in which they were added
+     *
+     * @param column the zero based column of the sheet
+     * @param type the type of the values
+     * @return this schema
+     */
+    public ColumnarSchema addColumn(int column, ColumnType type) {
+        if (column < 0) {
+            throw new IllegalArgumentException("Invalid column " + column);
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("The column type must not be null");
+        }
+        for (int c : columns) {
+            if (c == column) {
+                throw new IllegalArgumentException("Column " + column + " has already been added");
+            }
+        }
+        int count = columns.length;
+        columns = Arrays.copyOf(columns, count + 1);
+        types = Arrays.copyOf(types, count + 1);
+        columns[count] = column;
+        types[count] = type;
+        return this;
+    }
+
+    /**
+     * @param batchSize the maximum number of rows of a batch
+     * @return this schema
+     */
+    public ColumnarSchema setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be positive, but was " + batchSize);
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Restricts the rows, which are read, e.g. to skip a header row
+     *
+     * @param firstRow the zero based first row to read
+     * @param lastRow the zero based last row to read (inclusive)
+     * @return this schema
+     */
+    public ColumnarSchema setRows(int firstRow, int lastRow) {
+        if (firstRow < 0 || lastRow < firstRow) {
+            throw new IllegalArgumentException("Invalid row range " + firstRow + " to " + lastRow);
+        }
+        this.firstRow = firstRow;
+        this.lastRow = lastRow;
+        return this;
+    }
+
+    /**
+     * @return the maximum number of rows of a batch
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return the zero based first row to read
+     */
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * @return the zero based last row to read
+     */
+    public int getLastRow() {
+        return lastRow;
+    }
+
+    /**
+     * @return the number of columns
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * @param index the index of the column within the schema
+     * @return the zero based column of the sheet
+     */
+    public int getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * @param index the index of the column within the schema
+     * @return the type of the column
+     */
+    public ColumnType getColumnType(int index) {
+        return types[index];
+    }
+
+    /**
+     * @return the zero based columns of the sheet in the order of the schema
+     */
+    public int[] getColumns() {
+        return columns.clone();
+    }
+}
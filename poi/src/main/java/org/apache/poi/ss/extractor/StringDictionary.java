@@ -0,0 +1,101 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.extractor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.apache.poi.util.Beta;
+
+/**
+ * The dictionary of the codes of the text columns of a {@link ColumnarBatch}.
+ * <p>
+ * The codes below {@link #getSharedStringCount()} are the indexes of the shared strings table of the
+ * workbook, so text cells are encoded without looking up their strings. Texts, which aren't stored
+ * in the shared strings table - inline strings and cached formula results - are appended with
+ * the following codes. The codes are stable while a sheet is read, so equal codes of different
+ * batches refer to the same string.
+ * </p>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class StringDictionary {
+    private final IntFunction<String> sharedStrings;
+    private final int sharedStringCount;
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    /**
+     * @param sharedStrings looks up the shared strings by their index
+     * @param sharedStringCount the number of (unique) shared strings
+     */
+    public StringDictionary(IntFunction<String> sharedStrings, int sharedStringCount) {
+        if (sharedStringCount < 0) {
+            throw new IllegalArgumentException("Invalid number of shared strings: " + sharedStringCount);
+        }
+        this.sharedStrings = sharedStrings;
+        this.sharedStringCount = sharedStringCount;
+    }
+
+    /**
+     * @return the number of codes, which refer to the shared strings table
+     */
+    public int getSharedStringCount() {
+        return sharedStringCount;
+    }
+
+    /**
+     * @return the number of codes
+     */
+    public int size() {
+        return sharedStringCount + strings.size();
+    }
+
+    /**
+     * @param code the code of a text value
+     * @return the text of the code
+     * @throws IndexOutOfBoundsException if the code is unknown
+     */
+    public String get(int code) {
+        if (code < 0 || code >= size()) {
+            throw new IndexOutOfBoundsException("Invalid string code " + code + ", the dictionary has " + size() + " entries");
+        }
+        return (code < sharedStringCount) ? sharedStrings.apply(code) : strings.get(code - sharedStringCount);
+    }
+
+    /**
+     * Returns the code of a text, which isn't stored in the shared strings table
+     *
+     * @param text the text, which may be a reused buffer of the parser
+     * @return the code of the text, which is assigned on its first use
+     */
+    int encode(CharSequence text) {
+        String key = text.toString();
+        Integer code = codes.get(key);
+        if (code == null) {
+            code = sharedStringCount + strings.size();
+            strings.add(key);
+            codes.put(key, code);
+        }
+        return code;
+    }
+}
@@ -0,0 +1,298 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.util;
+
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextAttribute;
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.Beta;
+
+/**
+ * Estimates text widths by adding up cached glyph advances.
+ * <p>
+ * Measuring the text with a {@link java.awt.font.TextLayout} for every cell is exact, but slow for large sheets.
+ * This cache keeps a table of glyph advances per font family, size and style, so the width of a string
+ * is computed by a lookup per character. Kerning, ligatures and the side bearing of the last glyph are ignored,
+ * so the estimated widths are slightly larger than the ones of {@link SheetUtil#getColumnWidth(org.apache.poi.ss.usermodel.Sheet, int, boolean)}.
+ * </p>
+ * <p>
+ * The advances are either taken from the fonts of the font system ({@link #fromFontSystem()}),
+ * or from bundled metrics of a Helvetica/Arial compatible font ({@link #fromBundledMetrics()}),
+ * which doesn't require a working font system, but ignores the font family.
+ * </p>
+ * <p>
+ * Instances are thread-safe and are meant to be shared.
+ * </p>
+ *
+ * @see SheetUtil#getColumnWidth(org.apache.poi.ss.usermodel.Sheet, int, boolean, int, int, GlyphAdvanceCache)
+ * @since POI 5.2.4
+ */
+@Beta
+public final class GlyphAdvanceCache {
+    private static final FontRenderContext FONT_RENDER_CONTEXT = new FontRenderContext(null, true, true);
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    /** advances of Helvetica for the characters 0x20 - 0x7E in 1/1000 em */
+    private static final short[] HELVETICA = {
+        278, 278, 355, 556, 556, 889, 667, 191, 333, 333, 389, 584, 278, 333, 278, 278,
+        556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 278, 278, 584, 584, 584, 556,
+        1015, 667, 667, 722, 722, 667, 611, 778, 722, 278, 500, 667, 556, 833, 722, 778,
+        667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 278, 278, 278, 469, 556,
+        333, 556, 556, 500, 556, 556, 278, 556, 556, 222, 222, 500, 222, 833, 556, 556,
+        556, 556, 333, 500, 278, 556, 500, 722, 500, 500, 500, 334, 260, 334, 584
+    };
+
+    /** advances of Helvetica-Bold for the characters 0x20 - 0x7E in 1/1000 em */
+    private static final short[] HELVETICA_BOLD = {
+        278, 333, 474, 556, 556, 889, 722, 238, 333, 333, 389, 584, 278, 333, 278, 278,
+        556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 333, 333, 584, 584, 584, 611,
+        975, 722, 722, 722, 722, 667, 611, 778, 722, 278, 556, 722, 611, 833, 722, 778,
+        667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 333, 278, 333, 584, 556,
+        333, 556, 611, 556, 611, 556, 333, 611, 611, 278, 278, 556, 278, 889, 611, 611,
+        611, 611, 389, 556, 333, 611, 556, 778, 556, 556, 500, 389, 280, 389, 584
+    };
+
+    private final boolean _useFontSystem;
+    private final Map<String, FontAdvances> _fonts = new ConcurrentHashMap<>();
+
+    private GlyphAdvanceCache(boolean useFontSystem) {
+        _useFontSystem = useFontSystem;
+    }
+
+    /**
+     * @return a cache, which takes the glyph advances from the fonts installed on this machine
+     */
+    public static GlyphAdvanceCache fromFontSystem() {
+        return new GlyphAdvanceCache(true);
+    }
+
+    /**
+     * @return a cache, which uses bundled metrics of a Helvetica/Arial compatible font for all font families
+     *  and doesn't need a font system
+     */
+    public static GlyphAdvanceCache fromBundledMetrics() {
+        return new GlyphAdvanceCache(false);
+    }
+
+    /**
+     * @return true, if the advances are taken from the font system
+     */
+    public boolean isUsingFontSystem() {
+        return _useFontSystem;
+    }
+
+    /**
+     * Estimates the width of a single line of text
+     *
+     * @param font the font of the text
+     * @param text the text
+     * @return the width in points
+     */
+    public double getTextWidth(Font font, String text) {
+        FontAdvances advances = getAdvances(font);
+        double width = 0;
+        for (int i = 0, len = text.length(); i < len; i++) {
+            char c = text.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(text.charAt(i + 1))) {
+                width += advances.getAdvance(Character.toCodePoint(c, text.charAt(++i)));
+            } else {
+                width += advances.getAdvance(c);
+            }
+        }
+        return width;
+    }
+
+    /**
+     * Get the width of the default character '0' of the workbook's default font,
+     * like {@link SheetUtil#getDefaultCharWidth(Workbook)}
+     *
+     * @param wb the workbook
+     * @return the width in pixels
+     */
+    public int getDefaultCharWidth(Workbook wb) {
+        // don't let a tiny default font result in a zero width, which is used as divisor
+        return Math.max(1, (int) getAdvances(wb.getFontAt(0)).getAdvance('0'));
+    }
+
+    private FontAdvances getAdvances(Font font) {
+        String key = font.getFontName() + '|' + font.getFontHeightInPoints() + '|' + font.getBold() + '|' + font.getItalic();
+        return _fonts.computeIfAbsent(key, k -> _useFontSystem
+                ? new FontSystemAdvances(font)
+                : new BundledAdvances(font.getFontHeightInPoints(), font.getBold()));
+    }
+
+    /**
+     * Advance tables of a font, which are filled page by page
+     */
+    private abstract static class FontAdvances {
+        private final Page[] _pages = new Page[Character.MAX_VALUE / PAGE_SIZE + 1];
+        private final Map<Integer, Float> _supplementary = new HashMap<>();
+
+        float getAdvance(char c) {
+            Page page = _pages[c >>> PAGE_BITS];
+            if (page == null) {
+                page = loadPage(c >>> PAGE_BITS);
+            }
+            return page.advances[c & (PAGE_SIZE - 1)];
+        }
+
+        float getAdvance(int codePoint) {
+            synchronized (_supplementary) {
+                return _supplementary.computeIfAbsent(codePoint, this::measure);
+            }
+        }
+
+        private synchronized Page loadPage(int pageIndex) {
+            Page page = _pages[pageIndex];
+            if (page == null) {
+                page = new Page(measurePage(pageIndex << PAGE_BITS));
+                _pages[pageIndex] = page;
+            }
+            return page;
+        }
+
+        /**
+         * @return the advances of the {@link #PAGE_SIZE} characters starting with firstChar
+         */
+        abstract float[] measurePage(int firstChar);
+
+        abstract float measure(int codePoint);
+    }
+
+    /**
+     * The final field guarantees, that the advances are visible to all threads, which see the page
+     */
+    private static final class Page {
+        final float[] advances;
+
+        Page(float[] advances) {
+            this.advances = advances;
+        }
+    }
+
+    private static final class FontSystemAdvances extends FontAdvances {
+        private final java.awt.Font _font;
+
+        FontSystemAdvances(Font font) {
+            Map<TextAttribute, Object> attributes = new HashMap<>();
+            attributes.put(TextAttribute.FAMILY, font.getFontName());
+            attributes.put(TextAttribute.SIZE, (float) font.getFontHeightInPoints());
+            if (font.getBold()) {
+                attributes.put(TextAttribute.WEIGHT, TextAttribute.WEIGHT_BOLD);
+            }
+            if (font.getItalic()) {
+                attributes.put(TextAttribute.POSTURE, TextAttribute.POSTURE_OBLIQUE);
+            }
+            _font = new java.awt.Font(attributes);
+        }
+
+        @Override
+        float[] measurePage(int firstChar) {
+            char[] chars = new char[PAGE_SIZE];
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                char c = (char) (firstChar + i);
+                // surrogates are measured as pairs
+                chars[i] = Character.isSurrogate(c) ? ' ' : c;
+            }
+            GlyphVector glyphs = _font.createGlyphVector(FONT_RENDER_CONTEXT, chars);
+            float[] advances = new float[PAGE_SIZE];
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                advances[i] = glyphs.getGlyphMetrics(i).getAdvanceX();
+            }
+            return advances;
+        }
+
+        @Override
+        float measure(int codePoint) {
+            return (float) _font.getStringBounds(new String(Character.toChars(codePoint)), FONT_RENDER_CONTEXT).getWidth();
+        }
+    }
+
+    private static final class BundledAdvances extends FontAdvances {
+        private final float _scale;
+        private final short[] _metrics;
+
+        BundledAdvances(short fontHeightInPoints, boolean bold) {
+            _scale = fontHeightInPoints / 1000f;
+            _metrics = bold ? HELVETICA_BOLD : HELVETICA;
+        }
+
+        @Override
+        float[] measurePage(int firstChar) {
+            float[] advances = new float[PAGE_SIZE];
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                advances[i] = measure(firstChar + i);
+            }
+            return advances;
+        }
+
+        @Override
+        float measure(int codePoint) {
+            return getEmWidth(codePoint) * _scale;
+        }
+
+        private int getEmWidth(int codePoint) {
+            if (codePoint >= 0x20 && codePoint <= 0x7E) {
+                return _metrics[codePoint - 0x20];
+            }
+            switch (Character.getType(codePoint)) {
+                case Character.CONTROL:
+                case Character.FORMAT:
+                case Character.NON_SPACING_MARK:
+                case Character.ENCLOSING_MARK:
+                case Character.SURROGATE:
+                    return 0;
+                default:
+                    break;
+            }
+            if (isWide(codePoint)) {
+                return 1000;
+            }
+            if (codePoint < 0x0250) {
+                // accented latin letters are as wide as their base letter
+                String decomposed = Normalizer.normalize(new String(Character.toChars(codePoint)), Normalizer.Form.NFD);
+                char base = decomposed.charAt(0);
+                if (base >= 0x20 && base <= 0x7E) {
+                    return _metrics[base - 0x20];
+                }
+            }
+            return _metrics['0' - 0x20];
+        }
+
+        private static boolean isWide(int codePoint) {
+            Character.UnicodeBlock block = Character.UnicodeBlock.of(codePoint);
+            return Character.isIdeographic(codePoint)
+                || block == Character.UnicodeBlock.HIRAGANA
+                || block == Character.UnicodeBlock.KATAKANA
+                || block == Character.UnicodeBlock.HANGUL_SYLLABLES
+                || block == Character.UnicodeBlock.HANGUL_JAMO
+                || block == Character.UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION
+                || (codePoint >= 0xFF01 && codePoint <= 0xFF60)
+                || (codePoint >= 0xFFE0 && codePoint <= 0xFFE6)
+                || (codePoint >= 0x1F300 && codePoint <= 0x1FAFF);
+        }
+    }
+}
@@ -139,6 +139,24 @@ public class SheetUtil {
      */
     public static double getCellWidth(Cell cell, int defaultCharWidth, DataFormatter formatter, boolean useMergedCells,
                                       List<CellRangeAddress> mergedRegions) {
+        return getCellWidth(cell, defaultCharWidth, formatter, useMergedCells, mergedRegions, null);
+    }
+
+    /**
+     * Compute width of a single cell, optionally estimating the text widths with cached glyph advances
+     * instead of laying out the text with the font system.
+     *
+     * @param cell the cell whose width is to be calculated
+     * @param defaultCharWidth the width of a single character
+     * @param formatter formatter used to prepare the text to be measured
+     * @param useMergedCells    whether to use merged cells
+     * @param mergedRegions The list of merged regions as received via cell.getSheet().getMergedRegions()
+     * @param glyphAdvances the glyph advances to estimate the text widths or {@code null} to measure the text exactly
+     * @return  the width in pixels or -1 if cell is empty
+     * @since POI 5.2.4
+     */
+    public static double getCellWidth(Cell cell, int defaultCharWidth, DataFormatter formatter, boolean useMergedCells,
+                                      List<CellRangeAddress> mergedRegions, GlyphAdvanceCache glyphAdvances) {
         Sheet sheet = cell.getSheet();
         Workbook wb = sheet.getWorkbook();
         Row row = cell.getRow();
@@ -175,14 +193,11 @@ public class SheetUtil {
                 for (String line : lines) {
                     String txt = line + defaultChar;
 
-                    AttributedString str = new AttributedString(txt);
-                    copyAttributes(font, str, 0, txt.length());
-
                     /*if (rt.numFormattingRuns() > 0) {
                         // TODO: support rich text fragments
                     }*/
 
-                    width = getCellWidth(defaultCharWidth, colspan, style, width, str);
+                    width = getCellWidth(defaultCharWidth, colspan, style, width, font, txt, glyphAdvances);
                 }
             }
         } else {
@@ -199,15 +214,33 @@ public class SheetUtil {
             }
             if(sval != null) {
                 String txt = sval + defaultChar;
-                AttributedString str = new AttributedString(txt);
-                copyAttributes(font, str, 0, txt.length());
-
-                width = getCellWidth(defaultCharWidth, colspan, style, width, str);
+                width = getCellWidth(defaultCharWidth, colspan, style, width, font, txt, glyphAdvances);
             }
         }
         return width;
     }
 
+    /**
+     * Calculate the best-fit width for a cell with the font system or the cached glyph advances
+     */
+    private static double getCellWidth(int defaultCharWidth, int colspan, CellStyle style, double minWidth,
+            Font font, String txt, GlyphAdvanceCache glyphAdvances) {
+        if (glyphAdvances == null) {
+            AttributedString str = new AttributedString(txt);
+            copyAttributes(font, str, 0, txt.length());
+            return getCellWidth(defaultCharWidth, colspan, style, minWidth, str);
+        }
+
+        double frameWidth = glyphAdvances.getTextWidth(font, txt);
+        if (style.getRotation() != 0) {
+            // bounding box of the rotated text, with the height scaled like in the exact calculation
+            double angle = style.getRotation()*2.0*Math.PI/360.0;
+            double height = fontHeightMultiple * font.getFontHeightInPoints();
+            frameWidth = Math.abs(frameWidth * Math.cos(angle)) + Math.abs(height * Math.sin(angle));
+        }
+        return Math.max(minWidth, ((frameWidth / colspan) / defaultCharWidth) + style.getIndention());
+    }
+
     /**
      * Calculate the best-fit width for a cell
      * If a merged cell spans multiple columns, evenly distribute the column width among those columns
@@ -257,6 +290,21 @@ public class SheetUtil {
         return getColumnWidth(sheet, column, useMergedCells, sheet.getFirstRowNum(), sheet.getLastRowNum());
     }
 
+    /**
+     * Compute width of a column and return the result.
+     * If glyph advances are given, the text widths are estimated with them instead of the font system.
+     *
+     * @param sheet the sheet to calculate
+     * @param column    0-based index of the column
+     * @param useMergedCells    whether to use merged cells
+     * @param glyphAdvances the glyph advances to estimate the text widths or {@code null} to measure the text exactly
+     * @return  the width in pixels or -1 if all cells are empty
+     * @since POI 5.2.4
+     */
+    public static double getColumnWidth(Sheet sheet, int column, boolean useMergedCells, GlyphAdvanceCache glyphAdvances) {
+        return getColumnWidth(sheet, column, useMergedCells, sheet.getFirstRowNum(), sheet.getLastRowNum(), glyphAdvances);
+    }
+
     /**
      * Compute width of a column based on a subset of the rows and return the result.
      * Note that this fall can fail if you do not have the right fonts installed in your OS.
@@ -269,21 +317,52 @@ public class SheetUtil {
      * @return  the width in pixels or -1 if cell is empty
      */
     public static double getColumnWidth(Sheet sheet, int column, boolean useMergedCells, int firstRow, int lastRow){
+        return getColumnWidth(sheet, column, useMergedCells, firstRow, lastRow, null);
+    }
+
+    /**
+     * Compute width of a column based on a subset of the rows and return the result.
+     * If glyph advances are given, the text widths are estimated with them, which is considerably faster
+     * than laying out the text and doesn't need a working font system for bundled metrics.
+     *
+     * @param sheet the sheet to calculate
+     * @param column    0-based index of the column
+     * @param useMergedCells    whether to use merged cells
+     * @param firstRow  0-based index of the first row to consider (inclusive)
+     * @param lastRow   0-based index of the last row to consider (inclusive)
+     * @param glyphAdvances the glyph advances to estimate the text widths or {@code null} to measure the text exactly
+     * @return  the width in pixels or -1 if cell is empty
+     * @since POI 5.2.4
+     */
+    public static double getColumnWidth(Sheet sheet, int column, boolean useMergedCells, int firstRow, int lastRow,
+                                        GlyphAdvanceCache glyphAdvances) {
         DataFormatter formatter = new DataFormatter();
-        int defaultCharWidth = getDefaultCharWidth(sheet.getWorkbook());
+        int defaultCharWidth = getDefaultCharWidth(sheet.getWorkbook(), glyphAdvances);
 
         List<CellRangeAddress> mergedRegions = sheet.getMergedRegions();
         double width = -1;
         for (int rowIdx = firstRow; rowIdx <= lastRow; ++rowIdx) {
             Row row = sheet.getRow(rowIdx);
             if( row != null ) {
-                double cellWidth = getColumnWidthForRow(row, column, defaultCharWidth, formatter, useMergedCells, mergedRegions);
+                double cellWidth = getColumnWidthForRow(row, column, defaultCharWidth, formatter, useMergedCells, mergedRegions, glyphAdvances);
                 width = Math.max(width, cellWidth);
             }
         }
         return width;
     }
 
+    /**
+     * Get default character width using the Workbook's default font. Note that this can
+     * fail if your OS does not have the right fonts installed.
+     *
+     * @param wb the workbook to get the default character width from
+     * @param glyphAdvances the glyph advances to estimate the width or {@code null} to use the font system
+     * @return default character width in pixels
+     */
+    static int getDefaultCharWidth(final Workbook wb, GlyphAdvanceCache glyphAdvances) {
+        return glyphAdvances == null ? getDefaultCharWidth(wb) : glyphAdvances.getDefaultCharWidth(wb);
+    }
+
     /**
      * Get default character width using the Workbook's default font. Note that this can
      * fail if your OS does not have the right fonts installed.
@@ -322,7 +401,7 @@ public class SheetUtil {
      */
     private static double getColumnWidthForRow(
             Row row, int column, int defaultCharWidth, DataFormatter formatter, boolean useMergedCells,
-            List<CellRangeAddress> mergedRegions) {
+            List<CellRangeAddress> mergedRegions, GlyphAdvanceCache glyphAdvances) {
         if( row == null ) {
             return -1;
         }
@@ -333,7 +412,7 @@ public class SheetUtil {
             return -1;
         }
 
-        return getCellWidth(cell, defaultCharWidth, formatter, useMergedCells, mergedRegions);
+        return getCellWidth(cell, defaultCharWidth, formatter, useMergedCells, mergedRegions, glyphAdvances);
     }
 
     /**
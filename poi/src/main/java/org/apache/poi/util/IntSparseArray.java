@@ -0,0 +1,451 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.util;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * An ordered map of non-negative int keys to objects, e.g. of row or column indexes to rows or cells.
+ * <p>
+ * The values are stored in pages of a fixed size, which are allocated when the first key of their range
+ * is added and released when their last key is removed. Unlike a {@code TreeMap<Integer,V>}, neither the
+ * keys are boxed nor an entry object is created per value, and the lookup of a key is a plain array access.
+ * <p>
+ * The iteration follows the ascending order of the keys. The iterators of the {@link #values()} views
+ * support removal and are fail-fast, i.e. they throw a {@link ConcurrentModificationException}, if keys
+ * are added or removed after their creation other than by the iterator itself.
+ * The map doesn't support {@code null} values and isn't thread-safe.
+ *
+ * @param <V> the type of the values
+ * @since POI 5.2.4
+ */
+@Internal
+public final class IntSparseArray<V> {
+    private static final int DEFAULT_PAGE_BITS = 6;
+
+    private final int pageBits;
+    private final int pageMask;
+
+    private Object[][] pages = new Object[0][];
+    private int[] counts = new int[0];
+    private int size;
+    /** the lowest and highest key, only valid if the map isn't empty */
+    private int first, last;
+    private int modCount;
+
+    /**
+     * Creates a map with pages of 64 values
+     */
+    public IntSparseArray() {
+        this(DEFAULT_PAGE_BITS);
+    }
+
+    /**
+     * @param pageBits the number of the lower key bits, which address the values of one page
+     */
+    public IntSparseArray(int pageBits) {
+        if (pageBits < 1 || pageBits > 16) {
+            throw new IllegalArgumentException("Invalid page bits " + pageBits);
+        }
+        this.pageBits = pageBits;
+        this.pageMask = (1 << pageBits) - 1;
+    }
+
+    /**
+     * @param key the key
+     * @return the value of the key or {@code null} if the key isn't contained
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key < 0) {
+            return null;
+        }
+        int p = key >>> pageBits;
+        if (p >= pages.length) {
+            return null;
+        }
+        Object[] page = pages[p];
+        return (page == null) ? null : (V) page[key & pageMask];
+    }
+
+    /**
+     * @param key the non-negative key
+     * @param value the value, not {@code null}
+     * @return the previous value of the key or {@code null} if the key has been added
+     * @throws IllegalArgumentException if the key is negative
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Invalid key " + key);
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("The value must not be null");
+        }
+        int p = key >>> pageBits;
+        if (p >= pages.length) {
+            int capacity = Math.max(p + 1, pages.length * 2);
+            pages = Arrays.copyOf(pages, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        Object[] page = pages[p];
+        if (page == null) {
+            page = pages[p] = new Object[pageMask + 1];
+        }
+        int slot = key & pageMask;
+        V prev = (V) page[slot];
+        page[slot] = value;
+        if (prev == null) {
+            counts[p]++;
+            if (size++ == 0) {
+                first = last = key;
+            } else if (key < first) {
+                first = key;
+            } else if (key > last) {
+                last = key;
+            }
+            modCount++;
+        }
+        return prev;
+    }
+
+    /**
+     * @param key the key
+     * @return the removed value or {@code null} if the key isn't contained
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key < 0) {
+            return null;
+        }
+        int p = key >>> pageBits;
+        if (p >= pages.length || pages[p] == null) {
+            return null;
+        }
+        Object[] page = pages[p];
+        int slot = key & pageMask;
+        V prev = (V) page[slot];
+        if (prev == null) {
+            return null;
+        }
+        page[slot] = null;
+        if (--counts[p] == 0) {
+            pages[p] = null;
+        }
+        modCount++;
+        if (--size > 0) {
+            if (key == first) {
+                first = higherKey(key);
+            }
+            if (key == last) {
+                last = lowerKey(key);
+            }
+        }
+        return prev;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            pages = new Object[0][];
+            counts = new int[0];
+            size = 0;
+            modCount++;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the lowest key
+     * @throws NoSuchElementException if the map is empty
+     */
+    public int firstKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return first;
+    }
+
+    /**
+     * @return the highest key
+     * @throws NoSuchElementException if the map is empty
+     */
+    public int lastKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return last;
+    }
+
+    /**
+     * Returns the number of keys lower than the given key, i.e. the position of the key in the
+     * iteration order, if the key is contained.
+     *
+     * @param key the key
+     * @return the number of lower keys
+     */
+    public int countBelow(int key) {
+        if (size == 0 || key <= first) {
+            return 0;
+        }
+        if (key > last) {
+            return size;
+        }
+        int p = key >>> pageBits;
+        int count = 0;
+        for (int i = 0; i < p; i++) {
+            count += counts[i];
+        }
+        Object[] page = pages[p];
+        if (page != null) {
+            for (int slot = key & pageMask, i = 0; i < slot; i++) {
+                if (page[i] != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the key of a value by identity
+     *
+     * @param value the value
+     * @return the key of the value or -1 if the value isn't contained
+     */
+    public int keyOf(Object value) {
+        for (int p = 0; p < pages.length; p++) {
+            Object[] page = pages[p];
+            if (page == null) {
+                continue;
+            }
+            for (int slot = 0; slot < page.length; slot++) {
+                if (page[slot] == value && value != null) {
+                    return (p << pageBits) | slot;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return a view of the values in the order of their keys
+     */
+    public Collection<V> values() {
+        return new Values(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param fromKey the lowest key, inclusive
+     * @param toKey the highest key, exclusive
+     * @return a view of the values of the key range in the order of their keys
+     */
+    public Collection<V> values(int fromKey, int toKey) {
+        if (fromKey > toKey) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return new Values(Math.max(fromKey, 0), toKey);
+    }
+
+    /**
+     * The hash code is compatible to the one of a {@code Map<Integer,V>} with the same entries
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int p = 0; p < pages.length; p++) {
+            Object[] page = pages[p];
+            if (page == null) {
+                continue;
+            }
+            for (int slot = 0; slot < page.length; slot++) {
+                if (page[slot] != null) {
+                    hash += ((p << pageBits) | slot) ^ page[slot].hashCode();
+                }
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof IntSparseArray)) {
+            return false;
+        }
+        IntSparseArray<?> other = (IntSparseArray<?>) obj;
+        if (size != other.size) {
+            return false;
+        }
+        for (int key = (size == 0) ? -1 : first; key >= 0; key = (key == last) ? -1 : higherKey(key)) {
+            if (!get(key).equals(other.get(key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the lowest key greater than the given key or -1, if there is none
+     */
+    private int higherKey(int key) {
+        if (size == 0 || key >= last) {
+            return -1;
+        }
+        int from = key + 1;
+        int slot = from & pageMask;
+        for (int p = from >>> pageBits; p < pages.length; p++, slot = 0) {
+            Object[] page = pages[p];
+            if (page == null) {
+                continue;
+            }
+            for (; slot < page.length; slot++) {
+                if (page[slot] != null) {
+                    return (p << pageBits) | slot;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the highest key lower than the given key or -1, if there is none
+     */
+    private int lowerKey(int key) {
+        if (size == 0 || key <= first) {
+            return -1;
+        }
+        int from = key - 1;
+        int slot = from & pageMask;
+        for (int p = from >>> pageBits; p >= 0; p--, slot = pageMask) {
+            Object[] page = pages[p];
+            if (page == null) {
+                continue;
+            }
+            for (; slot >= 0; slot--) {
+                if (page[slot] != null) {
+                    return (p << pageBits) | slot;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the lowest key, which is equal to or greater than the given key, or -1 if there is none
+     */
+    private int ceilingKey(int key) {
+        if (size == 0 || key > last) {
+            return -1;
+        }
+        if (key <= first) {
+            return first;
+        }
+        return (get(key) != null) ? key : higherKey(key);
+    }
+
+    private final class Values extends AbstractCollection<V> {
+        private final int fromKey;
+        private final int toKey;
+
+        Values(int fromKey, int toKey) {
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new ValueIterator(fromKey, toKey);
+        }
+
+        @Override
+        public int size() {
+            if (fromKey == 0 && toKey == Integer.MAX_VALUE) {
+                return size;
+            }
+            return countBelow(toKey) - countBelow(fromKey);
+        }
+
+        @Override
+        public Spliterator<V> spliterator() {
+            return Spliterators.spliterator(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        }
+    }
+
+    private final class ValueIterator implements Iterator<V> {
+        private final int toKey;
+        private int nextKey;
+        private int lastKey = -1;
+        private int expectedModCount = modCount;
+
+        ValueIterator(int fromKey, int toKey) {
+            this.toKey = toKey;
+            nextKey = bounded(ceilingKey(fromKey));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextKey >= 0;
+        }
+
+        @Override
+        public V next() {
+            if (nextKey < 0) {
+                throw new NoSuchElementException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            lastKey = nextKey;
+            nextKey = bounded(higherKey(lastKey));
+            return get(lastKey);
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            IntSparseArray.this.remove(lastKey);
+            lastKey = -1;
+            expectedModCount = modCount;
+        }
+
+        private int bounded(int key) {
+            return (key < toKey) ? key : -1;
+        }
+    }
+}
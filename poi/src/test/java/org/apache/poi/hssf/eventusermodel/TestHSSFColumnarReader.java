@@ -0,0 +1,243 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.extractor.ColumnVector;
+import org.apache.poi.ss.extractor.ColumnarBatch;
+import org.apache.poi.ss.extractor.ColumnarSchema;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link HSSFColumnarReader}
+ */
+final class TestHSSFColumnarReader {
+
+    @Test
+    void readsBatches() throws IOException {
+        try (POIFSFileSystem fs = createWorkbook(false)) {
+            ColumnarSchema schema = new ColumnarSchema()
+                .addStringColumn(0)
+                .addNumericColumn(1)
+                .addDateColumn(2)
+                .setRows(1, Integer.MAX_VALUE)
+                .setBatchSize(4);
+            List<String> result = new ArrayList<>();
+            new HSSFColumnarReader(fs).read("DATA", schema, batch -> result.add(format(batch)));
+
+            // the header row is skipped and the empty row 6 isn't part of the batches
+            assertEquals(2, result.size());
+            assertEquals("[1: a 1.0 2020-06-18T00:00:00Z, 2: b null null, 3: a 2.5 null, 4: null 1.0 null]", result.get(0));
+            assertEquals("[5: c 6.0 1900-02-28T12:00:00Z, 7: \u00e4\u00f6\u00fc null null]", result.get(1));
+        }
+    }
+
+    @Test
+    void reusesSharedStringIndexes() throws IOException {
+        try (POIFSFileSystem fs = createWorkbook(false)) {
+            ColumnarSchema schema = new ColumnarSchema().addStringColumn(0).setRows(1, 3);
+            List<int[]> codes = new ArrayList<>();
+            new HSSFColumnarReader(fs).read(0, schema, batch -> {
+                ColumnVector strings = batch.getColumn(0);
+                codes.add(Arrays.copyOf(strings.getStringCodes(), batch.getRowCount()));
+                assertEquals("a", strings.getDictionary().get(strings.getStringCodes()[0]));
+                assertTrue(strings.getStringCodes()[0] < strings.getDictionary().getSharedStringCount());
+            });
+            assertEquals(1, codes.size());
+            int[] batchCodes = codes.get(0);
+            assertEquals(3, batchCodes.length);
+            assertEquals(batchCodes[0], batchCodes[2]);
+            assertFalse(batchCodes[0] == batchCodes[1]);
+        }
+    }
+
+    @Test
+    void nullBitmap() throws IOException {
+        try (POIFSFileSystem fs = createWorkbook(false)) {
+            ColumnarSchema schema = new ColumnarSchema().addNumericColumn(1).setRows(1, 5);
+            List<long[]> bitmaps = new ArrayList<>();
+            new HSSFColumnarReader(fs).read(0, schema, batch -> {
+                ColumnVector numbers = batch.getColumn(0);
+                assertEquals(4, batch.getRowCount());
+                assertArrayEquals(new double[]{1, 2.5, 1, 6}, Arrays.copyOf(numbers.getDoubles(), 4), 0);
+                bitmaps.add(numbers.getNullBitmap().clone());
+            });
+            assertEquals(1, bitmaps.size());
+            // row 2 has no number, but the rows without any value in the schema columns are skipped
+            assertEquals(0, bitmaps.get(0)[0] & 0xF);
+        }
+    }
+
+    @Test
+    void date1904() throws IOException {
+        try (POIFSFileSystem fs = createWorkbook(true)) {
+            ColumnarSchema schema = new ColumnarSchema().addDateColumn(2).setRows(1, 1);
+            List<Long> dates = new ArrayList<>();
+            new HSSFColumnarReader(fs).read(0, schema, batch -> dates.add(batch.getColumn(0).getEpochMillis()[0]));
+            assertEquals(1, dates.size());
+            assertEquals(DateUtil.getLocalDateTime(44000, true).toInstant(ZoneOffset.UTC).toEpochMilli(), (long) dates.get(0));
+        }
+    }
+
+    @Test
+    void epochMillisMatchDateUtil() throws IOException {
+        double[] dates = {0.25, 1, 59.5, 60, 61, 61.75, 25569, 44000.123456789, 2958465.99999};
+        for (boolean date1904 : new boolean[]{false, true}) {
+            UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+            try (HSSFWorkbook wb = new HSSFWorkbook()) {
+                if (date1904) {
+                    setDate1904(wb);
+                }
+                HSSFSheet sheet = wb.createSheet();
+                for (int i = 0; i < dates.length; i++) {
+                    sheet.createRow(i).createCell(0).setCellValue(dates[i]);
+                }
+                wb.write(bos);
+            }
+            try (POIFSFileSystem fs = new POIFSFileSystem(bos.toInputStream())) {
+                ColumnarSchema schema = new ColumnarSchema().addDateColumn(0);
+                new HSSFColumnarReader(fs).read(0, schema, batch -> {
+                    assertEquals(dates.length, batch.getRowCount());
+                    for (int i = 0; i < dates.length; i++) {
+                        long expected = DateUtil.getLocalDateTime(dates[i], date1904).toInstant(ZoneOffset.UTC).toEpochMilli();
+                        assertEquals(expected, batch.getColumn(0).getEpochMillis()[i], dates[i] + " " + date1904);
+                    }
+                });
+            }
+        }
+    }
+
+    @Test
+    void unknownSheet() throws IOException {
+        try (POIFSFileSystem fs = createWorkbook(false)) {
+            HSSFColumnarReader reader = new HSSFColumnarReader(fs);
+            ColumnarSchema schema = new ColumnarSchema().addNumericColumn(0);
+            assertThrows(IllegalArgumentException.class, () -> reader.read("missing", schema, batch -> {}));
+            assertThrows(IllegalArgumentException.class, () -> reader.read(5, schema, batch -> {}));
+        }
+    }
+
+    private static POIFSFileSystem createWorkbook(boolean date1904) throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet sheet = wb.createSheet("data");
+            wb.createSheet("other").createRow(0).createCell(0).setCellValue(99);
+
+            HSSFRow row = sheet.createRow(0);
+            row.createCell(0).setCellValue("name");
+            row.createCell(1).setCellValue("value");
+            row.createCell(2).setCellValue("date");
+
+            row = sheet.createRow(1);
+            row.createCell(0).setCellValue("a");
+            row.createCell(1).setCellValue(1);
+            row.createCell(2).setCellValue(44000);
+
+            row = sheet.createRow(2);
+            row.createCell(0).setCellValue("b");
+            // text in numeric and date columns is null
+            row.createCell(1).setCellValue("x");
+            row.createCell(2).setCellValue("y");
+
+            row = sheet.createRow(3);
+            row.createCell(0).setCellValue("a");
+            row.createCell(1).setCellFormula("B2+1.5");
+            row.getCell(1).setCellValue(2.5);
+
+            row = sheet.createRow(4);
+            row.createCell(1).setCellValue(true);
+            // a column outside of the schema
+            row.createCell(5).setCellValue(7);
+
+            row = sheet.createRow(5);
+            row.createCell(0).setCellFormula("\"c\"");
+            row.getCell(0).setCellValue("c");
+            row.createCell(1).setCellValue(6);
+            row.createCell(2).setCellValue(59.5);
+
+            // a row with cells outside of the schema only
+            sheet.createRow(6).createCell(4).setCellValue("z");
+
+            sheet.createRow(7).createCell(0).setCellValue("\u00e4\u00f6\u00fc");
+
+            if (date1904) {
+                setDate1904(wb);
+            }
+            wb.write(bos);
+        }
+        return new POIFSFileSystem(bos.toInputStream());
+    }
+
+    private static void setDate1904(HSSFWorkbook wb) {
+        for (Record r : wb.getInternalWorkbook().getWorkbookRecordList().getRecords()) {
+            if (r instanceof DateWindow1904Record) {
+                ((DateWindow1904Record) r).setWindowing((short) 1);
+            }
+        }
+    }
+
+    static String format(ColumnarBatch batch) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            if (row > 0) {
+                sb.append(", ");
+            }
+            sb.append(batch.getRowNum(row)).append(':');
+            for (int col = 0; col < batch.getColumnCount(); col++) {
+                ColumnVector vector = batch.getColumn(col);
+                sb.append(' ');
+                if (vector.isNull(row)) {
+                    sb.append("null");
+                    continue;
+                }
+                switch (vector.getType()) {
+                    case NUMERIC:
+                        sb.append(vector.getDoubles()[row]);
+                        break;
+                    case DATE:
+                        sb.append(Instant.ofEpochMilli(vector.getEpochMillis()[row]));
+                        break;
+                    default:
+                        sb.append(vector.getString(row));
+                        break;
+                }
+            }
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,114 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.junit.jupiter.api.Test;
+
+final class TestGlyphAdvanceCache {
+
+    @Test
+    void bundledMetrics() throws IOException {
+        try (Workbook wb = new HSSFWorkbook()) {
+            GlyphAdvanceCache glyphs = GlyphAdvanceCache.fromBundledMetrics();
+            assertFalse(glyphs.isUsingFontSystem());
+
+            Font font = wb.createFont();
+            font.setFontHeightInPoints((short) 10);
+            assertEquals(5.56, glyphs.getTextWidth(font, "0"), 0.001);
+            assertEquals(5, glyphs.getDefaultCharWidth(wb));
+            assertEquals(5.56 * 3, glyphs.getTextWidth(font, "000"), 0.001);
+            // accented letters take the width of the base letter, combining marks don't add anything
+            assertEquals(glyphs.getTextWidth(font, "e"), glyphs.getTextWidth(font, "\u00e9"), 0.001);
+            assertEquals(glyphs.getTextWidth(font, "e"), glyphs.getTextWidth(font, "e\u0301"), 0.001);
+            // ideographs and emojis outside of the BMP are full width
+            assertEquals(10, glyphs.getTextWidth(font, "\u4e2d"), 0.001);
+            assertEquals(10, glyphs.getTextWidth(font, "\ud83d\ude00"), 0.001);
+
+            Font bold = wb.createFont();
+            bold.setFontHeightInPoints((short) 10);
+            bold.setBold(true);
+            assertTrue(glyphs.getTextWidth(bold, "Title") > glyphs.getTextWidth(font, "Title"));
+
+            // the default char width is used as divisor, so it's never truncated to zero
+            wb.getFontAt(0).setFontHeightInPoints((short) 1);
+            assertEquals(1, glyphs.getDefaultCharWidth(wb));
+        }
+    }
+
+    @Test
+    void columnWidth() throws IOException {
+        try (Workbook wb = new HSSFWorkbook()) {
+            Sheet sheet = wb.createSheet();
+            sheet.createRow(0).createCell(0).setCellValue("0000");
+            sheet.createRow(1).createCell(0).setCellValue("00");
+            Row row = sheet.createRow(2);
+            row.createCell(0).setCellValue(12);
+            row.createCell(1);
+
+            GlyphAdvanceCache glyphs = GlyphAdvanceCache.fromBundledMetrics();
+            double charWidth = glyphs.getTextWidth(wb.getFontAt(0), "0");
+            int defaultCharWidth = glyphs.getDefaultCharWidth(wb);
+            // the widest text plus the default char
+            assertEquals(5 * charWidth / defaultCharWidth, SheetUtil.getColumnWidth(sheet, 0, false, glyphs), 0.001);
+            assertEquals(3 * charWidth / defaultCharWidth, SheetUtil.getColumnWidth(sheet, 0, false, 1, 2, glyphs), 0.001);
+            assertEquals(-1, SheetUtil.getColumnWidth(sheet, 1, false, glyphs));
+
+            CellStyle indented = wb.createCellStyle();
+            indented.setIndention((short) 2);
+            sheet.getRow(0).getCell(0).setCellStyle(indented);
+            assertEquals(5 * charWidth / defaultCharWidth + 2, SheetUtil.getColumnWidth(sheet, 0, false, glyphs), 0.001);
+
+            CellStyle rotated = wb.createCellStyle();
+            rotated.setRotation((short) 90);
+            sheet.getRow(0).getCell(0).setCellStyle(rotated);
+            // vertical text is as wide as twice the font height
+            assertEquals(2.0 * wb.getFontAt(0).getFontHeightInPoints() / defaultCharWidth,
+                    SheetUtil.getCellWidth(sheet.getRow(0).getCell(0), defaultCharWidth, new DataFormatter(),
+                            false, sheet.getMergedRegions(), glyphs), 0.001);
+        }
+    }
+
+    @Test
+    void mergedCells() throws IOException {
+        try (Workbook wb = new HSSFWorkbook()) {
+            Sheet sheet = wb.createSheet();
+            sheet.createRow(0).createCell(0).setCellValue("00000");
+            sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 1));
+
+            GlyphAdvanceCache glyphs = GlyphAdvanceCache.fromBundledMetrics();
+            double charWidth = glyphs.getTextWidth(wb.getFontAt(0), "0");
+            int defaultCharWidth = glyphs.getDefaultCharWidth(wb);
+            assertEquals(-1, SheetUtil.getColumnWidth(sheet, 0, false, glyphs));
+            // the width is distributed among the merged columns
+            assertEquals(3 * charWidth / defaultCharWidth, SheetUtil.getColumnWidth(sheet, 0, true, glyphs), 0.001);
+        }
+    }
+}
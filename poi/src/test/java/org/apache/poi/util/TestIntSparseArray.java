@@ -0,0 +1,142 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class to test IntSparseArray
+ */
+final class TestIntSparseArray {
+    @Test
+    void testPutGetRemove() {
+        IntSparseArray<String> array = new IntSparseArray<>(2);
+        assertTrue(array.isEmpty());
+        assertThrows(NoSuchElementException.class, array::firstKey);
+        assertNull(array.get(-1));
+        assertNull(array.get(100));
+
+        assertNull(array.put(9, "9"));
+        assertNull(array.put(2, "2"));
+        assertNull(array.put(30, "30"));
+        assertEquals("2", array.put(2, "two"));
+        assertEquals(3, array.size());
+        assertEquals(2, array.firstKey());
+        assertEquals(30, array.lastKey());
+        assertEquals("two", array.get(2));
+
+        assertEquals("two", array.remove(2));
+        assertNull(array.remove(2));
+        assertEquals(9, array.firstKey());
+        assertEquals("30", array.remove(30));
+        assertEquals(9, array.lastKey());
+        assertEquals("9", array.remove(9));
+        assertTrue(array.isEmpty());
+
+        assertThrows(IllegalArgumentException.class, () -> array.put(-1, "x"));
+        assertThrows(IllegalArgumentException.class, () -> array.put(1, null));
+    }
+
+    @Test
+    void testOrderAndCount() {
+        IntSparseArray<Integer> array = new IntSparseArray<>(3);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        Random rnd = new Random(4711);
+        for (int i = 0; i < 2000; i++) {
+            int key = rnd.nextInt(500);
+            if (rnd.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), array.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), array.put(key, i));
+            }
+        }
+
+        assertEquals(expected.size(), array.size());
+        assertEquals((int) expected.firstKey(), array.firstKey());
+        assertEquals((int) expected.lastKey(), array.lastKey());
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(array.values()));
+        assertEquals(new ArrayList<>(expected.subMap(100, 200).values()), new ArrayList<>(array.values(100, 200)));
+        assertEquals(expected.subMap(100, 200).size(), array.values(100, 200).size());
+        for (int key = 0; key < 510; key++) {
+            assertEquals(expected.headMap(key).size(), array.countBelow(key));
+        }
+        assertEquals(expected.hashCode(), array.hashCode());
+
+        Map.Entry<Integer, Integer> entry = expected.lastEntry();
+        assertEquals((int) entry.getKey(), array.keyOf(entry.getValue()));
+        assertEquals(-1, array.keyOf(-5));
+    }
+
+    @Test
+    void testIteratorRemove() {
+        IntSparseArray<String> array = new IntSparseArray<>(2);
+        for (int key = 0; key < 20; key += 3) {
+            array.put(key, Integer.toString(key));
+        }
+        List<String> removed = new ArrayList<>();
+        for (Iterator<String> it = array.values().iterator(); it.hasNext(); ) {
+            String value = it.next();
+            if (Integer.parseInt(value) % 2 == 0) {
+                it.remove();
+                removed.add(value);
+            }
+        }
+        assertEquals("[0, 6, 12, 18]", removed.toString());
+        assertEquals("[3, 9, 15]", array.values().toString());
+        assertEquals(3, array.firstKey());
+        assertEquals(15, array.lastKey());
+    }
+
+    @Test
+    void testConcurrentModification() {
+        IntSparseArray<String> array = new IntSparseArray<>();
+        array.put(1, "1");
+        array.put(2, "2");
+
+        Iterator<String> it = array.values().iterator();
+        it.next();
+        // replacing a value isn't a structural modification
+        array.put(2, "two");
+        assertEquals("two", it.next());
+
+        Iterator<String> it2 = array.values().iterator();
+        it2.next();
+        array.put(3, "3");
+        assertThrows(ConcurrentModificationException.class, it2::next);
+        assertFalse(array.isEmpty());
+
+        array.clear();
+        assertTrue(array.isEmpty());
+        assertFalse(array.values().iterator().hasNext());
+    }
+}